@@ -0,0 +1,64 @@
+package io.github.imfangs.dify.client.benchmark;
+
+import io.github.imfangs.dify.client.impl.AbstractDifyClient;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AbstractDifyClient.buildUrlWithParams 基准
+ * 分别使用纯 ASCII 参数（消息列表分页）和需要编码的中文关键字（工作流日志搜索）。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BuildUrlBenchmark {
+    private UrlBuilder client;
+    private Map<String, Object> messageParams;
+    private Map<String, Object> workflowLogParams;
+
+    @Setup
+    public void setup() {
+        client = new UrlBuilder();
+
+        messageParams = new LinkedHashMap<>();
+        messageParams.put("conversation_id", "45701982-8118-4bc5-8e9b-64562b4555f2");
+        messageParams.put("user", "benchmark-user");
+        messageParams.put("first_id", "5ad4cb98-f0c7-4085-b384-88c403be6290");
+        messageParams.put("limit", 20);
+
+        workflowLogParams = new LinkedHashMap<>();
+        workflowLogParams.put("keyword", "发票 查询 & 报销");
+        workflowLogParams.put("status", "failed");
+        workflowLogParams.put("page", 3);
+        workflowLogParams.put("limit", 50);
+    }
+
+    @Benchmark
+    public String messages() {
+        return client.build("/messages", messageParams);
+    }
+
+    @Benchmark
+    public String workflowLogs() {
+        return client.build("/workflows/logs", workflowLogParams);
+    }
+
+    /**
+     * 暴露 buildUrlWithParams 的最小客户端
+     */
+    static final class UrlBuilder extends AbstractDifyClient {
+        UrlBuilder() {
+            super("http://localhost/v1", "app-benchmark");
+        }
+
+        String build(String path, Map<String, Object> params) {
+            return buildUrlWithParams(path, params);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package io.github.imfangs.dify.client.benchmark;
+
+import io.github.imfangs.dify.client.util.JsonUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JsonUtils 序列化与反序列化基准
+ * 覆盖 model 包下通过 JSON 收发的全部模型类，样本数据由 {@link SampleModels} 生成。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonUtilsBenchmark {
+    private static final String MODEL_PACKAGE = "io.github.imfangs.dify.client.model.";
+
+    @Param({
+            "chat.Annotation", "chat.AnnotationListResponse", "chat.AnnotationReply", "chat.AppInfoResponse",
+            "chat.AppMetaResponse", "chat.AppParametersResponse", "chat.AudioToTextResponse", "chat.ChatMessage",
+            "chat.ChatMessageResponse", "chat.Conversation", "chat.ConversationListResponse", "chat.MessageListResponse",
+            "chat.SuggestedQuestionsResponse",
+            "common.Metadata", "common.RetrieverResource", "common.SimpleResponse", "common.Usage",
+            "completion.CompletionRequest", "completion.CompletionResponse",
+            "datasets.ChildChunkListResponse", "datasets.ChildChunkResponse", "datasets.CreateDatasetRequest",
+            "datasets.CreateDocumentByFileRequest", "datasets.CreateDocumentByTextRequest", "datasets.CreateMetadataRequest",
+            "datasets.CreateSegmentsRequest", "datasets.DatasetListResponse", "datasets.DatasetResponse",
+            "datasets.DocumentListResponse", "datasets.DocumentResponse", "datasets.IndexingStatusResponse",
+            "datasets.MetadataResponse", "datasets.ProcessRule", "datasets.RetrievalModel", "datasets.RetrieveRequest",
+            "datasets.RetrieveResponse", "datasets.SaveChildChunkRequest", "datasets.SegmentListResponse",
+            "datasets.SegmentResponse", "datasets.UpdateDocumentByFileRequest", "datasets.UpdateDocumentByTextRequest",
+            "datasets.UpdateDocumentMetadataRequest", "datasets.UpdateMetadataRequest", "datasets.UpdateSegmentRequest",
+            "datasets.UploadFileResponse",
+            "file.FileInfo", "file.FileUploadResponse",
+            "workflow.WorkflowLogsResponse", "workflow.WorkflowRunRequest", "workflow.WorkflowRunResponse",
+            "workflow.WorkflowRunStatusResponse", "workflow.WorkflowStopResponse"
+    })
+    public String model;
+
+    private Class<?> type;
+    private Object value;
+    private String json;
+
+    @Setup
+    public void setup() throws ReflectiveOperationException {
+        type = Class.forName(MODEL_PACKAGE + model);
+        value = SampleModels.create(type);
+        json = JsonUtils.toJson(value);
+        if (json == null || JsonUtils.fromJson(json, type) == null) {
+            throw new IllegalStateException("样本数据无法序列化: " + model);
+        }
+    }
+
+    @Benchmark
+    public String serialize() {
+        return JsonUtils.toJson(value);
+    }
+
+    @Benchmark
+    public Object deserialize() {
+        return JsonUtils.fromJson(json, type);
+    }
+}
@@ -0,0 +1,345 @@
+package io.github.imfangs.dify.client.benchmark;
+
+import io.github.imfangs.dify.client.callback.ChatflowStreamCallback;
+import io.github.imfangs.dify.client.callback.WorkflowStreamCallback;
+import io.github.imfangs.dify.client.enums.ResponseMode;
+import io.github.imfangs.dify.client.event.*;
+import io.github.imfangs.dify.client.impl.DefaultDifyClient;
+import io.github.imfangs.dify.client.model.chat.ChatMessage;
+import io.github.imfangs.dify.client.model.workflow.WorkflowRunRequest;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 流式并发压测
+ * 启动 {@link MockDifyServer}，以 N 个并发流持续调用流式接口，输出吞吐、总耗时和首个内容块延迟的分位数以及堆内存使用。
+ * <pre>
+ * java -cp target/benchmarks.jar io.github.imfangs.dify.client.benchmark.LoadDriver \
+ *     --streams=200 --duration=30 --stream=workflow --tps=50 --latency=100 --error-rate=0.01
+ * </pre>
+ * 参数：
+ * <ul>
+ *     <li>streams：并发流数量，默认 50</li>
+ *     <li>duration：持续时间（秒），默认 30</li>
+ *     <li>stream：chat / chatflow / workflow，默认 chat</li>
+ *     <li>tps：每个流每秒事件数，0 表示不限速，默认 50</li>
+ *     <li>latency：响应头延迟（毫秒），默认 100</li>
+ *     <li>error-rate：错误响应比例，默认 0</li>
+ *     <li>disconnect-rate：中途断流比例，默认 0</li>
+ * </ul>
+ */
+public final class LoadDriver {
+
+    private LoadDriver() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+        int streams = Integer.parseInt(options.getOrDefault("streams", "50"));
+        int durationSeconds = Integer.parseInt(options.getOrDefault("duration", "30"));
+        String stream = options.getOrDefault("stream", "chat");
+
+        MockDifyServer server = new MockDifyServer()
+                .chatStream("workflow".equals(stream) ? "chat" : stream)
+                .tokensPerSecond(Integer.parseInt(options.getOrDefault("tps", "50")))
+                .latencyMillis(Long.parseLong(options.getOrDefault("latency", "100")))
+                .errorRate(Double.parseDouble(options.getOrDefault("error-rate", "0")))
+                .disconnectRate(Double.parseDouble(options.getOrDefault("disconnect-rate", "0")));
+
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(streams);
+        dispatcher.setMaxRequestsPerHost(streams);
+        OkHttpClient httpClient = new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
+                .readTimeout(60, TimeUnit.SECONDS)
+                .build();
+
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        AtomicLong peakHeap = new AtomicLong();
+        ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor();
+        sampler.scheduleAtFixedRate(() -> peakHeap.accumulateAndGet(memory.getHeapMemoryUsage().getUsed(), Math::max),
+                0, 100, TimeUnit.MILLISECONDS);
+
+        try (MockDifyServer running = server.start()) {
+            DefaultDifyClient client = new DefaultDifyClient(running.baseUrl(), "app-load-driver", httpClient);
+            long gcCountBefore = gcCount();
+            long gcTimeBefore = gcTime();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(durationSeconds);
+
+            Worker[] workers = new Worker[streams];
+            Thread[] threads = new Thread[streams];
+            for (int i = 0; i < streams; i++) {
+                workers[i] = new Worker(client, stream, deadline);
+                threads[i] = new Thread(workers[i], "load-driver-" + i);
+                threads[i].start();
+            }
+            long start = System.nanoTime();
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+
+            report(streams, stream, elapsedSeconds, workers, peakHeap.get(), memory.getHeapMemoryUsage().getUsed(),
+                    gcCount() - gcCountBefore, gcTime() - gcTimeBefore);
+        } finally {
+            sampler.shutdownNow();
+            httpClient.dispatcher().executorService().shutdown();
+            httpClient.connectionPool().evictAll();
+        }
+    }
+
+    private static void report(int streams, String stream, double elapsedSeconds, Worker[] workers,
+                               long peakHeap, long finalHeap, long gcCount, long gcTimeMillis) {
+        int completed = 0;
+        int failed = 0;
+        long events = 0;
+        for (Worker worker : workers) {
+            completed += worker.completed;
+            failed += worker.failed;
+            events += worker.events;
+        }
+        long[] durations = merge(workers, true);
+        long[] firstChunks = merge(workers, false);
+
+        System.out.printf("stream=%s concurrency=%d duration=%.1fs%n", stream, streams, elapsedSeconds);
+        System.out.printf("completed=%d failed=%d throughput=%.1f streams/s events=%.0f events/s%n",
+                completed, failed, completed / elapsedSeconds, events / elapsedSeconds);
+        printPercentiles("stream_duration_ms", durations);
+        printPercentiles("time_to_first_chunk_ms", firstChunks);
+        System.out.printf("heap_peak_mb=%.1f heap_final_mb=%.1f gc_count=%d gc_time_ms=%d%n",
+                peakHeap / 1048576.0, finalHeap / 1048576.0, gcCount, gcTimeMillis);
+    }
+
+    private static void printPercentiles(String name, long[] sortedNanos) {
+        if (sortedNanos.length == 0) {
+            System.out.printf("%s: no samples%n", name);
+            return;
+        }
+        System.out.printf("%s: p50=%.1f p90=%.1f p99=%.1f p999=%.1f max=%.1f%n", name,
+                percentile(sortedNanos, 0.5), percentile(sortedNanos, 0.9), percentile(sortedNanos, 0.99),
+                percentile(sortedNanos, 0.999), sortedNanos[sortedNanos.length - 1] / 1e6);
+    }
+
+    private static double percentile(long[] sortedNanos, double quantile) {
+        int index = (int) Math.ceil(quantile * sortedNanos.length) - 1;
+        return sortedNanos[Math.max(0, Math.min(index, sortedNanos.length - 1))] / 1e6;
+    }
+
+    private static long[] merge(Worker[] workers, boolean durations) {
+        int size = 0;
+        for (Worker worker : workers) {
+            size += durations ? worker.durations.size : worker.firstChunks.size;
+        }
+        long[] merged = new long[size];
+        int offset = 0;
+        for (Worker worker : workers) {
+            LongList list = durations ? worker.durations : worker.firstChunks;
+            System.arraycopy(list.values, 0, merged, offset, list.size);
+            offset += list.size;
+        }
+        Arrays.sort(merged);
+        return merged;
+    }
+
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, bean.getCollectionCount());
+        }
+        return count;
+    }
+
+    private static long gcTime() {
+        long time = 0;
+        for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            time += Math.max(0, bean.getCollectionTime());
+        }
+        return time;
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (arg.startsWith("--") && arg.contains("=")) {
+                int index = arg.indexOf('=');
+                options.put(arg.substring(2, index), arg.substring(index + 1));
+            }
+        }
+        return options;
+    }
+
+    /**
+     * 单个并发流，循环发起流式请求直到截止时间
+     */
+    private static final class Worker implements Runnable {
+        private final DefaultDifyClient client;
+        private final String stream;
+        private final long deadline;
+        private final LongList durations = new LongList();
+        private final LongList firstChunks = new LongList();
+        private int completed;
+        private int failed;
+        private long events;
+
+        Worker(DefaultDifyClient client, String stream, long deadline) {
+            this.client = client;
+            this.stream = stream;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public void run() {
+            while (System.nanoTime() < deadline) {
+                boolean workflow = "workflow".equals(stream);
+                StreamProbe probe = new StreamProbe(workflow);
+                try {
+                    if (workflow) {
+                        client.runWorkflowStream(WorkflowRunRequest.builder()
+                                .user("load-driver")
+                                .responseMode(ResponseMode.STREAMING)
+                                .inputs(Collections.singletonMap("query", "介绍一下 Dify"))
+                                .build(), (WorkflowStreamCallback) probe);
+                    } else {
+                        client.sendChatMessageStream(ChatMessage.builder()
+                                .query("介绍一下 Dify")
+                                .user("load-driver")
+                                .responseMode(ResponseMode.STREAMING)
+                                .inputs(Collections.emptyMap())
+                                .build(), (ChatflowStreamCallback) probe);
+                    }
+                    if (!probe.done.await(2, TimeUnit.MINUTES)) {
+                        failed++;
+                        continue;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (Exception e) {
+                    failed++;
+                    continue;
+                }
+                events += probe.events;
+                if (probe.failed) {
+                    failed++;
+                } else {
+                    completed++;
+                    durations.add(probe.endNanos - probe.startNanos);
+                    if (probe.firstChunkNanos > 0) {
+                        firstChunks.add(probe.firstChunkNanos - probe.startNanos);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 记录单个流的时间点，在流结束或失败时通知
+     */
+    private static final class StreamProbe implements ChatflowStreamCallback, WorkflowStreamCallback {
+        private final boolean workflow;
+        private final CountDownLatch done = new CountDownLatch(1);
+        private final long startNanos = System.nanoTime();
+        private volatile long firstChunkNanos;
+        private volatile long endNanos;
+        private volatile long events;
+        private volatile boolean failed;
+
+        StreamProbe(boolean workflow) {
+            this.workflow = workflow;
+        }
+
+        private void chunk() {
+            if (firstChunkNanos == 0) {
+                firstChunkNanos = System.nanoTime();
+            }
+            events++;
+        }
+
+        private void finish(boolean failure) {
+            if (done.getCount() == 0) {
+                return;
+            }
+            endNanos = System.nanoTime();
+            failed = failure;
+            done.countDown();
+        }
+
+        @Override
+        public void onMessage(MessageEvent event) {
+            chunk();
+        }
+
+        @Override
+        public void onWorkflowTextChunk(WorkflowTextChunkEvent event) {
+            chunk();
+        }
+
+        @Override
+        public void onMessageEnd(MessageEndEvent event) {
+            events++;
+            finish(false);
+        }
+
+        @Override
+        public void onWorkflowStarted(WorkflowStartedEvent event) {
+            events++;
+        }
+
+        @Override
+        public void onNodeStarted(NodeStartedEvent event) {
+            events++;
+        }
+
+        @Override
+        public void onNodeFinished(NodeFinishedEvent event) {
+            events++;
+        }
+
+        @Override
+        public void onWorkflowFinished(WorkflowFinishedEvent event) {
+            events++;
+            // 工作流编排对话在 workflow_finished 之后还有 message_end
+            if (workflow) {
+                finish(false);
+            }
+        }
+
+        @Override
+        public void onError(ErrorEvent event) {
+            finish(true);
+        }
+
+        @Override
+        public void onException(Throwable throwable) {
+            finish(true);
+        }
+    }
+
+    /**
+     * 可增长的 long 数组，避免记录样本时装箱
+     */
+    private static final class LongList {
+        private long[] values = new long[1024];
+        private int size;
+
+        void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+    }
+}
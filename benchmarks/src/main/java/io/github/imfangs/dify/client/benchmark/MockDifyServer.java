@@ -0,0 +1,290 @@
+package io.github.imfangs.dify.client.benchmark;
+
+import io.github.imfangs.dify.client.model.chat.*;
+import io.github.imfangs.dify.client.model.common.SimpleResponse;
+import io.github.imfangs.dify.client.model.completion.CompletionResponse;
+import io.github.imfangs.dify.client.model.datasets.*;
+import io.github.imfangs.dify.client.model.file.FileUploadResponse;
+import io.github.imfangs.dify.client.model.workflow.WorkflowLogsResponse;
+import io.github.imfangs.dify.client.model.workflow.WorkflowRunResponse;
+import io.github.imfangs.dify.client.model.workflow.WorkflowRunStatusResponse;
+import io.github.imfangs.dify.client.model.workflow.WorkflowStopResponse;
+import io.github.imfangs.dify.client.util.JsonUtils;
+import okhttp3.HttpUrl;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.mockwebserver.SocketPolicy;
+import okio.Buffer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * 进程内模拟 Dify 服务
+ * 基于 MockWebServer，流式请求按指定速率回放录制的 SSE 响应，阻塞请求和其他接口返回由 {@link SampleModels} 生成的响应。
+ * 可配置响应头延迟、错误率和断流率，用于在没有真实 Dify 服务的环境下测量客户端吞吐。
+ * <pre>
+ * try (MockDifyServer server = new MockDifyServer().tokensPerSecond(50).latencyMillis(200).start()) {
+ *     DifyClient client = DifyClientFactory.createClient(server.baseUrl(), "app-mock");
+ * }
+ * </pre>
+ */
+public class MockDifyServer implements Closeable {
+    private static final String STREAMING_MODE = "\"response_mode\":\"streaming\"";
+    private static final String ERROR_BODY = "{\"code\":\"internal_server_error\",\"message\":\"Injected failure\",\"status\":500}";
+    private static final String RATE_LIMIT_BODY = "{\"code\":\"too_many_requests\",\"message\":\"Injected rate limit\",\"status\":429}";
+    private static final Pattern ID = Pattern.compile("[^/]+");
+
+    private final MockWebServer server = new MockWebServer();
+    private final List<Route> routes = new ArrayList<>();
+    private String chatStream = "chat";
+    private int tokensPerSecond;
+    private long latencyMillis;
+    private double errorRate;
+    private double disconnectRate;
+
+    private Replay chat;
+    private Replay workflow;
+
+    /**
+     * 对话接口回放的流，chat（默认）或 chatflow
+     *
+     * @param name 流名称
+     * @return this
+     */
+    public MockDifyServer chatStream(String name) {
+        this.chatStream = name;
+        return this;
+    }
+
+    /**
+     * 流式响应每秒发送的事件数，0 表示不限速
+     *
+     * @param tokensPerSecond 每秒事件数
+     * @return this
+     */
+    public MockDifyServer tokensPerSecond(int tokensPerSecond) {
+        this.tokensPerSecond = tokensPerSecond;
+        return this;
+    }
+
+    /**
+     * 响应头延迟，模拟服务端排队和首包时间
+     *
+     * @param latencyMillis 延迟（毫秒）
+     * @return this
+     */
+    public MockDifyServer latencyMillis(long latencyMillis) {
+        this.latencyMillis = latencyMillis;
+        return this;
+    }
+
+    /**
+     * 返回错误响应的比例，一半为 500，一半为 429
+     *
+     * @param errorRate 0 到 1 之间的比例
+     * @return this
+     */
+    public MockDifyServer errorRate(double errorRate) {
+        this.errorRate = errorRate;
+        return this;
+    }
+
+    /**
+     * 流式响应中途断开连接的比例
+     *
+     * @param disconnectRate 0 到 1 之间的比例
+     * @return this
+     */
+    public MockDifyServer disconnectRate(double disconnectRate) {
+        this.disconnectRate = disconnectRate;
+        return this;
+    }
+
+    /**
+     * 启动服务
+     *
+     * @return this
+     * @throws IOException 启动失败
+     */
+    public MockDifyServer start() throws IOException {
+        chat = new Replay(RecordedStreams.load(chatStream));
+        workflow = new Replay(RecordedStreams.load("workflow"));
+        registerRoutes();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                return respond(request);
+            }
+        });
+        server.start();
+        return this;
+    }
+
+    /**
+     * 获取客户端使用的基础URL
+     *
+     * @return 基础URL，如 http://127.0.0.1:12345/v1
+     */
+    public String baseUrl() {
+        String url = server.url("/v1").toString();
+        return url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+    }
+
+    /**
+     * 获取已处理的请求数
+     *
+     * @return 请求数
+     */
+    public int requestCount() {
+        return server.getRequestCount();
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.shutdown();
+    }
+
+    private void registerRoutes() {
+        route("POST", "/chat-messages", ChatMessageResponse.class, chat);
+        route("POST", "/completion-messages", CompletionResponse.class, chat);
+        route("POST", "/workflows/run", WorkflowRunResponse.class, workflow);
+        route("POST", "/(chat|completion)-messages/{id}/stop", SimpleResponse.class, null);
+        route("POST", "/workflows/tasks/{id}/stop", WorkflowStopResponse.class, null);
+        route("GET", "/workflows/run/{id}", WorkflowRunStatusResponse.class, null);
+        route("GET", "/workflows/logs", WorkflowLogsResponse.class, null);
+        route("GET", "/messages", MessageListResponse.class, null);
+        route("GET", "/messages/{id}/suggested", SuggestedQuestionsResponse.class, null);
+        route("GET", "/conversations", ConversationListResponse.class, null);
+        route("POST", "/conversations/{id}/name", Conversation.class, null);
+        route("DELETE", "/conversations/{id}", SimpleResponse.class, null);
+        route("GET", "/info", AppInfoResponse.class, null);
+        route("GET", "/parameters", AppParametersResponse.class, null);
+        route("GET", "/meta", AppMetaResponse.class, null);
+        route("POST", "/files/upload", FileUploadResponse.class, null);
+        route("POST", "/audio-to-text", AudioToTextResponse.class, null);
+        route("GET", "/apps/annotations", AnnotationListResponse.class, null);
+        route("POST", "/apps/annotations", Annotation.class, null);
+        route("PATCH", "/apps/annotations/{id}", Annotation.class, null);
+        route("DELETE", "/apps/annotations/{id}", SimpleResponse.class, null);
+        route("(POST|GET)", "/apps/annotations-reply/.*", AnnotationReply.class, null);
+        route("GET", "/datasets", DatasetListResponse.class, null);
+        route("POST", "/datasets", DatasetResponse.class, null);
+        route("POST", "/datasets/{id}/retrieve", RetrieveResponse.class, null);
+        route("GET", "/datasets/{id}/documents", DocumentListResponse.class, null);
+        route("POST", "/datasets/{id}/document/create-by-(text|file)", DocumentResponse.class, null);
+        route("GET", "/datasets/{id}/documents/{id}/indexing-status", IndexingStatusResponse.class, null);
+        route("GET", "/datasets/{id}/documents/{id}/segments", SegmentListResponse.class, null);
+        route("GET", "/datasets/{id}/documents/{id}/segments/{id}/child_chunks", ChildChunkListResponse.class, null);
+        route("PATCH", "/datasets/{id}/documents/{id}/segments/{id}/child_chunks/{id}", ChildChunkResponse.class, null);
+        route("PATCH", "/datasets/{id}/metadata/{id}", MetadataResponse.class, null);
+        // Dify 删除知识库资源时返回 204 无响应体
+        noContent("DELETE", "/datasets/{id}(/documents/{id}(/segments/{id}(/child_chunks/{id})?)?)?");
+        noContent("DELETE", "/datasets/{id}/metadata/{id}");
+    }
+
+    private void route(String method, String path, Class<?> responseType, Replay replay) {
+        String json;
+        try {
+            json = JsonUtils.toJson(SampleModels.create(responseType));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("无法生成样本响应: " + responseType.getName(), e);
+        }
+        String regex = "/v1" + path.replace("{id}", ID.pattern());
+        routes.add(new Route(Pattern.compile(method), Pattern.compile(regex), json, replay));
+    }
+
+    private void noContent(String method, String path) {
+        routes.add(new Route(Pattern.compile(method), Pattern.compile("/v1" + path.replace("{id}", ID.pattern())), null, null));
+    }
+
+    private MockResponse respond(RecordedRequest request) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (errorRate > 0 && random.nextDouble() < errorRate) {
+            boolean rateLimited = random.nextBoolean();
+            return delayed(new MockResponse()
+                    .setResponseCode(rateLimited ? 429 : 500)
+                    .setHeader("Content-Type", "application/json")
+                    .setBody(rateLimited ? RATE_LIMIT_BODY : ERROR_BODY));
+        }
+
+        HttpUrl url = request.getRequestUrl();
+        String path = url != null ? url.encodedPath() : request.getPath();
+        for (Route route : routes) {
+            if (!route.method.matcher(request.getMethod()).matches() || !route.path.matcher(path).matches()) {
+                continue;
+            }
+            if (route.replay != null && request.getBody().snapshot().utf8().contains(STREAMING_MODE)) {
+                return delayed(stream(route.replay, random));
+            }
+            if (route.json == null) {
+                return delayed(new MockResponse().setResponseCode(204));
+            }
+            return delayed(json(route.json));
+        }
+        return delayed(json("{\"result\":\"success\"}"));
+    }
+
+    private MockResponse stream(Replay replay, ThreadLocalRandom random) {
+        MockResponse response = new MockResponse()
+                .setHeader("Content-Type", "text/event-stream")
+                .setHeader("Cache-Control", "no-cache")
+                .setBody(new Buffer().write(replay.body));
+        if (tokensPerSecond > 0) {
+            response.throttleBody(replay.bytesPerEvent, TimeUnit.SECONDS.toMicros(1) / tokensPerSecond, TimeUnit.MICROSECONDS);
+        }
+        if (disconnectRate > 0 && random.nextDouble() < disconnectRate) {
+            response.setSocketPolicy(SocketPolicy.DISCONNECT_DURING_RESPONSE_BODY);
+        }
+        return response;
+    }
+
+    private static MockResponse json(String body) {
+        return new MockResponse().setHeader("Content-Type", "application/json").setBody(body);
+    }
+
+    private MockResponse delayed(MockResponse response) {
+        return latencyMillis > 0 ? response.setHeadersDelay(latencyMillis, TimeUnit.MILLISECONDS) : response;
+    }
+
+    /**
+     * 接口路由
+     */
+    private static final class Route {
+        private final Pattern method;
+        private final Pattern path;
+        /**
+         * 样本响应，为null时返回 204
+         */
+        private final String json;
+        private final Replay replay;
+
+        Route(Pattern method, Pattern path, String json, Replay replay) {
+            this.method = method;
+            this.path = path;
+            this.json = json;
+            this.replay = replay;
+        }
+    }
+
+    /**
+     * 回放的流式响应，按平均事件大小限速
+     */
+    private static final class Replay {
+        private final byte[] body;
+        private final long bytesPerEvent;
+
+        Replay(byte[] body) {
+            this.body = body;
+            int events = Math.max(1, RecordedStreams.events(body).size());
+            this.bytesPerEvent = Math.max(1, body.length / events);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package io.github.imfangs.dify.client.benchmark;
+
+import io.github.imfangs.dify.client.event.BaseEvent;
+import io.github.imfangs.dify.client.util.JsonUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 录制的 SSE 响应
+ * 位于 resources/streams 下，chat、chatflow、workflow 分别对应三种流式接口的完整响应。
+ */
+final class RecordedStreams {
+    private static final String DATA_PREFIX = "data:";
+
+    private RecordedStreams() {
+    }
+
+    /**
+     * 读取录制的原始响应体
+     *
+     * @param name 名称：chat / chatflow / workflow
+     * @return 响应体字节
+     */
+    static byte[] load(String name) throws IOException {
+        try (InputStream in = RecordedStreams.class.getResourceAsStream("/streams/" + name + ".sse")) {
+            if (in == null) {
+                throw new IOException("未找到录制的流: " + name);
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        }
+    }
+
+    /**
+     * 拆分为事件，每项为 {事件数据, 事件类型}
+     *
+     * @param body 响应体字节
+     * @return 事件列表
+     */
+    static List<String[]> events(byte[] body) {
+        List<String[]> events = new ArrayList<>();
+        for (String line : new String(body, StandardCharsets.UTF_8).split("\n")) {
+            if (line.startsWith(DATA_PREFIX)) {
+                String data = line.substring(DATA_PREFIX.length()).trim();
+                BaseEvent event = JsonUtils.fromJson(data, BaseEvent.class);
+                events.add(new String[]{data, event != null ? event.getEvent() : null});
+            }
+        }
+        return events;
+    }
+}
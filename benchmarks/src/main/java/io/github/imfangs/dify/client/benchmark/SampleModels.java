@@ -0,0 +1,105 @@
+package io.github.imfangs.dify.client.benchmark;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 按字段类型反射填充模型对象，用于生成序列化基准的样本数据
+ * 新增模型类无需维护样例 JSON，列表字段填充 {@value #LIST_SIZE} 个元素。
+ */
+final class SampleModels {
+    private static final String MODEL_PACKAGE = "io.github.imfangs.dify.client";
+    private static final int LIST_SIZE = 3;
+    private static final int MAX_DEPTH = 4;
+
+    private SampleModels() {
+    }
+
+    /**
+     * 创建填充了所有字段的模型对象
+     *
+     * @param type 模型类
+     * @return 模型对象
+     */
+    static Object create(Class<?> type) throws ReflectiveOperationException {
+        return create(type, 0);
+    }
+
+    private static Object create(Class<?> type, int depth) throws ReflectiveOperationException {
+        Constructor<?> constructor = type.getDeclaredConstructor();
+        constructor.setAccessible(true);
+        Object instance = constructor.newInstance();
+        for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers()) || field.isSynthetic()) {
+                    continue;
+                }
+                field.setAccessible(true);
+                field.set(instance, sample(field.getName(), field.getType(), field.getGenericType(), depth));
+            }
+        }
+        return instance;
+    }
+
+    private static Object sample(String name, Class<?> type, Type genericType, int depth) throws ReflectiveOperationException {
+        if (type == String.class) {
+            return "sample-" + name;
+        }
+        if (type == Integer.class || type == int.class) {
+            return 42;
+        }
+        if (type == Long.class || type == long.class) {
+            return 1705395332L;
+        }
+        if (type == Double.class || type == double.class) {
+            return 0.875;
+        }
+        if (type == Float.class || type == float.class) {
+            return 0.5f;
+        }
+        if (type == Boolean.class || type == boolean.class) {
+            return Boolean.TRUE;
+        }
+        if (type.isEnum()) {
+            return type.getEnumConstants()[0];
+        }
+        if (type == Object.class) {
+            return "sample-" + name;
+        }
+        if (List.class.isAssignableFrom(type)) {
+            Type element = typeArgument(genericType, 0);
+            List<Object> list = new ArrayList<>(LIST_SIZE);
+            if (element instanceof Class && depth < MAX_DEPTH) {
+                for (int i = 0; i < LIST_SIZE; i++) {
+                    list.add(sample(name, (Class<?>) element, element, depth + 1));
+                }
+            }
+            return list;
+        }
+        if (Map.class.isAssignableFrom(type)) {
+            Map<String, Object> map = new LinkedHashMap<>();
+            for (int i = 0; i < LIST_SIZE; i++) {
+                map.put(name + "_" + i, "value-" + i);
+            }
+            return map;
+        }
+        if (type.getName().startsWith(MODEL_PACKAGE) && depth < MAX_DEPTH) {
+            return create(type, depth + 1);
+        }
+        return null;
+    }
+
+    private static Type typeArgument(Type genericType, int index) {
+        if (genericType instanceof ParameterizedType) {
+            return ((ParameterizedType) genericType).getActualTypeArguments()[index];
+        }
+        return null;
+    }
+}
@@ -0,0 +1,261 @@
+package io.github.imfangs.dify.client.benchmark;
+
+import io.github.imfangs.dify.client.callback.BaseStreamCallback;
+import io.github.imfangs.dify.client.callback.ChatStreamCallback;
+import io.github.imfangs.dify.client.callback.ChatflowStreamCallback;
+import io.github.imfangs.dify.client.callback.WorkflowStreamCallback;
+import io.github.imfangs.dify.client.enums.ResponseMode;
+import io.github.imfangs.dify.client.event.*;
+import io.github.imfangs.dify.client.impl.DefaultDifyClient;
+import io.github.imfangs.dify.client.impl.StreamEventDispatcher;
+import io.github.imfangs.dify.client.model.chat.ChatMessage;
+import io.github.imfangs.dify.client.model.workflow.WorkflowRunRequest;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 流式响应处理基准
+ * dispatch 只测量 StreamEventDispatcher 对已拆分事件的解析与分发；
+ * stream 通过 DefaultDifyClient 处理进程内返回的录制响应，包含 SSE 按行拆分、事件类型解析和分发，
+ * 不经过网络，但包含 OkHttp 异步调用的线程切换。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StreamDispatchBenchmark {
+    private static final MediaType EVENT_STREAM = MediaType.get("text/event-stream");
+
+    @Param({"chat", "chatflow", "workflow"})
+    public String stream;
+
+    private List<String[]> events;
+    private ConsumingCallback chatCallback;
+    private ConsumingWorkflowCallback workflowCallback;
+    private DefaultDifyClient client;
+    private OkHttpClient httpClient;
+
+    @Setup
+    public void setup(Blackhole blackhole) throws IOException {
+        byte[] body = RecordedStreams.load(stream);
+        events = RecordedStreams.events(body);
+        chatCallback = new ConsumingCallback(blackhole, null);
+        workflowCallback = new ConsumingWorkflowCallback(blackhole, null);
+
+        httpClient = new OkHttpClient.Builder()
+                .addInterceptor(chain -> new Response.Builder()
+                        .request(chain.request())
+                        .protocol(Protocol.HTTP_1_1)
+                        .code(200)
+                        .message("OK")
+                        .body(ResponseBody.create(body, EVENT_STREAM))
+                        .build())
+                .build();
+        client = new DefaultDifyClient("http://localhost/v1", "app-benchmark", httpClient);
+    }
+
+    @TearDown
+    public void tearDown() {
+        httpClient.dispatcher().executorService().shutdown();
+        httpClient.connectionPool().evictAll();
+    }
+
+    @Benchmark
+    public void dispatch() {
+        for (String[] event : events) {
+            switch (stream) {
+                case "chat":
+                    StreamEventDispatcher.dispatchChatEvent((ChatStreamCallback) chatCallback, event[0], event[1]);
+                    break;
+                case "chatflow":
+                    StreamEventDispatcher.dispatchChatFlowEvent(chatCallback, event[0], event[1]);
+                    break;
+                default:
+                    StreamEventDispatcher.dispatchWorkflowEvent(workflowCallback, event[0]);
+                    break;
+            }
+        }
+    }
+
+    @Benchmark
+    public Object stream() throws Exception {
+        CountDownLatch done = new CountDownLatch(1);
+        AtomicReference<Object> last = new AtomicReference<>();
+        switch (stream) {
+            case "chat":
+                client.sendChatMessageStream(chatMessage(), (ChatStreamCallback) new ConsumingCallback(null, new Completion(done, last)));
+                break;
+            case "chatflow":
+                client.sendChatMessageStream(chatMessage(), (ChatflowStreamCallback) new ConsumingCallback(null, new Completion(done, last)));
+                break;
+            default:
+                client.runWorkflowStream(workflowRequest(), new ConsumingWorkflowCallback(null, new Completion(done, last)));
+                break;
+        }
+        if (!done.await(10, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("流式响应未结束");
+        }
+        Object result = last.get();
+        if (result instanceof Throwable) {
+            throw new IllegalStateException("流式响应处理失败", (Throwable) result);
+        }
+        return result;
+    }
+
+    private static ChatMessage chatMessage() {
+        return ChatMessage.builder()
+                .query("介绍一下 Dify")
+                .user("benchmark-user")
+                .responseMode(ResponseMode.STREAMING)
+                .inputs(Collections.emptyMap())
+                .build();
+    }
+
+    private static WorkflowRunRequest workflowRequest() {
+        return WorkflowRunRequest.builder()
+                .user("benchmark-user")
+                .responseMode(ResponseMode.STREAMING)
+                .inputs(Collections.singletonMap("query", "介绍一下 Dify"))
+                .build();
+    }
+
+    /**
+     * 流结束通知
+     */
+    private static final class Completion {
+        private final CountDownLatch done;
+        private final AtomicReference<Object> last;
+
+        Completion(CountDownLatch done, AtomicReference<Object> last) {
+            this.done = done;
+            this.last = last;
+        }
+
+        void complete(Object result) {
+            last.set(result);
+            done.countDown();
+        }
+    }
+
+    /**
+     * 消费事件的回调，dispatch 时交给 Blackhole，stream 时在结束事件上通知
+     */
+    private abstract static class Consuming implements BaseStreamCallback {
+        private final Blackhole blackhole;
+        private final Completion completion;
+
+        Consuming(Blackhole blackhole, Completion completion) {
+            this.blackhole = blackhole;
+            this.completion = completion;
+        }
+
+        void consume(Object event) {
+            if (blackhole != null) {
+                blackhole.consume(event);
+            }
+        }
+
+        void end(Object event) {
+            consume(event);
+            if (completion != null) {
+                completion.complete(event);
+            }
+        }
+
+        @Override
+        public void onError(ErrorEvent event) {
+            end(new IllegalStateException(event.getMessage()));
+        }
+
+        @Override
+        public void onPing(PingEvent event) {
+            consume(event);
+        }
+
+        @Override
+        public void onException(Throwable throwable) {
+            end(throwable);
+        }
+    }
+
+    private static final class ConsumingCallback extends Consuming implements ChatflowStreamCallback {
+        ConsumingCallback(Blackhole blackhole, Completion completion) {
+            super(blackhole, completion);
+        }
+
+        @Override
+        public void onMessage(MessageEvent event) {
+            consume(event);
+        }
+
+        @Override
+        public void onMessageEnd(MessageEndEvent event) {
+            end(event);
+        }
+
+        @Override
+        public void onWorkflowStarted(WorkflowStartedEvent event) {
+            consume(event);
+        }
+
+        @Override
+        public void onNodeStarted(NodeStartedEvent event) {
+            consume(event);
+        }
+
+        @Override
+        public void onNodeFinished(NodeFinishedEvent event) {
+            consume(event);
+        }
+
+        @Override
+        public void onWorkflowFinished(WorkflowFinishedEvent event) {
+            consume(event);
+        }
+    }
+
+    private static final class ConsumingWorkflowCallback extends Consuming implements WorkflowStreamCallback {
+        ConsumingWorkflowCallback(Blackhole blackhole, Completion completion) {
+            super(blackhole, completion);
+        }
+
+        @Override
+        public void onWorkflowStarted(WorkflowStartedEvent event) {
+            consume(event);
+        }
+
+        @Override
+        public void onNodeStarted(NodeStartedEvent event) {
+            consume(event);
+        }
+
+        @Override
+        public void onNodeFinished(NodeFinishedEvent event) {
+            consume(event);
+        }
+
+        @Override
+        public void onWorkflowTextChunk(WorkflowTextChunkEvent event) {
+            consume(event);
+        }
+
+        @Override
+        public void onWorkflowFinished(WorkflowFinishedEvent event) {
+            end(event);
+        }
+    }
+}
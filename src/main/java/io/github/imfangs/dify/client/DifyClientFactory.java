@@ -11,20 +11,6 @@ import okhttp3.OkHttpClient;
  */
 public class DifyClientFactory {
 
-    /**
-     * 从配置创建HTTP客户端
-     *
-     * @param config 配置
-     * @return HTTP客户端
-     */
-    private static OkHttpClient createHttpClient(DifyConfig config) {
-        return HttpClientUtils.createClient(
-                config.getConnectTimeout(),
-                config.getReadTimeout(),
-                config.getWriteTimeout()
-        );
-    }
-
     /**
      * 创建完整的Dify客户端
      *
@@ -55,7 +41,7 @@ public class DifyClientFactory {
      * @return Dify客户端
      */
     public static DifyClient createClient(DifyConfig config) {
-        return new DefaultDifyClient(config.getBaseUrl(), config.getApiKey(), createHttpClient(config));
+        return new DefaultDifyClient(config);
     }
 
     /**
@@ -220,6 +206,6 @@ public class DifyClientFactory {
      * @return 知识库客户端
      */
     public static DifyDatasetsClient createDatasetsClient(DifyConfig config) {
-        return new DefaultDifyDatasetsClient(config.getBaseUrl(), config.getApiKey(), createHttpClient(config));
+        return new DefaultDifyDatasetsClient(config);
     }
 }
@@ -7,6 +7,7 @@ import io.github.imfangs.dify.client.model.datasets.*;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.List;
 
 /**
  * Dify 知识库客户端接口
@@ -282,6 +283,35 @@ public interface DifyDatasetsClient {
      */
     RetrieveResponse retrieveDataset(String datasetId, RetrieveRequest request) throws IOException, DifyApiException;
 
+    /**
+     * 并发检索多个知识库并合并结果
+     * 各知识库的检索请求同时发出，按分数合并并按 indexNodeHash 去重，
+     * 返回条数取 retrievalModel.topK（未设置时返回全部）。
+     * 默认截止时间为 HTTP 客户端的调用超时（未设置时取读取超时），为 0 时不限时。
+     *
+     * @param datasetIds 知识库ID列表
+     * @param request    检索请求
+     * @return 合并后的检索结果
+     * @throws IOException IO异常
+     * @throws DifyApiException API异常
+     */
+    RetrieveResponse retrieveAcross(List<String> datasetIds, RetrieveRequest request) throws IOException, DifyApiException;
+
+    /**
+     * 并发检索多个知识库并合并结果
+     * 所有检索共享同一截止时间，超时后取消尚未完成的请求，仅合并已返回的结果；
+     * 部分知识库检索失败时忽略失败结果，全部失败时抛出首个异常。
+     * 同时执行的检索数受 Dispatcher 每主机并发限制（OkHttp 默认为 5），知识库较多时可设置 DifyConfig.maxRequestsPerHost。
+     *
+     * @param datasetIds    知识库ID列表
+     * @param request       检索请求
+     * @param timeoutMillis 整体截止时间（毫秒），0 表示不限时
+     * @return 合并后的检索结果
+     * @throws IOException IO异常
+     * @throws DifyApiException API异常
+     */
+    RetrieveResponse retrieveAcross(List<String> datasetIds, RetrieveRequest request, long timeoutMillis) throws IOException, DifyApiException;
+
 
     /**
      * 新增元数据
@@ -0,0 +1,117 @@
+package io.github.imfangs.dify.client.analytics;
+
+import java.util.Arrays;
+
+/**
+ * 对数线性分桶直方图
+ * 与 HdrHistogram 的分桶方式相同：每个 2 的幂区间再均分为 128 个子桶，记录值的相对误差小于 1%，
+ * 内存只与记录值的数量级有关（记录到 1 天的毫秒数约需 2700 个计数），与记录次数无关。
+ * 只接受非负整数，负数按 0 记录。非线程安全。
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_HALF_MAGNITUDE = 7;
+    private static final int SUB_BUCKET_HALF_COUNT = 1 << SUB_BUCKET_HALF_MAGNITUDE;
+    private static final long SUB_BUCKET_MASK = (SUB_BUCKET_HALF_COUNT << 1) - 1;
+
+    private long[] counts = new long[SUB_BUCKET_HALF_COUNT * 2];
+    private long totalCount;
+    private long min = Long.MAX_VALUE;
+    private long max;
+    private double sum;
+
+    /**
+     * 记录一个值
+     *
+     * @param value 值
+     */
+    public void record(long value) {
+        long v = Math.max(0, value);
+        int index = countsIndex(v);
+        if (index >= counts.length) {
+            counts = Arrays.copyOf(counts, Math.max(index + 1, counts.length + SUB_BUCKET_HALF_COUNT * 4));
+        }
+        counts[index]++;
+        totalCount++;
+        min = Math.min(min, v);
+        max = Math.max(max, v);
+        sum += v;
+    }
+
+    /**
+     * 获取分位数对应的值，返回所在子桶的上界（不超过最大值）
+     *
+     * @param percentile 分位数，如 0.99
+     * @return 值，没有记录时为 0
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (totalCount == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(Math.min(1.0, Math.max(0.0, percentile)) * totalCount));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(max, highestEquivalentValue(i));
+            }
+        }
+        return max;
+    }
+
+    /**
+     * 获取记录次数
+     *
+     * @return 记录次数
+     */
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    /**
+     * 获取最小值
+     *
+     * @return 最小值，没有记录时为 0
+     */
+    public long getMin() {
+        return totalCount == 0 ? 0 : min;
+    }
+
+    /**
+     * 获取最大值
+     *
+     * @return 最大值
+     */
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * 获取记录值之和
+     *
+     * @return 总和
+     */
+    public double getSum() {
+        return sum;
+    }
+
+    /**
+     * 获取平均值
+     *
+     * @return 平均值，没有记录时为 0
+     */
+    public double getMean() {
+        return totalCount == 0 ? 0 : sum / totalCount;
+    }
+
+    private static int countsIndex(long value) {
+        int bucket = 63 - Long.numberOfLeadingZeros(value | SUB_BUCKET_MASK) - SUB_BUCKET_HALF_MAGNITUDE;
+        int subBucket = (int) (value >>> bucket);
+        return bucket * SUB_BUCKET_HALF_COUNT + subBucket;
+    }
+
+    private static long highestEquivalentValue(int index) {
+        int bucket = Math.max(0, index / SUB_BUCKET_HALF_COUNT - 1);
+        long subBucket = index - (long) bucket * SUB_BUCKET_HALF_COUNT;
+        return ((subBucket + 1) << bucket) - 1;
+    }
+}
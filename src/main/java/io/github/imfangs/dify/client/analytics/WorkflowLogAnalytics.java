@@ -0,0 +1,184 @@
+package io.github.imfangs.dify.client.analytics;
+
+import io.github.imfangs.dify.client.DifyWorkflowClient;
+import io.github.imfangs.dify.client.exception.DifyApiException;
+import io.github.imfangs.dify.client.model.workflow.WorkflowLogsResponse;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 工作流日志统计
+ * 逐页读取工作流日志并累加到直方图和计数中，只保留当前一页，按执行状态和终端用户分组统计耗时分位数、token 用量和失败率。
+ * 内存与分组数量有关，与日志条数无关；终端用户超过 maxEndUsers 后，新用户的记录归入 {@link #OTHER_END_USERS}。
+ * 非线程安全。
+ * <pre>
+ * WorkflowLogAnalytics analytics = new WorkflowLogAnalytics(1000);
+ * analytics.scan(client, null, null, 100);
+ * Files.write(Paths.get("workflow.prom"), analytics.report().toPrometheus().getBytes(StandardCharsets.UTF_8));
+ * </pre>
+ */
+@Slf4j
+public class WorkflowLogAnalytics {
+    /**
+     * 超过用户数上限后其余终端用户的分组名
+     */
+    public static final String OTHER_END_USERS = "_other";
+
+    /**
+     * 没有终端用户信息（如在控制台中调试）的分组名
+     */
+    public static final String UNKNOWN_END_USER = "_unknown";
+
+    private static final String STATUS_FAILED = "failed";
+
+    private final int maxEndUsers;
+    private final Accumulator overall = new Accumulator();
+    private final Map<String, Accumulator> byStatus = new TreeMap<>();
+    private final Map<String, Accumulator> byEndUser = new LinkedHashMap<>();
+
+    /**
+     * 构造函数
+     *
+     * @param maxEndUsers 单独统计的终端用户数上限
+     */
+    public WorkflowLogAnalytics(int maxEndUsers) {
+        this.maxEndUsers = maxEndUsers;
+    }
+
+    /**
+     * 读取全部匹配的工作流日志并统计
+     *
+     * @param client   工作流客户端
+     * @param keyword  关键字，可为null
+     * @param status   状态，可为null
+     * @param pageSize 每页条数
+     * @return 统计的记录数
+     * @throws IOException      读取失败
+     * @throws DifyApiException 读取失败
+     */
+    public long scan(DifyWorkflowClient client, String keyword, String status, int pageSize) throws IOException, DifyApiException {
+        long scanned = 0;
+        int page = 1;
+        boolean hasMore = true;
+        while (hasMore) {
+            WorkflowLogsResponse response = client.getWorkflowLogs(keyword, status, page++, pageSize);
+            List<WorkflowLogsResponse.WorkflowLogItem> items = response.getData() != null ? response.getData() : Collections.emptyList();
+            for (WorkflowLogsResponse.WorkflowLogItem item : items) {
+                add(item);
+            }
+            scanned += items.size();
+            hasMore = Boolean.TRUE.equals(response.getHasMore()) && !items.isEmpty();
+        }
+        log.debug("工作流日志统计完成: pages={}, records={}", page - 1, scanned);
+        return scanned;
+    }
+
+    /**
+     * 统计一条日志，没有执行信息的日志忽略
+     *
+     * @param item 日志
+     */
+    public void add(WorkflowLogsResponse.WorkflowLogItem item) {
+        WorkflowLogsResponse.WorkflowRunInfo run = item.getWorkflowRun();
+        if (run == null) {
+            return;
+        }
+        String status = run.getStatus() != null ? run.getStatus() : "unknown";
+        overall.add(run);
+        byStatus.computeIfAbsent(status, k -> new Accumulator()).add(run);
+        endUser(endUserKey(item)).add(run);
+    }
+
+    /**
+     * 生成当前的统计报告
+     *
+     * @return 统计报告
+     */
+    public WorkflowLogReport report() {
+        Map<String, WorkflowLogSummary> statuses = new TreeMap<>();
+        byStatus.forEach((status, accumulator) -> statuses.put(status, accumulator.summary()));
+        Map<String, WorkflowLogSummary> endUsers = new TreeMap<>();
+        byEndUser.forEach((user, accumulator) -> endUsers.put(user, accumulator.summary()));
+        return WorkflowLogReport.builder()
+                .overall(overall.summary())
+                .byStatus(statuses)
+                .byEndUser(endUsers)
+                .build();
+    }
+
+    private Accumulator endUser(String key) {
+        Accumulator accumulator = byEndUser.get(key);
+        if (accumulator == null) {
+            String group = byEndUser.size() < maxEndUsers ? key : OTHER_END_USERS;
+            accumulator = byEndUser.computeIfAbsent(group, k -> new Accumulator());
+        }
+        return accumulator;
+    }
+
+    private static String endUserKey(WorkflowLogsResponse.WorkflowLogItem item) {
+        WorkflowLogsResponse.EndUser endUser = item.getCreatedByEndUser();
+        if (endUser != null) {
+            // session_id 即调用 API 时传入的 user
+            if (endUser.getSessionId() != null) {
+                return endUser.getSessionId();
+            }
+            if (endUser.getId() != null) {
+                return endUser.getId();
+            }
+        }
+        return UNKNOWN_END_USER;
+    }
+
+    /**
+     * 一个分组的累加状态
+     */
+    private static final class Accumulator {
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private long count;
+        private long failed;
+        private long totalTokens;
+        private long totalSteps;
+        private double elapsedSum;
+
+        void add(WorkflowLogsResponse.WorkflowRunInfo run) {
+            count++;
+            if (STATUS_FAILED.equals(run.getStatus())) {
+                failed++;
+            }
+            if (run.getTotalTokens() != null) {
+                totalTokens += run.getTotalTokens();
+            }
+            if (run.getTotalSteps() != null) {
+                totalSteps += run.getTotalSteps();
+            }
+            if (run.getElapsedTime() != null) {
+                elapsedSum += run.getElapsedTime();
+                latency.record(Math.round(run.getElapsedTime() * 1000));
+            }
+        }
+
+        WorkflowLogSummary summary() {
+            return WorkflowLogSummary.builder()
+                    .count(count)
+                    .failed(failed)
+                    .errorRate(count == 0 ? 0 : (double) failed / count)
+                    .totalTokens(totalTokens)
+                    .totalSteps(totalSteps)
+                    .latencyCount(latency.getTotalCount())
+                    .elapsedSum(elapsedSum)
+                    .latencyMean(latency.getMean())
+                    .latencyP50(latency.getValueAtPercentile(0.5))
+                    .latencyP90(latency.getValueAtPercentile(0.9))
+                    .latencyP95(latency.getValueAtPercentile(0.95))
+                    .latencyP99(latency.getValueAtPercentile(0.99))
+                    .latencyMax(latency.getMax())
+                    .build();
+        }
+    }
+}
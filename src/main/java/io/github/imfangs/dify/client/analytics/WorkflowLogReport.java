@@ -0,0 +1,101 @@
+package io.github.imfangs.dify.client.analytics;
+
+import io.github.imfangs.dify.client.util.JsonUtils;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 工作流日志统计报告
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class WorkflowLogReport {
+    /**
+     * 全部记录的统计
+     */
+    private WorkflowLogSummary overall;
+
+    /**
+     * 按执行状态分组的统计
+     */
+    private Map<String, WorkflowLogSummary> byStatus;
+
+    /**
+     * 按终端用户分组的统计，超过用户数上限的记录归入 {@link WorkflowLogAnalytics#OTHER_END_USERS}
+     */
+    private Map<String, WorkflowLogSummary> byEndUser;
+
+    /**
+     * 导出为 JSON
+     *
+     * @return JSON 字符串
+     */
+    public String toJson() {
+        return JsonUtils.toJson(this);
+    }
+
+    /**
+     * 导出为 Prometheus 文本格式，耗时以秒为单位的 summary 输出
+     *
+     * @return Prometheus 文本
+     */
+    public String toPrometheus() {
+        StringBuilder out = new StringBuilder();
+        header(out, "dify_workflow_runs_total", "counter", "Workflow runs by status");
+        byStatus.forEach((status, summary) -> sample(out, "dify_workflow_runs_total", "status", status, null, summary.getCount()));
+        header(out, "dify_workflow_run_tokens_total", "counter", "Tokens consumed by workflow runs by status");
+        byStatus.forEach((status, summary) -> sample(out, "dify_workflow_run_tokens_total", "status", status, null, summary.getTotalTokens()));
+        header(out, "dify_workflow_run_duration_seconds", "summary", "Workflow run duration by status");
+        byStatus.forEach((status, summary) -> summary(out, "dify_workflow_run_duration_seconds", "status", status, summary));
+
+        header(out, "dify_workflow_end_user_runs_total", "counter", "Workflow runs by end user");
+        byEndUser.forEach((user, summary) -> sample(out, "dify_workflow_end_user_runs_total", "end_user", user, null, summary.getCount()));
+        header(out, "dify_workflow_end_user_failed_total", "counter", "Failed workflow runs by end user");
+        byEndUser.forEach((user, summary) -> sample(out, "dify_workflow_end_user_failed_total", "end_user", user, null, summary.getFailed()));
+        header(out, "dify_workflow_end_user_tokens_total", "counter", "Tokens consumed by workflow runs by end user");
+        byEndUser.forEach((user, summary) -> sample(out, "dify_workflow_end_user_tokens_total", "end_user", user, null, summary.getTotalTokens()));
+        header(out, "dify_workflow_end_user_duration_seconds", "summary", "Workflow run duration by end user");
+        byEndUser.forEach((user, summary) -> summary(out, "dify_workflow_end_user_duration_seconds", "end_user", user, summary));
+        return out.toString();
+    }
+
+    private static void header(StringBuilder out, String name, String type, String help) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void summary(StringBuilder out, String name, String label, String value, WorkflowLogSummary summary) {
+        sample(out, name, label, value, "0.5", summary.getLatencyP50() / 1000.0);
+        sample(out, name, label, value, "0.9", summary.getLatencyP90() / 1000.0);
+        sample(out, name, label, value, "0.95", summary.getLatencyP95() / 1000.0);
+        sample(out, name, label, value, "0.99", summary.getLatencyP99() / 1000.0);
+        sample(out, name + "_sum", label, value, null, summary.getElapsedSum());
+        // 没有耗时的执行不计入 _sum，_count 也只统计有耗时的执行
+        sample(out, name + "_count", label, value, null, summary.getLatencyCount());
+    }
+
+    private static void sample(StringBuilder out, String name, String label, String value, String quantile, double sample) {
+        out.append(name).append('{').append(label).append("=\"").append(escape(value)).append('"');
+        if (quantile != null) {
+            out.append(",quantile=\"").append(quantile).append('"');
+        }
+        out.append("} ");
+        if (sample == Math.rint(sample) && Math.abs(sample) < 1e15) {
+            out.append((long) sample);
+        } else {
+            out.append(String.format(Locale.ROOT, "%.6g", sample));
+        }
+        out.append('\n');
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
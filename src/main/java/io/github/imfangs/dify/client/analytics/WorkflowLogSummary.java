@@ -0,0 +1,80 @@
+package io.github.imfangs.dify.client.analytics;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 一组工作流执行记录的统计
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class WorkflowLogSummary {
+    /**
+     * 执行次数
+     */
+    private long count;
+
+    /**
+     * 失败次数（状态为 failed）
+     */
+    private long failed;
+
+    /**
+     * 失败率
+     */
+    private double errorRate;
+
+    /**
+     * token 总数
+     */
+    private long totalTokens;
+
+    /**
+     * 执行步骤总数
+     */
+    private long totalSteps;
+
+    /**
+     * 记录了耗时的执行次数，作为耗时分布的样本数
+     */
+    private long latencyCount;
+
+    /**
+     * 耗时总和（秒）
+     */
+    private double elapsedSum;
+
+    /**
+     * 平均耗时（毫秒）
+     */
+    private double latencyMean;
+
+    /**
+     * 耗时中位数（毫秒）
+     */
+    private long latencyP50;
+
+    /**
+     * 耗时 90 分位（毫秒）
+     */
+    private long latencyP90;
+
+    /**
+     * 耗时 95 分位（毫秒）
+     */
+    private long latencyP95;
+
+    /**
+     * 耗时 99 分位（毫秒）
+     */
+    private long latencyP99;
+
+    /**
+     * 最长耗时（毫秒）
+     */
+    private long latencyMax;
+}
@@ -0,0 +1,221 @@
+package io.github.imfangs.dify.client.annotation;
+
+import io.github.imfangs.dify.client.model.chat.Annotation;
+import io.github.imfangs.dify.client.util.JsonUtils;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+
+/**
+ * 本地标注文件读取
+ * 逐条读取 CSV 或 JSON Lines 格式的问答对，不把整个文件读入内存。
+ * CSV 第一行为表头，按 question、answer 列名取值，没有这两列时取前两列（与 Dify 批量导入模板一致）；
+ * JSON Lines 每行一个包含 question 和 answer 字段的对象。
+ * 读取失败时抛出 {@link UncheckedIOException}。
+ */
+public abstract class AnnotationReader implements Iterator<Annotation>, Closeable {
+    protected final BufferedReader reader;
+    private Annotation next;
+    private boolean finished;
+
+    protected AnnotationReader(Reader reader) {
+        this.reader = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+    }
+
+    /**
+     * 按扩展名打开标注文件，.jsonl 和 .json 按 JSON Lines 读取，其余按 CSV 读取
+     *
+     * @param file 标注文件
+     * @return 读取器
+     * @throws IOException 打开失败
+     */
+    public static AnnotationReader open(Path file) throws IOException {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+        return name.endsWith(".jsonl") || name.endsWith(".json") ? jsonLines(reader) : csv(reader);
+    }
+
+    /**
+     * 读取 CSV
+     *
+     * @param reader 字符输入
+     * @return 读取器
+     */
+    public static AnnotationReader csv(Reader reader) {
+        return new CsvReader(reader);
+    }
+
+    /**
+     * 读取 JSON Lines
+     *
+     * @param reader 字符输入
+     * @return 读取器
+     */
+    public static AnnotationReader jsonLines(Reader reader) {
+        return new JsonLinesReader(reader);
+    }
+
+    /**
+     * 读取下一条标注
+     *
+     * @return 标注，没有更多时为null
+     * @throws IOException 读取失败
+     */
+    protected abstract Annotation read() throws IOException;
+
+    @Override
+    public boolean hasNext() {
+        if (next == null && !finished) {
+            try {
+                next = read();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            finished = next == null;
+        }
+        return next != null;
+    }
+
+    @Override
+    public Annotation next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Annotation annotation = next;
+        next = null;
+        return annotation;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private static final class JsonLinesReader extends AnnotationReader {
+        private long lineNumber;
+
+        JsonLinesReader(Reader reader) {
+            super(reader);
+        }
+
+        @Override
+        protected Annotation read() throws IOException {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                try {
+                    return JsonUtils.getObjectMapper().readValue(line, Annotation.class);
+                } catch (IOException e) {
+                    throw new IOException("第 " + lineNumber + " 行不是有效的 JSON: " + e.getMessage(), e);
+                }
+            }
+            return null;
+        }
+    }
+
+    private static final class CsvReader extends AnnotationReader {
+        private int questionColumn = -1;
+        private int answerColumn = -1;
+
+        CsvReader(Reader reader) {
+            super(reader);
+        }
+
+        @Override
+        protected Annotation read() throws IOException {
+            if (questionColumn < 0) {
+                List<String> header = readRecord();
+                if (header == null) {
+                    return null;
+                }
+                questionColumn = indexOf(header, "question", 0);
+                answerColumn = indexOf(header, "answer", 1);
+            }
+            List<String> record;
+            while ((record = readRecord()) != null) {
+                if (record.size() == 1 && record.get(0).isEmpty()) {
+                    continue;
+                }
+                return Annotation.builder()
+                        .question(column(record, questionColumn))
+                        .answer(column(record, answerColumn))
+                        .build();
+            }
+            return null;
+        }
+
+        /**
+         * 读取一条记录，支持带引号的字段、字段内的逗号、换行和转义引号
+         */
+        private List<String> readRecord() throws IOException {
+            int c = reader.read();
+            if (c == -1) {
+                return null;
+            }
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            while (c != -1) {
+                if (quoted) {
+                    if (c == '"') {
+                        reader.mark(1);
+                        int following = reader.read();
+                        if (following == '"') {
+                            field.append('"');
+                        } else {
+                            quoted = false;
+                            reader.reset();
+                        }
+                    } else {
+                        field.append((char) c);
+                    }
+                } else if (c == '"' && field.length() == 0) {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '\n' || c == '\r') {
+                    if (c == '\r') {
+                        reader.mark(1);
+                        if (reader.read() != '\n') {
+                            reader.reset();
+                        }
+                    }
+                    break;
+                } else if (c != '\uFEFF') {
+                    field.append((char) c);
+                }
+                c = reader.read();
+            }
+            fields.add(field.toString());
+            return fields;
+        }
+
+        private static int indexOf(List<String> header, String name, int fallback) {
+            for (int i = 0; i < header.size(); i++) {
+                if (name.equalsIgnoreCase(header.get(i).trim())) {
+                    return i;
+                }
+            }
+            return fallback;
+        }
+
+        private static String column(List<String> record, int index) {
+            return index < record.size() ? record.get(index) : "";
+        }
+    }
+}
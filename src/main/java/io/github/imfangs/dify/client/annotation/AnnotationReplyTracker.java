@@ -0,0 +1,227 @@
+package io.github.imfangs.dify.client.annotation;
+
+import io.github.imfangs.dify.client.DifyChatClient;
+import io.github.imfangs.dify.client.exception.DifyApiException;
+import io.github.imfangs.dify.client.interceptor.RetryInterceptor;
+import io.github.imfangs.dify.client.model.chat.AnnotationReply;
+import io.github.imfangs.dify.client.util.DaemonThreadFactory;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 标注回复任务跟踪
+ * 在共享的调度线程上轮询 {@link DifyChatClient#getAnnotationReply}，轮询间隔从 initialDelay 开始按倍数增长到 maxDelay，
+ * 任务结束时完成返回的 {@link CompletableFuture}。所有任务共用少量线程，不会为每个任务占用一个线程。
+ * 任务状态为 completed 时正常完成；为 error 时以 {@link DifyApiException} 异常完成；超时时以 {@link TimeoutException} 异常完成。
+ * 取消返回的 future 会停止轮询，但不会取消服务端的任务。
+ * <pre>
+ * try (AnnotationReplyTracker tracker = new AnnotationReplyTracker(client)) {
+ *     AnnotationReply reply = tracker.submit("enable", "openai", "text-embedding-3-small", 1, 300000).get();
+ * }
+ * </pre>
+ */
+@Slf4j
+public class AnnotationReplyTracker implements Closeable {
+    /**
+     * 任务已完成
+     */
+    public static final String STATUS_COMPLETED = "completed";
+
+    /**
+     * 任务失败
+     */
+    public static final String STATUS_ERROR = "error";
+
+    private static final ThreadFactory THREAD_FACTORY = new DaemonThreadFactory("dify-annotation-reply");
+
+    private final DifyChatClient client;
+    private final long initialDelay;
+    private final long maxDelay;
+    private final ScheduledExecutorService scheduler;
+    private final Set<Job> active = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 构造函数，首次轮询间隔 500 毫秒，最长 10 秒，使用 2 个轮询线程
+     *
+     * @param client 对话客户端
+     */
+    public AnnotationReplyTracker(DifyChatClient client) {
+        this(client, 500, 10000, 2);
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param client       对话客户端
+     * @param initialDelay 首次轮询间隔（毫秒）
+     * @param maxDelay     最长轮询间隔（毫秒）
+     * @param threads      轮询线程数，即同时进行的查询请求数上限
+     */
+    public AnnotationReplyTracker(DifyChatClient client, long initialDelay, long maxDelay, int threads) {
+        this.client = client;
+        this.initialDelay = Math.max(1, initialDelay);
+        this.maxDelay = Math.max(this.initialDelay, maxDelay);
+        this.scheduler = Executors.newScheduledThreadPool(Math.max(1, threads), THREAD_FACTORY);
+    }
+
+    /**
+     * 发起标注回复初始设置并跟踪任务，发起请求也在轮询线程上执行
+     *
+     * @param action                动作，只能是 'enable' 或 'disable'
+     * @param embeddingProviderName 嵌入模型提供商
+     * @param embeddingModelName    嵌入模型
+     * @param scoreThreshold        相似度阈值
+     * @param timeout               从发起到任务结束的最长等待时间（毫秒）
+     * @return 任务结束时完成的 future
+     */
+    public CompletableFuture<AnnotationReply> submit(String action, String embeddingProviderName, String embeddingModelName,
+                                                     Integer scoreThreshold, long timeout) {
+        Job job = new Job(action, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout), timeout);
+        schedule(job, current -> {
+            AnnotationReply reply = client.annotationReply(action, embeddingProviderName, embeddingModelName, scoreThreshold);
+            if (reply == null || reply.getJobId() == null) {
+                throw new DifyApiException(500, "invalid_response", "标注回复设置未返回任务 ID");
+            }
+            current.jobId = reply.getJobId();
+            return reply;
+        }, 0);
+        return job.future;
+    }
+
+    /**
+     * 跟踪已发起的任务
+     *
+     * @param action  动作，必须和发起任务时的动作一致
+     * @param jobId   任务 ID
+     * @param timeout 最长等待时间（毫秒）
+     * @return 任务结束时完成的 future
+     */
+    public CompletableFuture<AnnotationReply> track(String action, String jobId, long timeout) {
+        Job job = new Job(action, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout), timeout);
+        job.jobId = jobId;
+        schedule(job, this::poll, 0);
+        return job.future;
+    }
+
+    /**
+     * 停止所有轮询，未结束的 future 以异常完成
+     */
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+        for (Job job : active) {
+            job.future.completeExceptionally(new CancellationException("标注回复任务跟踪已关闭"));
+        }
+    }
+
+    private AnnotationReply poll(Job job) throws IOException {
+        return client.getAnnotationReply(job.action, job.jobId);
+    }
+
+    private void schedule(Job job, Step step, long delay) {
+        try {
+            ScheduledFuture<?> scheduled = scheduler.schedule(() -> run(job, step), delay, TimeUnit.MILLISECONDS);
+            job.scheduled.set(scheduled);
+            if (job.future.isDone()) {
+                // 已被取消时不再等待下一次轮询
+                scheduled.cancel(false);
+            }
+        } catch (RejectedExecutionException e) {
+            job.future.completeExceptionally(new IllegalStateException("标注回复任务跟踪已关闭"));
+        }
+    }
+
+    private void run(Job job, Step step) {
+        if (job.future.isDone()) {
+            return;
+        }
+        AnnotationReply reply;
+        try {
+            reply = step.apply(job);
+        } catch (DifyApiException e) {
+            if (!RetryInterceptor.isTransientStatus(e.getStatusCode())) {
+                job.future.completeExceptionally(e);
+                return;
+            }
+            log.debug("查询标注回复任务失败，稍后重试: jobId={}, error={}", job.jobId, e.getMessage());
+            reply = null;
+        } catch (IOException e) {
+            log.debug("查询标注回复任务失败，稍后重试: jobId={}, error={}", job.jobId, e.getMessage());
+            reply = null;
+        } catch (RuntimeException e) {
+            job.future.completeExceptionally(e);
+            return;
+        }
+
+        if (reply != null && STATUS_COMPLETED.equals(reply.getJobStatus())) {
+            job.future.complete(reply);
+            return;
+        }
+        if (reply != null && STATUS_ERROR.equals(reply.getJobStatus())) {
+            job.future.completeExceptionally(new DifyApiException(500, "annotation_reply_failed",
+                    reply.getErrorMsg() != null ? reply.getErrorMsg() : "标注回复任务失败: " + job.jobId));
+            return;
+        }
+
+        long remaining = TimeUnit.NANOSECONDS.toMillis(job.deadline - System.nanoTime());
+        if (remaining <= 0) {
+            job.future.completeExceptionally(new TimeoutException("标注回复任务超时: jobId=" + job.jobId + ", timeout=" + job.timeout + "ms"));
+            return;
+        }
+        long delay = job.nextDelay();
+        if (job.jobId == null) {
+            // 发起请求失败，重试发起
+            schedule(job, step, Math.min(delay, remaining));
+        } else {
+            schedule(job, this::poll, Math.min(delay, remaining));
+        }
+    }
+
+    @FunctionalInterface
+    private interface Step {
+        AnnotationReply apply(Job job) throws IOException;
+    }
+
+    private final class Job {
+        private final String action;
+        private final long deadline;
+        private final long timeout;
+        private final CompletableFuture<AnnotationReply> future = new CompletableFuture<>();
+        private final AtomicReference<ScheduledFuture<?>> scheduled = new AtomicReference<>();
+        private volatile String jobId;
+        private long delay;
+
+        Job(String action, long deadline, long timeout) {
+            this.action = action;
+            this.deadline = deadline;
+            this.timeout = timeout;
+            active.add(this);
+            future.whenComplete((reply, error) -> {
+                active.remove(this);
+                ScheduledFuture<?> pending = scheduled.get();
+                if (pending != null) {
+                    pending.cancel(false);
+                }
+            });
+        }
+
+        long nextDelay() {
+            delay = delay == 0 ? initialDelay : Math.min(maxDelay, delay * 2);
+            return delay;
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package io.github.imfangs.dify.client.annotation;
+
+import io.github.imfangs.dify.client.DifyChatClient;
+import io.github.imfangs.dify.client.model.chat.Annotation;
+import io.github.imfangs.dify.client.model.chat.AnnotationListResponse;
+import io.github.imfangs.dify.client.util.DaemonThreadFactory;
+import io.github.imfangs.dify.client.util.DigestUtils;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 标注同步
+ * 先分页读取应用的全部标注，按问题和问答内容的摘要建立索引，再逐条读取本地标注并与之比较：
+ * 问题不存在时新建，答案不同时更新，内容相同时跳过；开启 deleteMissing 时删除本地没有的远端标注。
+ * 写请求以有限并发执行，重复同步时只发送有变化的标注。远端索引只保存摘要和 ID，本地标注不会全部读入内存。
+ * <pre>
+ * try (AnnotationReader local = AnnotationReader.open(Paths.get("faq.csv"))) {
+ *     AnnotationSyncResult result = new AnnotationSync(client, AnnotationSyncOptions.builder()
+ *             .concurrency(8)
+ *             .deleteMissing(true)
+ *             .build()).sync(local);
+ * }
+ * </pre>
+ */
+@Slf4j
+public class AnnotationSync {
+    private static final ThreadFactory THREAD_FACTORY = new DaemonThreadFactory("dify-annotation-sync");
+
+    private final DifyChatClient client;
+    private final AnnotationSyncOptions options;
+
+    /**
+     * 构造函数
+     *
+     * @param client  对话客户端
+     * @param options 同步配置
+     */
+    public AnnotationSync(DifyChatClient client, AnnotationSyncOptions options) {
+        this.client = client;
+        this.options = options;
+    }
+
+    /**
+     * 将本地标注同步到应用
+     *
+     * @param local 本地标注
+     * @return 同步结果
+     * @throws IOException          读取远端标注失败
+     * @throws InterruptedException 同步被中断
+     */
+    public AnnotationSyncResult sync(Iterator<Annotation> local) throws IOException, InterruptedException {
+        List<String> remoteDuplicates = new ArrayList<>();
+        Map<String, Remote> remote = scanRemote(remoteDuplicates);
+        Sync sync = new Sync();
+        int concurrency = Math.max(1, options.getConcurrency());
+        Semaphore permits = new Semaphore(concurrency);
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency, THREAD_FACTORY);
+        try {
+            Set<String> seen = new HashSet<>();
+            while (local.hasNext()) {
+                Annotation annotation = local.next();
+                String question = annotation.getQuestion() != null ? annotation.getQuestion() : "";
+                String answer = annotation.getAnswer() != null ? annotation.getAnswer() : "";
+                String questionHash = DigestUtils.sha256(question);
+                if (!seen.add(questionHash)) {
+                    sync.duplicates.incrementAndGet();
+                    continue;
+                }
+                Remote existing = remote.remove(questionHash);
+                if (existing == null) {
+                    submit(executor, permits, sync, "create " + question, sync.created,
+                            () -> client.saveAnnotation(question, answer));
+                } else if (existing.contentHash.equals(contentHash(question, answer))) {
+                    sync.unchanged.incrementAndGet();
+                } else {
+                    submit(executor, permits, sync, "update " + existing.id, sync.updated,
+                            () -> client.updateAnnotation(existing.id, question, answer));
+                }
+            }
+            if (options.isDeleteMissing()) {
+                List<String> missing = new ArrayList<>(remoteDuplicates);
+                for (Remote entry : remote.values()) {
+                    missing.add(entry.id);
+                }
+                for (String id : missing) {
+                    submit(executor, permits, sync, "delete " + id, sync.deleted, () -> client.deleteAnnotation(id));
+                }
+            }
+        } finally {
+            executor.shutdown();
+            while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                log.debug("等待标注同步完成");
+            }
+        }
+        AnnotationSyncResult result = sync.result();
+        log.info("标注同步完成: created={}, updated={}, deleted={}, unchanged={}, duplicates={}, failed={}",
+                result.getCreated(), result.getUpdated(), result.getDeleted(), result.getUnchanged(),
+                result.getDuplicates(), result.getFailures().size());
+        return result;
+    }
+
+    /**
+     * 读取全部远端标注，按问题摘要索引，同一问题的多余标注 ID 放入 duplicates
+     */
+    private Map<String, Remote> scanRemote(List<String> duplicates) throws IOException {
+        Map<String, Remote> remote = new HashMap<>();
+        int page = 1;
+        boolean hasMore = true;
+        while (hasMore) {
+            AnnotationListResponse response = client.getAnnotations(page++, options.getPageSize());
+            List<Annotation> data = response.getData() != null ? response.getData() : Collections.emptyList();
+            for (Annotation annotation : data) {
+                String question = annotation.getQuestion() != null ? annotation.getQuestion() : "";
+                String answer = annotation.getAnswer() != null ? annotation.getAnswer() : "";
+                Remote previous = remote.putIfAbsent(DigestUtils.sha256(question),
+                        new Remote(annotation.getId(), contentHash(question, answer)));
+                if (previous != null) {
+                    duplicates.add(annotation.getId());
+                }
+            }
+            hasMore = Boolean.TRUE.equals(response.getHasMore()) && !data.isEmpty();
+        }
+        log.debug("读取远端标注: count={}, duplicates={}", remote.size(), duplicates.size());
+        return remote;
+    }
+
+    private void submit(ExecutorService executor, Semaphore permits, Sync sync, String description,
+                        AtomicInteger counter, Operation operation) throws InterruptedException {
+        if (options.isDryRun()) {
+            counter.incrementAndGet();
+            return;
+        }
+        permits.acquire();
+        executor.execute(() -> {
+            try {
+                operation.apply();
+                counter.incrementAndGet();
+            } catch (Exception e) {
+                log.debug("标注同步失败: {}, error={}", description, e.toString());
+                sync.fail(description + ": " + e.getMessage());
+            } finally {
+                permits.release();
+            }
+        });
+    }
+
+    private static String contentHash(String question, String answer) {
+        // 用不会出现在文本中的分隔符，避免问题和答案的边界移动后摘要相同
+        return DigestUtils.sha256(question + '\u0000' + answer);
+    }
+
+    @FunctionalInterface
+    private interface Operation {
+        void apply() throws IOException;
+    }
+
+    private static final class Remote {
+        private final String id;
+        private final String contentHash;
+
+        Remote(String id, String contentHash) {
+            this.id = id;
+            this.contentHash = contentHash;
+        }
+    }
+
+    private static final class Sync {
+        private final AtomicInteger created = new AtomicInteger();
+        private final AtomicInteger updated = new AtomicInteger();
+        private final AtomicInteger deleted = new AtomicInteger();
+        private final AtomicInteger unchanged = new AtomicInteger();
+        private final AtomicInteger duplicates = new AtomicInteger();
+        private final List<String> failures = new ArrayList<>();
+
+        synchronized void fail(String failure) {
+            failures.add(failure);
+        }
+
+        synchronized AnnotationSyncResult result() {
+            return AnnotationSyncResult.builder()
+                    .created(created.get())
+                    .updated(updated.get())
+                    .deleted(deleted.get())
+                    .unchanged(unchanged.get())
+                    .duplicates(duplicates.get())
+                    .failures(new ArrayList<>(failures))
+                    .build();
+        }
+    }
+}
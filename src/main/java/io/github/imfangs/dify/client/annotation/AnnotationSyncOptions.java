@@ -0,0 +1,39 @@
+package io.github.imfangs.dify.client.annotation;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 标注同步配置
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AnnotationSyncOptions {
+    /**
+     * 同时执行的写请求数
+     */
+    @Builder.Default
+    private int concurrency = 4;
+
+    /**
+     * 读取远端标注时的每页数量
+     */
+    @Builder.Default
+    private int pageSize = 100;
+
+    /**
+     * 是否删除本地文件中不存在的远端标注
+     */
+    @Builder.Default
+    private boolean deleteMissing = false;
+
+    /**
+     * 只计算差异，不发送写请求
+     */
+    @Builder.Default
+    private boolean dryRun = false;
+}
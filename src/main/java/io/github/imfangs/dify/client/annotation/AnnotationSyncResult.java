@@ -0,0 +1,56 @@
+package io.github.imfangs.dify.client.annotation;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 标注同步结果
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AnnotationSyncResult {
+    /**
+     * 新建的标注数
+     */
+    private int created;
+
+    /**
+     * 更新答案的标注数
+     */
+    private int updated;
+
+    /**
+     * 删除的标注数
+     */
+    private int deleted;
+
+    /**
+     * 内容未变化、跳过的标注数
+     */
+    private int unchanged;
+
+    /**
+     * 本地文件中问题重复、被忽略的记录数
+     */
+    private int duplicates;
+
+    /**
+     * 失败的写请求，每条为操作、问题或标注 ID 和失败原因
+     */
+    private List<String> failures;
+
+    /**
+     * 是否全部成功
+     *
+     * @return 是否成功
+     */
+    public boolean isSuccessful() {
+        return failures == null || failures.isEmpty();
+    }
+}
@@ -0,0 +1,55 @@
+package io.github.imfangs.dify.client.batch;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.nio.file.Path;
+import java.util.function.Consumer;
+
+/**
+ * 工作流批量执行配置
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class WorkflowBatchOptions {
+    /**
+     * 并发执行的工作流数量
+     */
+    @Builder.Default
+    private int concurrency = 4;
+
+    /**
+     * 是否以流式模式执行，避免长时间运行的工作流触发读取超时
+     * 流式请求由 OkHttp Dispatcher 执行，并发数不应超过客户端的 maxRequestsPerHost，否则多出的请求会排队
+     */
+    @Builder.Default
+    private boolean streaming = true;
+
+    /**
+     * 流式模式下单个工作流的最长执行时间（毫秒），从流式响应建立时开始计时，不含在 Dispatcher 中排队的时间；
+     * 超时后关闭连接、尝试停止任务并记为失败
+     */
+    @Builder.Default
+    private long itemTimeout = 600000;
+
+    /**
+     * 进度文件，为null时不记录进度
+     * 每个返回了结果的输入追加一行，再次执行时跳过已完成的输入并直接返回记录的结果
+     */
+    private Path checkpointFile;
+
+    /**
+     * 进度回调间隔（毫秒）
+     */
+    @Builder.Default
+    private long progressInterval = 10000;
+
+    /**
+     * 进度回调，为null时只在日志中输出进度
+     */
+    private Consumer<WorkflowBatchProgress> progressListener;
+}
@@ -0,0 +1,58 @@
+package io.github.imfangs.dify.client.batch;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 批量执行进度
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class WorkflowBatchProgress {
+    /**
+     * 已完成的输入数量，包含失败和从进度文件恢复的输入
+     */
+    private long completed;
+
+    /**
+     * 请求失败的输入数量
+     */
+    private long failed;
+
+    /**
+     * 从进度文件恢复的输入数量
+     */
+    private long resumed;
+
+    /**
+     * 本次执行消耗的 token 数
+     */
+    private long totalTokens;
+
+    /**
+     * 已执行时间（毫秒）
+     */
+    private long elapsed;
+
+    /**
+     * 本次执行的吞吐量，不包含从进度文件恢复的输入
+     *
+     * @return 每秒完成的输入数量
+     */
+    public double getThroughput() {
+        return elapsed > 0 ? (completed - resumed) * 1000.0 / elapsed : 0;
+    }
+
+    /**
+     * 本次执行每秒消耗的 token 数
+     *
+     * @return 每秒 token 数
+     */
+    public double getTokensPerSecond() {
+        return elapsed > 0 ? totalTokens * 1000.0 / elapsed : 0;
+    }
+}
@@ -0,0 +1,48 @@
+package io.github.imfangs.dify.client.batch;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import io.github.imfangs.dify.client.model.workflow.WorkflowRunResponse;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 单个输入的执行结果
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class WorkflowBatchResult {
+    /**
+     * 输入序号，从 0 开始
+     */
+    private long index;
+
+    /**
+     * 工作流执行结果，请求失败时为null
+     */
+    private WorkflowRunResponse response;
+
+    /**
+     * 请求失败原因，成功时为null
+     */
+    private String error;
+
+    /**
+     * 是否来自进度文件
+     */
+    @JsonIgnore
+    private boolean resumed;
+
+    /**
+     * 是否已拿到工作流执行结果（工作流本身的状态见 response.data.status）
+     *
+     * @return 是否成功
+     */
+    @JsonIgnore
+    public boolean isSuccessful() {
+        return response != null && error == null;
+    }
+}
@@ -0,0 +1,346 @@
+package io.github.imfangs.dify.client.batch;
+
+import io.github.imfangs.dify.client.DifyWorkflowClient;
+import io.github.imfangs.dify.client.callback.WorkflowStreamCallback;
+import io.github.imfangs.dify.client.enums.ResponseMode;
+import io.github.imfangs.dify.client.event.ErrorEvent;
+import io.github.imfangs.dify.client.event.WorkflowFinishedEvent;
+import io.github.imfangs.dify.client.event.WorkflowStartedEvent;
+import io.github.imfangs.dify.client.exception.DifyApiException;
+import io.github.imfangs.dify.client.impl.AbstractDifyClient;
+import io.github.imfangs.dify.client.model.workflow.WorkflowRunRequest;
+import io.github.imfangs.dify.client.model.workflow.WorkflowRunResponse;
+import io.github.imfangs.dify.client.util.DaemonThreadFactory;
+import io.github.imfangs.dify.client.util.JsonUtils;
+import io.github.imfangs.dify.client.util.WorkflowEventUtils;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.Call;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * 工作流批量执行器
+ * 以有限并发逐个执行输入，按输入顺序返回结果，并可将进度记录到本地文件以便中断后继续执行。
+ * 已发出但尚未按顺序返回的输入最多为并发数的 4 倍，输入可以是惰性生成的大数据集。
+ * <pre>
+ * WorkflowBatchRunner runner = new WorkflowBatchRunner(client, WorkflowBatchOptions.builder()
+ *         .concurrency(8)
+ *         .checkpointFile(Paths.get("eval.checkpoint"))
+ *         .build());
+ * runner.run(requests, result -> write(result));
+ * </pre>
+ */
+@Slf4j
+public class WorkflowBatchRunner {
+    private static final int WINDOW_FACTOR = 4;
+    private static final ThreadFactory THREAD_FACTORY = new DaemonThreadFactory("dify-workflow-batch");
+
+    private final DifyWorkflowClient client;
+    private final WorkflowBatchOptions options;
+
+    /**
+     * 构造函数
+     *
+     * @param client  工作流客户端
+     * @param options 批量执行配置
+     */
+    public WorkflowBatchRunner(DifyWorkflowClient client, WorkflowBatchOptions options) {
+        this.client = client;
+        this.options = options;
+        if (options.isStreaming() && client instanceof AbstractDifyClient) {
+            int perHost = ((AbstractDifyClient) client).getHttpClient().dispatcher().getMaxRequestsPerHost();
+            if (perHost < options.getConcurrency()) {
+                log.warn("工作流批量执行并发数 {} 超过 Dispatcher 每主机并发 {}，多出的流式请求会排队，可调大 DifyConfig.maxRequestsPerHost",
+                        options.getConcurrency(), perHost);
+            }
+        }
+    }
+
+    /**
+     * 执行全部输入并按输入顺序返回结果
+     *
+     * @param inputs 输入
+     * @return 执行结果
+     * @throws IOException          读写进度文件失败
+     * @throws InterruptedException 执行被中断
+     */
+    public List<WorkflowBatchResult> run(Iterator<WorkflowRunRequest> inputs) throws IOException, InterruptedException {
+        List<WorkflowBatchResult> results = new ArrayList<>();
+        run(inputs, results::add);
+        return results;
+    }
+
+    /**
+     * 执行全部输入，结果按输入顺序依次交给 consumer
+     * consumer 在执行线程中调用，调用期间会阻塞后续结果的返回
+     *
+     * @param inputs   输入
+     * @param consumer 结果处理
+     * @return 最终进度
+     * @throws IOException          读写进度文件失败
+     * @throws InterruptedException 执行被中断
+     */
+    public WorkflowBatchProgress run(Iterator<WorkflowRunRequest> inputs, Consumer<WorkflowBatchResult> consumer) throws IOException, InterruptedException {
+        Map<Long, WorkflowBatchResult> checkpointed = readCheckpoint();
+        int concurrency = Math.max(1, options.getConcurrency());
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency, THREAD_FACTORY);
+
+        try (BufferedWriter checkpoint = openCheckpoint()) {
+            Batch batch = new Batch(consumer, checkpoint, new Semaphore(concurrency * WINDOW_FACTOR));
+            long index = 0;
+            while (inputs.hasNext()) {
+                WorkflowRunRequest request = inputs.next();
+                batch.window.acquire();
+                long current = index++;
+                WorkflowBatchResult previous = checkpointed.remove(current);
+                if (previous != null) {
+                    previous.setResumed(true);
+                    batch.complete(previous);
+                } else {
+                    executor.execute(() -> batch.complete(execute(current, request)));
+                }
+            }
+            executor.shutdown();
+            while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                log.debug("等待工作流批量执行完成: {}", batch.progress());
+            }
+            if (batch.checkpointError != null) {
+                throw batch.checkpointError;
+            }
+            WorkflowBatchProgress progress = batch.progress();
+            report(progress);
+            return progress;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private WorkflowBatchResult execute(long index, WorkflowRunRequest request) {
+        try {
+            WorkflowRunResponse response;
+            if (options.isStreaming()) {
+                response = runStreaming(request);
+            } else {
+                request.setResponseMode(ResponseMode.BLOCKING);
+                response = client.runWorkflow(request);
+            }
+            return WorkflowBatchResult.builder().index(index).response(response).build();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return WorkflowBatchResult.builder().index(index).error("执行被中断").build();
+        } catch (Exception e) {
+            log.debug("工作流执行失败: index={}, error={}", index, e.toString());
+            return WorkflowBatchResult.builder().index(index).error(e.toString()).build();
+        }
+    }
+
+    private WorkflowRunResponse runStreaming(WorkflowRunRequest request) throws Exception {
+        CompletableFuture<WorkflowRunResponse> future = new CompletableFuture<>();
+        CompletableFuture<Call> opened = new CompletableFuture<>();
+        AtomicReference<String> taskId = new AtomicReference<>();
+        client.runWorkflowStream(request, new WorkflowStreamCallback() {
+            @Override
+            public void onOpen(Call call) {
+                opened.complete(call);
+            }
+
+            @Override
+            public void onWorkflowStarted(WorkflowStartedEvent event) {
+                taskId.set(event.getTaskId());
+            }
+
+            @Override
+            public void onWorkflowFinished(WorkflowFinishedEvent event) {
+                future.complete(WorkflowEventUtils.toRunResponse(event));
+            }
+
+            @Override
+            public void onError(ErrorEvent event) {
+                future.completeExceptionally(DifyApiException.fromErrorEvent(event));
+            }
+
+            @Override
+            public void onException(Throwable throwable) {
+                future.completeExceptionally(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                future.completeExceptionally(new IOException("流式响应在 workflow_finished 之前结束"));
+            }
+        });
+        try {
+            // 排队和等待响应头的时间不计入超时，分别由 Dispatcher 和 HttpClient 的读取超时限制
+            CompletableFuture.anyOf(opened, future).get();
+            return future.get(options.getItemTimeout(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof Exception ? (Exception) cause : e;
+        } catch (InterruptedException e) {
+            cancel(opened);
+            throw e;
+        } catch (TimeoutException e) {
+            cancel(opened);
+            if (taskId.get() != null) {
+                try {
+                    client.stopWorkflow(taskId.get(), request.getUser());
+                } catch (Exception stopFailure) {
+                    log.debug("停止超时的工作流失败: taskId={}, error={}", taskId.get(), stopFailure.toString());
+                }
+            }
+            throw new TimeoutException("工作流执行超时: " + options.getItemTimeout() + "ms");
+        }
+    }
+
+    private static void cancel(CompletableFuture<Call> opened) {
+        Call call = opened.getNow(null);
+        if (call != null) {
+            call.cancel();
+        }
+    }
+
+    private Map<Long, WorkflowBatchResult> readCheckpoint() throws IOException {
+        Map<Long, WorkflowBatchResult> results = new HashMap<>();
+        if (options.getCheckpointFile() == null || !Files.exists(options.getCheckpointFile())) {
+            return results;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(options.getCheckpointFile(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                try {
+                    WorkflowBatchResult result = JsonUtils.getObjectMapper().readValue(line, WorkflowBatchResult.class);
+                    results.put(result.getIndex(), result);
+                } catch (IOException e) {
+                    // 上次执行在写入过程中退出，最后一行不完整
+                    log.warn("忽略无法解析的进度记录: {}", e.getMessage());
+                }
+            }
+        }
+        log.info("从进度文件恢复 {} 条结果: {}", results.size(), options.getCheckpointFile());
+        return results;
+    }
+
+    private BufferedWriter openCheckpoint() throws IOException {
+        if (options.getCheckpointFile() == null) {
+            return null;
+        }
+        return Files.newBufferedWriter(options.getCheckpointFile(), StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private void report(WorkflowBatchProgress progress) {
+        if (options.getProgressListener() != null) {
+            options.getProgressListener().accept(progress);
+        } else {
+            log.info("工作流批量执行进度: completed={}, failed={}, resumed={}, throughput={}/s, tokens={}, tokens_per_second={}",
+                    progress.getCompleted(), progress.getFailed(), progress.getResumed(),
+                    String.format("%.2f", progress.getThroughput()), progress.getTotalTokens(),
+                    String.format("%.1f", progress.getTokensPerSecond()));
+        }
+    }
+
+    /**
+     * 单次批量执行的状态，乱序完成的结果暂存后按输入顺序返回
+     */
+    private final class Batch {
+        private final Consumer<WorkflowBatchResult> consumer;
+        private final BufferedWriter checkpoint;
+        private final Semaphore window;
+        private final Map<Long, WorkflowBatchResult> pending = new HashMap<>();
+        private final long startNanos = System.nanoTime();
+        private long nextIndex;
+        private long completed;
+        private long failed;
+        private long resumed;
+        private long totalTokens;
+        private long lastReportNanos = startNanos;
+        private IOException checkpointError;
+
+        Batch(Consumer<WorkflowBatchResult> consumer, BufferedWriter checkpoint, Semaphore window) {
+            this.consumer = consumer;
+            this.checkpoint = checkpoint;
+            this.window = window;
+        }
+
+        synchronized void complete(WorkflowBatchResult result) {
+            if (result.isResumed()) {
+                resumed++;
+            } else if (result.isSuccessful()) {
+                writeCheckpoint(result);
+                if (result.getResponse().getData() != null && result.getResponse().getData().getTotalTokens() != null) {
+                    totalTokens += result.getResponse().getData().getTotalTokens();
+                }
+            }
+            if (!result.isSuccessful()) {
+                failed++;
+            }
+            completed++;
+
+            pending.put(result.getIndex(), result);
+            WorkflowBatchResult next;
+            while ((next = pending.remove(nextIndex)) != null) {
+                nextIndex++;
+                window.release();
+                try {
+                    consumer.accept(next);
+                } catch (RuntimeException e) {
+                    log.error("处理工作流批量执行结果失败: index={}", next.getIndex(), e);
+                }
+            }
+
+            long now = System.nanoTime();
+            if (now - lastReportNanos >= TimeUnit.MILLISECONDS.toNanos(options.getProgressInterval())) {
+                lastReportNanos = now;
+                report(progress());
+            }
+        }
+
+        synchronized WorkflowBatchProgress progress() {
+            return WorkflowBatchProgress.builder()
+                    .completed(completed)
+                    .failed(failed)
+                    .resumed(resumed)
+                    .totalTokens(totalTokens)
+                    .elapsed(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos))
+                    .build();
+        }
+
+        private void writeCheckpoint(WorkflowBatchResult result) {
+            if (checkpoint == null || checkpointError != null) {
+                return;
+            }
+            try {
+                checkpoint.write(JsonUtils.toJson(result));
+                checkpoint.newLine();
+                checkpoint.flush();
+            } catch (IOException e) {
+                // 继续执行，结束时再抛出，避免等待中的结果无法返回
+                log.error("写入进度文件失败: {}", e.getMessage());
+                checkpointError = e;
+            }
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package io.github.imfangs.dify.client.callback;
+
+import java.util.Arrays;
+
+/**
+ * 可增长的回复字符缓冲区
+ * 只在末尾追加，已写入的位置不再修改，因此快照可以直接引用底层数组而不复制；
+ * 替换内容时改用新数组，不影响已有快照。
+ */
+final class AnswerBuffer {
+    private static final int INITIAL_CAPACITY = 256;
+
+    private char[] chars = new char[INITIAL_CAPACITY];
+    private int length;
+
+    synchronized void append(String text) {
+        if (text == null || text.isEmpty()) {
+            return;
+        }
+        int required = length + text.length();
+        if (required > chars.length) {
+            chars = Arrays.copyOf(chars, Math.max(required, chars.length * 2));
+        }
+        text.getChars(0, text.length(), chars, length);
+        length = required;
+    }
+
+    synchronized void replace(String text) {
+        String value = text != null ? text : "";
+        chars = new char[Math.max(INITIAL_CAPACITY, value.length())];
+        value.getChars(0, value.length(), chars, 0);
+        length = value.length();
+    }
+
+    synchronized int length() {
+        return length;
+    }
+
+    synchronized CharSequence snapshot() {
+        return new View(chars, 0, length);
+    }
+
+    /**
+     * 缓冲区的只读视图，长度固定为创建时的长度
+     */
+    private static final class View implements CharSequence {
+        private final char[] chars;
+        private final int offset;
+        private final int length;
+
+        View(char[] chars, int offset, int length) {
+            this.chars = chars;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            if (index < 0 || index >= length) {
+                throw new IndexOutOfBoundsException("index: " + index + ", length: " + length);
+            }
+            return chars[offset + index];
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            if (start < 0 || end > length || start > end) {
+                throw new IndexOutOfBoundsException("start: " + start + ", end: " + end + ", length: " + length);
+            }
+            return new View(chars, offset + start, end - start);
+        }
+
+        @Override
+        public String toString() {
+            return new String(chars, offset, length);
+        }
+    }
+}
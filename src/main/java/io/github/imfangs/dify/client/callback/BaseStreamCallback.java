@@ -2,12 +2,29 @@ package io.github.imfangs.dify.client.callback;
 
 import io.github.imfangs.dify.client.event.ErrorEvent;
 import io.github.imfangs.dify.client.event.PingEvent;
+import okhttp3.Call;
 
 /**
  * 对话流式回调接口
  */
 public interface BaseStreamCallback {
 
+    /**
+     * 流式响应已建立，在读取第一个事件之前调用
+     * 可保存 call 以便在超时或不再需要结果时调用 {@link Call#cancel()} 关闭连接
+     *
+     * @param call 请求
+     */
+    default void onOpen(Call call) {
+    }
+
+    /**
+     * 流式响应读取结束，连接正常关闭时调用
+     * 服务端未发送结束事件就关闭连接时也会调用，请求失败或读取出错时改为调用 {@link #onException(Throwable)}
+     */
+    default void onComplete() {
+    }
+
     /**
      * 错误事件
      *
@@ -0,0 +1,128 @@
+package io.github.imfangs.dify.client.callback;
+
+import io.github.imfangs.dify.client.event.*;
+import io.github.imfangs.dify.client.exception.DifyApiException;
+import io.github.imfangs.dify.client.model.chat.ChatStreamResult;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 流式回复汇总回调
+ * 将 message / agent_message 内容块追加到可增长的字符缓冲区，处理 message_replace，
+ * 收到 message_end 后以完整回复、用量、文件和 Agent 思考步骤完成 {@link #getResult()}。
+ * 对话型和工作流编排对话型应用都可使用，每次请求需创建新的实例。
+ * <pre>
+ * ChatAnswerAccumulator accumulator = new ChatAnswerAccumulator();
+ * client.sendChatMessageStream(message, accumulator);
+ * ChatStreamResult result = accumulator.getResult().get(60, TimeUnit.SECONDS);
+ * </pre>
+ * 连接在 message_end 之前关闭时结果以 IOException 异常完成；服务端长时间无响应时结果不会完成，调用方仍应设置等待超时。
+ */
+public class ChatAnswerAccumulator implements ChatflowStreamCallback {
+    private final AnswerBuffer buffer = new AnswerBuffer();
+    private final List<MessageFileEvent> messageFiles = new ArrayList<>();
+    private final Map<String, AgentThoughtEvent> agentThoughts = new LinkedHashMap<>();
+    private final CompletableFuture<ChatStreamResult> result = new CompletableFuture<>();
+
+    /**
+     * 获取汇总结果，收到 message_end 时完成，收到错误事件、请求异常或流在 message_end 之前结束时异常完成
+     *
+     * @return 汇总结果
+     */
+    public CompletableFuture<ChatStreamResult> getResult() {
+        return result;
+    }
+
+    /**
+     * 获取当前已收到的回复内容
+     * 返回的视图不复制内容，长度固定为调用时的长度，之后追加的内容不会反映到视图中
+     *
+     * @return 回复内容视图
+     */
+    public CharSequence getAnswer() {
+        return buffer.snapshot();
+    }
+
+    /**
+     * 获取当前已收到的回复长度
+     *
+     * @return 字符数
+     */
+    public int getAnswerLength() {
+        return buffer.length();
+    }
+
+    @Override
+    public void onMessage(MessageEvent event) {
+        buffer.append(event.getAnswer());
+    }
+
+    @Override
+    public void onAgentMessage(AgentMessageEvent event) {
+        buffer.append(event.getAnswer());
+    }
+
+    @Override
+    public void onMessageReplace(MessageReplaceEvent event) {
+        buffer.replace(event.getAnswer());
+    }
+
+    @Override
+    public void onMessageFile(MessageFileEvent event) {
+        synchronized (messageFiles) {
+            messageFiles.add(event);
+        }
+    }
+
+    @Override
+    public void onAgentThought(AgentThoughtEvent event) {
+        synchronized (agentThoughts) {
+            String key = event.getId() != null ? event.getId() : String.valueOf(event.getPosition());
+            agentThoughts.put(key, event);
+        }
+    }
+
+    @Override
+    public void onMessageEnd(MessageEndEvent event) {
+        List<MessageFileEvent> files;
+        synchronized (messageFiles) {
+            files = new ArrayList<>(messageFiles);
+        }
+        List<AgentThoughtEvent> thoughts;
+        synchronized (agentThoughts) {
+            thoughts = new ArrayList<>(agentThoughts.values());
+        }
+        result.complete(ChatStreamResult.builder()
+                .messageId(event.getMessageId())
+                .conversationId(event.getConversationId())
+                .taskId(event.getTaskId())
+                .answer(buffer.snapshot().toString())
+                .metadata(event.getMetadata())
+                .files(event.getFiles())
+                .messageFiles(files)
+                .agentThoughts(thoughts)
+                .createdAt(event.getCreatedAt())
+                .build());
+    }
+
+    @Override
+    public void onError(ErrorEvent event) {
+        result.completeExceptionally(DifyApiException.fromErrorEvent(event));
+    }
+
+    @Override
+    public void onException(Throwable throwable) {
+        result.completeExceptionally(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+        // 已完成时不产生影响
+        result.completeExceptionally(new IOException("流式响应在 message_end 之前结束"));
+    }
+}
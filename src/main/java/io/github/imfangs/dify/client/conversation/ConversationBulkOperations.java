@@ -0,0 +1,190 @@
+package io.github.imfangs.dify.client.conversation;
+
+import io.github.imfangs.dify.client.DifyChatClient;
+import io.github.imfangs.dify.client.exception.DifyApiException;
+import io.github.imfangs.dify.client.util.DaemonThreadFactory;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * 会话批量操作
+ * 以有限并发和限速对大量会话执行删除或重命名，每个会话单独返回结果，单个失败不影响其余会话。
+ * 会话 ID 按需从迭代器读取，可以直接使用 {@link ConversationScanner} 的遍历结果。
+ * <pre>
+ * ConversationBulkOperations bulk = new ConversationBulkOperations(client, ConversationBulkOptions.builder()
+ *         .concurrency(8)
+ *         .requestsPerSecond(20)
+ *         .build());
+ * long cutoff = Instant.now().minus(Duration.ofDays(90)).getEpochSecond();
+ * List&lt;ConversationBulkResult&gt; results = bulk.deleteAll(ConversationScanner.idsUpdatedBefore(client, user, cutoff), user);
+ * </pre>
+ */
+@Slf4j
+public class ConversationBulkOperations {
+    private static final ThreadFactory THREAD_FACTORY = new DaemonThreadFactory("dify-conversation-bulk");
+
+    private final DifyChatClient client;
+    private final ConversationBulkOptions options;
+
+    /**
+     * 构造函数
+     *
+     * @param client  对话客户端
+     * @param options 批量操作配置
+     */
+    public ConversationBulkOperations(DifyChatClient client, ConversationBulkOptions options) {
+        this.client = client;
+        this.options = options;
+    }
+
+    /**
+     * 删除会话
+     *
+     * @param conversationIds 会话 ID
+     * @param user            用户标识
+     * @return 每个会话的结果，按完成顺序
+     * @throws InterruptedException 执行被中断
+     */
+    public List<ConversationBulkResult> deleteAll(Iterator<String> conversationIds, String user) throws InterruptedException {
+        List<ConversationBulkResult> results = new ArrayList<>();
+        deleteAll(conversationIds, user, results::add);
+        return results;
+    }
+
+    /**
+     * 删除会话，结果按完成顺序依次交给 consumer
+     *
+     * @param conversationIds 会话 ID
+     * @param user            用户标识
+     * @param consumer        结果处理，不会被并发调用
+     * @throws InterruptedException 执行被中断
+     */
+    public void deleteAll(Iterator<String> conversationIds, String user, Consumer<ConversationBulkResult> consumer) throws InterruptedException {
+        execute(conversationIds, id -> client.deleteConversation(id, user), consumer);
+    }
+
+    /**
+     * 重命名会话
+     *
+     * @param conversationIds 会话 ID
+     * @param user            用户标识
+     * @param names           根据会话 ID 生成新名称，返回null时由服务端自动生成
+     * @return 每个会话的结果，按完成顺序
+     * @throws InterruptedException 执行被中断
+     */
+    public List<ConversationBulkResult> renameAll(Iterator<String> conversationIds, String user, Function<String, String> names) throws InterruptedException {
+        List<ConversationBulkResult> results = new ArrayList<>();
+        renameAll(conversationIds, user, names, results::add);
+        return results;
+    }
+
+    /**
+     * 重命名会话，结果按完成顺序依次交给 consumer
+     *
+     * @param conversationIds 会话 ID
+     * @param user            用户标识
+     * @param names           根据会话 ID 生成新名称，返回null时由服务端自动生成
+     * @param consumer        结果处理，不会被并发调用
+     * @throws InterruptedException 执行被中断
+     */
+    public void renameAll(Iterator<String> conversationIds, String user, Function<String, String> names,
+                          Consumer<ConversationBulkResult> consumer) throws InterruptedException {
+        execute(conversationIds, id -> {
+            String name = names.apply(id);
+            client.renameConversation(id, name, name == null, user);
+        }, consumer);
+    }
+
+    private void execute(Iterator<String> conversationIds, Operation operation, Consumer<ConversationBulkResult> consumer) throws InterruptedException {
+        int concurrency = Math.max(1, options.getConcurrency());
+        Semaphore permits = new Semaphore(concurrency);
+        RateLimiter rateLimiter = new RateLimiter(options.getRequestsPerSecond());
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency, THREAD_FACTORY);
+        Object consumerLock = new Object();
+        try {
+            // 迭代器抛出异常时停止提交，等待已提交的请求完成后再抛出
+            while (conversationIds.hasNext()) {
+                String id = conversationIds.next();
+                permits.acquire();
+                rateLimiter.acquire();
+                executor.execute(() -> {
+                    try {
+                        ConversationBulkResult result = apply(id, operation);
+                        synchronized (consumerLock) {
+                            consumer.accept(result);
+                        }
+                    } catch (RuntimeException e) {
+                        log.error("处理会话批量操作结果失败: conversationId={}", id, e);
+                    } finally {
+                        permits.release();
+                    }
+                });
+            }
+        } finally {
+            executor.shutdown();
+            while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                log.debug("等待会话批量操作完成");
+            }
+        }
+    }
+
+    private ConversationBulkResult apply(String id, Operation operation) {
+        try {
+            operation.apply(id);
+            return ConversationBulkResult.builder().conversationId(id).build();
+        } catch (DifyApiException e) {
+            if (e.getStatusCode() == 404 && options.isIgnoreNotFound()) {
+                return ConversationBulkResult.builder().conversationId(id).build();
+            }
+            log.debug("会话批量操作失败: conversationId={}, error={}", id, e.toString());
+            return ConversationBulkResult.builder().conversationId(id).statusCode(e.getStatusCode()).error(e.getMessage()).build();
+        } catch (Exception e) {
+            log.debug("会话批量操作失败: conversationId={}, error={}", id, e.toString());
+            return ConversationBulkResult.builder().conversationId(id).error(e.toString()).build();
+        }
+    }
+
+    @FunctionalInterface
+    private interface Operation {
+        void apply(String conversationId) throws IOException;
+    }
+
+    /**
+     * 按固定间隔发放请求许可
+     */
+    private static final class RateLimiter {
+        private final long intervalNanos;
+        private long nextNanos = System.nanoTime();
+
+        RateLimiter(double requestsPerSecond) {
+            this.intervalNanos = requestsPerSecond > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / requestsPerSecond) : 0;
+        }
+
+        void acquire() throws InterruptedException {
+            if (intervalNanos == 0) {
+                return;
+            }
+            long slot = Math.max(nextNanos, System.nanoTime());
+            nextNanos = slot + intervalNanos;
+            long wait;
+            while ((wait = slot - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+            }
+        }
+    }
+}
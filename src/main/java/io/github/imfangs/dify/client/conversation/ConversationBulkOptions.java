@@ -0,0 +1,33 @@
+package io.github.imfangs.dify.client.conversation;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 会话批量操作配置
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ConversationBulkOptions {
+    /**
+     * 同时执行的请求数
+     */
+    @Builder.Default
+    private int concurrency = 4;
+
+    /**
+     * 每秒最多发出的请求数，小于等于 0 时不限制
+     */
+    @Builder.Default
+    private double requestsPerSecond = 0;
+
+    /**
+     * 会话不存在（404）时是否视为成功，重复执行清理任务时可避免误报
+     */
+    @Builder.Default
+    private boolean ignoreNotFound = true;
+}
@@ -0,0 +1,39 @@
+package io.github.imfangs.dify.client.conversation;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 单个会话的批量操作结果
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ConversationBulkResult {
+    /**
+     * 会话 ID
+     */
+    private String conversationId;
+
+    /**
+     * 失败时的 HTTP 状态码，成功或非 API 错误时为null
+     */
+    private Integer statusCode;
+
+    /**
+     * 失败原因，成功时为null
+     */
+    private String error;
+
+    /**
+     * 是否成功
+     *
+     * @return 是否成功
+     */
+    public boolean isSuccessful() {
+        return error == null;
+    }
+}
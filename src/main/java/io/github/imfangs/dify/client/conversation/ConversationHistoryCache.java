@@ -0,0 +1,279 @@
+package io.github.imfangs.dify.client.conversation;
+
+import io.github.imfangs.dify.client.DifyChatClient;
+import io.github.imfangs.dify.client.exception.DifyApiException;
+import io.github.imfangs.dify.client.model.chat.ChatMessage;
+import io.github.imfangs.dify.client.model.chat.ChatStreamResult;
+import io.github.imfangs.dify.client.model.chat.MessageListResponse;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * 会话历史消息缓存
+ * 按用户和会话缓存已读取的消息，重复读取直接从内存返回；向上翻页接近已缓存的最早消息时在后台预取更早的一页。
+ * 流式对话完成后通过 {@link #append} 追加新消息，不需要重新读取。
+ * 只缓存本客户端看到的消息，其他端在同一会话中发送的消息需调用 {@link #invalidate} 后重新读取。
+ * <pre>
+ * ConversationHistoryCache history = new ConversationHistoryCache(client, 1000, 20, 10);
+ * List&lt;MessageListResponse.Message&gt; latest = history.getLatest(conversationId, user, 20);
+ * List&lt;MessageListResponse.Message&gt; older = history.getBefore(conversationId, user, latest.get(0).getId(), 20);
+ *
+ * accumulator.getResult().thenAccept(result -&gt; history.append(user, message, result));
+ * </pre>
+ */
+@Slf4j
+public class ConversationHistoryCache implements Closeable {
+    private final DifyChatClient client;
+    private final int pageSize;
+    private final int prefetchThreshold;
+    private final Map<String, History> conversations;
+    private final ExecutorService prefetcher;
+
+    /**
+     * 构造函数
+     *
+     * @param client            对话客户端
+     * @param maxConversations  最多缓存的会话数，按最近使用淘汰
+     * @param pageSize          每次读取的消息数
+     * @param prefetchThreshold 已缓存的更早消息少于该数量时在后台预取上一页
+     */
+    public ConversationHistoryCache(DifyChatClient client, int maxConversations, int pageSize, int prefetchThreshold) {
+        this.client = client;
+        this.pageSize = pageSize;
+        this.prefetchThreshold = prefetchThreshold;
+        this.conversations = new LinkedHashMap<String, History>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, History> eldest) {
+                return size() > maxConversations;
+            }
+        };
+        this.prefetcher = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "dify-history-prefetch");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 获取会话最新的消息，按时间正序
+     *
+     * @param conversationId 会话ID
+     * @param user           用户标识
+     * @param limit          消息数量
+     * @return 消息列表
+     * @throws IOException      读取失败
+     * @throws DifyApiException 读取失败
+     */
+    public List<MessageListResponse.Message> getLatest(String conversationId, String user, int limit) throws IOException, DifyApiException {
+        History history = history(conversationId, user);
+        synchronized (history) {
+            load(history);
+            int end = history.messages.size();
+            int start = Math.max(0, end - limit);
+            prefetchIfNeeded(history, start);
+            return new ArrayList<>(history.messages.subList(start, end));
+        }
+    }
+
+    /**
+     * 获取指定消息之前的消息，按时间正序
+     * 已缓存的消息不足时同步读取更早的页
+     *
+     * @param conversationId 会话ID
+     * @param user           用户标识
+     * @param messageId      消息ID，返回该消息之前的消息
+     * @param limit          消息数量
+     * @return 消息列表，没有更早的消息时为空
+     * @throws IOException      读取失败
+     * @throws DifyApiException 读取失败
+     */
+    public List<MessageListResponse.Message> getBefore(String conversationId, String user, String messageId, int limit) throws IOException, DifyApiException {
+        History history = history(conversationId, user);
+        synchronized (history) {
+            load(history);
+            int end = history.indexOf(messageId);
+            while (end >= 0 && end < limit && history.hasMore) {
+                int before = history.messages.size();
+                history.prepend(client.getMessages(conversationId, user, history.oldestId(), pageSize));
+                end += history.messages.size() - before;
+            }
+            if (end < 0) {
+                return Collections.emptyList();
+            }
+            int start = Math.max(0, end - limit);
+            prefetchIfNeeded(history, start);
+            return new ArrayList<>(history.messages.subList(start, end));
+        }
+    }
+
+    /**
+     * 追加流式对话完成后的消息，会话未缓存时忽略
+     * 请求中没有会话ID时视为新会话，直接创建缓存
+     *
+     * @param user    用户标识
+     * @param request 对话请求
+     * @param result  流式回复汇总结果
+     */
+    public void append(String user, ChatMessage request, ChatStreamResult result) {
+        if (result.getConversationId() == null || result.getMessageId() == null) {
+            return;
+        }
+        boolean newConversation = request.getConversationId() == null || request.getConversationId().isEmpty();
+        History history;
+        synchronized (conversations) {
+            String key = key(result.getConversationId(), user);
+            history = conversations.get(key);
+            if (history == null) {
+                if (!newConversation) {
+                    return;
+                }
+                history = new History(result.getConversationId(), user);
+                history.loaded = true;
+                conversations.put(key, history);
+            }
+        }
+        synchronized (history) {
+            if (!history.loaded) {
+                return;
+            }
+            history.append(MessageListResponse.Message.builder()
+                    .id(result.getMessageId())
+                    .conversationId(result.getConversationId())
+                    .inputs(request.getInputs())
+                    .query(request.getQuery())
+                    .answer(result.getAnswer())
+                    .retrieverResources(result.getMetadata() != null ? result.getMetadata().getRetrieverResources() : null)
+                    .createdAt(result.getCreatedAt())
+                    .status("normal")
+                    .build());
+        }
+    }
+
+    /**
+     * 清除会话缓存，下次读取时重新获取
+     *
+     * @param conversationId 会话ID
+     * @param user           用户标识
+     */
+    public void invalidate(String conversationId, String user) {
+        synchronized (conversations) {
+            conversations.remove(key(conversationId, user));
+        }
+    }
+
+    @Override
+    public void close() {
+        prefetcher.shutdownNow();
+    }
+
+    private History history(String conversationId, String user) {
+        synchronized (conversations) {
+            return conversations.computeIfAbsent(key(conversationId, user), k -> new History(conversationId, user));
+        }
+    }
+
+    private void load(History history) throws IOException, DifyApiException {
+        if (!history.loaded) {
+            history.prepend(client.getMessages(history.conversationId, history.user, null, pageSize));
+            history.loaded = true;
+        }
+    }
+
+    /**
+     * 返回窗口之前缓存的消息不足时在后台读取更早的一页，同一会话同时只有一个预取
+     */
+    private void prefetchIfNeeded(History history, int windowStart) {
+        if (windowStart >= prefetchThreshold || !history.hasMore || history.prefetching || history.messages.isEmpty()) {
+            return;
+        }
+        String conversationId = history.conversationId;
+        String user = history.user;
+        String firstId = history.oldestId();
+        history.prefetching = true;
+        try {
+            prefetcher.execute(() -> {
+                MessageListResponse page = null;
+                try {
+                    page = client.getMessages(conversationId, user, firstId, pageSize);
+                } catch (Exception e) {
+                    log.debug("预取历史消息失败: conversationId={}, error={}", conversationId, e.toString());
+                }
+                synchronized (history) {
+                    history.prefetching = false;
+                    // 期间已同步读取过更早的页时丢弃预取结果
+                    if (page != null && firstId.equals(history.oldestId())) {
+                        history.prepend(page);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            history.prefetching = false;
+        }
+    }
+
+    private static String key(String conversationId, String user) {
+        return user + "\n" + conversationId;
+    }
+
+    /**
+     * 单个会话的缓存，消息按时间正序
+     */
+    private static final class History {
+        private final List<MessageListResponse.Message> messages = new ArrayList<>();
+        private final Set<String> ids = new HashSet<>();
+        private final String conversationId;
+        private final String user;
+        private boolean loaded;
+        private boolean hasMore;
+        private boolean prefetching;
+
+        History(String conversationId, String user) {
+            this.conversationId = conversationId;
+            this.user = user;
+        }
+
+        void prepend(MessageListResponse page) {
+            List<MessageListResponse.Message> older = new ArrayList<>();
+            if (page != null && page.getData() != null) {
+                for (MessageListResponse.Message message : page.getData()) {
+                    if (ids.add(message.getId())) {
+                        older.add(message);
+                    }
+                }
+            }
+            messages.addAll(0, older);
+            hasMore = page != null && Boolean.TRUE.equals(page.getHasMore()) && !older.isEmpty();
+        }
+
+        void append(MessageListResponse.Message message) {
+            if (ids.add(message.getId())) {
+                messages.add(message);
+            }
+        }
+
+        int indexOf(String messageId) {
+            for (int i = messages.size() - 1; i >= 0; i--) {
+                if (messages.get(i).getId().equals(messageId)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        String oldestId() {
+            return messages.isEmpty() ? null : messages.get(0).getId();
+        }
+    }
+}
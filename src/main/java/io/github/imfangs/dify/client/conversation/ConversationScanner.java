@@ -0,0 +1,130 @@
+package io.github.imfangs.dify.client.conversation;
+
+import io.github.imfangs.dify.client.DifyChatClient;
+import io.github.imfangs.dify.client.model.chat.Conversation;
+import io.github.imfangs.dify.client.model.chat.ConversationListResponse;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * 会话列表自动分页遍历
+ * 按需逐页读取用户的会话。返回每页最后一条会话前先读取下一页，因此遍历过程中删除已返回的会话不会使分页游标失效。
+ * 读取失败时抛出 {@link UncheckedIOException}，原始异常为 {@link IOException} 或 {@link io.github.imfangs.dify.client.exception.DifyApiException}。
+ * <pre>
+ * long cutoff = Instant.now().minus(Duration.ofDays(90)).getEpochSecond();
+ * bulk.deleteAll(ConversationScanner.idsUpdatedBefore(client, user, cutoff), user);
+ * </pre>
+ */
+public class ConversationScanner implements Iterator<Conversation> {
+    /**
+     * 默认每页数量，Dify 允许的最大值
+     */
+    public static final int DEFAULT_PAGE_SIZE = 100;
+
+    private final DifyChatClient client;
+    private final String user;
+    private final int pageSize;
+    private final String sortBy;
+    private List<Conversation> page = Collections.emptyList();
+    private int position;
+    private boolean started;
+    private boolean hasMore;
+
+    /**
+     * 构造函数
+     *
+     * @param client   对话客户端
+     * @param user     用户标识
+     * @param pageSize 每页数量
+     * @param sortBy   排序字段，如 -updated_at、updated_at、-created_at、created_at
+     */
+    public ConversationScanner(DifyChatClient client, String user, int pageSize, String sortBy) {
+        this.client = client;
+        this.user = user;
+        this.pageSize = pageSize;
+        this.sortBy = sortBy;
+    }
+
+    /**
+     * 遍历最后更新时间早于 cutoff 的会话 ID，按更新时间正序读取，遇到不早于 cutoff 的会话即停止
+     *
+     * @param client 对话客户端
+     * @param user   用户标识
+     * @param cutoff 截止时间（秒级时间戳）
+     * @return 会话 ID
+     */
+    public static Iterator<String> idsUpdatedBefore(DifyChatClient client, String user, long cutoff) {
+        ConversationScanner scanner = new ConversationScanner(client, user, DEFAULT_PAGE_SIZE, "updated_at");
+        return new Iterator<String>() {
+            private Conversation next;
+
+            @Override
+            public boolean hasNext() {
+                if (next == null && scanner.hasNext()) {
+                    Conversation candidate = scanner.next();
+                    if (candidate.getUpdatedAt() != null && candidate.getUpdatedAt() < cutoff) {
+                        next = candidate;
+                    } else {
+                        scanner.stop();
+                    }
+                }
+                return next != null;
+            }
+
+            @Override
+            public String next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                String id = next.getId();
+                next = null;
+                return id;
+            }
+        };
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (!started) {
+            started = true;
+            fetch(null);
+        }
+        return position < page.size();
+    }
+
+    @Override
+    public Conversation next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Conversation conversation = page.get(position++);
+        if (position == page.size() && hasMore) {
+            // 先用最后一条作为游标读取下一页，再交给调用方处理
+            fetch(conversation.getId());
+        }
+        return conversation;
+    }
+
+    private void stop() {
+        page = Collections.emptyList();
+        position = 0;
+        hasMore = false;
+    }
+
+    private void fetch(String lastId) {
+        ConversationListResponse response;
+        try {
+            response = client.getConversations(user, lastId, pageSize, sortBy);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        page = response.getData() != null ? response.getData() : Collections.emptyList();
+        position = 0;
+        hasMore = Boolean.TRUE.equals(response.getHasMore()) && !page.isEmpty();
+    }
+}
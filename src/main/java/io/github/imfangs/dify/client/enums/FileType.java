@@ -5,6 +5,10 @@ import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
 /**
  * 文件类型
  */
@@ -47,22 +51,34 @@ public enum FileType {
         return value;
     }
 
-    public static FileType getByFileExtension(String fileExtension) {
-        if (fileExtension == null) {
-            return CUSTOM;
-        }
-        if (fileExtension.contains(".")) {
-            fileExtension = fileExtension.substring(fileExtension.lastIndexOf(".") + 1);
-        }
+    /**
+     * 扩展名（大写）到文件类型的映射，同一扩展名属于多个类型时取先声明的类型
+     */
+    private static final Map<String, FileType> BY_EXTENSION = new HashMap<>();
+
+    static {
         for (FileType fileType : values()) {
-            if (fileType.getFileExtensions() != null) {
-                for (String extension : fileType.getFileExtensions()) {
-                    if (extension.equalsIgnoreCase(fileExtension)) {
-                        return fileType;
-                    }
+            if (fileType.fileExtensions != null) {
+                for (String extension : fileType.fileExtensions) {
+                    BY_EXTENSION.putIfAbsent(extension, fileType);
                 }
             }
         }
-        return CUSTOM;
+    }
+
+    /**
+     * 根据扩展名或文件名获取文件类型，不区分大小写
+     *
+     * @param fileExtension 扩展名或文件名，如 pdf、.pdf、test.pdf
+     * @return 文件类型，未知扩展名返回 CUSTOM
+     */
+    public static FileType getByFileExtension(String fileExtension) {
+        if (fileExtension == null) {
+            return CUSTOM;
+        }
+        int dot = fileExtension.lastIndexOf('.');
+        String extension = dot >= 0 ? fileExtension.substring(dot + 1) : fileExtension;
+        FileType fileType = BY_EXTENSION.get(extension.toUpperCase(Locale.ROOT));
+        return fileType != null ? fileType : CUSTOM;
     }
 }
@@ -1,5 +1,6 @@
 package io.github.imfangs.dify.client.exception;
 
+import io.github.imfangs.dify.client.event.ErrorEvent;
 import lombok.Getter;
 
 import java.io.IOException;
@@ -38,4 +39,15 @@ public class DifyApiException extends IOException {
         this.errorMessage = errorMessage;
     }
 
+    /**
+     * 根据流式响应中的 error 事件创建，事件未带状态码时按 500 处理
+     *
+     * @param event 错误事件
+     * @return 异常
+     */
+    public static DifyApiException fromErrorEvent(ErrorEvent event) {
+        int status = event.getStatus() != null ? event.getStatus() : 500;
+        return new DifyApiException(status, event.getCode(), event.getMessage());
+    }
+
 }
@@ -0,0 +1,34 @@
+package io.github.imfangs.dify.client.exception;
+
+import lombok.Getter;
+
+import java.io.IOException;
+
+/**
+ * 熔断异常
+ * 接口分组的熔断器处于打开状态时抛出，请求未发送到服务端
+ */
+@Getter
+public class DifyCircuitOpenException extends IOException {
+    /**
+     * 接口分组
+     */
+    private final String group;
+
+    /**
+     * 距离熔断器允许探测请求的剩余时间（毫秒）
+     */
+    private final long remainingOpenMillis;
+
+    /**
+     * 构造函数
+     *
+     * @param group               接口分组
+     * @param remainingOpenMillis 剩余熔断时间（毫秒）
+     */
+    public DifyCircuitOpenException(String group, long remainingOpenMillis) {
+        super(String.format("熔断器已打开: %s, %dms 后重试", group, remainingOpenMillis));
+        this.group = group;
+        this.remainingOpenMillis = remainingOpenMillis;
+    }
+}
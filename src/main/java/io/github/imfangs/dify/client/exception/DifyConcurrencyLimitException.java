@@ -0,0 +1,34 @@
+package io.github.imfangs.dify.client.exception;
+
+import lombok.Getter;
+
+import java.io.IOException;
+
+/**
+ * 并发限制异常
+ * 当前在途请求数已达到自适应并发限制时抛出，请求未发送到服务端
+ */
+@Getter
+public class DifyConcurrencyLimitException extends IOException {
+    /**
+     * 限流器名称
+     */
+    private final String limiterName;
+
+    /**
+     * 当前并发限制
+     */
+    private final int limit;
+
+    /**
+     * 构造函数
+     *
+     * @param limiterName 限流器名称
+     * @param limit       当前并发限制
+     */
+    public DifyConcurrencyLimitException(String limiterName, int limit) {
+        super(String.format("并发请求数已达上限: %s (%d)", limiterName, limit));
+        this.limiterName = limiterName;
+        this.limit = limit;
+    }
+}
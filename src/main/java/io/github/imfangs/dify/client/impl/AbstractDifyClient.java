@@ -1,14 +1,25 @@
 package io.github.imfangs.dify.client.impl;
 
 import io.github.imfangs.dify.client.exception.DifyApiException;
+import io.github.imfangs.dify.client.interceptor.TracingInterceptor;
+import io.github.imfangs.dify.client.model.DifyConfig;
 import io.github.imfangs.dify.client.util.HttpClientUtils;
 import io.github.imfangs.dify.client.util.JsonUtils;
 import lombok.extern.slf4j.Slf4j;
 import okhttp3.*;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
 
 /**
  * Dify API 客户端抽象基类
@@ -23,6 +34,17 @@ public abstract class AbstractDifyClient {
     protected final OkHttpClient httpClient;
     protected final String baseUrl;
     protected final String apiKey;
+    protected final DifyConfig config;
+
+    /**
+     * 本客户端执行中的GET请求，键为完整URL，值为共享的响应体；不同客户端（API 密钥）之间不合并
+     */
+    private final ConcurrentMap<String, CompletableFuture<String>> inFlightGets = new ConcurrentHashMap<>();
+
+    /**
+     * 对冲请求策略，未启用时为null
+     */
+    private final HedgingPolicy hedgingPolicy;
 
     /**
      * 构造函数
@@ -42,9 +64,42 @@ public abstract class AbstractDifyClient {
      * @param httpClient HTTP客户端
      */
     public AbstractDifyClient(String baseUrl, String apiKey, OkHttpClient httpClient) {
-        this.baseUrl = baseUrl;
-        this.apiKey = apiKey;
-        this.httpClient = httpClient;
+        this(DifyConfig.builder().baseUrl(baseUrl).apiKey(apiKey).build(), httpClient);
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param config 客户端配置
+     */
+    public AbstractDifyClient(DifyConfig config) {
+        this(config, HttpClientUtils.createClient(config));
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param config     客户端配置
+     * @param httpClient HTTP客户端
+     */
+    public AbstractDifyClient(DifyConfig config, OkHttpClient httpClient) {
+        this.config = config;
+        this.baseUrl = config.getBaseUrl();
+        this.apiKey = config.getApiKey();
+        this.httpClient = HttpClientUtils.applyConfig(httpClient, config);
+        if (config.getMetricsRecorder() != null) {
+            config.getMetricsRecorder().bindHttpClient(this.httpClient);
+        }
+        this.hedgingPolicy = config.isHedgingEnabled() ? new HedgingPolicy(config.getHedgingPercentile(), config.getHedgingBudgetRatio()) : null;
+    }
+
+    /**
+     * 获取实际使用的HTTP客户端，已按配置添加拦截器并调整 Dispatcher
+     *
+     * @return HTTP客户端
+     */
+    public OkHttpClient getHttpClient() {
+        return httpClient;
     }
 
     /**
@@ -58,8 +113,156 @@ public abstract class AbstractDifyClient {
      * @throws DifyApiException API异常
      */
     protected <T> T executeGet(String path, Class<T> responseClass) throws IOException, DifyApiException {
+        return executeGet(path, responseClass, false);
+    }
+
+    /**
+     * 执行GET请求
+     *
+     * @param path 请求路径
+     * @param responseClass 响应类型
+     * @param hedged 是否允许发送对冲请求，仅用于只读且对延迟敏感的调用
+     * @param <T> 响应类型
+     * @return 响应对象
+     * @throws IOException IO异常
+     * @throws DifyApiException API异常
+     */
+    protected <T> T executeGet(String path, Class<T> responseClass, boolean hedged) throws IOException, DifyApiException {
         Request request = createGetRequest(path);
-        return executeRequest(request, responseClass);
+        String endpoint = hedged ? request.method() + " " + request.url().encodedPath() : null;
+        if (!config.isRequestCoalescing()) {
+            return JsonUtils.fromJson(executeHedged(endpoint, request), responseClass);
+        }
+        return JsonUtils.fromJson(executeCoalesced(endpoint, request), responseClass);
+    }
+
+    /**
+     * 合并执行相同的GET请求
+     * 同一时刻只有第一个调用方真正发出请求，其余调用方等待并共享其响应体，各自反序列化为独立的对象
+     *
+     * @param endpoint 对冲请求的接口标识，为null时不对冲
+     * @param request 请求对象
+     * @return 响应体
+     * @throws IOException IO异常
+     * @throws DifyApiException API异常
+     */
+    private String executeCoalesced(String endpoint, Request request) throws IOException, DifyApiException {
+        String key = request.url().toString();
+        CompletableFuture<String> future = new CompletableFuture<>();
+        CompletableFuture<String> inFlight = inFlightGets.putIfAbsent(key, future);
+        if (inFlight == null) {
+            try {
+                String responseBody = executeHedged(endpoint, request);
+                future.complete(responseBody);
+                return responseBody;
+            } catch (IOException | RuntimeException e) {
+                future.completeExceptionally(e);
+                throw e;
+            } finally {
+                inFlightGets.remove(key, future);
+            }
+        }
+
+        log.debug("合并执行中的GET请求: {}", request.url());
+        return await(inFlight);
+    }
+
+    /**
+     * 执行可对冲的请求
+     * 请求耗时超过该接口历史延迟的配置分位数且预算允许时，再发送一个相同的请求，
+     * 取先成功返回的结果并取消另一个。未启用对冲或 endpoint 为null时直接执行请求。
+     * 两个请求都经由 Dispatcher 执行，并发调用较多时应设置 DifyConfig.maxRequestsPerHost，
+     * 避免对冲请求在 Dispatcher 中排在其他调用之后。
+     *
+     * @param endpoint 接口标识，用于区分延迟统计，为null时不对冲
+     * @param request 请求对象，必须可安全重复发送
+     * @return 响应体
+     * @throws IOException IO异常
+     * @throws DifyApiException API异常
+     */
+    protected String executeHedged(String endpoint, Request request) throws IOException, DifyApiException {
+        if (hedgingPolicy == null || endpoint == null) {
+            return executeRequestForString(request);
+        }
+
+        long start = System.nanoTime();
+        long delayMillis = hedgingPolicy.onRequest(endpoint);
+        CompletableFuture<String> primary = executeRequestForStringAsync(request);
+        CompletableFuture<String> hedge = null;
+        try {
+            String responseBody;
+            if (delayMillis < 0) {
+                responseBody = await(primary);
+            } else {
+                try {
+                    responseBody = primary.get(delayMillis, TimeUnit.MILLISECONDS);
+                } catch (TimeoutException e) {
+                    if (hedgingPolicy.tryHedge()) {
+                        log.debug("发送对冲请求: {}, 等待 {}ms 未返回", endpoint, delayMillis);
+                        hedge = executeRequestForStringAsync(request);
+                        responseBody = await(firstSuccessful(primary, hedge));
+                    } else {
+                        responseBody = await(primary);
+                    }
+                } catch (ExecutionException e) {
+                    responseBody = await(primary);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("等待请求结果被中断");
+                }
+            }
+            hedgingPolicy.record(endpoint, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            return responseBody;
+        } finally {
+            primary.cancel(true);
+            if (hedge != null) {
+                hedge.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * 返回两个Future中先成功完成者的结果，两者都失败时以后失败者的异常结束
+     */
+    private static <T> CompletableFuture<T> firstSuccessful(CompletableFuture<T> first, CompletableFuture<T> second) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        AtomicInteger failures = new AtomicInteger();
+        BiConsumer<T, Throwable> handler = (value, throwable) -> {
+            if (throwable == null) {
+                result.complete(value);
+            } else if (failures.incrementAndGet() == 2) {
+                result.completeExceptionally(throwable);
+            }
+        };
+        first.whenComplete(handler);
+        second.whenComplete(handler);
+        return result;
+    }
+
+    /**
+     * 等待Future完成并还原其异常
+     *
+     * @param future Future对象
+     * @param <T> 结果类型
+     * @return 结果
+     * @throws IOException IO异常
+     */
+    protected static <T> T await(CompletableFuture<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("等待请求结果被中断");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause.getMessage(), cause);
+        }
     }
 
     /**
@@ -124,17 +327,94 @@ public abstract class AbstractDifyClient {
      * @throws DifyApiException API异常
      */
     protected <T> T executeRequest(Request request, Class<T> responseClass) throws IOException, DifyApiException {
+        String responseBody = executeRequestForString(request);
+        return JsonUtils.fromJson(responseBody, responseClass);
+    }
+
+    /**
+     * 执行请求并返回响应体字符串
+     *
+     * @param request 请求对象
+     * @return 响应体
+     * @throws IOException IO异常
+     * @throws DifyApiException API异常
+     */
+    protected String executeRequestForString(Request request) throws IOException, DifyApiException {
         try (Response response = httpClient.newCall(request).execute()) {
             if (!response.isSuccessful()) {
                 String errorBody = response.body() != null ? response.body().string() : "";
                 throw createApiException(response.code(), errorBody);
             }
 
-            String responseBody = Objects.requireNonNull(response.body()).string();
-            return JsonUtils.fromJson(responseBody, responseClass);
+            return Objects.requireNonNull(response.body()).string();
         }
     }
 
+    /**
+     * 异步执行请求并处理响应
+     * 请求由 OkHttp 的 Dispatcher 调度执行，取消返回的 Future 时会同时取消底层调用
+     *
+     * @param request 请求对象
+     * @param responseClass 响应类型
+     * @param <T> 响应类型
+     * @return 响应对象的 Future
+     */
+    protected <T> CompletableFuture<T> executeRequestAsync(Request request, Class<T> responseClass) {
+        CompletableFuture<String> responseBody = executeRequestForStringAsync(request);
+        CompletableFuture<T> future = new CompletableFuture<>();
+        responseBody.whenComplete((body, throwable) -> {
+            if (throwable != null) {
+                future.completeExceptionally(throwable);
+            } else {
+                future.complete(JsonUtils.fromJson(body, responseClass));
+            }
+        });
+        future.whenComplete((result, throwable) -> {
+            if (future.isCancelled()) {
+                responseBody.cancel(true);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * 异步执行请求并返回响应体字符串
+     * 取消返回的 Future 时会同时取消底层调用
+     *
+     * @param request 请求对象
+     * @return 响应体的 Future
+     */
+    protected CompletableFuture<String> executeRequestForStringAsync(Request request) {
+        CompletableFuture<String> future = new CompletableFuture<>();
+        Call call = httpClient.newCall(TracingInterceptor.withParentContext(request, config.getTracer()));
+        call.enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                future.completeExceptionally(e);
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) {
+                try (Response r = response) {
+                    if (!r.isSuccessful()) {
+                        String errorBody = r.body() != null ? r.body().string() : "";
+                        future.completeExceptionally(createApiException(r.code(), errorBody));
+                        return;
+                    }
+                    future.complete(Objects.requireNonNull(r.body()).string());
+                } catch (Exception e) {
+                    future.completeExceptionally(e);
+                }
+            }
+        });
+        future.whenComplete((result, throwable) -> {
+            if (future.isCancelled()) {
+                call.cancel();
+            }
+        });
+        return future;
+    }
+
     /**
      * 处理HTTP响应
      *
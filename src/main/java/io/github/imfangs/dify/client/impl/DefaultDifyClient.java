@@ -5,13 +5,20 @@ import io.github.imfangs.dify.client.callback.*;
 import io.github.imfangs.dify.client.enums.EventType;
 import io.github.imfangs.dify.client.enums.ResponseMode;
 import io.github.imfangs.dify.client.event.BaseEvent;
+import io.github.imfangs.dify.client.event.MessageEndEvent;
 import io.github.imfangs.dify.client.event.PingEvent;
 import io.github.imfangs.dify.client.exception.DifyApiException;
+import io.github.imfangs.dify.client.interceptor.MetricsInterceptor;
+import io.github.imfangs.dify.client.interceptor.TracingInterceptor;
+import io.github.imfangs.dify.client.metrics.DifyMetricsRecorder;
+import io.github.imfangs.dify.client.model.DifyConfig;
 import io.github.imfangs.dify.client.model.chat.*;
 import io.github.imfangs.dify.client.model.common.SimpleResponse;
 import io.github.imfangs.dify.client.model.completion.CompletionRequest;
 import io.github.imfangs.dify.client.model.completion.CompletionResponse;
 import io.github.imfangs.dify.client.model.workflow.*;
+import io.github.imfangs.dify.client.recording.SseRecorder;
+import io.github.imfangs.dify.client.tracing.SpanAttributes;
 import io.github.imfangs.dify.client.util.JsonUtils;
 import lombok.extern.slf4j.Slf4j;
 import okhttp3.*;
@@ -20,7 +27,6 @@ import java.io.*;
 import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.function.Consumer;
 
 /**
  * Dify API 客户端默认实现
@@ -80,36 +86,62 @@ public class DefaultDifyClient extends DifyBaseClientImpl implements DifyClient
         super(baseUrl, apiKey, httpClient);
     }
 
+    /**
+     * 构造函数
+     *
+     * @param config 客户端配置
+     */
+    public DefaultDifyClient(DifyConfig config) {
+        super(config);
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param config     客户端配置
+     * @param httpClient HTTP客户端
+     */
+    public DefaultDifyClient(DifyConfig config, OkHttpClient httpClient) {
+        super(config, httpClient);
+    }
+
     // ==================== 对话型应用相关方法 ====================
 
     @Override
     public ChatMessageResponse sendChatMessage(ChatMessage message) throws IOException, DifyApiException {
-        log.debug("发送对话消息: {}", message);
+        if (log.isDebugEnabled()) {
+            log.debug("发送对话消息: user={}, conversationId={}, inputs={}", message.getUser(), message.getConversationId(), message.getInputs() != null ? message.getInputs().keySet() : null);
+        }
+        validateMessageFiles(message.getFiles());
         return executePost(CHAT_MESSAGES_PATH, message, ChatMessageResponse.class);
     }
 
     @Override
     public void sendChatMessageStream(ChatMessage message, ChatStreamCallback callback) throws IOException, DifyApiException {
-        log.debug("发送流式对话消息: user={}, inputs={}", message.getUser(), message.getInputs() != null ? message.getInputs().keySet() : null);
+        if (log.isDebugEnabled()) {
+            log.debug("发送流式对话消息: user={}, conversationId={}, inputs={}", message.getUser(), message.getConversationId(), message.getInputs() != null ? message.getInputs().keySet() : null);
+        }
+        validateMessageFiles(message.getFiles());
         // 确保请求模式为流式
         message.setResponseMode(ResponseMode.STREAMING);
 
         // 执行流式请求
-        executeStreamRequest(CHAT_MESSAGES_PATH, message, (line) -> processStreamLine(line, callback, (data, eventType) -> {
-            StreamEventDispatcher.dispatchChatEvent(callback, data, eventType);
-        }), callback::onException);
+        executeStreamRequest(CHAT_MESSAGES_PATH, message, callback, (data, eventType) ->
+                StreamEventDispatcher.dispatchChat(callback, data, eventType));
     }
 
     @Override
     public void sendChatMessageStream(ChatMessage message, ChatflowStreamCallback callback) throws IOException, DifyApiException {
-        log.debug("发送流式对话消息: user={}, inputs={}", message.getUser(), message.getInputs() != null ? message.getInputs().keySet() : null);
+        if (log.isDebugEnabled()) {
+            log.debug("发送流式对话消息: user={}, conversationId={}, inputs={}", message.getUser(), message.getConversationId(), message.getInputs() != null ? message.getInputs().keySet() : null);
+        }
+        validateMessageFiles(message.getFiles());
         // 确保请求模式为流式
         message.setResponseMode(ResponseMode.STREAMING);
 
         // 执行流式请求
-        executeStreamRequest(CHAT_MESSAGES_PATH, message, (line) -> processStreamLine(line, callback, (data, eventType) -> {
-            StreamEventDispatcher.dispatchChatFlowEvent(callback, data, eventType);
-        }), callback::onException);
+        executeStreamRequest(CHAT_MESSAGES_PATH, message, callback, (data, eventType) ->
+                StreamEventDispatcher.dispatchChatFlow(callback, data, eventType));
     }
 
     @Override
@@ -122,7 +154,9 @@ public class DefaultDifyClient extends DifyBaseClientImpl implements DifyClient
 
     @Override
     public SimpleResponse feedbackMessage(String messageId, String rating, String user, String content) throws IOException, DifyApiException {
-        log.debug("消息反馈: messageId={}, rating={}, user={}", messageId, rating, user);
+        if (log.isDebugEnabled()) {
+            log.debug("消息反馈: messageId={}, rating={}, user={}", messageId, rating, user);
+        }
         Map<String, String> body = new HashMap<>();
         body.put("rating", rating);
         body.put("user", user);
@@ -140,7 +174,9 @@ public class DefaultDifyClient extends DifyBaseClientImpl implements DifyClient
 
     @Override
     public MessageListResponse getMessages(String conversationId, String user, String firstId, Integer limit) throws IOException, DifyApiException {
-        log.debug("获取消息列表: conversationId={}, user={}, firstId={}, limit={}", conversationId, user, firstId, limit);
+        if (log.isDebugEnabled()) {
+            log.debug("获取消息列表: conversationId={}, user={}, firstId={}, limit={}", conversationId, user, firstId, limit);
+        }
         Map<String, Object> params = new HashMap<>();
         params.put("conversation_id", conversationId);
         params.put("user", user);
@@ -148,13 +184,14 @@ public class DefaultDifyClient extends DifyBaseClientImpl implements DifyClient
         params.put("limit", limit);
 
         String url = buildUrlWithParams(MESSAGES_PATH, params);
-        Request request = createGetRequest(url);
-        return executeRequest(request, MessageListResponse.class);
+        return executeGet(url, MessageListResponse.class, true);
     }
 
     @Override
     public ConversationListResponse getConversations(String user, String lastId, Integer limit, String sortBy) throws IOException, DifyApiException {
-        log.debug("获取会话列表: user={}, lastId={}, limit={}, sortBy={}", user, lastId, limit, sortBy);
+        if (log.isDebugEnabled()) {
+            log.debug("获取会话列表: user={}, lastId={}, limit={}, sortBy={}", user, lastId, limit, sortBy);
+        }
         Map<String, Object> params = new HashMap<>();
         params.put("user", user);
         params.put("last_id", lastId);
@@ -162,8 +199,7 @@ public class DefaultDifyClient extends DifyBaseClientImpl implements DifyClient
         params.put("sort_by", sortBy);
 
         String url = buildUrlWithParams(CONVERSATIONS_PATH, params);
-        Request request = createGetRequest(url);
-        return executeRequest(request, ConversationListResponse.class);
+        return executeGet(url, ConversationListResponse.class, true);
     }
 
     @Override
@@ -176,7 +212,9 @@ public class DefaultDifyClient extends DifyBaseClientImpl implements DifyClient
 
     @Override
     public Conversation renameConversation(String conversationId, String name, Boolean autoGenerate, String user) throws IOException, DifyApiException {
-        log.debug("重命名会话: conversationId={}, name={}, autoGenerate={}, user={}", conversationId, name, autoGenerate, user);
+        if (log.isDebugEnabled()) {
+            log.debug("重命名会话: conversationId={}, name={}, autoGenerate={}, user={}", conversationId, name, autoGenerate, user);
+        }
         Map<String, Object> body = new HashMap<>();
         body.put("name", name);
         body.put("auto_generate", autoGenerate);
@@ -186,7 +224,9 @@ public class DefaultDifyClient extends DifyBaseClientImpl implements DifyClient
 
     @Override
     public AudioToTextResponse audioToText(File file, String user) throws IOException, DifyApiException {
-        log.debug("语音转文字: fileName={}, user={}", file.getName(), user);
+        if (log.isDebugEnabled()) {
+            log.debug("语音转文字: fileName={}, user={}", file.getName(), user);
+        }
         RequestBody requestBody = new MultipartBody.Builder().setType(MultipartBody.FORM).addFormDataPart("file", file.getName(), RequestBody.create(AUDIO, file)).addFormDataPart("user", user).build();
 
         Request request = new Request.Builder().url(baseUrl + AUDIO_TO_TEXT_PATH).post(requestBody).header("Authorization", "Bearer " + apiKey).build();
@@ -222,7 +262,9 @@ public class DefaultDifyClient extends DifyBaseClientImpl implements DifyClient
 
     @Override
     public byte[] textToAudio(String messageId, String text, String user) throws IOException, DifyApiException {
-        log.debug("文字转语音: messageId={}, text={}, user={}", messageId, text, user);
+        if (log.isDebugEnabled()) {
+            log.debug("文字转语音: messageId={}, textLength={}, user={}", messageId, text != null ? text.length() : 0, user);
+        }
         Map<String, String> body = new HashMap<>();
         if (messageId != null) {
             body.put("message_id", messageId);
@@ -246,21 +288,23 @@ public class DefaultDifyClient extends DifyBaseClientImpl implements DifyClient
 
     @Override
     public CompletionResponse sendCompletionMessage(CompletionRequest request) throws IOException, DifyApiException {
-        log.debug("发送文本生成请求: {}", request);
+        if (log.isDebugEnabled()) {
+            log.debug("发送文本生成请求: user={}, inputs={}", request.getUser(), request.getInputs() != null ? request.getInputs().keySet() : null);
+        }
         return executePost(COMPLETION_MESSAGES_PATH, request, CompletionResponse.class);
     }
 
     @Override
     public void sendCompletionMessageStream(CompletionRequest request, CompletionStreamCallback callback) throws IOException, DifyApiException {
-        log.debug("发送流式文本生成请求: {}", request);
+        if (log.isDebugEnabled()) {
+            log.debug("发送流式文本生成请求: user={}, inputs={}", request.getUser(), request.getInputs() != null ? request.getInputs().keySet() : null);
+        }
         // 确保请求模式为流式
         request.setResponseMode(ResponseMode.STREAMING);
 
         // 执行流式请求
-        executeStreamRequest(COMPLETION_MESSAGES_PATH, request, (line) -> processStreamLine(line, callback, (data, eventType) -> {
-            // 分发事件
-            StreamEventDispatcher.dispatchCompletionEvent(callback, data);
-        }), callback::onException);
+        executeStreamRequest(COMPLETION_MESSAGES_PATH, request, callback, (data, eventType) ->
+                StreamEventDispatcher.dispatchCompletion(callback, data));
     }
 
     @Override
@@ -275,21 +319,25 @@ public class DefaultDifyClient extends DifyBaseClientImpl implements DifyClient
 
     @Override
     public WorkflowRunResponse runWorkflow(WorkflowRunRequest request) throws IOException, DifyApiException {
-        log.debug("执行工作流: {}", request);
+        if (log.isDebugEnabled()) {
+            log.debug("执行工作流: user={}, inputs={}", request.getUser(), request.getInputs() != null ? request.getInputs().keySet() : null);
+        }
+        validateMessageFiles(request.getFiles());
         return executePost(WORKFLOWS_RUN_PATH, request, WorkflowRunResponse.class);
     }
 
     @Override
     public void runWorkflowStream(WorkflowRunRequest request, WorkflowStreamCallback callback) throws IOException, DifyApiException {
-        log.debug("执行流式工作流: {}", request);
+        if (log.isDebugEnabled()) {
+            log.debug("执行流式工作流: user={}, inputs={}", request.getUser(), request.getInputs() != null ? request.getInputs().keySet() : null);
+        }
+        validateMessageFiles(request.getFiles());
         // 确保请求模式为流式
         request.setResponseMode(ResponseMode.STREAMING);
 
         // 执行流式请求
-        executeStreamRequest(WORKFLOWS_RUN_PATH, request, (line) -> processStreamLine(line, callback, (data, eventType) -> {
-            // 分发事件
-            StreamEventDispatcher.dispatchWorkflowEvent(callback, data);
-        }), callback::onException);
+        executeStreamRequest(WORKFLOWS_RUN_PATH, request, callback, (data, eventType) ->
+                StreamEventDispatcher.dispatchWorkflow(callback, data));
     }
 
     @Override
@@ -308,7 +356,9 @@ public class DefaultDifyClient extends DifyBaseClientImpl implements DifyClient
 
     @Override
     public WorkflowLogsResponse getWorkflowLogs(String keyword, String status, Integer page, Integer limit) throws IOException, DifyApiException {
-        log.debug("获取工作流日志: keyword={}, status={}, page={}, limit={}", keyword, status, page, limit);
+        if (log.isDebugEnabled()) {
+            log.debug("获取工作流日志: keyword={}, status={}, page={}, limit={}", keyword, status, page, limit);
+        }
         Map<String, Object> params = new HashMap<>();
         params.put("keyword", keyword);
         params.put("status", status);
@@ -316,22 +366,46 @@ public class DefaultDifyClient extends DifyBaseClientImpl implements DifyClient
         params.put("limit", limit);
 
         String url = buildUrlWithParams(WORKFLOWS_LOGS_PATH, params);
-        Request request = createGetRequest(url);
-        return executeRequest(request, WorkflowLogsResponse.class);
+        return executeGet(url, WorkflowLogsResponse.class);
     }
 
     /**
      * 执行流式请求
      *
-     * @param path          请求路径
-     * @param body          请求体
-     * @param lineProcessor 行处理器，返回false表示停止处理
-     * @param errorHandler  错误处理器
+     * @param path           请求路径
+     * @param body           请求体
+     * @param callback       回调接口，用于心跳和异常通知
+     * @param eventProcessor 事件处理器
      */
-    private void executeStreamRequest(String path, Object body, LineProcessor lineProcessor, Consumer<Exception> errorHandler) {
+    private void executeStreamRequest(String path, Object body, BaseStreamCallback callback, EventProcessor eventProcessor) {
         // 创建请求
         RequestBody requestBody = createJsonRequestBody(body);
-        Request httpRequest = new Request.Builder().url(baseUrl + path).post(requestBody).header("Authorization", "Bearer " + apiKey).header("Content-Type", "application/json").header("Accept", "text/event-stream").build();
+        Request.Builder requestBuilder = new Request.Builder().url(baseUrl + path).post(requestBody).header("Authorization", "Bearer " + apiKey).header("Content-Type", "application/json").header("Accept", "text/event-stream");
+        SpanAttributes attributes = config.getTracer() != null ? new SpanAttributes() : null;
+        if (attributes != null) {
+            requestBuilder.tag(SpanAttributes.class, attributes);
+        }
+        Request httpRequest = TracingInterceptor.withParentContext(requestBuilder.build(), config.getTracer());
+
+        DifyMetricsRecorder metricsRecorder = config.getMetricsRecorder();
+        StreamMetrics metrics = metricsRecorder != null ? new StreamMetrics(metricsRecorder, MetricsInterceptor.endpointOf(httpRequest.url()), System.nanoTime()) : null;
+        StreamSpanAttributes spanAttributes = attributes != null ? new StreamSpanAttributes(attributes) : null;
+        EventProcessor processor = metrics == null && spanAttributes == null ? eventProcessor : (data, eventType) -> {
+            if (metrics != null) {
+                metrics.onEvent(eventType);
+            }
+            if (spanAttributes != null) {
+                spanAttributes.onEvent(data);
+            }
+            BaseEvent event = eventProcessor.process(data, eventType);
+            if (metrics != null && event instanceof MessageEndEvent) {
+                metrics.onMessageEnd((MessageEndEvent) event);
+            }
+            return event;
+        };
+        SseRecorder recorder = config.getStreamRecorder();
+        long startNanos = System.nanoTime();
+        int streamId = recorder != null ? recorder.startStream(path) : 0;
 
         // 执行请求并处理流式响应
         Call call = httpClient.newCall(httpRequest);
@@ -339,20 +413,26 @@ public class DefaultDifyClient extends DifyBaseClientImpl implements DifyClient
             @Override
             public void onFailure(Call call, IOException e) {
                 log.error("流式请求失败: {}", e.getMessage());
-                errorHandler.accept(e);
+                if (recorder != null) {
+                    recorder.endStream(streamId, System.nanoTime() - startNanos);
+                }
+                callback.onException(e);
             }
 
             @Override
             public void onResponse(Call call, Response response) {
                 if (!response.isSuccessful()) {
+                    if (recorder != null) {
+                        recorder.endStream(streamId, System.nanoTime() - startNanos);
+                    }
                     try {
                         String errorBody = response.body() != null ? response.body().string() : "";
                         DifyApiException exception = createApiException(response.code(), errorBody);
                         log.error("流式请求失败: {}", exception.getMessage());
-                        errorHandler.accept(exception);
+                        callback.onException(exception);
                     } catch (IOException e) {
                         log.error("读取错误响应失败", e);
-                        errorHandler.accept(e);
+                        callback.onException(e);
                     }
                     return;
                 }
@@ -361,45 +441,43 @@ public class DefaultDifyClient extends DifyBaseClientImpl implements DifyClient
                     if (responseBody == null) {
                         IOException exception = new IOException("空响应体");
                         log.error("流式请求失败: {}", exception.getMessage());
-                        errorHandler.accept(exception);
+                        callback.onException(exception);
                         return;
                     }
 
+                    callback.onOpen(call);
                     try (BufferedReader reader = new BufferedReader(new InputStreamReader(responseBody.byteStream(), StandardCharsets.UTF_8))) {
                         String line;
                         while ((line = reader.readLine()) != null) {
+                            if (recorder != null) {
+                                recorder.frame(streamId, System.nanoTime() - startNanos, line);
+                            }
                             if (line.isEmpty()) {
                                 continue;
                             }
 
                             // 处理行，如果返回false则停止处理
-                            if (!lineProcessor.process(line)) {
+                            if (!processStreamLine(line, callback, processor)) {
                                 break;
                             }
                         }
                     }
+                    if (metrics != null) {
+                        metrics.onComplete();
+                    }
+                    callback.onComplete();
                 } catch (Exception e) {
                     log.error("处理流式响应失败: {}", e.getMessage(), e);
-                    errorHandler.accept(e);
+                    callback.onException(e);
+                } finally {
+                    if (recorder != null) {
+                        recorder.endStream(streamId, System.nanoTime() - startNanos);
+                    }
                 }
             }
         });
     }
 
-    /**
-     * 行处理器接口
-     */
-    @FunctionalInterface
-    private interface LineProcessor {
-        /**
-         * 处理一行数据
-         *
-         * @param line 行数据
-         * @return 是否继续处理
-         */
-        boolean process(String line);
-    }
-
     /**
      * 处理流式数据行
      *
@@ -445,8 +523,9 @@ public class DefaultDifyClient extends DifyBaseClientImpl implements DifyClient
          *
          * @param data      事件数据
          * @param eventType 事件类型
+         * @return 已解析并分发的事件，未处理时为null
          */
-        void process(String data, String eventType);
+        BaseEvent process(String data, String eventType);
     }
 
     /**
@@ -465,8 +544,7 @@ public class DefaultDifyClient extends DifyBaseClientImpl implements DifyClient
         params.put("page", page);
         params.put("limit", limit);
         String url = buildUrlWithParams(APPS_ANNOTATIONS_PATH, params);
-        Request request = createGetRequest(url);
-        return executeRequest(request, AnnotationListResponse.class);
+        return executeGet(url, AnnotationListResponse.class);
     }
 
     /**
@@ -480,7 +558,7 @@ public class DefaultDifyClient extends DifyBaseClientImpl implements DifyClient
      */
     @Override
     public Annotation saveAnnotation(String question, String answer) throws IOException, DifyApiException {
-        log.debug("创建标注: question={}, answer={}", question, answer);
+        log.debug("创建标注");
         Map<String, String> body = new HashMap<>(2);
         body.put("question", question);
         body.put("answer", answer);
@@ -499,7 +577,7 @@ public class DefaultDifyClient extends DifyBaseClientImpl implements DifyClient
      */
     @Override
     public Annotation updateAnnotation(String annotationId, String question, String answer) throws IOException, DifyApiException {
-        log.debug("更新标注: annotationId={}, question={}, answer={}", annotationId, question, answer);
+        log.debug("更新标注: annotationId={}", annotationId);
         Map<String, String> body = new HashMap<>(2);
         body.put("question", question);
         body.put("answer", answer);
@@ -534,7 +612,9 @@ public class DefaultDifyClient extends DifyBaseClientImpl implements DifyClient
      */
     @Override
     public AnnotationReply annotationReply(String action, String embeddingProviderName, String embeddingModelName, Integer scoreThreshold) throws IOException, DifyApiException {
-        log.debug("标注回复初始设置: action={}, embeddingProviderName={}, embeddingModelName={}, scoreThreshold={}", action, embeddingProviderName, embeddingModelName, scoreThreshold);
+        if (log.isDebugEnabled()) {
+            log.debug("标注回复初始设置: action={}, embeddingProviderName={}, embeddingModelName={}, scoreThreshold={}", action, embeddingProviderName, embeddingModelName, scoreThreshold);
+        }
         Map<String, Object> body = new HashMap<>(3);
         body.put("embeddingProviderName", embeddingProviderName);
         body.put("embeddingModelName", embeddingModelName);
@@ -2,8 +2,11 @@ package io.github.imfangs.dify.client.impl;
 
 import io.github.imfangs.dify.client.DifyDatasetsClient;
 import io.github.imfangs.dify.client.exception.DifyApiException;
+import io.github.imfangs.dify.client.interceptor.RetryInterceptor;
+import io.github.imfangs.dify.client.model.DifyConfig;
 import io.github.imfangs.dify.client.model.common.SimpleResponse;
 import io.github.imfangs.dify.client.model.datasets.*;
+import io.github.imfangs.dify.client.upload.FileUploadValidator;
 import io.github.imfangs.dify.client.util.JsonUtils;
 import lombok.extern.slf4j.Slf4j;
 import okhttp3.*;
@@ -11,8 +14,14 @@ import okhttp3.*;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.HashMap;
-import java.util.Map;
+import java.io.InterruptedIOException;
+import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Dify 知识库客户端默认实现
@@ -56,6 +65,25 @@ public class DefaultDifyDatasetsClient extends AbstractDifyClient implements Dif
         super(baseUrl, apiKey, httpClient);
     }
 
+    /**
+     * 构造函数
+     *
+     * @param config 客户端配置
+     */
+    public DefaultDifyDatasetsClient(DifyConfig config) {
+        super(config);
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param config     客户端配置
+     * @param httpClient HTTP客户端
+     */
+    public DefaultDifyDatasetsClient(DifyConfig config, OkHttpClient httpClient) {
+        super(config, httpClient);
+    }
+
     @Override
     public DatasetResponse createDataset(CreateDatasetRequest request) throws IOException, DifyApiException {
         return executePost(DATASETS_PATH, request, DatasetResponse.class);
@@ -95,6 +123,7 @@ public class DefaultDifyDatasetsClient extends AbstractDifyClient implements Dif
     @Override
     public DocumentResponse createDocumentByFile(String datasetId, CreateDocumentByFileRequest request, File file) throws IOException, DifyApiException {
         String path = DATASETS_PATH + "/" + datasetId + DOCUMENT_CREATE_BY_FILE_PATH;
+        validateDocumentFile(file.getName(), file.length());
 
         // 构建multipart请求
         MultipartBody.Builder multipartBuilder = createMultipartBuilder(request, file);
@@ -106,7 +135,9 @@ public class DefaultDifyDatasetsClient extends AbstractDifyClient implements Dif
         String path = DATASETS_PATH + "/" + datasetId + DOCUMENT_CREATE_BY_FILE_PATH;
 
         // 读取输入流内容
+        validateDocumentFile(fileName, -1);
         byte[] bytes = readAllBytes(inputStream);
+        validateDocumentFile(fileName, bytes.length);
 
         // 构建multipart请求
         MultipartBody.Builder multipartBuilder = new MultipartBody.Builder()
@@ -126,6 +157,7 @@ public class DefaultDifyDatasetsClient extends AbstractDifyClient implements Dif
     @Override
     public DocumentResponse updateDocumentByFile(String datasetId, String documentId, UpdateDocumentByFileRequest request, File file) throws IOException, DifyApiException {
         String path = buildDocumentPath(datasetId, documentId) + UPDATE_BY_FILE_PATH;
+        validateDocumentFile(file.getName(), file.length());
 
         // 构建multipart请求
         MultipartBody.Builder multipartBuilder = createMultipartBuilder(request, file);
@@ -233,7 +265,139 @@ public class DefaultDifyDatasetsClient extends AbstractDifyClient implements Dif
     @Override
     public RetrieveResponse retrieveDataset(String datasetId, RetrieveRequest request) throws IOException, DifyApiException {
         String path = DATASETS_PATH + "/" + datasetId + RETRIEVE_PATH;
-        return executePost(path, request, RetrieveResponse.class);
+        // 检索不修改数据，可安全重试和对冲
+        Request httpRequest = RetryInterceptor.idempotent(createPostRequest(path, createJsonRequestBody(request)));
+        return JsonUtils.fromJson(executeHedged("POST " + DATASETS_PATH + RETRIEVE_PATH, httpRequest), RetrieveResponse.class);
+    }
+
+    @Override
+    public RetrieveResponse retrieveAcross(List<String> datasetIds, RetrieveRequest request) throws IOException, DifyApiException {
+        // 超时为 0 表示不限时
+        long timeoutMillis = httpClient.callTimeoutMillis() > 0 ? httpClient.callTimeoutMillis() : httpClient.readTimeoutMillis();
+        return retrieveAcross(datasetIds, request, timeoutMillis);
+    }
+
+    @Override
+    public RetrieveResponse retrieveAcross(List<String> datasetIds, RetrieveRequest request, long timeoutMillis) throws IOException, DifyApiException {
+        // 请求体只序列化一次，所有知识库共用
+        RequestBody requestBody = createJsonRequestBody(request);
+        List<CompletableFuture<RetrieveResponse>> futures = new ArrayList<>(datasetIds.size());
+        for (String datasetId : datasetIds) {
+            Request httpRequest = RetryInterceptor.idempotent(createPostRequest(DATASETS_PATH + "/" + datasetId + RETRIEVE_PATH, requestBody));
+            futures.add(executeRequestAsync(httpRequest, RetrieveResponse.class));
+        }
+
+        CompletableFuture<Void> all = CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]));
+        try {
+            if (timeoutMillis > 0) {
+                all.get(timeoutMillis, TimeUnit.MILLISECONDS);
+            } else {
+                all.get();
+            }
+        } catch (ExecutionException e) {
+            // 所有检索均已结束，失败的在下面逐个记录
+        } catch (TimeoutException e) {
+            log.warn("多知识库检索超时: {}ms", timeoutMillis);
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("多知识库检索被中断");
+        }
+
+        // 截止时已成功的结果全部保留，只取消仍未返回的检索
+        List<RetrieveResponse> responses = new ArrayList<>(futures.size());
+        Throwable firstFailure = null;
+        int pending = 0;
+        for (int i = 0; i < futures.size(); i++) {
+            CompletableFuture<RetrieveResponse> future = futures.get(i);
+            if (!future.isDone()) {
+                future.cancel(true);
+                pending++;
+            } else if (future.isCompletedExceptionally()) {
+                Throwable cause = failureOf(future);
+                log.warn("知识库检索失败: datasetId={}, {}", datasetIds.get(i), cause.getMessage());
+                if (firstFailure == null) {
+                    firstFailure = cause;
+                }
+            } else {
+                responses.add(future.join());
+            }
+        }
+        if (pending > 0) {
+            log.warn("多知识库检索超时: 已完成 {}/{}", futures.size() - pending, futures.size());
+        }
+
+        if (responses.isEmpty() && !datasetIds.isEmpty()) {
+            if (firstFailure instanceof IOException) {
+                throw (IOException) firstFailure;
+            }
+            if (firstFailure != null) {
+                throw new IOException("多知识库检索失败", firstFailure);
+            }
+            throw new InterruptedIOException("多知识库检索超时");
+        }
+
+        Integer topK = request.getRetrievalModel() != null ? request.getRetrievalModel().getTopK() : null;
+        RetrieveResponse merged = new RetrieveResponse();
+        merged.setQuery(responses.isEmpty() ? new RetrieveResponse.QueryInfo(request.getQuery()) : responses.get(0).getQuery());
+        merged.setRecords(mergeRecords(responses, topK != null && topK > 0 ? topK : Integer.MAX_VALUE));
+        return merged;
+    }
+
+    private static Throwable failureOf(CompletableFuture<?> future) {
+        try {
+            future.join();
+            return null;
+        } catch (CompletionException | CancellationException e) {
+            return e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        }
+    }
+
+    /**
+     * 合并多个检索结果
+     * 按 indexNodeHash 去重（保留分数最高者），再用容量为 topK 的最小堆选出分数最高的记录
+     *
+     * @param responses 检索结果列表
+     * @param topK      返回条数上限
+     * @return 按分数降序排列的记录
+     */
+    static List<RetrieveResponse.Record> mergeRecords(List<RetrieveResponse> responses, int topK) {
+        Map<String, RetrieveResponse.Record> unique = new HashMap<>();
+        List<RetrieveResponse.Record> unhashed = new ArrayList<>();
+        for (RetrieveResponse response : responses) {
+            if (response == null || response.getRecords() == null) {
+                continue;
+            }
+            for (RetrieveResponse.Record record : response.getRecords()) {
+                String hash = record.getSegment() != null ? record.getSegment().getIndexNodeHash() : null;
+                if (hash == null) {
+                    unhashed.add(record);
+                } else {
+                    unique.merge(hash, record, (a, b) -> scoreOf(b) > scoreOf(a) ? b : a);
+                }
+            }
+        }
+
+        Comparator<RetrieveResponse.Record> byScore = Comparator.comparingDouble(DefaultDifyDatasetsClient::scoreOf);
+        PriorityQueue<RetrieveResponse.Record> heap = new PriorityQueue<>(Math.min(topK, 64) + 1, byScore);
+        for (Collection<RetrieveResponse.Record> records : Arrays.asList(unique.values(), unhashed)) {
+            for (RetrieveResponse.Record record : records) {
+                heap.offer(record);
+                if (heap.size() > topK) {
+                    heap.poll();
+                }
+            }
+        }
+
+        RetrieveResponse.Record[] sorted = new RetrieveResponse.Record[heap.size()];
+        for (int i = sorted.length - 1; i >= 0; i--) {
+            sorted[i] = heap.poll();
+        }
+        return new ArrayList<>(Arrays.asList(sorted));
+    }
+
+    private static double scoreOf(RetrieveResponse.Record record) {
+        return record.getScore() != null ? record.getScore() : 0D;
     }
 
     @Override
@@ -283,6 +447,19 @@ public class DefaultDifyDatasetsClient extends AbstractDifyClient implements Dif
         }
     }
 
+    /**
+     * 启用上传校验时检查文档类型和大小
+     *
+     * @param fileName 文件名
+     * @param size 文件大小（字节），未知时传 -1
+     * @throws DifyApiException 文件不是文档类型或超过大小限制
+     */
+    private void validateDocumentFile(String fileName, long size) throws DifyApiException {
+        if (config.isFileUploadValidation()) {
+            FileUploadValidator.forDocuments(config.getDocumentFileSizeLimit()).validateFile(fileName, size);
+        }
+    }
+
     /**
      * 创建Multipart请求构建器
      *
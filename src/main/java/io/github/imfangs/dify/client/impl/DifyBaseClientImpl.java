@@ -2,16 +2,27 @@ package io.github.imfangs.dify.client.impl;
 
 import io.github.imfangs.dify.client.DifyBaseClient;
 import io.github.imfangs.dify.client.exception.DifyApiException;
+import io.github.imfangs.dify.client.model.DifyConfig;
 import io.github.imfangs.dify.client.model.chat.AppInfoResponse;
 import io.github.imfangs.dify.client.model.chat.AppParametersResponse;
+import io.github.imfangs.dify.client.model.file.FileInfo;
 import io.github.imfangs.dify.client.model.file.FileUploadRequest;
 import io.github.imfangs.dify.client.model.file.FileUploadResponse;
+import io.github.imfangs.dify.client.upload.FileUploadCache;
+import io.github.imfangs.dify.client.upload.FileUploadValidator;
+import io.github.imfangs.dify.client.util.DigestUtils;
+import io.github.imfangs.dify.client.util.FileTypeDetector;
 import lombok.extern.slf4j.Slf4j;
 import okhttp3.*;
 
+import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
 
 /**
  * Dify 基础客户端实现类
@@ -23,6 +34,11 @@ public class DifyBaseClientImpl extends AbstractDifyClient implements DifyBaseCl
     private static final String INFO_PATH = "/info";
     private static final String PARAMETERS_PATH = "/parameters";
 
+    /**
+     * 上传校验器缓存，未启用上传校验时为null
+     */
+    private volatile CachedValidator cachedValidator;
+
     /**
      * 构造函数
      *
@@ -44,38 +60,94 @@ public class DifyBaseClientImpl extends AbstractDifyClient implements DifyBaseCl
         super(baseUrl, apiKey, httpClient);
     }
 
+    /**
+     * 构造函数
+     *
+     * @param config 客户端配置
+     */
+    public DifyBaseClientImpl(DifyConfig config) {
+        super(config);
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param config     客户端配置
+     * @param httpClient HTTP客户端
+     */
+    public DifyBaseClientImpl(DifyConfig config, OkHttpClient httpClient) {
+        super(config, httpClient);
+    }
+
     @Override
     public FileUploadResponse uploadFile(File file, String user) throws IOException, DifyApiException {
-        RequestBody requestBody = new MultipartBody.Builder()
-                .setType(MultipartBody.FORM)
-                .addFormDataPart("file", file.getName(), RequestBody.create(OCTET_STREAM, file))
-                .addFormDataPart("user", user)
-                .build();
-        return uploadFile(requestBody);
+        return uploadFile(file, file.getName(), user, FileTypeDetector.detect(file.toPath()).getMediaType());
     }
 
     @Override
     public FileUploadResponse uploadFile(FileUploadRequest request, File file) throws IOException, DifyApiException {
-        RequestBody requestBody = new MultipartBody.Builder()
-                .setType(MultipartBody.FORM)
-                .addFormDataPart("file", file.getName(), RequestBody.create(request.getMediaType(), file))
-                .addFormDataPart("user", request.getUser())
-                .build();
-        return uploadFile(requestBody);
+        MediaType mediaType = isUnspecified(request.getMediaType()) ? FileTypeDetector.detect(file.toPath()).getMediaType() : request.getMediaType();
+        return uploadFile(file, file.getName(), request.getUser(), mediaType);
     }
 
     @Override
     public FileUploadResponse uploadFile(FileUploadRequest request, InputStream inputStream, String fileName) throws IOException, DifyApiException {
+        // 大小未知，先只校验类型
+        FileUploadValidator validator = fileUploadValidator();
+        if (validator != null) {
+            validator.validateFile(fileName, -1);
+        }
+        InputStream input = inputStream;
+        MediaType mediaType = request.getMediaType();
+        if (isUnspecified(mediaType)) {
+            input = inputStream.markSupported() ? inputStream : new BufferedInputStream(inputStream);
+            mediaType = FileTypeDetector.detect(input, fileName).getMediaType();
+        }
+        if (config.getUploadCache() != null) {
+            // 先边写临时文件边计算摘要，未命中缓存时再从临时文件上传
+            Path temp = Files.createTempFile("dify-upload-", ".tmp");
+            try {
+                String sha256;
+                try (OutputStream output = Files.newOutputStream(temp)) {
+                    sha256 = DigestUtils.copyWithSha256(input, output);
+                }
+                return uploadFile(temp.toFile(), fileName, request.getUser(), mediaType, sha256);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        }
+
+        MediaType contentType = mediaType;
+        InputStream content = input;
+        long maxSize = validator != null ? validator.maxFileSize(fileName) : -1;
         RequestBody fileBody = new RequestBody() {
             @Override
             public MediaType contentType() {
-                return request.getMediaType();
+                return contentType;
+            }
+
+            @Override
+            public boolean isOneShot() {
+                return true;
             }
 
             @Override
             public void writeTo(okio.BufferedSink sink) throws IOException {
-                try (okio.Source source = okio.Okio.source(inputStream)) {
-                    sink.writeAll(source);
+                try (okio.Source source = okio.Okio.source(content)) {
+                    if (maxSize < 0) {
+                        sink.writeAll(source);
+                        return;
+                    }
+                    // 边上传边计数，超过大小限制时中止上传
+                    long total = 0;
+                    long read;
+                    while ((read = source.read(sink.getBuffer(), 8192)) != -1) {
+                        total += read;
+                        if (total > maxSize) {
+                            validator.validateFile(fileName, total);
+                        }
+                        sink.emitCompleteSegments();
+                    }
                 }
             }
         };
@@ -88,6 +160,40 @@ public class DifyBaseClientImpl extends AbstractDifyClient implements DifyBaseCl
         return uploadFile(requestBody);
     }
 
+    private FileUploadResponse uploadFile(File file, String fileName, String user, MediaType mediaType) throws IOException, DifyApiException {
+        return uploadFile(file, fileName, user, mediaType, null);
+    }
+
+    /**
+     * 上传本地文件，启用上传缓存时按内容摘要去重
+     *
+     * @param sha256 已计算的内容摘要，为null时在校验通过后计算
+     */
+    private FileUploadResponse uploadFile(File file, String fileName, String user, MediaType mediaType, String sha256) throws IOException, DifyApiException {
+        validateUploadFile(fileName, file.length());
+        FileUploadCache cache = config.getUploadCache();
+        String key = null;
+        if (cache != null) {
+            key = FileUploadCache.key(sha256 != null ? sha256 : DigestUtils.sha256(file.toPath()), user, fileName);
+            FileUploadResponse cached = cache.get(key);
+            if (cached != null) {
+                log.debug("文件已上传，使用缓存的文件ID: fileName={}, id={}", fileName, cached.getId());
+                return cached;
+            }
+        }
+
+        RequestBody requestBody = new MultipartBody.Builder()
+                .setType(MultipartBody.FORM)
+                .addFormDataPart("file", fileName, RequestBody.create(mediaType, file))
+                .addFormDataPart("user", user)
+                .build();
+        FileUploadResponse response = uploadFile(requestBody);
+        if (cache != null && response != null && response.getId() != null) {
+            cache.put(key, response);
+        }
+        return response;
+    }
+
     private FileUploadResponse uploadFile(RequestBody requestBody) throws IOException, DifyApiException {
         Request httpRequest = new Request.Builder()
                 .url(baseUrl + FILES_UPLOAD_PATH)
@@ -104,7 +210,73 @@ public class DifyBaseClientImpl extends AbstractDifyClient implements DifyBaseCl
 
     @Override
     public AppParametersResponse getAppParameters() throws IOException, DifyApiException {
-        return executeGet(PARAMETERS_PATH, AppParametersResponse.class);
+        return executeGet(PARAMETERS_PATH, AppParametersResponse.class, true);
+    }
+
+    /**
+     * 是否未指定上传的 Content-Type，FileUploadRequest 默认的 application/octet-stream 视为未指定
+     *
+     * @param mediaType Content-Type
+     * @return 是否需要按文件内容识别
+     */
+    private static boolean isUnspecified(MediaType mediaType) {
+        return mediaType == null || OCTET_STREAM.equals(mediaType);
+    }
+
+    /**
+     * 按应用的文件上传配置校验文件，未启用上传校验时不做任何检查
+     *
+     * @param fileName 文件名
+     * @param size     文件大小（字节），未知时传 -1
+     * @throws IOException      获取应用参数失败
+     * @throws DifyApiException 文件不符合上传配置
+     */
+    protected void validateUploadFile(String fileName, long size) throws IOException, DifyApiException {
+        FileUploadValidator validator = fileUploadValidator();
+        if (validator != null) {
+            validator.validateFile(fileName, size);
+        }
+    }
+
+    /**
+     * 按应用的文件上传配置校验消息附带的文件数量，未启用上传校验时不做任何检查
+     *
+     * @param files 消息附带的文件
+     * @throws IOException      获取应用参数失败
+     * @throws DifyApiException 文件数量超过限制
+     */
+    protected void validateMessageFiles(List<FileInfo> files) throws IOException, DifyApiException {
+        if (files == null || files.isEmpty()) {
+            return;
+        }
+        FileUploadValidator validator = fileUploadValidator();
+        if (validator != null) {
+            validator.validateMessageFiles(files);
+        }
+    }
+
+    /**
+     * 获取上传校验器，应用参数在 appParametersCacheTtl 内复用
+     * 批量上传等组合操作可以在上传前用它检查文件数量。
+     *
+     * @return 上传校验器，未启用上传校验或应用未返回文件上传配置时为null
+     * @throws IOException      获取应用参数失败
+     * @throws DifyApiException 获取应用参数失败
+     */
+    public FileUploadValidator fileUploadValidator() throws IOException, DifyApiException {
+        if (!config.isFileUploadValidation()) {
+            return null;
+        }
+        CachedValidator cached = cachedValidator;
+        long now = System.currentTimeMillis();
+        if (cached == null || cached.expiresAt <= now) {
+            AppParametersResponse parameters = getAppParameters();
+            FileUploadValidator validator = parameters != null && parameters.getFileUpload() != null
+                    ? new FileUploadValidator(parameters.getFileUpload()) : null;
+            cached = new CachedValidator(validator, now + config.getAppParametersCacheTtl());
+            cachedValidator = cached;
+        }
+        return cached.validator;
     }
 
     @Override
@@ -112,4 +284,16 @@ public class DifyBaseClientImpl extends AbstractDifyClient implements DifyBaseCl
         // OkHttpClient 不需要显式关闭
     }
 
+    /**
+     * 缓存的上传校验器
+     */
+    private static final class CachedValidator {
+        private final FileUploadValidator validator;
+        private final long expiresAt;
+
+        CachedValidator(FileUploadValidator validator, long expiresAt) {
+            this.validator = validator;
+            this.expiresAt = expiresAt;
+        }
+    }
 }
@@ -0,0 +1,111 @@
+package io.github.imfangs.dify.client.impl;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 对冲请求策略
+ * 按接口记录最近的请求延迟，以指定分位数作为发送对冲请求前的等待时间，
+ * 并用令牌预算限制对冲请求占正常请求的比例。
+ */
+class HedgingPolicy {
+    /**
+     * 每个接口保留的延迟样本数
+     */
+    private static final int WINDOW_SIZE = 256;
+
+    /**
+     * 开始对冲前至少需要的样本数
+     */
+    private static final int MIN_SAMPLES = 20;
+
+    /**
+     * 预算令牌上限，限制空闲期累积的对冲次数
+     */
+    private static final double MAX_TOKENS = 10;
+
+    private final double percentile;
+    private final double budgetRatio;
+    private final ConcurrentMap<String, LatencyWindow> windows = new ConcurrentHashMap<>();
+    private double tokens;
+
+    /**
+     * 构造函数
+     *
+     * @param percentile  触发对冲的延迟分位数，如 0.95
+     * @param budgetRatio 对冲请求与正常请求的最大比例，如 0.05
+     */
+    HedgingPolicy(double percentile, double budgetRatio) {
+        this.percentile = percentile;
+        this.budgetRatio = budgetRatio;
+    }
+
+    /**
+     * 记录一个原始请求并返回发送对冲请求前的等待时间
+     *
+     * @param endpoint 接口标识
+     * @return 等待时间（毫秒），样本不足时返回 -1 表示不对冲
+     */
+    long onRequest(String endpoint) {
+        synchronized (this) {
+            tokens = Math.min(MAX_TOKENS, tokens + budgetRatio);
+        }
+        LatencyWindow window = windows.get(endpoint);
+        return window != null ? window.percentile(percentile) : -1;
+    }
+
+    /**
+     * 尝试消耗一次对冲机会
+     *
+     * @return 预算是否允许对冲
+     */
+    synchronized boolean tryHedge() {
+        if (tokens < 1) {
+            return false;
+        }
+        tokens -= 1;
+        return true;
+    }
+
+    /**
+     * 记录一次请求延迟
+     *
+     * @param endpoint      接口标识
+     * @param latencyMillis 延迟（毫秒）
+     */
+    void record(String endpoint, long latencyMillis) {
+        windows.computeIfAbsent(endpoint, key -> new LatencyWindow()).add(latencyMillis);
+    }
+
+    /**
+     * 固定大小的延迟样本环形缓冲区
+     */
+    private static final class LatencyWindow {
+        private final long[] samples = new long[WINDOW_SIZE];
+        private int count;
+        private int next;
+        private long cachedPercentile = -1;
+        private boolean dirty;
+
+        synchronized void add(long latencyMillis) {
+            samples[next] = latencyMillis;
+            next = (next + 1) % WINDOW_SIZE;
+            count = Math.min(count + 1, WINDOW_SIZE);
+            dirty = true;
+        }
+
+        synchronized long percentile(double percentile) {
+            if (count < MIN_SAMPLES) {
+                return -1;
+            }
+            if (dirty) {
+                long[] sorted = Arrays.copyOf(samples, count);
+                Arrays.sort(sorted);
+                cachedPercentile = sorted[Math.min(count - 1, (int) Math.ceil(percentile * count) - 1)];
+                dirty = false;
+            }
+            return cachedPercentile;
+        }
+    }
+}
@@ -9,6 +9,9 @@ import io.github.imfangs.dify.client.event.*;
 import io.github.imfangs.dify.client.util.JsonUtils;
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
  * 流式事件分发器
  * 负责将事件分发到对应的回调方法
@@ -16,6 +19,16 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class StreamEventDispatcher {
 
+    /**
+     * 最多记录的未知事件类型数
+     */
+    private static final int MAX_LOGGED_EVENT_TYPES = 64;
+
+    /**
+     * 已以 warn 级别记录过的事件类型
+     */
+    private static final Set<String> LOGGED_EVENT_TYPES = ConcurrentHashMap.newKeySet();
+
     /**
      * 分发工作流编排对话事件到对应的回调方法
      *
@@ -24,72 +37,85 @@ public class StreamEventDispatcher {
      * @param eventType 事件类型
      */
     public static void dispatchChatFlowEvent(ChatflowStreamCallback callback, String data, String eventType) {
+        dispatchChatFlow(callback, data, eventType);
+    }
+
+    /**
+     * 分发工作流编排对话事件到对应的回调方法
+     * 同时返回分发的事件，供客户端统计流式指标
+     *
+     * @param callback  回调接口
+     * @param data     事件对象
+     * @param eventType 事件类型
+     * @return 已解析并分发的事件，未处理或处理失败时为null
+     */
+    static BaseEvent dispatchChatFlow(ChatflowStreamCallback callback, String data, String eventType) {
         try {
             EventType type = EventType.fromValue(eventType);
             if (type == null) {
-                log.warn("未知事件类型: {}", eventType);
-                return;
+                logUnhandledEvent("未知事件类型", eventType);
+                return null;
             }
 
             switch (type) {
                 case MESSAGE:
                     MessageEvent messageEvent = JsonUtils.fromJson(data, MessageEvent.class);
                     callback.onMessage(messageEvent);
-                    break;
+                    return messageEvent;
                 case MESSAGE_END:
                     MessageEndEvent messageEndEvent = JsonUtils.fromJson(data, MessageEndEvent.class);
                     callback.onMessageEnd(messageEndEvent);
-                    break;
+                    return messageEndEvent;
                 case MESSAGE_FILE:
                     MessageFileEvent messageFileEvent = JsonUtils.fromJson(data, MessageFileEvent.class);
                     callback.onMessageFile(messageFileEvent);
-                    break;
+                    return messageFileEvent;
                 case TTS_MESSAGE:
                     TtsMessageEvent ttsMessageEvent = JsonUtils.fromJson(data, TtsMessageEvent.class);
                     callback.onTTSMessage(ttsMessageEvent);
-                    break;
+                    return ttsMessageEvent;
                 case TTS_MESSAGE_END:
                     TtsMessageEndEvent ttsMessageEndEvent = JsonUtils.fromJson(data, TtsMessageEndEvent.class);
                     callback.onTTSMessageEnd(ttsMessageEndEvent);
-                    break;
+                    return ttsMessageEndEvent;
                 case MESSAGE_REPLACE:
                     MessageReplaceEvent messageReplaceEvent = JsonUtils.fromJson(data, MessageReplaceEvent.class);
                     callback.onMessageReplace(messageReplaceEvent);
-                    break;
+                    return messageReplaceEvent;
                 case AGENT_MESSAGE:
                     AgentMessageEvent agentMessageEvent = JsonUtils.fromJson(data, AgentMessageEvent.class);
                     callback.onAgentMessage(agentMessageEvent);
-                    break;
+                    return agentMessageEvent;
                 case AGENT_THOUGHT:
                     AgentThoughtEvent agentThoughtEvent = JsonUtils.fromJson(data, AgentThoughtEvent.class);
                     callback.onAgentThought(agentThoughtEvent);
-                    break;
+                    return agentThoughtEvent;
                 case WORKFLOW_STARTED:
                     WorkflowStartedEvent workflowStartedEvent = JsonUtils.fromJson(data, WorkflowStartedEvent.class);
                     callback.onWorkflowStarted(workflowStartedEvent);
-                    break;
+                    return workflowStartedEvent;
                 case NODE_STARTED:
                     NodeStartedEvent nodeStartedEvent = JsonUtils.fromJson(data, NodeStartedEvent.class);
                     callback.onNodeStarted(nodeStartedEvent);
-                    break;
+                    return nodeStartedEvent;
                 case NODE_FINISHED:
                     NodeFinishedEvent nodeFinishedEvent = JsonUtils.fromJson(data, NodeFinishedEvent.class);
                     callback.onNodeFinished(nodeFinishedEvent);
-                    break;
+                    return nodeFinishedEvent;
                 case WORKFLOW_FINISHED:
                     WorkflowFinishedEvent workflowFinishedEvent = JsonUtils.fromJson(data, WorkflowFinishedEvent.class);
                     callback.onWorkflowFinished(workflowFinishedEvent);
-                    break;
+                    return workflowFinishedEvent;
                 case ERROR:
                     ErrorEvent errorEvent = JsonUtils.fromJson(data, ErrorEvent.class);
                     callback.onError(errorEvent);
-                    break;
+                    return errorEvent;
                 case PING:
                     PingEvent pingEvent = JsonUtils.fromJson(data, PingEvent.class);
                     callback.onPing(pingEvent);
-                    break;
+                    return pingEvent;
                 default:
-                    log.warn("未处理的事件类型: {}", eventType);
+                    logUnhandledEvent("未处理的事件类型", eventType);
                     break;
             }
         } catch (Exception e) {
@@ -100,6 +126,7 @@ public class StreamEventDispatcher {
                 log.error("调用onError回调时发生异常", ex);
             }
         }
+        return null;
     }
 
     /**
@@ -110,56 +137,69 @@ public class StreamEventDispatcher {
      * @param eventType 事件类型
      */
     public static void dispatchChatEvent(ChatStreamCallback callback, String data, String eventType) {
+        dispatchChat(callback, data, eventType);
+    }
+
+    /**
+     * 分发聊天事件到对应的回调方法
+     * 同时返回分发的事件，供客户端统计流式指标
+     *
+     * @param callback  回调接口
+     * @param data      原始JSON数据
+     * @param eventType 事件类型
+     * @return 已解析并分发的事件，未处理或处理失败时为null
+     */
+    static BaseEvent dispatchChat(ChatStreamCallback callback, String data, String eventType) {
         try {
             EventType type = EventType.fromValue(eventType);
             if (type == null) {
-                log.warn("未知事件类型: {}", eventType);
-                return;
+                logUnhandledEvent("未知事件类型", eventType);
+                return null;
             }
 
             switch (type) {
                 case MESSAGE:
                     MessageEvent messageEvent = JsonUtils.fromJson(data, MessageEvent.class);
                     callback.onMessage(messageEvent);
-                    break;
+                    return messageEvent;
                 case MESSAGE_END:
                     MessageEndEvent messageEndEvent = JsonUtils.fromJson(data, MessageEndEvent.class);
                     callback.onMessageEnd(messageEndEvent);
-                    break;
+                    return messageEndEvent;
                 case MESSAGE_FILE:
                     MessageFileEvent messageFileEvent = JsonUtils.fromJson(data, MessageFileEvent.class);
                     callback.onMessageFile(messageFileEvent);
-                    break;
+                    return messageFileEvent;
                 case TTS_MESSAGE:
                     TtsMessageEvent ttsMessageEvent = JsonUtils.fromJson(data, TtsMessageEvent.class);
                     callback.onTTSMessage(ttsMessageEvent);
-                    break;
+                    return ttsMessageEvent;
                 case TTS_MESSAGE_END:
                     TtsMessageEndEvent ttsMessageEndEvent = JsonUtils.fromJson(data, TtsMessageEndEvent.class);
                     callback.onTTSMessageEnd(ttsMessageEndEvent);
-                    break;
+                    return ttsMessageEndEvent;
                 case MESSAGE_REPLACE:
                     MessageReplaceEvent messageReplaceEvent = JsonUtils.fromJson(data, MessageReplaceEvent.class);
                     callback.onMessageReplace(messageReplaceEvent);
-                    break;
+                    return messageReplaceEvent;
                 case AGENT_MESSAGE:
                     AgentMessageEvent agentMessageEvent = JsonUtils.fromJson(data, AgentMessageEvent.class);
                     callback.onAgentMessage(agentMessageEvent);
-                    break;
+                    return agentMessageEvent;
                 case AGENT_THOUGHT:
                     AgentThoughtEvent agentThoughtEvent = JsonUtils.fromJson(data, AgentThoughtEvent.class);
                     callback.onAgentThought(agentThoughtEvent);
-                    break;
+                    return agentThoughtEvent;
                 case ERROR:
                     ErrorEvent errorEvent = JsonUtils.fromJson(data, ErrorEvent.class);
                     callback.onError(errorEvent);
-                    break;
+                    return errorEvent;
                 case PING:
                     PingEvent pingEvent = JsonUtils.fromJson(data, PingEvent.class);
                     callback.onPing(pingEvent);
-                    break;
+                    return pingEvent;
                 default:
-                    log.warn("未处理的事件类型: {}", eventType);
+                    logUnhandledEvent("未处理的事件类型", eventType);
                     break;
             }
         } catch (Exception e) {
@@ -170,6 +210,7 @@ public class StreamEventDispatcher {
                 log.error("调用onError回调时发生异常", ex);
             }
         }
+        return null;
     }
 
     /**
@@ -179,11 +220,23 @@ public class StreamEventDispatcher {
      * @param data     原始JSON数据
      */
     public static void dispatchCompletionEvent(CompletionStreamCallback callback, String data) {
+        dispatchCompletion(callback, data);
+    }
+
+    /**
+     * 分发文本生成事件到对应的回调方法
+     * 同时返回分发的事件，供客户端统计流式指标
+     *
+     * @param callback 回调接口
+     * @param data     原始JSON数据
+     * @return 已解析并分发的事件，未处理或处理失败时为null
+     */
+    static BaseEvent dispatchCompletion(CompletionStreamCallback callback, String data) {
         try {
             BaseEvent baseEvent = JsonUtils.fromJson(data, BaseEvent.class);
             if (baseEvent == null) {
                 log.warn("解析事件数据为null: {}", data);
-                return;
+                return null;
             }
 
             String eventTypeStr = baseEvent.getEvent();
@@ -193,40 +246,40 @@ public class StreamEventDispatcher {
                 // 普通消息块
                 MessageEvent messageEvent = JsonUtils.fromJson(data, MessageEvent.class);
                 callback.onMessage(messageEvent);
-                return;
+                return messageEvent;
             }
 
             switch (type) {
                 case MESSAGE:
                     MessageEvent messageEvent = JsonUtils.fromJson(data, MessageEvent.class);
                     callback.onMessage(messageEvent);
-                    break;
+                    return messageEvent;
                 case MESSAGE_END:
                     MessageEndEvent messageEndEvent = JsonUtils.fromJson(data, MessageEndEvent.class);
                     callback.onMessageEnd(messageEndEvent);
-                    break;
+                    return messageEndEvent;
                 case TTS_MESSAGE:
                     TtsMessageEvent ttsMessageEvent = JsonUtils.fromJson(data, TtsMessageEvent.class);
                     callback.onTtsMessage(ttsMessageEvent);
-                    break;
+                    return ttsMessageEvent;
                 case TTS_MESSAGE_END:
                     TtsMessageEndEvent ttsMessageEndEvent = JsonUtils.fromJson(data, TtsMessageEndEvent.class);
                     callback.onTtsMessageEnd(ttsMessageEndEvent);
-                    break;
+                    return ttsMessageEndEvent;
                 case MESSAGE_REPLACE:
                     MessageReplaceEvent messageReplaceEvent = JsonUtils.fromJson(data, MessageReplaceEvent.class);
                     callback.onMessageReplace(messageReplaceEvent);
-                    break;
+                    return messageReplaceEvent;
                 case ERROR:
                     ErrorEvent errorEvent = JsonUtils.fromJson(data, ErrorEvent.class);
                     callback.onError(errorEvent);
-                    break;
+                    return errorEvent;
                 case PING:
                     PingEvent pingEvent = JsonUtils.fromJson(data, PingEvent.class);
                     callback.onPing(pingEvent);
-                    break;
+                    return pingEvent;
                 default:
-                    log.warn("未处理的事件类型: {}", eventTypeStr);
+                    logUnhandledEvent("未处理的事件类型", eventTypeStr);
                     break;
             }
         } catch (Exception e) {
@@ -237,6 +290,7 @@ public class StreamEventDispatcher {
                 log.error("调用onError回调时发生异常", ex);
             }
         }
+        return null;
     }
 
     /**
@@ -246,60 +300,72 @@ public class StreamEventDispatcher {
      * @param data     原始JSON数据
      */
     public static void dispatchWorkflowEvent(WorkflowStreamCallback callback, String data) {
+        dispatchWorkflow(callback, data);
+    }
+
+    /**
+     * 分发工作流事件到对应的回调方法
+     * 同时返回分发的事件，供客户端统计流式指标
+     *
+     * @param callback 回调接口
+     * @param data     原始JSON数据
+     * @return 已解析并分发的事件，未处理或处理失败时为null
+     */
+    static BaseEvent dispatchWorkflow(WorkflowStreamCallback callback, String data) {
         try {
             BaseEvent baseEvent = JsonUtils.fromJson(data, BaseEvent.class);
             if (baseEvent == null) {
                 log.warn("解析事件数据为null: {}", data);
-                return;
+                return null;
             }
 
             String eventTypeStr = baseEvent.getEvent();
             EventType type = EventType.fromValue(eventTypeStr);
 
             if (type == null) {
-                log.warn("未知事件类型: {}", eventTypeStr);
-                return;
+                logUnhandledEvent("未知事件类型", eventTypeStr);
+                return null;
             }
 
             switch (type) {
                 case WORKFLOW_STARTED:
                     WorkflowStartedEvent workflowStartedEvent = JsonUtils.fromJson(data, WorkflowStartedEvent.class);
                     callback.onWorkflowStarted(workflowStartedEvent);
-                    break;
+                    return workflowStartedEvent;
                 case NODE_STARTED:
                     NodeStartedEvent nodeStartedEvent = JsonUtils.fromJson(data, NodeStartedEvent.class);
                     callback.onNodeStarted(nodeStartedEvent);
-                    break;
+                    return nodeStartedEvent;
                 case NODE_FINISHED:
                     NodeFinishedEvent nodeFinishedEvent = JsonUtils.fromJson(data, NodeFinishedEvent.class);
                     callback.onNodeFinished(nodeFinishedEvent);
-                    break;
+                    return nodeFinishedEvent;
                 case WORKFLOW_FINISHED:
                     WorkflowFinishedEvent workflowFinishedEvent = JsonUtils.fromJson(data, WorkflowFinishedEvent.class);
                     callback.onWorkflowFinished(workflowFinishedEvent);
-                    break;
+                    return workflowFinishedEvent;
                 case WORKFLOW_TEXT_CHUNK:
                     WorkflowTextChunkEvent workflowTextChunkEvent = JsonUtils.fromJson(data, WorkflowTextChunkEvent.class);
                     callback.onWorkflowTextChunk(workflowTextChunkEvent);
-                    break;
+                    return workflowTextChunkEvent;
                 case TTS_MESSAGE:
                     TtsMessageEvent ttsMessageEvent = JsonUtils.fromJson(data, TtsMessageEvent.class);
                     callback.onTtsMessage(ttsMessageEvent);
-                    break;
+                    return ttsMessageEvent;
                 case TTS_MESSAGE_END:
                     TtsMessageEndEvent ttsMessageEndEvent = JsonUtils.fromJson(data, TtsMessageEndEvent.class);
                     callback.onTtsMessageEnd(ttsMessageEndEvent);
-                    break;
+                    return ttsMessageEndEvent;
                 case PING:
                     PingEvent pingEvent = JsonUtils.fromJson(data, PingEvent.class);
                     callback.onPing(pingEvent);
-                    break;
+                    return pingEvent;
                 case ERROR:
                     ErrorEvent errorEvent = JsonUtils.fromJson(data, ErrorEvent.class);
                     callback.onError(errorEvent);
-                    break;
+                    return errorEvent;
                 default:
-                    log.warn("未处理的事件类型: {}", eventTypeStr);
+                    logUnhandledEvent("未处理的事件类型", eventTypeStr);
                     break;
             }
         } catch (Exception e) {
@@ -310,5 +376,21 @@ public class StreamEventDispatcher {
                 log.error("调用onError回调时发生异常", ex);
             }
         }
+        return null;
+    }
+
+    /**
+     * 记录未知或未处理的事件类型
+     * 每种类型只以 warn 级别记录一次，之后降为 debug，避免服务端新增事件类型后每个事件都打印日志
+     *
+     * @param message   日志内容
+     * @param eventType 事件类型
+     */
+    private static void logUnhandledEvent(String message, String eventType) {
+        if (LOGGED_EVENT_TYPES.size() < MAX_LOGGED_EVENT_TYPES && LOGGED_EVENT_TYPES.add(String.valueOf(eventType))) {
+            log.warn("{}: {}", message, eventType);
+        } else {
+            log.debug("{}: {}", message, eventType);
+        }
     }
 }
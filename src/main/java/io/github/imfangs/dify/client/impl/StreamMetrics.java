@@ -0,0 +1,72 @@
+package io.github.imfangs.dify.client.impl;
+
+import io.github.imfangs.dify.client.enums.EventType;
+import io.github.imfangs.dify.client.event.MessageEndEvent;
+import io.github.imfangs.dify.client.metrics.DifyMetricsRecorder;
+
+/**
+ * 单次流式响应的指标统计
+ * 以文本块事件（message、agent_message、text_chunk）计算首个内容块延迟、块间隔和生成速度
+ */
+class StreamMetrics {
+    private final DifyMetricsRecorder recorder;
+    private final String endpoint;
+    private final long startNanos;
+    private long firstChunkNanos = -1;
+    private long lastChunkNanos = -1;
+    private int chunks;
+    private Integer completionTokens;
+
+    /**
+     * 构造函数
+     *
+     * @param recorder   指标记录器
+     * @param endpoint   接口标识
+     * @param startNanos 请求发出时间
+     */
+    StreamMetrics(DifyMetricsRecorder recorder, String endpoint, long startNanos) {
+        this.recorder = recorder;
+        this.endpoint = endpoint;
+        this.startNanos = startNanos;
+    }
+
+    /**
+     * 处理一个事件，在事件分发给回调之前调用
+     *
+     * @param eventType 事件类型
+     */
+    void onEvent(String eventType) {
+        long now = System.nanoTime();
+        if (EventType.MESSAGE.getValue().equals(eventType) || EventType.AGENT_MESSAGE.getValue().equals(eventType)
+                || EventType.WORKFLOW_TEXT_CHUNK.getValue().equals(eventType)) {
+            if (firstChunkNanos < 0) {
+                firstChunkNanos = now;
+                recorder.recordTimeToFirstToken(endpoint, now - startNanos);
+            } else {
+                recorder.recordInterTokenGap(endpoint, now - lastChunkNanos);
+            }
+            lastChunkNanos = now;
+            chunks++;
+        }
+    }
+
+    /**
+     * 记录消息结束事件中的用量，使用分发器已解析的事件
+     *
+     * @param event 消息结束事件
+     */
+    void onMessageEnd(MessageEndEvent event) {
+        if (event.getMetadata() != null && event.getMetadata().getUsage() != null) {
+            completionTokens = event.getMetadata().getUsage().getCompletionTokens();
+        }
+    }
+
+    /**
+     * 流结束时记录汇总指标
+     */
+    void onComplete() {
+        long generationNanos = firstChunkNanos >= 0 ? lastChunkNanos - firstChunkNanos : 0;
+        recorder.recordStreamCompleted(endpoint, System.nanoTime() - startNanos, generationNanos,
+                completionTokens != null ? completionTokens : chunks);
+    }
+}
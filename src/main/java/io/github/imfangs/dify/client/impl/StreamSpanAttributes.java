@@ -0,0 +1,68 @@
+package io.github.imfangs.dify.client.impl;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import io.github.imfangs.dify.client.tracing.SpanAttributes;
+import io.github.imfangs.dify.client.util.JsonUtils;
+
+/**
+ * 从流式事件中提取 Dify 标识写入 span 属性
+ * 标识在前几个事件中即可获得，取到任务 ID 和消息 ID 或工作流执行 ID 后不再解析后续事件。
+ */
+class StreamSpanAttributes {
+    /**
+     * 最多解析的事件数，避免标识缺失时每个事件都重复解析
+     */
+    private static final int MAX_INSPECTED_EVENTS = 8;
+
+    private final SpanAttributes attributes;
+    private int inspected;
+    private boolean done;
+
+    /**
+     * 构造函数
+     *
+     * @param attributes 请求附带的 span 属性
+     */
+    StreamSpanAttributes(SpanAttributes attributes) {
+        this.attributes = attributes;
+    }
+
+    /**
+     * 处理一个事件
+     *
+     * @param data 事件数据
+     */
+    void onEvent(String data) {
+        if (done) {
+            return;
+        }
+        done = ++inspected >= MAX_INSPECTED_EVENTS;
+        JsonNode node;
+        try {
+            node = JsonUtils.getObjectMapper().readTree(data);
+        } catch (Exception e) {
+            return;
+        }
+        if (node == null || !node.isObject()) {
+            return;
+        }
+        attributes.putIfAbsent(SpanAttributes.TASK_ID, text(node, "task_id"));
+        attributes.putIfAbsent(SpanAttributes.WORKFLOW_RUN_ID, text(node, "workflow_run_id"));
+        attributes.putIfAbsent(SpanAttributes.CONVERSATION_ID, text(node, "conversation_id"));
+        String messageId = text(node, "message_id");
+        if (messageId == null && node.has("conversation_id")) {
+            // 对话类事件的 id 字段即消息 ID
+            messageId = text(node, "id");
+        }
+        attributes.putIfAbsent(SpanAttributes.MESSAGE_ID, messageId);
+        if (attributes.contains(SpanAttributes.TASK_ID)
+                && (attributes.contains(SpanAttributes.MESSAGE_ID) || attributes.contains(SpanAttributes.WORKFLOW_RUN_ID))) {
+            done = true;
+        }
+    }
+
+    private static String text(JsonNode node, String field) {
+        JsonNode value = node.get(field);
+        return value != null && value.isTextual() ? value.asText() : null;
+    }
+}
@@ -0,0 +1,145 @@
+package io.github.imfangs.dify.client.interceptor;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 自适应并发限流器
+ * 根据请求往返时间（RTT）的梯度调整允许的并发数：
+ * 平滑 RTT 接近最小 RTT 时逐步放大并发，RTT 升高时按比例收缩，请求失败时乘性减小。
+ */
+@Slf4j
+public class AdaptiveConcurrencyLimiter {
+    /**
+     * 允许的 RTT 放大倍数，超过该倍数视为排队
+     */
+    private static final double RTT_TOLERANCE = 2.0;
+
+    /**
+     * 失败时的收缩比例
+     */
+    private static final double BACKOFF_RATIO = 0.9;
+
+    /**
+     * 平滑 RTT 的衰减系数
+     */
+    private static final double RTT_SMOOTHING = 0.1;
+
+    /**
+     * 每隔多少个样本重置最小 RTT，以适应服务端基线变化
+     */
+    private static final int MIN_RTT_RESET_SAMPLES = 500;
+
+    private static final int MIN_LIMIT = 1;
+
+    @Getter
+    private final String name;
+
+    private final int maxLimit;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private volatile double limit;
+
+    private long minRttNanos = Long.MAX_VALUE;
+
+    private double smoothedRttNanos;
+
+    private int samples;
+
+    /**
+     * 构造函数
+     *
+     * @param name         限流器名称
+     * @param initialLimit 初始并发数
+     * @param maxLimit     最大并发数
+     */
+    public AdaptiveConcurrencyLimiter(String name, int initialLimit, int maxLimit) {
+        this.name = name;
+        this.maxLimit = Math.max(MIN_LIMIT, maxLimit);
+        this.limit = Math.max(MIN_LIMIT, Math.min(initialLimit, this.maxLimit));
+    }
+
+    /**
+     * 尝试获取一个并发许可，不阻塞
+     *
+     * @return 是否获取成功
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= getLimit()) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 释放一个并发许可
+     */
+    public void release() {
+        inFlight.decrementAndGet();
+    }
+
+    /**
+     * 记录一次成功请求的 RTT 并调整并发限制
+     *
+     * @param rttNanos 往返时间（纳秒）
+     */
+    public synchronized void onSample(long rttNanos) {
+        if (++samples >= MIN_RTT_RESET_SAMPLES) {
+            samples = 0;
+            minRttNanos = rttNanos;
+        } else {
+            minRttNanos = Math.min(minRttNanos, rttNanos);
+        }
+        smoothedRttNanos = smoothedRttNanos == 0 ? rttNanos : smoothedRttNanos * (1 - RTT_SMOOTHING) + rttNanos * RTT_SMOOTHING;
+
+        double current = limit;
+        double gradient = Math.max(0.5, Math.min(1.0, RTT_TOLERANCE * minRttNanos / smoothedRttNanos));
+        double newLimit = current * gradient + Math.sqrt(current);
+        if (inFlight.get() * 2 < current) {
+            // 并发未被充分使用时不放大限制
+            newLimit = Math.min(newLimit, current);
+        }
+        updateLimit(current * 0.8 + newLimit * 0.2);
+    }
+
+    /**
+     * 记录一次失败或过载响应，乘性减小并发限制
+     */
+    public synchronized void onDropped() {
+        updateLimit(limit * BACKOFF_RATIO);
+    }
+
+    /**
+     * 获取当前并发限制
+     *
+     * @return 并发限制
+     */
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    /**
+     * 获取当前在途请求数
+     *
+     * @return 在途请求数
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    private void updateLimit(double newLimit) {
+        int before = getLimit();
+        limit = Math.max(MIN_LIMIT, Math.min(maxLimit, newLimit));
+        if (before != getLimit()) {
+            log.debug("并发限制调整: {} {} -> {}", name, before, getLimit());
+        }
+    }
+}
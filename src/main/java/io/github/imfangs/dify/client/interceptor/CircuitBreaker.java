@@ -0,0 +1,169 @@
+package io.github.imfangs.dify.client.interceptor;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 熔断器
+ * 基于最近 {@value #WINDOW_SIZE} 次调用的失败率和慢调用率判断是否打开；
+ * 打开后在熔断时间内直接拒绝请求，之后进入半开状态放行少量探测请求，
+ * 探测全部成功则关闭，任一失败或过慢则重新打开。
+ */
+@Slf4j
+public class CircuitBreaker {
+    /**
+     * 滑动窗口大小（调用次数）
+     */
+    private static final int WINDOW_SIZE = 50;
+
+    /**
+     * 计算失败率所需的最少调用次数
+     */
+    private static final int MIN_CALLS = 10;
+
+    /**
+     * 半开状态放行的探测请求数
+     */
+    private static final int HALF_OPEN_PERMITS = 3;
+
+    /**
+     * 熔断器状态
+     */
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    @Getter
+    private final String name;
+    private final double failureRateThreshold;
+    private final double slowCallRateThreshold;
+    private final long slowCallNanos;
+    private final long openNanos;
+
+    private final boolean[] failedCalls = new boolean[WINDOW_SIZE];
+    private final boolean[] slowCalls = new boolean[WINDOW_SIZE];
+    private int calls;
+    private int next;
+    private int failures;
+    private int slows;
+
+    @Getter
+    private State state = State.CLOSED;
+    private long openedAt;
+    private int halfOpenPermits;
+    private int halfOpenSuccesses;
+
+    /**
+     * 构造函数
+     *
+     * @param name                  熔断器名称
+     * @param failureRateThreshold  失败率阈值（0-1）
+     * @param slowCallRateThreshold 慢调用率阈值（0-1）
+     * @param slowCallMillis        慢调用时间阈值（毫秒）
+     * @param openMillis            打开状态持续时间（毫秒）
+     */
+    public CircuitBreaker(String name, double failureRateThreshold, double slowCallRateThreshold, long slowCallMillis, long openMillis) {
+        this.name = name;
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallRateThreshold = slowCallRateThreshold;
+        this.slowCallNanos = slowCallMillis * 1_000_000L;
+        this.openNanos = openMillis * 1_000_000L;
+    }
+
+    /**
+     * 判断是否允许发送请求
+     *
+     * @return 是否允许
+     */
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN) {
+            if (System.nanoTime() - openedAt < openNanos) {
+                return false;
+            }
+            state = State.HALF_OPEN;
+            halfOpenPermits = 0;
+            halfOpenSuccesses = 0;
+            log.info("熔断器进入半开状态: {}", name);
+        }
+        if (state == State.HALF_OPEN) {
+            if (halfOpenPermits >= HALF_OPEN_PERMITS) {
+                return false;
+            }
+            halfOpenPermits++;
+        }
+        return true;
+    }
+
+    /**
+     * 记录调用结果
+     *
+     * @param durationNanos 调用耗时（纳秒）
+     * @param failed        是否失败
+     */
+    public synchronized void onResult(long durationNanos, boolean failed) {
+        boolean slow = durationNanos >= slowCallNanos;
+        if (state == State.HALF_OPEN) {
+            if (failed || slow) {
+                open();
+            } else if (++halfOpenSuccesses >= HALF_OPEN_PERMITS) {
+                close();
+            }
+            return;
+        }
+        if (state == State.OPEN) {
+            return;
+        }
+
+        if (calls == WINDOW_SIZE) {
+            failures -= failedCalls[next] ? 1 : 0;
+            slows -= slowCalls[next] ? 1 : 0;
+        } else {
+            calls++;
+        }
+        failedCalls[next] = failed;
+        slowCalls[next] = slow;
+        failures += failed ? 1 : 0;
+        slows += slow ? 1 : 0;
+        next = (next + 1) % WINDOW_SIZE;
+
+        if (calls >= MIN_CALLS && (failures >= failureRateThreshold * calls || slows >= slowCallRateThreshold * calls)) {
+            open();
+        }
+    }
+
+    /**
+     * 放弃一次已获取的调用许可（如调用被取消），不计入统计
+     */
+    public synchronized void onIgnored() {
+        if (state == State.HALF_OPEN && halfOpenPermits > 0) {
+            halfOpenPermits--;
+        }
+    }
+
+    /**
+     * 获取距离允许探测请求的剩余时间
+     *
+     * @return 剩余时间（毫秒）
+     */
+    public synchronized long getRemainingOpenMillis() {
+        if (state != State.OPEN) {
+            return 0;
+        }
+        return Math.max(0, (openNanos - (System.nanoTime() - openedAt)) / 1_000_000L);
+    }
+
+    private void open() {
+        log.warn("熔断器打开: {}, 失败 {}/{}, 慢调用 {}/{}", name, failures, calls, slows, calls);
+        state = State.OPEN;
+        openedAt = System.nanoTime();
+    }
+
+    private void close() {
+        log.info("熔断器关闭: {}", name);
+        state = State.CLOSED;
+        calls = 0;
+        next = 0;
+        failures = 0;
+        slows = 0;
+    }
+}
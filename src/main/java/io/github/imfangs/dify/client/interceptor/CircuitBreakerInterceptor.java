@@ -0,0 +1,102 @@
+package io.github.imfangs.dify.client.interceptor;
+
+import io.github.imfangs.dify.client.exception.DifyCircuitOpenException;
+import io.github.imfangs.dify.client.exception.DifyConcurrencyLimitException;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 熔断拦截器
+ * 按接口分组（chat、completion、workflow、datasets、files、app）分别维护 {@link CircuitBreaker}，
+ * 网络异常和 429/5xx 响应计为失败，首字节时间超过阈值计为慢调用，本地并发限制拒绝的请求不计入；
+ * 熔断器打开时立即抛出 {@link DifyCircuitOpenException}。
+ */
+public class CircuitBreakerInterceptor implements Interceptor {
+
+    private final double failureRateThreshold;
+    private final double slowCallRateThreshold;
+    private final long slowCallMillis;
+    private final long openMillis;
+    private final ConcurrentMap<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+
+    /**
+     * 构造函数
+     *
+     * @param failureRateThreshold  失败率阈值（0-1）
+     * @param slowCallRateThreshold 慢调用率阈值（0-1）
+     * @param slowCallMillis        慢调用时间阈值（毫秒）
+     * @param openMillis            熔断持续时间（毫秒）
+     */
+    public CircuitBreakerInterceptor(double failureRateThreshold, double slowCallRateThreshold, long slowCallMillis, long openMillis) {
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallRateThreshold = slowCallRateThreshold;
+        this.slowCallMillis = slowCallMillis;
+        this.openMillis = openMillis;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        CircuitBreaker breaker = getCircuitBreaker(groupOf(request.url().encodedPath()));
+        if (!breaker.tryAcquire()) {
+            throw new DifyCircuitOpenException(breaker.getName(), breaker.getRemainingOpenMillis());
+        }
+
+        long start = System.nanoTime();
+        Response response;
+        try {
+            response = chain.proceed(request);
+        } catch (IOException | RuntimeException e) {
+            // 取消的调用和内层限流器在本地拒绝的请求都未到达服务端，不计入统计
+            if (chain.call().isCanceled() || e instanceof DifyConcurrencyLimitException) {
+                breaker.onIgnored();
+            } else {
+                breaker.onResult(System.nanoTime() - start, true);
+            }
+            throw e;
+        }
+        int code = response.code();
+        breaker.onResult(System.nanoTime() - start, code == 429 || code >= 500);
+        return response;
+    }
+
+    /**
+     * 获取接口分组的熔断器
+     *
+     * @param group 接口分组
+     * @return 熔断器
+     */
+    public CircuitBreaker getCircuitBreaker(String group) {
+        return breakers.computeIfAbsent(group, name -> new CircuitBreaker(name, failureRateThreshold, slowCallRateThreshold, slowCallMillis, openMillis));
+    }
+
+    /**
+     * 根据请求路径确定接口分组
+     *
+     * @param path 请求路径
+     * @return 接口分组
+     */
+    static String groupOf(String path) {
+        if (path.contains("/datasets")) {
+            return "datasets";
+        }
+        if (path.contains("/workflows")) {
+            return "workflow";
+        }
+        if (path.contains("/completion-messages")) {
+            return "completion";
+        }
+        if (path.contains("/files")) {
+            return "files";
+        }
+        if (path.endsWith("/info") || path.endsWith("/parameters") || path.endsWith("/meta")) {
+            return "app";
+        }
+        return "chat";
+    }
+}
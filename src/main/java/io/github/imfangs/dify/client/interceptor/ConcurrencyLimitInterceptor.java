@@ -0,0 +1,153 @@
+package io.github.imfangs.dify.client.interceptor;
+
+import io.github.imfangs.dify.client.exception.DifyConcurrencyLimitException;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.BufferedSource;
+import okio.ForwardingSource;
+import okio.Okio;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 自适应并发限制拦截器
+ * 阻塞调用、流式调用和知识库调用分别使用独立的 {@link AdaptiveConcurrencyLimiter}，
+ * 超出限制时立即抛出 {@link DifyConcurrencyLimitException}，不在本地排队。
+ * 许可在响应体关闭时释放，流式响应在整个流读取期间都占用许可。
+ */
+public class ConcurrencyLimitInterceptor implements Interceptor {
+
+    private final AdaptiveConcurrencyLimiter blockingLimiter;
+    private final AdaptiveConcurrencyLimiter streamingLimiter;
+    private final AdaptiveConcurrencyLimiter datasetsLimiter;
+
+    /**
+     * 构造函数
+     *
+     * @param initialLimit 每个限流器的初始并发数
+     * @param maxLimit     每个限流器的最大并发数
+     */
+    public ConcurrencyLimitInterceptor(int initialLimit, int maxLimit) {
+        this.blockingLimiter = new AdaptiveConcurrencyLimiter("blocking", initialLimit, maxLimit);
+        this.streamingLimiter = new AdaptiveConcurrencyLimiter("streaming", initialLimit, maxLimit);
+        this.datasetsLimiter = new AdaptiveConcurrencyLimiter("datasets", initialLimit, maxLimit);
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        AdaptiveConcurrencyLimiter limiter = selectLimiter(request);
+        if (!limiter.tryAcquire()) {
+            throw new DifyConcurrencyLimitException(limiter.getName(), limiter.getLimit());
+        }
+
+        long start = System.nanoTime();
+        Response response;
+        try {
+            response = chain.proceed(request);
+        } catch (IOException | RuntimeException e) {
+            limiter.onDropped();
+            limiter.release();
+            throw e;
+        }
+
+        if (isOverloaded(response.code())) {
+            limiter.onDropped();
+        } else {
+            limiter.onSample(System.nanoTime() - start);
+        }
+
+        ResponseBody body = response.body();
+        if (body == null) {
+            limiter.release();
+            return response;
+        }
+        return response.newBuilder().body(new ReleasingResponseBody(body, limiter)).build();
+    }
+
+    /**
+     * 获取阻塞调用限流器
+     *
+     * @return 限流器
+     */
+    public AdaptiveConcurrencyLimiter getBlockingLimiter() {
+        return blockingLimiter;
+    }
+
+    /**
+     * 获取流式调用限流器
+     *
+     * @return 限流器
+     */
+    public AdaptiveConcurrencyLimiter getStreamingLimiter() {
+        return streamingLimiter;
+    }
+
+    /**
+     * 获取知识库调用限流器
+     *
+     * @return 限流器
+     */
+    public AdaptiveConcurrencyLimiter getDatasetsLimiter() {
+        return datasetsLimiter;
+    }
+
+    private AdaptiveConcurrencyLimiter selectLimiter(Request request) {
+        String accept = request.header("Accept");
+        if (accept != null && accept.contains("text/event-stream")) {
+            return streamingLimiter;
+        }
+        if (request.url().encodedPath().contains("/datasets")) {
+            return datasetsLimiter;
+        }
+        return blockingLimiter;
+    }
+
+    private static boolean isOverloaded(int code) {
+        return code == 429 || code == 502 || code == 503 || code == 504;
+    }
+
+    /**
+     * 关闭时释放并发许可的响应体
+     */
+    private static final class ReleasingResponseBody extends ResponseBody {
+        private final ResponseBody delegate;
+        private final BufferedSource source;
+
+        ReleasingResponseBody(ResponseBody delegate, AdaptiveConcurrencyLimiter limiter) {
+            this.delegate = delegate;
+            AtomicBoolean released = new AtomicBoolean();
+            this.source = Okio.buffer(new ForwardingSource(delegate.source()) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        if (released.compareAndSet(false, true)) {
+                            limiter.release();
+                        }
+                    }
+                }
+            });
+        }
+
+        @Override
+        public MediaType contentType() {
+            return delegate.contentType();
+        }
+
+        @Override
+        public long contentLength() {
+            return delegate.contentLength();
+        }
+
+        @Override
+        public BufferedSource source() {
+            return source;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package io.github.imfangs.dify.client.interceptor;
+
+import io.github.imfangs.dify.client.metrics.DifyMetricsRecorder;
+import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.ForwardingSource;
+import okio.Okio;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
+
+/**
+ * 指标拦截器
+ * 位于拦截器链最外层，记录调用方看到的请求耗时、状态码和收发字节数，
+ * 请求在响应体关闭时记录，流式响应的耗时覆盖整个流。
+ */
+public class MetricsInterceptor implements Interceptor {
+
+    /**
+     * 路径中的 UUID 或纯数字段视为ID
+     */
+    private static final Pattern ID_SEGMENT = Pattern.compile("[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}|\\d+");
+
+    private final DifyMetricsRecorder recorder;
+
+    /**
+     * 构造函数
+     *
+     * @param recorder 指标记录器
+     */
+    public MetricsInterceptor(DifyMetricsRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        String method = request.method();
+        String endpoint = endpointOf(request.url());
+        long requestBytes = request.body() != null ? request.body().contentLength() : 0;
+        long start = System.nanoTime();
+
+        Response response;
+        try {
+            response = chain.proceed(request);
+        } catch (IOException | RuntimeException e) {
+            recorder.recordRequest(method, endpoint, 0, System.nanoTime() - start, requestBytes, 0);
+            throw e;
+        }
+
+        ResponseBody body = response.body();
+        if (body == null) {
+            recorder.recordRequest(method, endpoint, response.code(), System.nanoTime() - start, requestBytes, 0);
+            return response;
+        }
+        int code = response.code();
+        return response.newBuilder()
+                .body(new CountingResponseBody(body, bytes -> recorder.recordRequest(method, endpoint, code, System.nanoTime() - start, requestBytes, bytes)))
+                .build();
+    }
+
+    /**
+     * 将请求路径转换为接口标识，ID 段替换为 {id}
+     *
+     * @param url 请求URL
+     * @return 接口标识
+     */
+    public static String endpointOf(HttpUrl url) {
+        List<String> segments = url.pathSegments();
+        StringBuilder builder = new StringBuilder();
+        for (String segment : segments) {
+            builder.append('/').append(ID_SEGMENT.matcher(segment).matches() ? "{id}" : segment);
+        }
+        return builder.length() > 0 ? builder.toString() : "/";
+    }
+
+    /**
+     * 响应体关闭回调
+     */
+    @FunctionalInterface
+    interface CloseListener {
+        void onClose(long bytesRead);
+    }
+
+    /**
+     * 统计读取字节数并在关闭时回调的响应体
+     */
+    static final class CountingResponseBody extends ResponseBody {
+        private final ResponseBody delegate;
+        private final BufferedSource source;
+
+        CountingResponseBody(ResponseBody delegate, CloseListener listener) {
+            this.delegate = delegate;
+            AtomicBoolean closed = new AtomicBoolean();
+            this.source = Okio.buffer(new ForwardingSource(delegate.source()) {
+                private long bytesRead;
+
+                @Override
+                public long read(Buffer sink, long byteCount) throws IOException {
+                    long read = super.read(sink, byteCount);
+                    if (read > 0) {
+                        bytesRead += read;
+                    }
+                    return read;
+                }
+
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        if (closed.compareAndSet(false, true)) {
+                            listener.onClose(bytesRead);
+                        }
+                    }
+                }
+            });
+        }
+
+        @Override
+        public MediaType contentType() {
+            return delegate.contentType();
+        }
+
+        @Override
+        public long contentLength() {
+            return delegate.contentLength();
+        }
+
+        @Override
+        public BufferedSource source() {
+            return source;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package io.github.imfangs.dify.client.interceptor;
+
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 采样请求日志拦截器
+ * 每 N 个请求记录一条 key=value 格式的日志，只包含方法、接口、状态码、耗时和字节数，
+ * 不记录 query、text 等请求体内容。日志在响应体关闭时输出，流式请求的耗时覆盖整个流。
+ * 日志名为 io.github.imfangs.dify.client.request，可单独配置级别和输出位置。
+ */
+@Slf4j(topic = "io.github.imfangs.dify.client.request")
+public class RequestLogInterceptor implements Interceptor {
+    private final int sampleRate;
+    private final AtomicLong counter = new AtomicLong();
+
+    /**
+     * 构造函数
+     *
+     * @param sampleRate 采样率，每 N 个请求记录一条，需大于 0
+     */
+    public RequestLogInterceptor(int sampleRate) {
+        this.sampleRate = sampleRate;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        if (!log.isInfoEnabled() || counter.getAndIncrement() % sampleRate != 0) {
+            return chain.proceed(request);
+        }
+
+        String method = request.method();
+        String endpoint = MetricsInterceptor.endpointOf(request.url());
+        long requestBytes = request.body() != null ? request.body().contentLength() : 0;
+        long start = System.nanoTime();
+
+        Response response;
+        try {
+            response = chain.proceed(request);
+        } catch (IOException | RuntimeException e) {
+            log.info("dify_request method={} endpoint={} status=0 duration_ms={} request_bytes={} error={}",
+                    method, endpoint, elapsedMillis(start), requestBytes, e.getClass().getSimpleName());
+            throw e;
+        }
+
+        int code = response.code();
+        long headersMillis = elapsedMillis(start);
+        ResponseBody body = response.body();
+        if (body == null) {
+            log.info("dify_request method={} endpoint={} status={} duration_ms={} request_bytes={} response_bytes=0",
+                    method, endpoint, code, headersMillis, requestBytes);
+            return response;
+        }
+        return response.newBuilder()
+                .body(new MetricsInterceptor.CountingResponseBody(body, bytes -> log.info(
+                        "dify_request method={} endpoint={} status={} headers_ms={} duration_ms={} request_bytes={} response_bytes={}",
+                        method, endpoint, code, headersMillis, elapsedMillis(start), requestBytes, bytes)))
+                .build();
+    }
+
+    private static long elapsedMillis(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+}
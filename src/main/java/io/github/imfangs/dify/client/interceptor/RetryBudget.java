@@ -0,0 +1,49 @@
+package io.github.imfangs.dify.client.interceptor;
+
+/**
+ * 重试预算
+ * 每个原始请求按比例存入令牌，每次重试消耗一个令牌，
+ * 保证重试流量不超过正常流量的固定比例，避免在服务端故障时放大请求量。
+ */
+public class RetryBudget {
+    /**
+     * 初始与最少保留的令牌数，保证低流量时也能重试
+     */
+    private static final double MIN_TOKENS = 10;
+
+    private final double ratio;
+
+    private final double maxTokens;
+
+    private double tokens = MIN_TOKENS;
+
+    /**
+     * 构造函数
+     *
+     * @param ratio 重试数与请求数的最大比例
+     */
+    public RetryBudget(double ratio) {
+        this.ratio = ratio;
+        this.maxTokens = Math.max(MIN_TOKENS, 1000 * ratio);
+    }
+
+    /**
+     * 记录一个原始请求
+     */
+    public synchronized void onRequest() {
+        tokens = Math.min(maxTokens, tokens + ratio);
+    }
+
+    /**
+     * 尝试消耗一次重试机会
+     *
+     * @return 预算是否允许重试
+     */
+    public synchronized boolean tryRetry() {
+        if (tokens < 1) {
+            return false;
+        }
+        tokens -= 1;
+        return true;
+    }
+}
@@ -0,0 +1,194 @@
+package io.github.imfangs.dify.client.interceptor;
+
+import io.github.imfangs.dify.client.exception.DifyCircuitOpenException;
+import io.github.imfangs.dify.client.exception.DifyConcurrencyLimitException;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.Headers;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+import okio.Timeout;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Date;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 重试拦截器
+ * 对 GET 请求以及通过 {@link #idempotent(Request)} 标记的 POST 请求，
+ * 在遇到 429/502/503/504 响应或网络异常时按 decorrelated jitter 指数退避重试，
+ * 优先遵循服务端返回的 Retry-After，并受 {@link RetryBudget} 限制。
+ * 退避等待在执行调用的线程上进行，异步调用时会占用 Dispatcher 的线程和并发名额，
+ * 因此等待期间调用被取消时立即结束，等待时间超出调用超时的剩余时间时不再重试。
+ */
+@Slf4j
+public class RetryInterceptor implements Interceptor {
+    /**
+     * 退避等待期间检查调用是否已取消的间隔（毫秒）
+     */
+    private static final long CANCEL_CHECK_INTERVAL = 50;
+
+    private final int maxRetries;
+    private final long baseDelayMillis;
+    private final long maxDelayMillis;
+    private final RetryBudget budget;
+
+    /**
+     * 构造函数
+     *
+     * @param maxRetries      最大重试次数
+     * @param baseDelayMillis 退避基础等待时间（毫秒）
+     * @param maxDelayMillis  退避最大等待时间（毫秒）
+     * @param budgetRatio     重试预算比例
+     */
+    public RetryInterceptor(int maxRetries, long baseDelayMillis, long maxDelayMillis, double budgetRatio) {
+        this.maxRetries = maxRetries;
+        this.baseDelayMillis = baseDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+        this.budget = new RetryBudget(budgetRatio);
+    }
+
+    /**
+     * 将请求标记为可安全重试
+     *
+     * @param request 请求对象
+     * @return 标记后的请求
+     */
+    public static Request idempotent(Request request) {
+        return request.newBuilder().tag(Idempotent.class, Idempotent.INSTANCE).build();
+    }
+
+    /**
+     * 判断失败是否为临时错误，供轮询等应用层重试使用
+     * 范围比 HTTP 层重试更宽，包括 500：轮询请求没有副作用，服务端错误通常稍后即可恢复。
+     *
+     * @param statusCode HTTP 状态码
+     * @return 429 或 5xx 时为 true
+     */
+    public static boolean isTransientStatus(int statusCode) {
+        return statusCode >= 500 || statusCode == 429;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        if (!isRetryable(request)) {
+            return chain.proceed(request);
+        }
+
+        budget.onRequest();
+        long start = System.nanoTime();
+        long sleepMillis = baseDelayMillis;
+        for (int attempt = 0; ; attempt++) {
+            Response response = null;
+            IOException failure = null;
+            try {
+                response = chain.proceed(request);
+            } catch (DifyConcurrencyLimitException | DifyCircuitOpenException e) {
+                // 本地拒绝的请求不重试
+                throw e;
+            } catch (IOException e) {
+                failure = e;
+            }
+
+            if (response != null && !isRetryableStatus(response.code())) {
+                return response;
+            }
+            if (attempt >= maxRetries || chain.call().isCanceled() || !budget.tryRetry()) {
+                return finish(response, failure);
+            }
+
+            // decorrelated jitter: sleep = min(cap, random(base, sleep * 3))
+            sleepMillis = Math.min(maxDelayMillis, ThreadLocalRandom.current().nextLong(baseDelayMillis, Math.max(baseDelayMillis, sleepMillis * 3) + 1));
+            long retryAfterMillis = response != null ? parseRetryAfter(response.headers()) : -1;
+            if (retryAfterMillis > maxDelayMillis) {
+                return finish(response, failure);
+            }
+            long delay = Math.max(sleepMillis, retryAfterMillis);
+            if (exceedsCallTimeout(chain, start, delay)) {
+                return finish(response, failure);
+            }
+
+            log.debug("请求重试: {} {}, 第{}次, 等待{}ms, 原因: {}", request.method(), request.url().encodedPath(), attempt + 1, delay,
+                    response != null ? response.code() : failure.getMessage());
+            if (response != null) {
+                response.close();
+            }
+            pause(chain, delay);
+        }
+    }
+
+    /**
+     * 退避等待，调用被取消时提前结束
+     */
+    private static void pause(Chain chain, long delayMillis) throws IOException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMillis);
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            if (chain.call().isCanceled()) {
+                throw new IOException("Canceled");
+            }
+            try {
+                Thread.sleep(Math.min(TimeUnit.NANOSECONDS.toMillis(remaining) + 1, CANCEL_CHECK_INTERVAL));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("重试等待被中断");
+            }
+        }
+    }
+
+    /**
+     * 等待后是否已超过调用超时，调用超时从进入本拦截器时起算
+     */
+    private static boolean exceedsCallTimeout(Chain chain, long start, long delayMillis) {
+        Timeout timeout = chain.call().timeout();
+        long resumeAt = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMillis);
+        if (timeout.timeoutNanos() > 0 && resumeAt - start > timeout.timeoutNanos()) {
+            return true;
+        }
+        return timeout.hasDeadline() && resumeAt > timeout.deadlineNanoTime();
+    }
+
+    private static Response finish(Response response, IOException failure) throws IOException {
+        if (response != null) {
+            return response;
+        }
+        throw failure;
+    }
+
+    private static boolean isRetryable(Request request) {
+        return "GET".equals(request.method()) || request.tag(Idempotent.class) != null;
+    }
+
+    private static boolean isRetryableStatus(int code) {
+        return code == 429 || code == 502 || code == 503 || code == 504;
+    }
+
+    /**
+     * 解析 Retry-After 头，支持秒数和 HTTP 日期两种格式
+     *
+     * @param headers 响应头
+     * @return 等待时间（毫秒），无法解析时返回 -1
+     */
+    static long parseRetryAfter(Headers headers) {
+        String value = headers.get("Retry-After");
+        if (value == null || value.isEmpty()) {
+            return -1;
+        }
+        try {
+            return Math.max(0, Long.parseLong(value.trim()) * 1000);
+        } catch (NumberFormatException e) {
+            Date date = headers.getDate("Retry-After");
+            return date != null ? Math.max(0, date.getTime() - System.currentTimeMillis()) : -1;
+        }
+    }
+
+    /**
+     * 可重试请求的标记
+     */
+    private enum Idempotent {
+        INSTANCE
+    }
+}
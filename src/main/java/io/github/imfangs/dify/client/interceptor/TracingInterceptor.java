@@ -0,0 +1,136 @@
+package io.github.imfangs.dify.client.interceptor;
+
+import io.github.imfangs.dify.client.tracing.DifySpan;
+import io.github.imfangs.dify.client.tracing.DifyTracer;
+import io.github.imfangs.dify.client.tracing.SpanAttributes;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.BufferedSource;
+import okio.ForwardingSource;
+import okio.Okio;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 链路追踪拦截器
+ * 位于重试拦截器外层，每次调用创建一个客户端 span 并注入追踪请求头，所有重试共用同一个 span。
+ * span 在响应体关闭时结束，请求 tag 中的 {@link SpanAttributes} 此时写入 span。
+ * 异步执行的请求需通过 {@link #withParentContext(Request, DifyTracer)} 在发起线程上捕获追踪上下文，
+ * 否则在 Dispatcher 线程上创建的 span 会丢失父节点。
+ */
+public class TracingInterceptor implements Interceptor {
+    private final DifyTracer tracer;
+
+    /**
+     * 构造函数
+     *
+     * @param tracer 链路追踪器
+     */
+    public TracingInterceptor(DifyTracer tracer) {
+        this.tracer = tracer;
+    }
+
+    /**
+     * 在当前线程捕获追踪上下文并附带到请求上，用于异步执行的请求
+     *
+     * @param request 请求对象
+     * @param tracer  链路追踪器，为null时直接返回原请求
+     * @return 附带追踪上下文的请求
+     */
+    public static Request withParentContext(Request request, DifyTracer tracer) {
+        Object context = tracer != null ? tracer.captureContext() : null;
+        if (context == null) {
+            return request;
+        }
+        return request.newBuilder().tag(ParentContext.class, new ParentContext(context)).build();
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        SpanAttributes attributes = request.tag(SpanAttributes.class);
+        ParentContext parent = request.tag(ParentContext.class);
+        DifySpan span = tracer.startSpan(request.method(), MetricsInterceptor.endpointOf(request.url()), parent != null ? parent.context : null);
+        Request.Builder builder = request.newBuilder();
+        span.inject(builder::header);
+
+        Response response;
+        try {
+            response = chain.proceed(builder.build());
+        } catch (IOException | RuntimeException e) {
+            span.recordException(e);
+            end(span, attributes);
+            throw e;
+        }
+
+        span.setStatusCode(response.code());
+        ResponseBody body = response.body();
+        if (body == null) {
+            end(span, attributes);
+            return response;
+        }
+        return response.newBuilder().body(new EndingResponseBody(body, () -> end(span, attributes))).build();
+    }
+
+    private static void end(DifySpan span, SpanAttributes attributes) {
+        if (attributes != null) {
+            attributes.applyTo(span);
+        }
+        span.end();
+    }
+
+    /**
+     * 发起请求时捕获的追踪上下文
+     */
+    private static final class ParentContext {
+        private final Object context;
+
+        ParentContext(Object context) {
+            this.context = context;
+        }
+    }
+
+    /**
+     * 关闭时结束 span 的响应体
+     */
+    private static final class EndingResponseBody extends ResponseBody {
+        private final ResponseBody delegate;
+        private final BufferedSource source;
+
+        EndingResponseBody(ResponseBody delegate, Runnable onClose) {
+            this.delegate = delegate;
+            AtomicBoolean ended = new AtomicBoolean();
+            this.source = Okio.buffer(new ForwardingSource(delegate.source()) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        if (ended.compareAndSet(false, true)) {
+                            onClose.run();
+                        }
+                    }
+                }
+            });
+        }
+
+        @Override
+        public MediaType contentType() {
+            return delegate.contentType();
+        }
+
+        @Override
+        public long contentLength() {
+            return delegate.contentLength();
+        }
+
+        @Override
+        public BufferedSource source() {
+            return source;
+        }
+    }
+}
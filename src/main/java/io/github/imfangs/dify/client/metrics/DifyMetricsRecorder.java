@@ -0,0 +1,62 @@
+package io.github.imfangs.dify.client.metrics;
+
+import okhttp3.OkHttpClient;
+
+/**
+ * 客户端指标记录器
+ * 通过 DifyConfig.metricsRecorder 启用，所有方法默认不做任何处理，
+ * 可实现该接口对接任意监控系统，或直接使用 {@link MicrometerDifyMetricsRecorder}。
+ * 接口标识为去掉ID后的请求路径，如 /v1/datasets/{id}/retrieve。
+ */
+public interface DifyMetricsRecorder {
+
+    /**
+     * 记录一次HTTP请求，在响应体关闭或请求失败时调用
+     *
+     * @param method        请求方法
+     * @param endpoint      接口标识
+     * @param statusCode    HTTP 状态码，网络异常或本地拒绝时为 0
+     * @param durationNanos 从发出请求到响应体读取完毕的耗时（纳秒）
+     * @param requestBytes  请求体字节数，未知时为 -1
+     * @param responseBytes 已读取的响应体字节数
+     */
+    default void recordRequest(String method, String endpoint, int statusCode, long durationNanos, long requestBytes, long responseBytes) {
+    }
+
+    /**
+     * 记录流式响应的首个内容块延迟
+     *
+     * @param endpoint 接口标识
+     * @param nanos    从发出请求到收到首个内容块的耗时（纳秒）
+     */
+    default void recordTimeToFirstToken(String endpoint, long nanos) {
+    }
+
+    /**
+     * 记录流式响应相邻内容块的间隔
+     *
+     * @param endpoint 接口标识
+     * @param nanos    间隔（纳秒）
+     */
+    default void recordInterTokenGap(String endpoint, long nanos) {
+    }
+
+    /**
+     * 记录一次流式响应完成
+     *
+     * @param endpoint        接口标识
+     * @param durationNanos   整个流的耗时（纳秒）
+     * @param generationNanos 从首个到最后一个内容块的耗时（纳秒）
+     * @param tokens          生成的 token 数，服务端未返回用量时为内容块数
+     */
+    default void recordStreamCompleted(String endpoint, long durationNanos, long generationNanos, int tokens) {
+    }
+
+    /**
+     * 绑定HTTP客户端，用于采集连接池和 Dispatcher 队列指标
+     *
+     * @param httpClient HTTP客户端
+     */
+    default void bindHttpClient(OkHttpClient httpClient) {
+    }
+}
@@ -0,0 +1,121 @@
+package io.github.imfangs.dify.client.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 基于 Micrometer 的指标记录器
+ * 所有指标带 client 标签。Micrometer 对名称和标签相同的 Gauge 只保留首次注册的一个，
+ * 多个客户端共用同一注册表时需为每个客户端使用不同的 client 名称，否则只有第一个客户端的连接池和 Dispatcher 被采集。
+ * 需要自行引入 io.micrometer:micrometer-core 依赖。
+ */
+@Slf4j
+public class MicrometerDifyMetricsRecorder implements DifyMetricsRecorder {
+
+    private final MeterRegistry registry;
+    private final String client;
+
+    /**
+     * 构造函数，client 标签为 default
+     *
+     * @param registry 指标注册表
+     */
+    public MicrometerDifyMetricsRecorder(MeterRegistry registry) {
+        this(registry, "default");
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param registry 指标注册表
+     * @param client   客户端名称，作为 client 标签
+     */
+    public MicrometerDifyMetricsRecorder(MeterRegistry registry, String client) {
+        this.registry = registry;
+        this.client = client;
+    }
+
+    @Override
+    public void recordRequest(String method, String endpoint, int statusCode, long durationNanos, long requestBytes, long responseBytes) {
+        String status = statusCode > 0 ? String.valueOf(statusCode) : "IO_ERROR";
+        Timer.builder("dify.client.requests")
+                .tags("client", client, "method", method, "endpoint", endpoint, "status", status)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(durationNanos, TimeUnit.NANOSECONDS);
+        if (requestBytes >= 0) {
+            DistributionSummary.builder("dify.client.request.size")
+                    .baseUnit("bytes")
+                    .tags("client", client, "method", method, "endpoint", endpoint)
+                    .register(registry)
+                    .record(requestBytes);
+        }
+        DistributionSummary.builder("dify.client.response.size")
+                .baseUnit("bytes")
+                .tags("client", client, "method", method, "endpoint", endpoint)
+                .register(registry)
+                .record(responseBytes);
+    }
+
+    @Override
+    public void recordTimeToFirstToken(String endpoint, long nanos) {
+        Timer.builder("dify.client.stream.time_to_first_token")
+                .tags("client", client, "endpoint", endpoint)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void recordInterTokenGap(String endpoint, long nanos) {
+        Timer.builder("dify.client.stream.inter_token_gap")
+                .tags("client", client, "endpoint", endpoint)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void recordStreamCompleted(String endpoint, long durationNanos, long generationNanos, int tokens) {
+        Timer.builder("dify.client.stream.duration")
+                .tags("client", client, "endpoint", endpoint)
+                .register(registry)
+                .record(durationNanos, TimeUnit.NANOSECONDS);
+        if (generationNanos > 0) {
+            DistributionSummary.builder("dify.client.stream.tokens_per_second")
+                    .tags("client", client, "endpoint", endpoint)
+                    .register(registry)
+                    .record(tokens * 1e9 / generationNanos);
+        }
+    }
+
+    @Override
+    public void bindHttpClient(OkHttpClient httpClient) {
+        if (registry.find("dify.client.connections").tag("client", client).gauge() != null) {
+            log.warn("client={} 的连接池指标已注册，该客户端的连接池和 Dispatcher 不会被采集，请为每个客户端使用不同的 client 名称", client);
+            return;
+        }
+        ConnectionPool pool = httpClient.connectionPool();
+        Gauge.builder("dify.client.connections", pool, p -> p.connectionCount() - p.idleConnectionCount())
+                .tags("client", client, "state", "active")
+                .register(registry);
+        Gauge.builder("dify.client.connections", pool, ConnectionPool::idleConnectionCount)
+                .tags("client", client, "state", "idle")
+                .register(registry);
+        Dispatcher dispatcher = httpClient.dispatcher();
+        Gauge.builder("dify.client.dispatcher.calls", dispatcher, Dispatcher::queuedCallsCount)
+                .tags("client", client, "state", "queued")
+                .register(registry);
+        Gauge.builder("dify.client.dispatcher.calls", dispatcher, Dispatcher::runningCallsCount)
+                .tags("client", client, "state", "running")
+                .register(registry);
+    }
+}
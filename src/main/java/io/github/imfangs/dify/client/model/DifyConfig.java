@@ -1,5 +1,9 @@
 package io.github.imfangs.dify.client.model;
 
+import io.github.imfangs.dify.client.metrics.DifyMetricsRecorder;
+import io.github.imfangs.dify.client.recording.SseRecorder;
+import io.github.imfangs.dify.client.tracing.DifyTracer;
+import io.github.imfangs.dify.client.upload.FileUploadCache;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -40,4 +44,168 @@ public class DifyConfig {
      */
     @Builder.Default
     private int writeTimeout = 30000;
+
+    /**
+     * 对 Dify 服务的最大并发异步请求数，0 表示使用 HttpClient 原有的 Dispatcher
+     * 流式调用、多知识库检索、对冲请求都经由 OkHttp Dispatcher 执行，其默认的每主机 5 个并发会使多出的调用排队。
+     * 设置后若原 Dispatcher 的限制较低，客户端改用共享同一线程池的新 Dispatcher，
+     * 其调用不再计入原 Dispatcher 的 maxRequests、runningCallsCount，也不受其 cancelAll 影响
+     */
+    @Builder.Default
+    private int maxRequestsPerHost = 0;
+
+    /**
+     * 是否合并相同的并发GET请求
+     * 开启后，URL 与 API 密钥都相同的 GET 请求在执行期间只向服务端发送一次，结果由所有调用方共享
+     */
+    @Builder.Default
+    private boolean requestCoalescing = false;
+
+    /**
+     * 是否启用自适应并发限制
+     * 开启后，阻塞调用、流式调用和知识库调用分别按 RTT 自动调整允许的并发数，
+     * 超出限制的请求立即以 DifyConcurrencyLimitException 失败
+     */
+    @Builder.Default
+    private boolean adaptiveConcurrencyLimit = false;
+
+    /**
+     * 自适应并发限制的初始并发数
+     */
+    @Builder.Default
+    private int initialConcurrencyLimit = 20;
+
+    /**
+     * 自适应并发限制的最大并发数
+     */
+    @Builder.Default
+    private int maxConcurrencyLimit = 200;
+
+    /**
+     * 最大重试次数，0 表示不重试
+     * 仅重试 GET 请求和可安全重试的 POST 请求（如知识库检索），
+     * 在遇到 429/502/503/504 响应或网络异常时按带抖动的指数退避重试
+     */
+    @Builder.Default
+    private int maxRetries = 0;
+
+    /**
+     * 重试退避的基础等待时间（毫秒）
+     */
+    @Builder.Default
+    private long retryBaseDelay = 200;
+
+    /**
+     * 重试退避的最大等待时间（毫秒），服务端要求的 Retry-After 超过该值时不再重试
+     */
+    @Builder.Default
+    private long retryMaxDelay = 10000;
+
+    /**
+     * 重试预算比例，重试次数最多为正常请求数的该比例
+     */
+    @Builder.Default
+    private double retryBudgetRatio = 0.1;
+
+    /**
+     * 是否启用对冲请求
+     * 仅作用于只读且对延迟敏感的调用（知识库检索、应用参数、消息列表、会话列表）：
+     * 请求超过历史延迟的指定分位数仍未返回时，再发送一个相同请求，取先返回者并取消另一个
+     */
+    @Builder.Default
+    private boolean hedgingEnabled = false;
+
+    /**
+     * 触发对冲请求的延迟分位数
+     */
+    @Builder.Default
+    private double hedgingPercentile = 0.95;
+
+    /**
+     * 对冲预算比例，对冲请求最多为正常请求数的该比例
+     */
+    @Builder.Default
+    private double hedgingBudgetRatio = 0.05;
+
+    /**
+     * 是否启用熔断
+     * 按接口分组（chat、completion、workflow、datasets、files、app）统计失败率和慢调用率，
+     * 超过阈值时熔断器打开，该分组的请求立即以 DifyCircuitOpenException 失败
+     */
+    @Builder.Default
+    private boolean circuitBreakerEnabled = false;
+
+    /**
+     * 熔断失败率阈值（0-1）
+     */
+    @Builder.Default
+    private double circuitBreakerFailureRateThreshold = 0.5;
+
+    /**
+     * 熔断慢调用率阈值（0-1）
+     */
+    @Builder.Default
+    private double circuitBreakerSlowCallRateThreshold = 0.8;
+
+    /**
+     * 慢调用时间阈值（毫秒），以收到响应头的时间计
+     */
+    @Builder.Default
+    private long circuitBreakerSlowCallDuration = 30000;
+
+    /**
+     * 熔断器打开后的持续时间（毫秒），之后放行少量探测请求
+     */
+    @Builder.Default
+    private long circuitBreakerOpenDuration = 30000;
+
+    /**
+     * 指标记录器，为null时不采集指标
+     * 可使用 MicrometerDifyMetricsRecorder 或自定义实现
+     */
+    private DifyMetricsRecorder metricsRecorder;
+
+    /**
+     * 链路追踪器，为null时不创建 span 也不注入 traceparent 请求头
+     * 可使用 OpenTelemetryDifyTracer 或自定义实现
+     */
+    private DifyTracer tracer;
+
+    /**
+     * 请求日志采样率，每 N 个请求以 info 级别记录一条结构化日志，0 表示不记录
+     * 日志只包含方法、接口、状态码、耗时和字节数，不包含请求体和响应体
+     */
+    @Builder.Default
+    private int requestLogSampleRate = 0;
+
+    /**
+     * 流式响应录制器，为null时不录制
+     * 录制文件可通过 SseRecording 读取，并用 SseReplayInterceptor 离线回放
+     */
+    private SseRecorder streamRecorder;
+
+    /**
+     * 文件上传去重缓存，为null时每次都上传
+     * 相同内容的文件再次上传时直接返回缓存的文件 ID
+     */
+    private FileUploadCache uploadCache;
+
+    /**
+     * 是否在上传前按应用参数中的文件上传配置校验文件类型、大小和数量
+     * 知识库文档只允许知识库支持的扩展名，并按 documentFileSizeLimit 校验大小
+     */
+    @Builder.Default
+    private boolean fileUploadValidation = false;
+
+    /**
+     * 上传校验使用的应用参数缓存时间（毫秒）
+     */
+    @Builder.Default
+    private long appParametersCacheTtl = 300000;
+
+    /**
+     * 知识库文档大小限制 (MB)，与 Dify 默认的 UPLOAD_FILE_SIZE_LIMIT 一致
+     */
+    @Builder.Default
+    private int documentFileSizeLimit = 15;
 }
@@ -0,0 +1,84 @@
+package io.github.imfangs.dify.client.model.chat;
+
+import io.github.imfangs.dify.client.event.AgentThoughtEvent;
+import io.github.imfangs.dify.client.event.MessageEndEvent;
+import io.github.imfangs.dify.client.event.MessageFileEvent;
+import io.github.imfangs.dify.client.model.common.Metadata;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 对话消息响应（流式模式汇总结果）
+ * 由 ChatAnswerAccumulator 在收到 message_end 事件后生成
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChatStreamResult {
+    /**
+     * 消息唯一 ID
+     */
+    private String messageId;
+
+    /**
+     * 会话 ID
+     */
+    private String conversationId;
+
+    /**
+     * 任务 ID
+     */
+    private String taskId;
+
+    /**
+     * 完整回复内容，已应用内容替换
+     */
+    private String answer;
+
+    /**
+     * 元数据，包含用量和引用资源
+     */
+    private Metadata metadata;
+
+    /**
+     * message_end 事件中的文件
+     */
+    private List<MessageEndEvent.MessageEndFile> files;
+
+    /**
+     * 流式返回的文件事件
+     */
+    private List<MessageFileEvent> messageFiles;
+
+    /**
+     * Agent 思考步骤，同一步骤多次推送时只保留最新内容
+     */
+    private List<AgentThoughtEvent> agentThoughts;
+
+    /**
+     * 创建时间戳
+     */
+    private Long createdAt;
+
+    /**
+     * 转换为阻塞模式的响应
+     *
+     * @param mode App 模式
+     * @return 对话消息响应
+     */
+    public ChatMessageResponse toChatMessageResponse(String mode) {
+        return ChatMessageResponse.builder()
+                .messageId(messageId)
+                .conversationId(conversationId)
+                .mode(mode)
+                .answer(answer)
+                .metadata(metadata)
+                .createdAt(createdAt)
+                .build();
+    }
+}
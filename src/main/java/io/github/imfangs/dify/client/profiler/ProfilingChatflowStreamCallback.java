@@ -0,0 +1,130 @@
+package io.github.imfangs.dify.client.profiler;
+
+import io.github.imfangs.dify.client.callback.ChatflowStreamCallback;
+import io.github.imfangs.dify.client.event.*;
+import okhttp3.Call;
+
+import java.util.function.Consumer;
+
+/**
+ * 记录工作流编排对话时间线的回调包装
+ * message 事件作为文本块计入时间线，每次请求需创建新的实例。
+ */
+public class ProfilingChatflowStreamCallback implements ChatflowStreamCallback {
+    private final ChatflowStreamCallback delegate;
+    private final WorkflowTimelineRecorder recorder;
+
+    /**
+     * 构造函数
+     *
+     * @param delegate 原回调
+     * @param listener 时间线完成时的回调
+     */
+    public ProfilingChatflowStreamCallback(ChatflowStreamCallback delegate, Consumer<WorkflowTimeline> listener) {
+        this.delegate = delegate;
+        this.recorder = new WorkflowTimelineRecorder(listener);
+    }
+
+    /**
+     * 获取当前时间线
+     *
+     * @return 时间线
+     */
+    public WorkflowTimeline getTimeline() {
+        return recorder.getTimeline();
+    }
+
+    @Override
+    public void onWorkflowStarted(WorkflowStartedEvent event) {
+        recorder.onWorkflowStarted(event);
+        delegate.onWorkflowStarted(event);
+    }
+
+    @Override
+    public void onNodeStarted(NodeStartedEvent event) {
+        recorder.onNodeStarted(event);
+        delegate.onNodeStarted(event);
+    }
+
+    @Override
+    public void onNodeFinished(NodeFinishedEvent event) {
+        recorder.onNodeFinished(event);
+        delegate.onNodeFinished(event);
+    }
+
+    @Override
+    public void onWorkflowFinished(WorkflowFinishedEvent event) {
+        recorder.onWorkflowFinished(event);
+        delegate.onWorkflowFinished(event);
+    }
+
+    @Override
+    public void onMessage(MessageEvent event) {
+        recorder.onTextChunk();
+        delegate.onMessage(event);
+    }
+
+    @Override
+    public void onMessageEnd(MessageEndEvent event) {
+        delegate.onMessageEnd(event);
+    }
+
+    @Override
+    public void onMessageFile(MessageFileEvent event) {
+        delegate.onMessageFile(event);
+    }
+
+    @Override
+    public void onTTSMessage(TtsMessageEvent event) {
+        delegate.onTTSMessage(event);
+    }
+
+    @Override
+    public void onTTSMessageEnd(TtsMessageEndEvent event) {
+        delegate.onTTSMessageEnd(event);
+    }
+
+    @Override
+    public void onMessageReplace(MessageReplaceEvent event) {
+        delegate.onMessageReplace(event);
+    }
+
+    @Override
+    public void onAgentMessage(AgentMessageEvent event) {
+        recorder.onTextChunk();
+        delegate.onAgentMessage(event);
+    }
+
+    @Override
+    public void onAgentThought(AgentThoughtEvent event) {
+        delegate.onAgentThought(event);
+    }
+
+    @Override
+    public void onError(ErrorEvent event) {
+        recorder.onFailure(event.getMessage());
+        delegate.onError(event);
+    }
+
+    @Override
+    public void onPing(PingEvent event) {
+        delegate.onPing(event);
+    }
+
+    @Override
+    public void onOpen(Call call) {
+        delegate.onOpen(call);
+    }
+
+    @Override
+    public void onComplete() {
+        recorder.onComplete();
+        delegate.onComplete();
+    }
+
+    @Override
+    public void onException(Throwable throwable) {
+        recorder.onFailure(throwable.toString());
+        delegate.onException(throwable);
+    }
+}
@@ -0,0 +1,107 @@
+package io.github.imfangs.dify.client.profiler;
+
+import io.github.imfangs.dify.client.callback.WorkflowStreamCallback;
+import io.github.imfangs.dify.client.event.*;
+import okhttp3.Call;
+
+import java.util.function.Consumer;
+
+/**
+ * 记录工作流时间线的回调包装
+ * 先记录事件接收时刻再转发给原回调，每次请求需创建新的实例。
+ * <pre>
+ * client.runWorkflowStream(request, new ProfilingWorkflowStreamCallback(callback, timeline -&gt; ...));
+ * </pre>
+ */
+public class ProfilingWorkflowStreamCallback implements WorkflowStreamCallback {
+    private final WorkflowStreamCallback delegate;
+    private final WorkflowTimelineRecorder recorder;
+
+    /**
+     * 构造函数
+     *
+     * @param delegate 原回调
+     * @param listener 时间线完成时的回调
+     */
+    public ProfilingWorkflowStreamCallback(WorkflowStreamCallback delegate, Consumer<WorkflowTimeline> listener) {
+        this.delegate = delegate;
+        this.recorder = new WorkflowTimelineRecorder(listener);
+    }
+
+    /**
+     * 获取当前时间线
+     *
+     * @return 时间线
+     */
+    public WorkflowTimeline getTimeline() {
+        return recorder.getTimeline();
+    }
+
+    @Override
+    public void onWorkflowStarted(WorkflowStartedEvent event) {
+        recorder.onWorkflowStarted(event);
+        delegate.onWorkflowStarted(event);
+    }
+
+    @Override
+    public void onNodeStarted(NodeStartedEvent event) {
+        recorder.onNodeStarted(event);
+        delegate.onNodeStarted(event);
+    }
+
+    @Override
+    public void onNodeFinished(NodeFinishedEvent event) {
+        recorder.onNodeFinished(event);
+        delegate.onNodeFinished(event);
+    }
+
+    @Override
+    public void onWorkflowFinished(WorkflowFinishedEvent event) {
+        recorder.onWorkflowFinished(event);
+        delegate.onWorkflowFinished(event);
+    }
+
+    @Override
+    public void onWorkflowTextChunk(WorkflowTextChunkEvent event) {
+        recorder.onTextChunk();
+        delegate.onWorkflowTextChunk(event);
+    }
+
+    @Override
+    public void onTtsMessage(TtsMessageEvent event) {
+        delegate.onTtsMessage(event);
+    }
+
+    @Override
+    public void onTtsMessageEnd(TtsMessageEndEvent event) {
+        delegate.onTtsMessageEnd(event);
+    }
+
+    @Override
+    public void onError(ErrorEvent event) {
+        recorder.onFailure(event.getMessage());
+        delegate.onError(event);
+    }
+
+    @Override
+    public void onPing(PingEvent event) {
+        delegate.onPing(event);
+    }
+
+    @Override
+    public void onOpen(Call call) {
+        delegate.onOpen(call);
+    }
+
+    @Override
+    public void onComplete() {
+        recorder.onComplete();
+        delegate.onComplete();
+    }
+
+    @Override
+    public void onException(Throwable throwable) {
+        recorder.onFailure(throwable.toString());
+        delegate.onException(throwable);
+    }
+}
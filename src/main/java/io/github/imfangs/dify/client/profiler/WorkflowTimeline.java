@@ -0,0 +1,335 @@
+package io.github.imfangs.dify.client.profiler;
+
+import io.github.imfangs.dify.client.tracing.DifySpan;
+import io.github.imfangs.dify.client.tracing.DifyTracer;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 单次工作流流式执行的时间线
+ * 所有偏移量均为相对请求发出时刻的纳秒数，未知时为 -1。
+ * 客户端观测耗时与服务端上报的 elapsed_time 之差即网络传输与排队开销。
+ */
+@Data
+@NoArgsConstructor
+public class WorkflowTimeline {
+
+    /**
+     * 工作流执行 ID
+     */
+    private String workflowRunId;
+
+    /**
+     * 任务 ID
+     */
+    private String taskId;
+
+    /**
+     * 执行状态 succeeded / failed / stopped，流异常中断时为 null
+     */
+    private String status;
+
+    /**
+     * 错误信息
+     */
+    private String error;
+
+    /**
+     * 请求发出时的系统时间（毫秒）
+     */
+    private long startEpochMillis;
+
+    /**
+     * 收到 workflow_started 事件的偏移量
+     */
+    private long workflowStartedOffsetNanos = -1;
+
+    /**
+     * 收到 workflow_finished 事件（或流结束）的偏移量
+     */
+    private long finishedOffsetNanos = -1;
+
+    /**
+     * 服务端上报的工作流耗时（纳秒）
+     */
+    private long serverElapsedNanos = -1;
+
+    /**
+     * 收到首个文本块的偏移量
+     */
+    private long firstChunkOffsetNanos = -1;
+
+    /**
+     * 收到最后一个文本块的偏移量
+     */
+    private long lastChunkOffsetNanos = -1;
+
+    /**
+     * 文本块数量
+     */
+    private int chunkCount;
+
+    /**
+     * 按开始顺序排列的节点耗时
+     */
+    private List<NodeTiming> nodes = new ArrayList<>();
+
+    /**
+     * 获取客户端观测到的总耗时
+     *
+     * @return 纳秒，未完成时为 -1
+     */
+    public long getObservedNanos() {
+        return finishedOffsetNanos;
+    }
+
+    /**
+     * 获取网络传输与排队开销，即客户端观测耗时减去服务端耗时
+     *
+     * @return 纳秒，任一项未知时为 -1
+     */
+    public long getOverheadNanos() {
+        return finishedOffsetNanos >= 0 && serverElapsedNanos >= 0 ? finishedOffsetNanos - serverElapsedNanos : -1;
+    }
+
+    /**
+     * 转换为时间线分段列表，用于导出或绘制瀑布图
+     * 第一个元素为整个工作流，其余每个节点一段，父段为工作流。
+     * 分段只是客户端观测到的时间区间，不属于任何追踪链路；需要写入追踪链路时使用 {@link #export(DifyTracer)}。
+     *
+     * @return 分段列表
+     */
+    public List<TimelineSegment> toSegments() {
+        List<TimelineSegment> segments = new ArrayList<>(nodes.size() + 1);
+        long baseNanos = startEpochMillis * 1_000_000L;
+        long end = finishedOffsetNanos >= 0 ? finishedOffsetNanos : lastOffset();
+
+        TimelineSegment root = new TimelineSegment();
+        root.setName("dify.workflow");
+        root.setIndex(0);
+        root.setStartEpochNanos(baseNanos);
+        root.setEndEpochNanos(baseNanos + end);
+        putIfNotNull(root.getAttributes(), "dify.workflow_run_id", workflowRunId);
+        putIfNotNull(root.getAttributes(), "dify.task_id", taskId);
+        putIfNotNull(root.getAttributes(), "dify.status", status);
+        putIfNotNull(root.getAttributes(), "dify.error", error);
+        root.getAttributes().put("dify.chunk_count", chunkCount);
+        if (serverElapsedNanos >= 0) {
+            root.getAttributes().put("dify.server_elapsed_ms", serverElapsedNanos / 1_000_000.0);
+        }
+        if (firstChunkOffsetNanos >= 0) {
+            root.getAttributes().put("dify.time_to_first_chunk_ms", firstChunkOffsetNanos / 1_000_000.0);
+        }
+        segments.add(root);
+
+        for (NodeTiming node : nodes) {
+            TimelineSegment segment = new TimelineSegment();
+            segment.setName("dify.node " + (node.getTitle() != null ? node.getTitle() : node.getNodeId()));
+            segment.setIndex(segments.size());
+            segment.setParentIndex(root.getIndex());
+            segment.setStartEpochNanos(baseNanos + node.getStartOffsetNanos());
+            segment.setEndEpochNanos(baseNanos + (node.getEndOffsetNanos() >= 0 ? node.getEndOffsetNanos() : end));
+            putIfNotNull(segment.getAttributes(), "dify.node_id", node.getNodeId());
+            putIfNotNull(segment.getAttributes(), "dify.node_type", node.getNodeType());
+            putIfNotNull(segment.getAttributes(), "dify.node_index", node.getIndex());
+            putIfNotNull(segment.getAttributes(), "dify.status", node.getStatus());
+            putIfNotNull(segment.getAttributes(), "dify.total_tokens", node.getTotalTokens());
+            if (node.getServerElapsedNanos() >= 0) {
+                segment.getAttributes().put("dify.server_elapsed_ms", node.getServerElapsedNanos() / 1_000_000.0);
+            }
+            if (node.getFirstChunkOffsetNanos() >= 0) {
+                segment.getAttributes().put("dify.time_to_first_chunk_ms",
+                        (node.getFirstChunkOffsetNanos() - node.getStartOffsetNanos()) / 1_000_000.0);
+            }
+            segments.add(segment);
+        }
+        return segments;
+    }
+
+    /**
+     * 通过链路追踪器导出为 span
+     * 以当前线程的追踪上下文为父节点创建工作流 span，每个节点创建一个子 span，开始和结束时间取自时间线而不是导出时刻，
+     * 属性与 {@link #toSegments()} 相同。追踪器不支持指定时间的 span 时不导出。
+     * <pre>
+     * new ProfilingWorkflowStreamCallback(callback, timeline -&gt; timeline.export(tracer));
+     * </pre>
+     *
+     * @param tracer 链路追踪器
+     */
+    public void export(DifyTracer tracer) {
+        List<TimelineSegment> segments = toSegments();
+        Object parent = tracer.captureContext();
+        DifySpan[] spans = new DifySpan[segments.size()];
+        for (TimelineSegment segment : segments) {
+            DifySpan parentSpan = segment.getParentIndex() != null ? spans[segment.getParentIndex()] : null;
+            Object parentContext = parentSpan != null && parentSpan.context() != null ? parentSpan.context() : parent;
+            DifySpan span = tracer.startTimelineSpan(segment.getName(), parentContext, segment.getStartEpochNanos());
+            if (span == null) {
+                break;
+            }
+            segment.getAttributes().forEach((key, value) -> {
+                if (value instanceof Double || value instanceof Float) {
+                    span.setAttribute(key, ((Number) value).doubleValue());
+                } else if (value instanceof Number) {
+                    span.setAttribute(key, ((Number) value).longValue());
+                } else {
+                    span.setAttribute(key, String.valueOf(value));
+                }
+            });
+            if ("failed".equals(segment.getAttributes().get("dify.status")) || segment.getAttributes().containsKey("dify.error")) {
+                span.setError((String) segment.getAttributes().get("dify.error"));
+            }
+            spans[segment.getIndex()] = span;
+        }
+        // 子 span 先于父 span 结束
+        for (int i = segments.size() - 1; i >= 0; i--) {
+            if (spans[i] != null) {
+                spans[i].end(segments.get(i).getEndEpochNanos());
+            }
+        }
+    }
+
+    private long lastOffset() {
+        long last = Math.max(workflowStartedOffsetNanos, lastChunkOffsetNanos);
+        for (NodeTiming node : nodes) {
+            last = Math.max(last, Math.max(node.getStartOffsetNanos(), node.getEndOffsetNanos()));
+        }
+        return Math.max(last, 0);
+    }
+
+    private static void putIfNotNull(Map<String, Object> attributes, String key, Object value) {
+        if (value != null) {
+            attributes.put(key, value);
+        }
+    }
+
+    /**
+     * 单个节点的耗时
+     */
+    @Data
+    @NoArgsConstructor
+    public static class NodeTiming {
+
+        /**
+         * node 执行 ID
+         */
+        private String id;
+
+        /**
+         * 节点 ID
+         */
+        private String nodeId;
+
+        /**
+         * 节点类型
+         */
+        private String nodeType;
+
+        /**
+         * 节点名称
+         */
+        private String title;
+
+        /**
+         * 执行序号
+         */
+        private Integer index;
+
+        /**
+         * 执行状态
+         */
+        private String status;
+
+        /**
+         * 总使用 tokens
+         */
+        private Integer totalTokens;
+
+        /**
+         * 收到 node_started 事件的偏移量
+         */
+        private long startOffsetNanos = -1;
+
+        /**
+         * 收到 node_finished 事件的偏移量
+         */
+        private long endOffsetNanos = -1;
+
+        /**
+         * 服务端上报的节点耗时（纳秒）
+         */
+        private long serverElapsedNanos = -1;
+
+        /**
+         * 节点执行期间收到首个文本块的偏移量
+         */
+        private long firstChunkOffsetNanos = -1;
+
+        /**
+         * 节点执行期间收到的文本块数量
+         */
+        private int chunkCount;
+
+        /**
+         * 获取客户端观测到的节点耗时
+         *
+         * @return 纳秒，节点未完成时为 -1
+         */
+        public long getObservedNanos() {
+            return endOffsetNanos >= 0 && startOffsetNanos >= 0 ? endOffsetNanos - startOffsetNanos : -1;
+        }
+
+        /**
+         * 获取客户端观测耗时与服务端耗时之差
+         *
+         * @return 纳秒，任一项未知时为 -1
+         */
+        public long getOverheadNanos() {
+            long observed = getObservedNanos();
+            return observed >= 0 && serverElapsedNanos >= 0 ? observed - serverElapsedNanos : -1;
+        }
+    }
+
+    /**
+     * 时间线分段
+     */
+    @Data
+    @NoArgsConstructor
+    public static class TimelineSegment {
+
+        /**
+         * 分段名称
+         */
+        private String name;
+
+        /**
+         * 分段在列表中的位置
+         */
+        private int index;
+
+        /**
+         * 父分段的位置，工作流分段为 null
+         */
+        private Integer parentIndex;
+
+        /**
+         * 开始时间（纳秒级 Unix 时间戳）
+         */
+        private long startEpochNanos;
+
+        /**
+         * 结束时间（纳秒级 Unix 时间戳）
+         */
+        private long endEpochNanos;
+
+        /**
+         * 分段属性
+         */
+        private Map<String, Object> attributes = new LinkedHashMap<>();
+    }
+}
@@ -0,0 +1,200 @@
+package io.github.imfangs.dify.client.profiler;
+
+import io.github.imfangs.dify.client.event.NodeFinishedEvent;
+import io.github.imfangs.dify.client.event.NodeStartedEvent;
+import io.github.imfangs.dify.client.event.WorkflowFinishedEvent;
+import io.github.imfangs.dify.client.event.WorkflowStartedEvent;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * 工作流时间线记录器
+ * 在事件回调时记录接收时刻，构建单次执行的 {@link WorkflowTimeline}。
+ * 流式事件在同一线程上顺序回调，因此该类不做同步，每次请求需使用新的实例。
+ */
+@Slf4j
+public class WorkflowTimelineRecorder {
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private final Consumer<WorkflowTimeline> listener;
+    private final long startNanos;
+    private final WorkflowTimeline timeline = new WorkflowTimeline();
+    private final Map<String, WorkflowTimeline.NodeTiming> runningNodes = new HashMap<>();
+    private WorkflowTimeline.NodeTiming lastStartedNode;
+    private boolean completed;
+
+    /**
+     * 构造函数，以当前时刻作为请求发出时刻，应在发起流式请求前创建
+     *
+     * @param listener 时间线完成时的回调
+     */
+    public WorkflowTimelineRecorder(Consumer<WorkflowTimeline> listener) {
+        this.listener = listener;
+        this.startNanos = System.nanoTime();
+        this.timeline.setStartEpochMillis(System.currentTimeMillis());
+    }
+
+    /**
+     * 记录工作流开始
+     *
+     * @param event 事件数据
+     */
+    public void onWorkflowStarted(WorkflowStartedEvent event) {
+        timeline.setWorkflowStartedOffsetNanos(offset());
+        timeline.setWorkflowRunId(event.getWorkflowRunId());
+        timeline.setTaskId(event.getTaskId());
+    }
+
+    /**
+     * 记录节点开始
+     *
+     * @param event 事件数据
+     */
+    public void onNodeStarted(NodeStartedEvent event) {
+        long now = offset();
+        NodeStartedEvent.NodeStartedData data = event.getData();
+        if (data == null) {
+            return;
+        }
+        WorkflowTimeline.NodeTiming node = new WorkflowTimeline.NodeTiming();
+        node.setId(data.getId());
+        node.setNodeId(data.getNodeId());
+        node.setNodeType(data.getNodeType());
+        node.setTitle(data.getTitle());
+        node.setIndex(data.getIndex());
+        node.setStartOffsetNanos(now);
+        timeline.getNodes().add(node);
+        if (data.getId() != null) {
+            runningNodes.put(data.getId(), node);
+        }
+        lastStartedNode = node;
+    }
+
+    /**
+     * 记录节点完成
+     *
+     * @param event 事件数据
+     */
+    public void onNodeFinished(NodeFinishedEvent event) {
+        long now = offset();
+        NodeFinishedEvent.NodeFinishedData data = event.getData();
+        if (data == null) {
+            return;
+        }
+        WorkflowTimeline.NodeTiming node = data.getId() != null ? runningNodes.remove(data.getId()) : null;
+        if (node == null) {
+            // 未收到对应的开始事件，以完成时刻作为开始时刻
+            node = new WorkflowTimeline.NodeTiming();
+            node.setId(data.getId());
+            node.setNodeId(data.getNodeId());
+            node.setIndex(data.getIndex());
+            node.setStartOffsetNanos(now);
+            timeline.getNodes().add(node);
+        }
+        node.setEndOffsetNanos(now);
+        node.setStatus(data.getStatus());
+        node.setTotalTokens(data.getTotalTokens());
+        if (data.getElapsedTime() != null) {
+            node.setServerElapsedNanos(toNanos(data.getElapsedTime()));
+        }
+        if (node == lastStartedNode) {
+            lastStartedNode = null;
+        }
+    }
+
+    /**
+     * 记录文本块，归属到最近开始且尚未完成的节点
+     */
+    public void onTextChunk() {
+        long now = offset();
+        if (timeline.getFirstChunkOffsetNanos() < 0) {
+            timeline.setFirstChunkOffsetNanos(now);
+        }
+        timeline.setLastChunkOffsetNanos(now);
+        timeline.setChunkCount(timeline.getChunkCount() + 1);
+        if (lastStartedNode != null) {
+            if (lastStartedNode.getFirstChunkOffsetNanos() < 0) {
+                lastStartedNode.setFirstChunkOffsetNanos(now);
+            }
+            lastStartedNode.setChunkCount(lastStartedNode.getChunkCount() + 1);
+        }
+    }
+
+    /**
+     * 记录工作流完成，并回调时间线
+     *
+     * @param event 事件数据
+     */
+    public void onWorkflowFinished(WorkflowFinishedEvent event) {
+        timeline.setFinishedOffsetNanos(offset());
+        if (timeline.getWorkflowRunId() == null) {
+            timeline.setWorkflowRunId(event.getWorkflowRunId());
+        }
+        WorkflowFinishedEvent.WorkflowFinishedData data = event.getData();
+        if (data != null) {
+            timeline.setStatus(data.getStatus());
+            timeline.setError(data.getError());
+            if (data.getElapsedTime() != null) {
+                timeline.setServerElapsedNanos(toNanos(data.getElapsedTime()));
+            }
+        }
+        complete();
+    }
+
+    /**
+     * 记录流异常结束，回调不完整的时间线
+     *
+     * @param error 错误信息
+     */
+    public void onFailure(String error) {
+        if (completed) {
+            return;
+        }
+        timeline.setFinishedOffsetNanos(offset());
+        timeline.setError(error);
+        complete();
+    }
+
+    /**
+     * 记录流式响应结束，未收到 workflow_finished 时按失败回调不完整的时间线
+     */
+    public void onComplete() {
+        if (completed) {
+            return;
+        }
+        timeline.setStatus("failed");
+        onFailure("流式响应在 workflow_finished 之前结束");
+    }
+
+    /**
+     * 获取当前时间线，执行中调用时返回的是部分结果
+     *
+     * @return 时间线
+     */
+    public WorkflowTimeline getTimeline() {
+        return timeline;
+    }
+
+    private void complete() {
+        if (completed) {
+            return;
+        }
+        completed = true;
+        try {
+            listener.accept(timeline);
+        } catch (RuntimeException e) {
+            log.warn("工作流时间线回调异常", e);
+        }
+    }
+
+    private long offset() {
+        return System.nanoTime() - startNanos;
+    }
+
+    private static long toNanos(double seconds) {
+        return (long) (seconds * NANOS_PER_SECOND);
+    }
+}
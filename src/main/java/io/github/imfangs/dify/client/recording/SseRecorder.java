@@ -0,0 +1,190 @@
+package io.github.imfangs.dify.client.recording;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * SSE 流录制器
+ * 通过 DifyConfig.streamRecorder 启用，按行记录流式响应的原始内容及相对请求发出时刻的纳秒偏移。
+ * 读取线程只把记录放入有界队列，由后台线程编码并通过缓冲的 FileChannel 追加写入文件，
+ * 队列满时丢弃记录而不阻塞读取线程。文件格式见 {@link SseRecording}，可用 {@link SseReplayInterceptor} 回放。
+ */
+@Slf4j
+public class SseRecorder implements Closeable {
+    static final int MAGIC = 0x44535345;
+    static final byte VERSION = 1;
+    static final byte STREAM_START = 1;
+    static final byte FRAME = 2;
+    static final byte STREAM_END = 3;
+
+    private static final int QUEUE_CAPACITY = 65536;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final long IDLE_FLUSH_MILLIS = 200;
+
+    private final FileChannel channel;
+    private final BlockingQueue<Entry> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final AtomicInteger streamIds = new AtomicInteger();
+    private final AtomicLong dropped = new AtomicLong();
+    private final Thread writer;
+    private volatile boolean closed;
+    private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+    /**
+     * 构造函数，文件不存在时创建，已存在时追加
+     *
+     * @param file 录制文件
+     * @throws IOException 打开文件失败
+     */
+    public SseRecorder(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        if (channel.size() == 0) {
+            buffer.putInt(MAGIC).put(VERSION);
+        }
+        this.writer = new Thread(this::drain, "dify-sse-recorder");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * 开始记录一个流
+     *
+     * @param path 请求路径，如 /chat-messages
+     * @return 流 ID
+     */
+    public int startStream(String path) {
+        int id = streamIds.incrementAndGet();
+        enqueue(new Entry(STREAM_START, id, System.currentTimeMillis(), path));
+        return id;
+    }
+
+    /**
+     * 记录一行原始内容
+     *
+     * @param streamId    流 ID
+     * @param offsetNanos 相对请求发出时刻的纳秒偏移
+     * @param line        行内容，不含换行符
+     */
+    public void frame(int streamId, long offsetNanos, String line) {
+        enqueue(new Entry(FRAME, streamId, offsetNanos, line));
+    }
+
+    /**
+     * 结束记录一个流
+     *
+     * @param streamId    流 ID
+     * @param offsetNanos 相对请求发出时刻的纳秒偏移
+     */
+    public void endStream(int streamId, long offsetNanos) {
+        enqueue(new Entry(STREAM_END, streamId, offsetNanos, null));
+    }
+
+    /**
+     * 获取因队列已满而丢弃的记录数
+     *
+     * @return 丢弃数
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * 写完队列中的记录后关闭文件
+     *
+     * @throws IOException 写入失败
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+    }
+
+    private void enqueue(Entry entry) {
+        if (closed || !queue.offer(entry)) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    private void drain() {
+        try {
+            while (!closed || !queue.isEmpty()) {
+                Entry entry = queue.poll(IDLE_FLUSH_MILLIS, TimeUnit.MILLISECONDS);
+                if (entry == null) {
+                    flush();
+                    continue;
+                }
+                write(entry);
+            }
+            flush();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            log.error("写入 SSE 录制文件失败，停止录制", e);
+            closed = true;
+        }
+    }
+
+    private void write(Entry entry) throws IOException {
+        byte[] text = entry.text != null ? entry.text.getBytes(StandardCharsets.UTF_8) : null;
+        int size = 1 + 4 + 8 + (text != null ? 4 + text.length : 0);
+        if (buffer.remaining() < size) {
+            flush();
+            if (buffer.capacity() < size) {
+                buffer = ByteBuffer.allocate(size);
+            }
+        }
+        buffer.put(entry.type).putInt(entry.streamId).putLong(entry.value);
+        if (text != null) {
+            buffer.putInt(text.length).put(text);
+        }
+    }
+
+    private void flush() throws IOException {
+        if (buffer.position() == 0) {
+            return;
+        }
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        if (buffer.capacity() > BUFFER_SIZE) {
+            buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        } else {
+            buffer.clear();
+        }
+    }
+
+    /**
+     * 待写入的记录
+     * STREAM_START 的 value 为开始时间（毫秒），其余为纳秒偏移
+     */
+    private static final class Entry {
+        private final byte type;
+        private final int streamId;
+        private final long value;
+        private final String text;
+
+        Entry(byte type, int streamId, long value, String text) {
+            this.type = type;
+            this.streamId = streamId;
+            this.value = value;
+            this.text = text;
+        }
+    }
+}
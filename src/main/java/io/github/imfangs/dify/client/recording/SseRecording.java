@@ -0,0 +1,148 @@
+package io.github.imfangs.dify.client.recording;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * SSE 录制文件读取
+ * 文件以 4 字节魔数 DSSE 和 1 字节版本号开头，之后为连续的记录，每条记录为：
+ * 类型(1) + 流ID(4) + 时间(8)，帧记录和开始记录再跟 长度(4) + UTF-8 内容。
+ * 开始记录的时间为系统时间（毫秒），内容为请求路径；帧记录和结束记录的时间为相对请求发出时刻的纳秒偏移。
+ */
+public final class SseRecording {
+
+    private SseRecording() {
+    }
+
+    /**
+     * 读取录制文件，按流开始顺序返回；文件末尾不完整的记录会被忽略
+     *
+     * @param file 录制文件
+     * @return 录制的流
+     * @throws IOException 读取失败或文件格式不正确
+     */
+    public static List<RecordedStream> read(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            return read(in);
+        }
+    }
+
+    /**
+     * 读取录制内容
+     *
+     * @param input 输入流
+     * @return 录制的流
+     * @throws IOException 读取失败或格式不正确
+     */
+    public static List<RecordedStream> read(InputStream input) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(input));
+        if (in.readInt() != SseRecorder.MAGIC) {
+            throw new IOException("不是 SSE 录制文件");
+        }
+        byte version = in.readByte();
+        if (version != SseRecorder.VERSION) {
+            throw new IOException("不支持的录制文件版本: " + version);
+        }
+
+        List<RecordedStream> result = new ArrayList<>();
+        Map<Integer, RecordedStream> streams = new HashMap<>();
+        try {
+            while (true) {
+                int type = in.read();
+                if (type < 0) {
+                    break;
+                }
+                int id = in.readInt();
+                long value = in.readLong();
+                if (type == SseRecorder.STREAM_START) {
+                    // 追加写入时流 ID 会从 1 重新开始，以文件中的先后顺序区分
+                    RecordedStream stream = new RecordedStream(readText(in), value, new ArrayList<>(), -1);
+                    streams.put(id, stream);
+                    result.add(stream);
+                } else if (type == SseRecorder.FRAME) {
+                    String line = readText(in);
+                    RecordedStream stream = streams.get(id);
+                    if (stream != null) {
+                        stream.getFrames().add(new Frame(value, line));
+                    }
+                } else if (type == SseRecorder.STREAM_END) {
+                    RecordedStream stream = streams.get(id);
+                    if (stream != null) {
+                        stream.setEndOffsetNanos(value);
+                    }
+                } else {
+                    throw new IOException("未知的记录类型: " + type);
+                }
+            }
+        } catch (EOFException e) {
+            // 录制过程中进程退出，最后一条记录不完整
+        }
+        return result;
+    }
+
+    private static String readText(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 录制的单个流
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RecordedStream {
+        /**
+         * 请求路径
+         */
+        private String path;
+
+        /**
+         * 请求发出时的系统时间（毫秒）
+         */
+        private long startEpochMillis;
+
+        /**
+         * 按接收顺序排列的行
+         */
+        private List<Frame> frames;
+
+        /**
+         * 流结束的纳秒偏移，未正常结束时为 -1
+         */
+        private long endOffsetNanos;
+    }
+
+    /**
+     * 录制的一行
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Frame {
+        /**
+         * 相对请求发出时刻的纳秒偏移
+         */
+        private long offsetNanos;
+
+        /**
+         * 行内容，不含换行符
+         */
+        private String line;
+    }
+}
@@ -0,0 +1,157 @@
+package io.github.imfangs.dify.client.recording;
+
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.Okio;
+import okio.Source;
+import okio.Timeout;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Pattern;
+
+/**
+ * SSE 录制回放拦截器
+ * 对路径与录制一致的流式请求直接返回录制内容，按原始时间间隔（可加速）逐行输出，不访问服务端；
+ * 同一路径有多个录制时依次轮流使用，没有对应录制的请求正常发送。
+ * 流式请求指 Accept 为 text/event-stream 或请求体中 response_mode 为 streaming 的请求，同一路径的阻塞调用不会被回放。
+ * <pre>
+ * OkHttpClient httpClient = new OkHttpClient.Builder()
+ *         .addInterceptor(new SseReplayInterceptor(SseRecording.read(file), 10))
+ *         .build();
+ * DifyClient client = new DefaultDifyClient(baseUrl, apiKey, httpClient);
+ * </pre>
+ */
+public class SseReplayInterceptor implements Interceptor {
+    private static final MediaType EVENT_STREAM = MediaType.get("text/event-stream");
+    private static final Pattern STREAMING_MODE = Pattern.compile("\"response_mode\"\\s*:\\s*\"streaming\"");
+
+    private final Map<String, List<SseRecording.RecordedStream>> streamsByPath = new HashMap<>();
+    private final Map<String, AtomicInteger> cursors = new HashMap<>();
+    private final double speed;
+
+    /**
+     * 构造函数
+     *
+     * @param streams 录制的流
+     * @param speed   回放倍速，1 为原始速度，0 或无穷大表示不等待
+     */
+    public SseReplayInterceptor(List<SseRecording.RecordedStream> streams, double speed) {
+        for (SseRecording.RecordedStream stream : streams) {
+            streamsByPath.computeIfAbsent(stream.getPath(), k -> new ArrayList<>()).add(stream);
+            cursors.putIfAbsent(stream.getPath(), new AtomicInteger());
+        }
+        this.speed = speed;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        if (!isStreaming(request)) {
+            return chain.proceed(request);
+        }
+        String requestPath = request.url().encodedPath();
+        for (Map.Entry<String, List<SseRecording.RecordedStream>> entry : streamsByPath.entrySet()) {
+            if (requestPath.endsWith(entry.getKey())) {
+                List<SseRecording.RecordedStream> candidates = entry.getValue();
+                int index = Math.floorMod(cursors.get(entry.getKey()).getAndIncrement(), candidates.size());
+                return replay(request, candidates.get(index));
+            }
+        }
+        return chain.proceed(request);
+    }
+
+    private static boolean isStreaming(Request request) throws IOException {
+        String accept = request.header("Accept");
+        if (accept != null && accept.contains(EVENT_STREAM.toString())) {
+            return true;
+        }
+        RequestBody body = request.body();
+        if (body == null || body.isOneShot() || body.contentType() == null || !"json".equals(body.contentType().subtype())) {
+            return false;
+        }
+        Buffer buffer = new Buffer();
+        body.writeTo(buffer);
+        return STREAMING_MODE.matcher(buffer.readUtf8()).find();
+    }
+
+    private Response replay(Request request, SseRecording.RecordedStream stream) {
+        ResponseBody body = ResponseBody.create(Okio.buffer(new ReplaySource(stream.getFrames(), speed)), EVENT_STREAM, -1);
+        return new Response.Builder()
+                .request(request)
+                .protocol(Protocol.HTTP_1_1)
+                .code(200)
+                .message("OK")
+                .header("Content-Type", EVENT_STREAM.toString())
+                .body(body)
+                .build();
+    }
+
+    /**
+     * 按录制时间逐行输出的数据源，时间以创建时刻（即请求发出时刻）为起点
+     */
+    static final class ReplaySource implements Source {
+        private final List<SseRecording.Frame> frames;
+        private final double speed;
+        private final long startNanos = System.nanoTime();
+        private final Buffer pending = new Buffer();
+        private int next;
+
+        ReplaySource(List<SseRecording.Frame> frames, double speed) {
+            this.frames = frames;
+            this.speed = speed;
+        }
+
+        @Override
+        public long read(Buffer sink, long byteCount) throws IOException {
+            if (pending.size() == 0) {
+                if (next >= frames.size()) {
+                    return -1;
+                }
+                SseRecording.Frame frame = frames.get(next++);
+                awaitFrame(frame.getOffsetNanos());
+                pending.writeUtf8(frame.getLine()).writeByte('\n');
+            }
+            // 单行超过 byteCount 时其余部分留到下次读取
+            return pending.read(sink, Math.min(byteCount, pending.size()));
+        }
+
+        private void awaitFrame(long offsetNanos) throws InterruptedIOException {
+            if (speed <= 0 || Double.isInfinite(speed)) {
+                return;
+            }
+            long due = startNanos + (long) (offsetNanos / speed);
+            long remaining;
+            while ((remaining = due - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(100)));
+                if (Thread.interrupted()) {
+                    throw new InterruptedIOException("回放被中断");
+                }
+            }
+        }
+
+        @Override
+        public Timeout timeout() {
+            return Timeout.NONE;
+        }
+
+        @Override
+        public void close() {
+            next = frames.size();
+            pending.clear();
+        }
+    }
+}
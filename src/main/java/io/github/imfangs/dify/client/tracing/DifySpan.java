@@ -0,0 +1,93 @@
+package io.github.imfangs.dify.client.tracing;
+
+import java.util.function.BiConsumer;
+
+/**
+ * 客户端 span
+ * 由拦截器在请求发出前创建，在响应体关闭或请求失败时结束。
+ */
+public interface DifySpan {
+
+    /**
+     * 将追踪上下文写入请求头，如 W3C traceparent / tracestate
+     *
+     * @param headerSetter 请求头设置函数
+     */
+    void inject(BiConsumer<String, String> headerSetter);
+
+    /**
+     * 设置属性
+     *
+     * @param key   属性名
+     * @param value 属性值
+     */
+    default void setAttribute(String key, String value) {
+    }
+
+    /**
+     * 设置整数属性
+     *
+     * @param key   属性名
+     * @param value 属性值
+     */
+    default void setAttribute(String key, long value) {
+        setAttribute(key, String.valueOf(value));
+    }
+
+    /**
+     * 设置浮点数属性
+     *
+     * @param key   属性名
+     * @param value 属性值
+     */
+    default void setAttribute(String key, double value) {
+        setAttribute(key, String.valueOf(value));
+    }
+
+    /**
+     * 设置 HTTP 状态码
+     *
+     * @param statusCode HTTP 状态码
+     */
+    default void setStatusCode(int statusCode) {
+    }
+
+    /**
+     * 记录异常
+     *
+     * @param throwable 异常
+     */
+    default void recordException(Throwable throwable) {
+    }
+
+    /**
+     * 标记为失败
+     *
+     * @param description 失败原因，可为null
+     */
+    default void setError(String description) {
+    }
+
+    /**
+     * 获取包含该 span 的追踪上下文，作为子 span 的父节点
+     *
+     * @return 追踪上下文，不支持时为null
+     */
+    default Object context() {
+        return null;
+    }
+
+    /**
+     * 结束 span
+     */
+    void end();
+
+    /**
+     * 以指定的结束时间结束 span
+     *
+     * @param endEpochNanos 结束时间（纳秒级 Unix 时间戳）
+     */
+    default void end(long endEpochNanos) {
+        end();
+    }
+}
@@ -0,0 +1,52 @@
+package io.github.imfangs.dify.client.tracing;
+
+/**
+ * 链路追踪器
+ * 通过 DifyConfig.tracer 启用，每次调用（含流式调用，重试计为同一次调用）创建一个客户端 span，
+ * 可实现该接口对接任意追踪系统，或直接使用 {@link OpenTelemetryDifyTracer}。
+ */
+public interface DifyTracer {
+
+    /**
+     * 开始一个客户端 span
+     *
+     * @param method   请求方法
+     * @param endpoint 接口标识，如 /v1/workflows/run
+     * @return span
+     */
+    DifySpan startSpan(String method, String endpoint);
+
+    /**
+     * 捕获当前线程的追踪上下文
+     * 异步请求的拦截器在 Dispatcher 线程上执行，由发起请求的线程捕获上下文并随请求传递，作为 span 的父节点
+     *
+     * @return 追踪上下文，不支持时为null
+     */
+    default Object captureContext() {
+        return null;
+    }
+
+    /**
+     * 以指定的上下文为父节点开始一个客户端 span
+     *
+     * @param method   请求方法
+     * @param endpoint 接口标识
+     * @param parent   {@link #captureContext()} 返回的上下文，为null时以当前线程的上下文为父节点
+     * @return span
+     */
+    default DifySpan startSpan(String method, String endpoint, Object parent) {
+        return startSpan(method, endpoint);
+    }
+
+    /**
+     * 以指定的开始时间创建一个内部 span，用于导出已记录的时间线（如 {@code WorkflowTimeline#export}）
+     *
+     * @param name            span 名称
+     * @param parent          父节点，{@link #captureContext()} 或 {@link DifySpan#context()} 的返回值，为null时以当前线程的上下文为父节点
+     * @param startEpochNanos 开始时间（纳秒级 Unix 时间戳）
+     * @return span，不支持指定时间时为null
+     */
+    default DifySpan startTimelineSpan(String name, Object parent, long startEpochNanos) {
+        return null;
+    }
+}
@@ -0,0 +1,151 @@
+package io.github.imfangs.dify.client.tracing;
+
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.api.trace.propagation.W3CTraceContextPropagator;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.propagation.TextMapPropagator;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+/**
+ * 基于 OpenTelemetry API 的链路追踪器
+ * span 以发起请求的线程的上下文为父节点（异步请求在发起时捕获），默认使用 W3C Trace Context 格式注入 traceparent 请求头。
+ * 使用时需自行引入 io.opentelemetry:opentelemetry-api 依赖。
+ */
+public class OpenTelemetryDifyTracer implements DifyTracer {
+    private static final String INSTRUMENTATION_NAME = "io.github.imfangs.dify-java-client";
+
+    private final Tracer tracer;
+    private final TextMapPropagator propagator;
+
+    /**
+     * 构造函数，使用 W3C Trace Context 传播格式
+     *
+     * @param openTelemetry OpenTelemetry 实例
+     */
+    public OpenTelemetryDifyTracer(OpenTelemetry openTelemetry) {
+        this(openTelemetry.getTracer(INSTRUMENTATION_NAME), W3CTraceContextPropagator.getInstance());
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param tracer     Tracer
+     * @param propagator 请求头传播格式
+     */
+    public OpenTelemetryDifyTracer(Tracer tracer, TextMapPropagator propagator) {
+        this.tracer = tracer;
+        this.propagator = propagator;
+    }
+
+    @Override
+    public DifySpan startSpan(String method, String endpoint) {
+        return startSpan(method, endpoint, null);
+    }
+
+    @Override
+    public Object captureContext() {
+        return Context.current();
+    }
+
+    @Override
+    public DifySpan startSpan(String method, String endpoint, Object parent) {
+        Context parentContext = parent instanceof Context ? (Context) parent : Context.current();
+        Span span = tracer.spanBuilder(method + " " + endpoint)
+                .setParent(parentContext)
+                .setSpanKind(SpanKind.CLIENT)
+                .setAttribute("http.request.method", method)
+                .setAttribute("url.path", endpoint)
+                .startSpan();
+        return new OpenTelemetrySpan(span, parentContext, propagator);
+    }
+
+    @Override
+    public DifySpan startTimelineSpan(String name, Object parent, long startEpochNanos) {
+        Context parentContext = parent instanceof Context ? (Context) parent : Context.current();
+        Span span = tracer.spanBuilder(name)
+                .setParent(parentContext)
+                .setSpanKind(SpanKind.INTERNAL)
+                .setStartTimestamp(startEpochNanos, TimeUnit.NANOSECONDS)
+                .startSpan();
+        return new OpenTelemetrySpan(span, parentContext, propagator);
+    }
+
+    /**
+     * OpenTelemetry span 适配
+     */
+    private static final class OpenTelemetrySpan implements DifySpan {
+        private final Span span;
+        private final Context parentContext;
+        private final TextMapPropagator propagator;
+
+        OpenTelemetrySpan(Span span, Context parentContext, TextMapPropagator propagator) {
+            this.span = span;
+            this.parentContext = parentContext;
+            this.propagator = propagator;
+        }
+
+        @Override
+        public void inject(BiConsumer<String, String> headerSetter) {
+            propagator.inject(parentContext.with(span), headerSetter, BiConsumer::accept);
+        }
+
+        @Override
+        public void setAttribute(String key, String value) {
+            span.setAttribute(key, value);
+        }
+
+        @Override
+        public void setAttribute(String key, long value) {
+            span.setAttribute(key, value);
+        }
+
+        @Override
+        public void setAttribute(String key, double value) {
+            span.setAttribute(key, value);
+        }
+
+        @Override
+        public void setStatusCode(int statusCode) {
+            span.setAttribute("http.response.status_code", statusCode);
+            if (statusCode >= 400) {
+                span.setStatus(StatusCode.ERROR);
+            }
+        }
+
+        @Override
+        public void recordException(Throwable throwable) {
+            span.recordException(throwable);
+            span.setStatus(StatusCode.ERROR, throwable.getMessage());
+        }
+
+        @Override
+        public void setError(String description) {
+            if (description != null) {
+                span.setStatus(StatusCode.ERROR, description);
+            } else {
+                span.setStatus(StatusCode.ERROR);
+            }
+        }
+
+        @Override
+        public Object context() {
+            return parentContext.with(span);
+        }
+
+        @Override
+        public void end() {
+            span.end();
+        }
+
+        @Override
+        public void end(long endEpochNanos) {
+            span.end(endEpochNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+}
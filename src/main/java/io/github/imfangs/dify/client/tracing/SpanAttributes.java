@@ -0,0 +1,65 @@
+package io.github.imfangs.dify.client.tracing;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 请求附带的 span 属性
+ * 作为请求 tag 传给追踪拦截器，流式处理过程中从事件里得到的 Dify 标识写入这里，
+ * 在 span 结束时统一设置到 span 上。
+ */
+public final class SpanAttributes {
+
+    /**
+     * 任务 ID
+     */
+    public static final String TASK_ID = "dify.task_id";
+
+    /**
+     * 消息 ID
+     */
+    public static final String MESSAGE_ID = "dify.message_id";
+
+    /**
+     * 会话 ID
+     */
+    public static final String CONVERSATION_ID = "dify.conversation_id";
+
+    /**
+     * 工作流执行 ID
+     */
+    public static final String WORKFLOW_RUN_ID = "dify.workflow_run_id";
+
+    private final Map<String, String> attributes = new ConcurrentHashMap<>();
+
+    /**
+     * 设置属性，已存在或值为空时忽略
+     *
+     * @param key   属性名
+     * @param value 属性值
+     */
+    public void putIfAbsent(String key, String value) {
+        if (value != null && !value.isEmpty()) {
+            attributes.putIfAbsent(key, value);
+        }
+    }
+
+    /**
+     * 是否已包含属性
+     *
+     * @param key 属性名
+     * @return 是否包含
+     */
+    public boolean contains(String key) {
+        return attributes.containsKey(key);
+    }
+
+    /**
+     * 将属性写入 span
+     *
+     * @param span span
+     */
+    public void applyTo(DifySpan span) {
+        attributes.forEach(span::setAttribute);
+    }
+}
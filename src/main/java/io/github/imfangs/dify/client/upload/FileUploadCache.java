@@ -0,0 +1,231 @@
+package io.github.imfangs.dify.client.upload;
+
+import io.github.imfangs.dify.client.model.file.FileUploadResponse;
+import io.github.imfangs.dify.client.util.JsonUtils;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 文件上传去重缓存
+ * 以文件内容的 SHA-256、用户标识和扩展名为键缓存上传结果，相同内容再次上传时直接返回已有的文件 ID，不发送请求。
+ * 内存中最多保留 maxEntries 条记录，按最近使用淘汰；指定存储文件时同时追加写入磁盘，重启后可继续使用。
+ * 存储文件按应用区分，不要在不同应用的客户端之间共用。
+ * <pre>
+ * DifyConfig config = DifyConfig.builder()
+ *         .uploadCache(new FileUploadCache(FileUploadCache.DEFAULT_TTL, 10000, Paths.get("dify-uploads.cache")))
+ *         .build();
+ * </pre>
+ */
+@Slf4j
+public class FileUploadCache {
+    /**
+     * 默认有效期，服务端清理上传文件后缓存的 ID 不再可用，应按服务端的保留策略调整
+     */
+    public static final long DEFAULT_TTL = TimeUnit.DAYS.toMillis(1);
+
+    private final long ttl;
+    private final int maxEntries;
+    private final Path storeFile;
+    private final Map<String, Entry> entries;
+    private int storedLines;
+
+    /**
+     * 构造函数，只使用内存缓存
+     *
+     * @param ttl        有效期（毫秒）
+     * @param maxEntries 内存中最多保留的记录数
+     */
+    public FileUploadCache(long ttl, int maxEntries) {
+        this.ttl = ttl;
+        this.maxEntries = maxEntries;
+        this.storeFile = null;
+        this.entries = newEntries(maxEntries);
+    }
+
+    /**
+     * 构造函数，同时使用磁盘存储，加载时丢弃已过期的记录
+     *
+     * @param ttl        有效期（毫秒）
+     * @param maxEntries 内存中最多保留的记录数
+     * @param storeFile  存储文件，不存在时创建
+     * @throws IOException 读取存储文件失败
+     */
+    public FileUploadCache(long ttl, int maxEntries, Path storeFile) throws IOException {
+        this.ttl = ttl;
+        this.maxEntries = maxEntries;
+        this.storeFile = storeFile;
+        this.entries = newEntries(maxEntries);
+        load();
+    }
+
+    /**
+     * 生成缓存键
+     * Dify 按扩展名判断文件类型，因此内容相同但扩展名不同的文件分别缓存
+     *
+     * @param sha256   文件内容的 SHA-256（十六进制）
+     * @param user     用户标识
+     * @param fileName 文件名
+     * @return 缓存键
+     */
+    public static String key(String sha256, String user, String fileName) {
+        int dot = fileName != null ? fileName.lastIndexOf('.') : -1;
+        String extension = dot >= 0 ? fileName.substring(dot + 1).toLowerCase(Locale.ROOT) : "";
+        return sha256 + "|" + user + "|" + extension;
+    }
+
+    /**
+     * 获取未过期的上传结果
+     *
+     * @param key 缓存键
+     * @return 上传结果，不存在或已过期时为null
+     */
+    public synchronized FileUploadResponse get(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.getExpiresAt() <= System.currentTimeMillis()) {
+            entries.remove(key);
+            return null;
+        }
+        return entry.getResponse();
+    }
+
+    /**
+     * 记录上传结果
+     *
+     * @param key      缓存键
+     * @param response 上传结果
+     */
+    public synchronized void put(String key, FileUploadResponse response) {
+        Entry entry = new Entry(key, System.currentTimeMillis() + ttl, response);
+        entries.put(key, entry);
+        if (storeFile == null) {
+            return;
+        }
+        try (BufferedWriter writer = Files.newBufferedWriter(storeFile, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            writer.write(JsonUtils.toJson(entry));
+            writer.newLine();
+            storedLines++;
+        } catch (IOException e) {
+            // 写入失败只影响重启后的命中率
+            log.warn("写入上传缓存失败: {}", e.getMessage());
+        }
+        if (storedLines > maxEntries * 2) {
+            compact();
+        }
+    }
+
+    /**
+     * 获取内存中的记录数
+     *
+     * @return 记录数
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private void load() throws IOException {
+        if (!Files.exists(storeFile)) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        try (BufferedReader reader = Files.newBufferedReader(storeFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                storedLines++;
+                if (line.isEmpty()) {
+                    continue;
+                }
+                try {
+                    Entry entry = JsonUtils.getObjectMapper().readValue(line, Entry.class);
+                    if (entry.getExpiresAt() > now) {
+                        entries.remove(entry.getKey());
+                        entries.put(entry.getKey(), entry);
+                    }
+                } catch (IOException e) {
+                    log.warn("忽略无法解析的上传缓存记录: {}", e.getMessage());
+                }
+            }
+        }
+        if (storedLines > entries.size() * 2) {
+            compact();
+        }
+    }
+
+    /**
+     * 用内存中未过期的记录重写存储文件，去掉重复和过期的行
+     */
+    private void compact() {
+        long now = System.currentTimeMillis();
+        List<Entry> live = new ArrayList<>();
+        for (Entry entry : entries.values()) {
+            if (entry.getExpiresAt() > now) {
+                live.add(entry);
+            }
+        }
+        Path temp = storeFile.resolveSibling(storeFile.getFileName() + ".tmp");
+        try {
+            try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                for (Entry entry : live) {
+                    writer.write(JsonUtils.toJson(entry));
+                    writer.newLine();
+                }
+            }
+            Files.move(temp, storeFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            storedLines = live.size();
+        } catch (IOException e) {
+            log.warn("压缩上传缓存文件失败: {}", e.getMessage());
+        }
+    }
+
+    private static Map<String, Entry> newEntries(int maxEntries) {
+        return new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * 缓存记录
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Entry {
+        /**
+         * 缓存键
+         */
+        private String key;
+
+        /**
+         * 过期时间戳（毫秒）
+         */
+        private long expiresAt;
+
+        /**
+         * 上传结果
+         */
+        private FileUploadResponse response;
+    }
+}
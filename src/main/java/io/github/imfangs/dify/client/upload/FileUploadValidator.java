@@ -0,0 +1,170 @@
+package io.github.imfangs.dify.client.upload;
+
+import io.github.imfangs.dify.client.enums.FileType;
+import io.github.imfangs.dify.client.exception.DifyApiException;
+import io.github.imfangs.dify.client.model.chat.AppParametersResponse;
+import io.github.imfangs.dify.client.model.file.FileInfo;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 文件上传前校验
+ * 根据应用参数中的文件上传配置在本地检查文件类型、大小和数量，不符合时在发送任何数据前抛出异常。
+ * 异常的状态码和错误码与服务端拒绝时一致，调用方可以按同样的方式处理。
+ */
+public class FileUploadValidator {
+    private static final long MB = 1024L * 1024L;
+
+    /**
+     * 知识库支持的文档扩展名，比对话附件的文档类型多 htm、mdx、vtt、properties 等
+     */
+    private static final List<String> DATASET_DOCUMENT_EXTENSIONS = Collections.unmodifiableList(Arrays.asList(
+            "txt", "md", "markdown", "mdx", "pdf", "html", "htm", "xlsx", "xls", "doc", "docx", "csv",
+            "eml", "msg", "pptx", "ppt", "xml", "epub", "vtt", "properties"));
+
+    private final List<String> allowedFileTypes;
+    private final List<String> allowedFileExtensions;
+    private final Integer numberLimits;
+    private final Integer imageNumberLimits;
+    private final AppParametersResponse.FileUpload.FileUploadConfig limits;
+
+    /**
+     * 根据应用参数创建
+     *
+     * @param fileUpload 应用参数中的文件上传配置
+     */
+    public FileUploadValidator(AppParametersResponse.FileUpload fileUpload) {
+        this.allowedFileTypes = nonNull(fileUpload.getAllowedFileTypes());
+        this.allowedFileExtensions = nonNull(fileUpload.getAllowedFileExtensions());
+        this.numberLimits = fileUpload.getNumberLimits();
+        this.imageNumberLimits = fileUpload.getImage() != null && Boolean.TRUE.equals(fileUpload.getImage().getEnabled())
+                ? fileUpload.getImage().getNumberLimits() : null;
+        this.limits = fileUpload.getFileUploadConfig() != null
+                ? fileUpload.getFileUploadConfig() : new AppParametersResponse.FileUpload.FileUploadConfig();
+    }
+
+    /**
+     * 创建知识库文档校验，只允许知识库支持的文档扩展名
+     *
+     * @param fileSizeLimit 文件大小限制 (MB)
+     * @return 校验器
+     */
+    public static FileUploadValidator forDocuments(int fileSizeLimit) {
+        return new FileUploadValidator(AppParametersResponse.FileUpload.builder()
+                .allowedFileTypes(Collections.singletonList(FileType.CUSTOM.getValue()))
+                .allowedFileExtensions(DATASET_DOCUMENT_EXTENSIONS)
+                .fileUploadConfig(AppParametersResponse.FileUpload.FileUploadConfig.builder().fileSizeLimit(fileSizeLimit).build())
+                .build());
+    }
+
+    /**
+     * 校验单个文件的类型和大小
+     *
+     * @param fileName 文件名
+     * @param size     文件大小（字节），未知时传 -1
+     * @throws DifyApiException 文件类型不允许或超过大小限制
+     */
+    public void validateFile(String fileName, long size) throws DifyApiException {
+        FileType fileType = FileType.getByFileExtension(fileName);
+        if (!isAllowed(fileName, fileType)) {
+            throw new DifyApiException(415, "unsupported_file_type", "不允许上传的文件类型: " + fileName);
+        }
+        Integer limit = sizeLimit(fileType);
+        if (size >= 0 && limit != null && limit > 0 && size > limit * MB) {
+            throw new DifyApiException(413, "file_too_large", "文件大小超过限制 " + limit + "MB: " + fileName);
+        }
+    }
+
+    /**
+     * 获取文件的大小上限，用于大小未知的输入流边上传边校验
+     *
+     * @param fileName 文件名
+     * @return 大小上限（字节），没有限制时为 -1
+     */
+    public long maxFileSize(String fileName) {
+        Integer limit = sizeLimit(FileType.getByFileExtension(fileName));
+        return limit != null && limit > 0 ? limit * MB : -1;
+    }
+
+    /**
+     * 校验一次批量上传的文件数量
+     *
+     * @param count 文件数量
+     * @throws DifyApiException 超过批量上传数量限制
+     */
+    public void validateBatch(int count) throws DifyApiException {
+        Integer limit = limits.getBatchCountLimit();
+        if (limit != null && limit > 0 && count > limit) {
+            throw new DifyApiException(400, "too_many_files", "批量上传文件数量超过限制 " + limit + ": " + count);
+        }
+    }
+
+    /**
+     * 校验消息附带的文件数量
+     *
+     * @param files 消息附带的文件
+     * @throws DifyApiException 超过文件数量限制
+     */
+    public void validateMessageFiles(List<FileInfo> files) throws DifyApiException {
+        if (files == null || files.isEmpty()) {
+            return;
+        }
+        if (numberLimits != null && numberLimits > 0 && files.size() > numberLimits) {
+            throw new DifyApiException(400, "too_many_files", "消息附带文件数量超过限制 " + numberLimits + ": " + files.size());
+        }
+        if (imageNumberLimits != null && imageNumberLimits > 0) {
+            int images = 0;
+            for (FileInfo file : files) {
+                if (file.getType() == FileType.IMAGE) {
+                    images++;
+                }
+            }
+            if (images > imageNumberLimits) {
+                throw new DifyApiException(400, "too_many_files", "消息附带图片数量超过限制 " + imageNumberLimits + ": " + images);
+            }
+        }
+    }
+
+    private boolean isAllowed(String fileName, FileType fileType) {
+        if (allowedFileTypes.isEmpty() || (fileType != FileType.CUSTOM && allowedFileTypes.contains(fileType.getValue()))) {
+            return true;
+        }
+        // 自定义类型只允许 allowedFileExtensions 中列出的扩展名
+        if (!allowedFileTypes.contains(FileType.CUSTOM.getValue())) {
+            return false;
+        }
+        int dot = fileName.lastIndexOf('.');
+        if (dot < 0) {
+            return false;
+        }
+        String extension = fileName.substring(dot + 1).toLowerCase(Locale.ROOT);
+        for (String allowed : allowedFileExtensions) {
+            // Dify 返回的扩展名带点号，如 .pdf
+            String normalized = allowed.startsWith(".") ? allowed.substring(1) : allowed;
+            if (normalized.equalsIgnoreCase(extension)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Integer sizeLimit(FileType fileType) {
+        switch (fileType) {
+            case IMAGE:
+                return limits.getImageFileSizeLimit();
+            case VIDEO:
+                return limits.getVideoFileSizeLimit();
+            case AUDIO:
+                return limits.getAudioFileSizeLimit();
+            default:
+                return limits.getFileSizeLimit();
+        }
+    }
+
+    private static List<String> nonNull(List<String> values) {
+        return values != null ? values : Collections.emptyList();
+    }
+}
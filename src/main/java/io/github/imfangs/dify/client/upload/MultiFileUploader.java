@@ -0,0 +1,202 @@
+package io.github.imfangs.dify.client.upload;
+
+import io.github.imfangs.dify.client.DifyBaseClient;
+import io.github.imfangs.dify.client.enums.FileTransferMethod;
+import io.github.imfangs.dify.client.enums.FileType;
+import io.github.imfangs.dify.client.exception.DifyApiException;
+import io.github.imfangs.dify.client.impl.DifyBaseClientImpl;
+import io.github.imfangs.dify.client.model.chat.ChatMessage;
+import io.github.imfangs.dify.client.model.file.FileInfo;
+import io.github.imfangs.dify.client.model.file.FileUploadResponse;
+import io.github.imfangs.dify.client.model.workflow.WorkflowRunRequest;
+import io.github.imfangs.dify.client.util.DaemonThreadFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * 多文件并发上传
+ * 以有限并发上传多个文件，按扩展名推断文件类型，生成 LOCAL_FILE 方式的 {@link FileInfo} 并附加到请求中，
+ * 总耗时接近最慢的单个文件而不是所有文件之和。任一文件上传失败时取消其余上传并抛出该异常。
+ * <pre>
+ * MultiFileUploader uploader = new MultiFileUploader(client, 4);
+ * client.sendChatMessage(uploader.attach(message, Arrays.asList(image, pdf)));
+ * </pre>
+ */
+public class MultiFileUploader {
+    private static final ThreadFactory THREAD_FACTORY = new DaemonThreadFactory("dify-file-upload");
+
+    private final DifyBaseClient client;
+    private final int parallelism;
+
+    /**
+     * 构造函数
+     *
+     * @param client      客户端
+     * @param parallelism 最大并发上传数
+     */
+    public MultiFileUploader(DifyBaseClient client, int parallelism) {
+        this.client = client;
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * 上传文件并附加到对话消息，保留消息中已有的文件
+     * 客户端启用上传校验时先检查附加后的文件数量，超过限制时不上传任何文件。
+     *
+     * @param message 对话消息
+     * @param files   要上传的文件
+     * @return 对话消息
+     * @throws IOException      上传失败
+     * @throws DifyApiException 上传失败
+     */
+    public ChatMessage attach(ChatMessage message, List<File> files) throws IOException, DifyApiException {
+        validateMessageFiles(message.getFiles(), files);
+        message.setFiles(merge(message.getFiles(), upload(files, message.getUser())));
+        return message;
+    }
+
+    /**
+     * 上传文件并附加到工作流请求，保留请求中已有的文件
+     * 客户端启用上传校验时先检查附加后的文件数量，超过限制时不上传任何文件。
+     *
+     * @param request 工作流请求
+     * @param files   要上传的文件
+     * @return 工作流请求
+     * @throws IOException      上传失败
+     * @throws DifyApiException 上传失败
+     */
+    public WorkflowRunRequest attach(WorkflowRunRequest request, List<File> files) throws IOException, DifyApiException {
+        validateMessageFiles(request.getFiles(), files);
+        request.setFiles(merge(request.getFiles(), upload(files, request.getUser())));
+        return request;
+    }
+
+    /**
+     * 并发上传文件
+     * 客户端启用上传校验时先按批量上传数量限制检查，超过限制时不上传任何文件。
+     *
+     * @param files 要上传的文件
+     * @param user  用户标识
+     * @return 与输入顺序一致的文件信息
+     * @throws IOException      上传失败
+     * @throws DifyApiException 上传失败
+     */
+    public List<FileInfo> upload(List<File> files, String user) throws IOException, DifyApiException {
+        if (files == null || files.isEmpty()) {
+            return Collections.emptyList();
+        }
+        FileUploadValidator validator = validator();
+        if (validator != null) {
+            validator.validateBatch(files.size());
+        }
+        if (files.size() == 1) {
+            return Collections.singletonList(toFileInfo(files.get(0), client.uploadFile(files.get(0), user).getId()));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, files.size()), THREAD_FACTORY);
+        List<Future<FileUploadResponse>> futures = new ArrayList<>(files.size());
+        try {
+            CompletionService<FileUploadResponse> completion = new ExecutorCompletionService<>(executor);
+            Map<Future<FileUploadResponse>, Integer> indexes = new HashMap<>();
+            for (int i = 0; i < files.size(); i++) {
+                File file = files.get(i);
+                Future<FileUploadResponse> future = completion.submit(() -> client.uploadFile(file, user));
+                futures.add(future);
+                indexes.put(future, i);
+            }
+            // 按完成顺序等待，任一上传失败时立即返回，不等待排在前面的慢上传
+            FileInfo[] result = new FileInfo[files.size()];
+            for (int i = 0; i < files.size(); i++) {
+                Future<FileUploadResponse> done = take(completion);
+                int index = indexes.get(done);
+                result[index] = toFileInfo(files.get(index), await(done).getId());
+            }
+            return Arrays.asList(result);
+        } finally {
+            for (Future<FileUploadResponse> future : futures) {
+                future.cancel(true);
+            }
+            executor.shutdownNow();
+        }
+    }
+
+    private void validateMessageFiles(List<FileInfo> existing, List<File> files) throws IOException, DifyApiException {
+        if (files == null || files.isEmpty()) {
+            return;
+        }
+        FileUploadValidator validator = validator();
+        if (validator == null) {
+            return;
+        }
+        // 按扩展名推断的类型检查数量，与上传后附加的文件一致
+        List<FileInfo> planned = new ArrayList<>(files.size());
+        for (File file : files) {
+            planned.add(toFileInfo(file, null));
+        }
+        validator.validateMessageFiles(merge(existing, planned));
+    }
+
+    private FileUploadValidator validator() throws IOException, DifyApiException {
+        return client instanceof DifyBaseClientImpl ? ((DifyBaseClientImpl) client).fileUploadValidator() : null;
+    }
+
+    private static Future<FileUploadResponse> take(CompletionService<FileUploadResponse> completion) throws InterruptedIOException {
+        try {
+            return completion.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("文件上传被中断");
+        }
+    }
+
+    private static FileUploadResponse await(Future<FileUploadResponse> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("文件上传被中断");
+        } catch (ExecutionException e) {
+            // DifyApiException 是 IOException 的子类
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException("文件上传失败", cause);
+        }
+    }
+
+    private static FileInfo toFileInfo(File file, String uploadFileId) {
+        return FileInfo.builder()
+                .type(FileType.getByFileExtension(file.getName()))
+                .transferMethod(FileTransferMethod.LOCAL_FILE)
+                .uploadFileId(uploadFileId)
+                .build();
+    }
+
+    private static List<FileInfo> merge(List<FileInfo> existing, List<FileInfo> uploaded) {
+        if (existing == null || existing.isEmpty()) {
+            return new ArrayList<>(uploaded);
+        }
+        List<FileInfo> merged = new ArrayList<>(existing);
+        merged.addAll(uploaded);
+        return merged;
+    }
+}
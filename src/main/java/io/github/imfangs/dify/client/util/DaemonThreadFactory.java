@@ -0,0 +1,29 @@
+package io.github.imfangs.dify.client.util;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 守护线程工厂
+ * 按 "前缀-序号" 命名线程，后台任务的线程不会阻止 JVM 退出。
+ */
+public class DaemonThreadFactory implements ThreadFactory {
+    private final String prefix;
+    private final AtomicInteger ids = new AtomicInteger();
+
+    /**
+     * 构造函数
+     *
+     * @param prefix 线程名前缀，如 dify-file-upload
+     */
+    public DaemonThreadFactory(String prefix) {
+        this.prefix = prefix;
+    }
+
+    @Override
+    public Thread newThread(Runnable r) {
+        Thread thread = new Thread(r, prefix + "-" + ids.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    }
+}
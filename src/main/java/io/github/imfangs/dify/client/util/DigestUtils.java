@@ -0,0 +1,80 @@
+package io.github.imfangs.dify.client.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * 内容摘要工具类
+ */
+public class DigestUtils {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    /**
+     * 计算文件的 SHA-256，分块读取，不把整个文件读入内存
+     *
+     * @param file 文件
+     * @return 十六进制摘要
+     * @throws IOException 读取失败
+     */
+    public static String sha256(Path file) throws IOException {
+        try (InputStream input = Files.newInputStream(file)) {
+            return copyWithSha256(input, null);
+        }
+    }
+
+    /**
+     * 计算字符串 UTF-8 编码的 SHA-256
+     *
+     * @param text 字符串
+     * @return 十六进制摘要
+     */
+    public static String sha256(String text) {
+        return toHex(newSha256().digest(text.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * 将输入流复制到输出流，同时计算 SHA-256
+     *
+     * @param input  输入流
+     * @param output 输出流，为null时只计算摘要
+     * @return 十六进制摘要
+     * @throws IOException 读写失败
+     */
+    public static String copyWithSha256(InputStream input, OutputStream output) throws IOException {
+        MessageDigest digest = newSha256();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int read;
+        while ((read = input.read(buffer)) != -1) {
+            digest.update(buffer, 0, read);
+            if (output != null) {
+                output.write(buffer, 0, read);
+            }
+        }
+        return toHex(digest.digest());
+    }
+
+    private static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // 所有 Java 平台都必须支持 SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[i * 2] = HEX[(bytes[i] >> 4) & 0xf];
+            chars[i * 2 + 1] = HEX[bytes[i] & 0xf];
+        }
+        return new String(chars);
+    }
+}
@@ -0,0 +1,271 @@
+package io.github.imfangs.dify.client.util;
+
+import io.github.imfangs.dify.client.enums.FileType;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import okhttp3.MediaType;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 文件类型识别工具类
+ * 先按文件头的魔数识别常见格式，无法识别或属于容器格式（zip、OLE）时再按扩展名判断，
+ * 用于为上传选择 {@link FileType} 和 Content-Type。
+ */
+public class FileTypeDetector {
+    /**
+     * 识别所需读取的文件头长度
+     */
+    public static final int HEADER_SIZE = 16;
+
+    private static final MediaType OCTET_STREAM = MediaType.get("application/octet-stream");
+    private static final Map<String, MediaType> BY_EXTENSION = new HashMap<>();
+    private static final Map<String, MediaType> MEDIA_TYPES = new ConcurrentHashMap<>();
+    /**
+     * 按 MP4 处理的 ftyp 主品牌，HEIC、AVIF 等同样使用 ftyp 的图片格式不在其中
+     */
+    private static final Set<String> MP4_BRANDS = new HashSet<>(Arrays.asList(
+            "isom", "iso2", "iso4", "iso5", "iso6", "mp41", "mp42", "avc1", "dash", "mmp4", "MSNV", "M4V ", "M4VP", "f4v "));
+
+    static {
+        register("application/pdf", "pdf");
+        register("text/plain", "txt");
+        register("text/markdown", "md", "markdown");
+        register("text/html", "html", "htm");
+        register("text/csv", "csv");
+        register("application/xml", "xml");
+        register("message/rfc822", "eml");
+        register("application/vnd.ms-outlook", "msg");
+        register("application/epub+zip", "epub");
+        register("application/vnd.openxmlformats-officedocument.wordprocessingml.document", "docx");
+        register("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet", "xlsx");
+        register("application/vnd.openxmlformats-officedocument.presentationml.presentation", "pptx");
+        register("application/msword", "doc");
+        register("application/vnd.ms-excel", "xls");
+        register("application/vnd.ms-powerpoint", "ppt");
+        register("image/jpeg", "jpg", "jpeg");
+        register("image/png", "png");
+        register("image/gif", "gif");
+        register("image/webp", "webp");
+        register("image/svg+xml", "svg");
+        register("audio/mpeg", "mp3", "mpga");
+        register("audio/mp4", "m4a");
+        register("audio/wav", "wav");
+        register("audio/amr", "amr");
+        register("video/webm", "webm");
+        register("video/mp4", "mp4");
+        register("video/quicktime", "mov");
+        register("video/mpeg", "mpeg");
+    }
+
+    /**
+     * 识别文件类型，只读取文件头
+     *
+     * @param file 文件
+     * @return 识别结果
+     * @throws IOException 读取失败
+     */
+    public static Result detect(Path file) throws IOException {
+        byte[] header = new byte[HEADER_SIZE];
+        int length;
+        try (InputStream input = Files.newInputStream(file)) {
+            length = readFully(input, header);
+        }
+        return detect(header, length, file.getFileName().toString());
+    }
+
+    /**
+     * 识别文件类型，读取文件头后将输入流重置到原位置
+     * 输入流不支持 mark/reset 时只按文件名判断
+     *
+     * @param input    输入流
+     * @param fileName 文件名
+     * @return 识别结果
+     * @throws IOException 读取失败
+     */
+    public static Result detect(InputStream input, String fileName) throws IOException {
+        if (!input.markSupported()) {
+            return detect(new byte[0], 0, fileName);
+        }
+        byte[] header = new byte[HEADER_SIZE];
+        input.mark(HEADER_SIZE);
+        int length;
+        try {
+            length = readFully(input, header);
+        } finally {
+            input.reset();
+        }
+        return detect(header, length, fileName);
+    }
+
+    /**
+     * 根据文件头和文件名识别文件类型
+     *
+     * @param header   文件头
+     * @param length   文件头有效长度
+     * @param fileName 文件名，可为null
+     * @return 识别结果
+     */
+    public static Result detect(byte[] header, int length, String fileName) {
+        String extension = extension(fileName);
+        MediaType byExtension = BY_EXTENSION.get(extension);
+        MediaType sniffed = sniff(header, length, byExtension, fileName);
+        MediaType mediaType = sniffed != null ? sniffed : byExtension != null ? byExtension : OCTET_STREAM;
+        return new Result(fileType(mediaType, fileName), mediaType);
+    }
+
+    private static MediaType sniff(byte[] h, int n, MediaType byExtension, String fileName) {
+        if (startsWith(h, n, 0x89, 'P', 'N', 'G')) {
+            return media("image/png");
+        }
+        if (startsWith(h, n, 0xFF, 0xD8, 0xFF)) {
+            return media("image/jpeg");
+        }
+        if (startsWith(h, n, 'G', 'I', 'F', '8')) {
+            return media("image/gif");
+        }
+        if (startsWith(h, n, '%', 'P', 'D', 'F')) {
+            return media("application/pdf");
+        }
+        if (startsWith(h, n, 'R', 'I', 'F', 'F') && n >= 12) {
+            String format = new String(h, 8, 4, StandardCharsets.US_ASCII);
+            if ("WEBP".equals(format)) {
+                return media("image/webp");
+            }
+            if ("WAVE".equals(format)) {
+                return media("audio/wav");
+            }
+        }
+        if (n >= 12 && h[4] == 'f' && h[5] == 't' && h[6] == 'y' && h[7] == 'p') {
+            String brand = new String(h, 8, 4, StandardCharsets.US_ASCII);
+            if (brand.startsWith("M4A") || brand.startsWith("M4B")) {
+                return media("audio/mp4");
+            }
+            if ("qt  ".equals(brand)) {
+                return media("video/quicktime");
+            }
+            return MP4_BRANDS.contains(brand) ? media("video/mp4") : null;
+        }
+        if (startsWith(h, n, 'I', 'D', '3')) {
+            return media("audio/mpeg");
+        }
+        // 帧同步只有 11 位，文本等内容也可能匹配（如 UTF-16LE 的 BOM），不覆盖文档扩展名
+        if (isMpegAudioFrame(h, n) && FileType.getByFileExtension(fileName) != FileType.DOCUMENT) {
+            return media("audio/mpeg");
+        }
+        if (startsWith(h, n, '#', '!', 'A', 'M', 'R')) {
+            return media("audio/amr");
+        }
+        if (startsWith(h, n, 0x1A, 0x45, 0xDF, 0xA3)) {
+            return media("video/webm");
+        }
+        if (startsWith(h, n, 0x00, 0x00, 0x01, 0xBA) || startsWith(h, n, 0x00, 0x00, 0x01, 0xB3)) {
+            return media("video/mpeg");
+        }
+        // docx、xlsx、pptx、epub 都是 zip，doc、xls、ppt、msg 都是 OLE，具体格式只能按扩展名区分
+        if (startsWith(h, n, 'P', 'K', 0x03, 0x04)) {
+            return byExtension != null ? byExtension : media("application/zip");
+        }
+        if (startsWith(h, n, 0xD0, 0xCF, 0x11, 0xE0, 0xA1, 0xB1, 0x1A, 0xE1)) {
+            return byExtension != null ? byExtension : media("application/x-ole-storage");
+        }
+        return null;
+    }
+
+    /**
+     * 是否为 MPEG 音频帧头：帧同步后版本、层、码率和采样率都不是保留值
+     */
+    private static boolean isMpegAudioFrame(byte[] h, int n) {
+        if (n < 3 || (h[0] & 0xFF) != 0xFF || (h[1] & 0xE0) != 0xE0) {
+            return false;
+        }
+        int version = (h[1] >> 3) & 0x03;
+        int layer = (h[1] >> 1) & 0x03;
+        int bitrate = (h[2] >> 4) & 0x0F;
+        int sampleRate = (h[2] >> 2) & 0x03;
+        return version != 0x01 && layer != 0x00 && bitrate != 0x0F && sampleRate != 0x03;
+    }
+
+    private static FileType fileType(MediaType mediaType, String fileName) {
+        FileType byExtension = FileType.getByFileExtension(fileName);
+        switch (mediaType.type()) {
+            case "image":
+                return FileType.IMAGE;
+            case "audio":
+                return FileType.AUDIO;
+            case "video":
+                // WEBM 在 Dify 中归为音频
+                return byExtension == FileType.AUDIO ? FileType.AUDIO : FileType.VIDEO;
+            default:
+                return "pdf".equals(mediaType.subtype()) ? FileType.DOCUMENT : byExtension;
+        }
+    }
+
+    private static boolean startsWith(byte[] header, int length, int... signature) {
+        if (length < signature.length) {
+            return false;
+        }
+        for (int i = 0; i < signature.length; i++) {
+            if ((header[i] & 0xFF) != signature[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int readFully(InputStream input, byte[] buffer) throws IOException {
+        int total = 0;
+        int read;
+        while (total < buffer.length && (read = input.read(buffer, total, buffer.length - total)) != -1) {
+            total += read;
+        }
+        return total;
+    }
+
+    private static String extension(String fileName) {
+        if (fileName == null) {
+            return "";
+        }
+        int dot = fileName.lastIndexOf('.');
+        return dot >= 0 ? fileName.substring(dot + 1).toLowerCase(Locale.ROOT) : "";
+    }
+
+    private static void register(String mediaType, String... extensions) {
+        MediaType parsed = media(mediaType);
+        for (String extension : extensions) {
+            BY_EXTENSION.put(extension, parsed);
+        }
+    }
+
+    private static MediaType media(String mediaType) {
+        return MEDIA_TYPES.computeIfAbsent(mediaType, MediaType::get);
+    }
+
+    /**
+     * 识别结果
+     */
+    @Data
+    @AllArgsConstructor
+    public static class Result {
+        /**
+         * Dify 文件类型
+         */
+        private FileType fileType;
+
+        /**
+         * 上传使用的 Content-Type
+         */
+        private MediaType mediaType;
+    }
+}
@@ -1,5 +1,13 @@
 package io.github.imfangs.dify.client.util;
 
+import io.github.imfangs.dify.client.interceptor.CircuitBreakerInterceptor;
+import io.github.imfangs.dify.client.interceptor.ConcurrencyLimitInterceptor;
+import io.github.imfangs.dify.client.interceptor.MetricsInterceptor;
+import io.github.imfangs.dify.client.interceptor.RequestLogInterceptor;
+import io.github.imfangs.dify.client.interceptor.RetryInterceptor;
+import io.github.imfangs.dify.client.interceptor.TracingInterceptor;
+import io.github.imfangs.dify.client.model.DifyConfig;
+import okhttp3.Dispatcher;
 import okhttp3.MediaType;
 import okhttp3.OkHttpClient;
 
@@ -42,4 +50,81 @@ public class HttpClientUtils {
                 .writeTimeout(writeTimeout, TimeUnit.MILLISECONDS)
                 .build();
     }
+
+    /**
+     * 根据客户端配置创建OkHttpClient
+     *
+     * @param config 客户端配置
+     * @return OkHttpClient实例
+     */
+    public static OkHttpClient createClient(DifyConfig config) {
+        return createClient(config.getConnectTimeout(), config.getReadTimeout(), config.getWriteTimeout());
+    }
+
+    /**
+     * 按客户端配置为OkHttpClient安装拦截器
+     * 返回的客户端与原客户端共享连接池和线程池；默认沿用原 Dispatcher，
+     * 只有设置了 maxRequestsPerHost 或启用自适应并发限制且原限制不足时才改用新的 Dispatcher。
+     * 未启用任何功能时直接返回原客户端
+     *
+     * @param httpClient 原始HTTP客户端
+     * @param config     客户端配置
+     * @return 安装拦截器后的OkHttpClient
+     */
+    public static OkHttpClient applyConfig(OkHttpClient httpClient, DifyConfig config) {
+        // 拦截器按添加顺序由外到内执行：指标和请求日志记录调用方看到的结果，重试共用同一个 span，每次重试都重新经过熔断和并发限制
+        OkHttpClient.Builder builder = httpClient.newBuilder();
+        if (config.getMetricsRecorder() != null) {
+            builder.addInterceptor(new MetricsInterceptor(config.getMetricsRecorder()));
+        }
+        if (config.getRequestLogSampleRate() > 0) {
+            builder.addInterceptor(new RequestLogInterceptor(config.getRequestLogSampleRate()));
+        }
+        if (config.getTracer() != null) {
+            builder.addInterceptor(new TracingInterceptor(config.getTracer()));
+        }
+        if (config.getMaxRetries() > 0) {
+            builder.addInterceptor(new RetryInterceptor(config.getMaxRetries(), config.getRetryBaseDelay(),
+                    config.getRetryMaxDelay(), config.getRetryBudgetRatio()));
+        }
+        if (config.isCircuitBreakerEnabled()) {
+            builder.addInterceptor(new CircuitBreakerInterceptor(config.getCircuitBreakerFailureRateThreshold(),
+                    config.getCircuitBreakerSlowCallRateThreshold(), config.getCircuitBreakerSlowCallDuration(),
+                    config.getCircuitBreakerOpenDuration()));
+        }
+        if (config.isAdaptiveConcurrencyLimit()) {
+            builder.addInterceptor(new ConcurrencyLimitInterceptor(config.getInitialConcurrencyLimit(), config.getMaxConcurrencyLimit()));
+        }
+        Dispatcher dispatcher = sizeDispatcher(httpClient.dispatcher(), config);
+        if (dispatcher != httpClient.dispatcher()) {
+            builder.dispatcher(dispatcher);
+        } else if (builder.interceptors().size() == httpClient.interceptors().size()) {
+            return httpClient;
+        }
+        return builder.build();
+    }
+
+    /**
+     * 按配置提高 Dispatcher 的并发限制，未要求提高或原有限制已足够时返回原 Dispatcher
+     * Dify 的所有请求都发往同一主机，OkHttp 默认的每主机 5 个并发会让异步调用在 Dispatcher 中排队，
+     * 排队时间同样计入调用方的超时；启用自适应并发限制时由限流器决定并发上限，Dispatcher 至少放行其上限的 3 倍。
+     * 新 Dispatcher 与原 Dispatcher 共享线程池
+     *
+     * @param original 原 Dispatcher
+     * @param config   客户端配置
+     * @return Dispatcher
+     */
+    static Dispatcher sizeDispatcher(Dispatcher original, DifyConfig config) {
+        int perHost = config.getMaxRequestsPerHost();
+        if (config.isAdaptiveConcurrencyLimit()) {
+            perHost = Math.max(perHost, config.getMaxConcurrencyLimit() * 3);
+        }
+        if (perHost <= original.getMaxRequestsPerHost() && perHost <= original.getMaxRequests()) {
+            return original;
+        }
+        Dispatcher dispatcher = new Dispatcher(original.executorService());
+        dispatcher.setMaxRequests(Math.max(original.getMaxRequests(), perHost));
+        dispatcher.setMaxRequestsPerHost(Math.max(original.getMaxRequestsPerHost(), perHost));
+        return dispatcher;
+    }
 }
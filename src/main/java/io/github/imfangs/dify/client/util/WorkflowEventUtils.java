@@ -0,0 +1,65 @@
+package io.github.imfangs.dify.client.util;
+
+import io.github.imfangs.dify.client.event.WorkflowFinishedEvent;
+import io.github.imfangs.dify.client.model.workflow.WorkflowRunResponse;
+import io.github.imfangs.dify.client.model.workflow.WorkflowRunStatusResponse;
+
+/**
+ * 工作流事件转换工具类
+ * 把流式执行的 workflow_finished 事件转换为阻塞模式和状态查询接口的响应对象。
+ */
+public class WorkflowEventUtils {
+
+    /**
+     * 转换为阻塞模式的执行结果
+     *
+     * @param event 工作流结束事件
+     * @return 执行结果
+     */
+    public static WorkflowRunResponse toRunResponse(WorkflowFinishedEvent event) {
+        WorkflowFinishedEvent.WorkflowFinishedData data = event.getData();
+        WorkflowRunResponse.WorkflowRunData runData = data == null ? null : WorkflowRunResponse.WorkflowRunData.builder()
+                .id(data.getId())
+                .workflowId(data.getWorkflowId())
+                .status(data.getStatus())
+                .outputs(data.getOutputs())
+                .error(data.getError())
+                .elapsedTime(data.getElapsedTime())
+                .totalTokens(data.getTotalTokens())
+                .totalSteps(data.getTotalSteps())
+                .createdAt(data.getCreatedAt())
+                .finishedAt(data.getFinishedAt())
+                .build();
+        return WorkflowRunResponse.builder()
+                .workflowRunId(event.getWorkflowRunId())
+                .taskId(event.getTaskId())
+                .data(runData)
+                .build();
+    }
+
+    /**
+     * 转换为执行状态，与按 workflowRunId 查询的结果一致
+     *
+     * @param event 工作流结束事件
+     * @return 执行状态
+     */
+    public static WorkflowRunStatusResponse toRunStatus(WorkflowFinishedEvent event) {
+        WorkflowRunResponse response = toRunResponse(event);
+        WorkflowRunResponse.WorkflowRunData data = response.getData();
+        if (data == null) {
+            return WorkflowRunStatusResponse.builder().id(response.getWorkflowRunId()).build();
+        }
+        return WorkflowRunStatusResponse.builder()
+                .id(data.getId() != null ? data.getId() : response.getWorkflowRunId())
+                .workflowId(data.getWorkflowId())
+                .status(data.getStatus())
+                .outputs(data.getOutputs())
+                .error(data.getError())
+                .totalSteps(data.getTotalSteps())
+                .totalTokens(data.getTotalTokens())
+                .createdAt(data.getCreatedAt() != null ? String.valueOf(data.getCreatedAt()) : null)
+                .finishedAt(data.getFinishedAt() != null ? String.valueOf(data.getFinishedAt()) : null)
+                .elapsedTime(data.getElapsedTime())
+                .build();
+    }
+}
@@ -0,0 +1,387 @@
+package io.github.imfangs.dify.client.workflow;
+
+import io.github.imfangs.dify.client.DifyWorkflowClient;
+import io.github.imfangs.dify.client.callback.WorkflowStreamCallback;
+import io.github.imfangs.dify.client.enums.ResponseMode;
+import io.github.imfangs.dify.client.event.*;
+import io.github.imfangs.dify.client.exception.DifyApiException;
+import io.github.imfangs.dify.client.interceptor.RetryInterceptor;
+import io.github.imfangs.dify.client.model.workflow.WorkflowRunRequest;
+import io.github.imfangs.dify.client.model.workflow.WorkflowRunStatusResponse;
+import io.github.imfangs.dify.client.util.DaemonThreadFactory;
+import io.github.imfangs.dify.client.util.WorkflowEventUtils;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.Call;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 工作流执行跟踪
+ * 以流式模式执行工作流，从 workflow_started 事件中记录 workflow_run_id 和 task_id。
+ * 流式连接异常断开、在 workflow_finished 之前结束、返回错误事件或超过 streamIdleTimeout 没有收到任何事件（Dify 每 10 秒发送一次 ping）时，
+ * 关闭流式连接并改为轮询 {@link DifyWorkflowClient#getWorkflowRun}，直到工作流结束。无论结果来自流还是轮询，都只完成同一个 future。
+ * 收到 workflow_started 之前无法轮询，此时连接失败会直接以异常完成。
+ * 因此 OkHttp 的读取超时只需覆盖两次事件的间隔，不需要覆盖整个工作流的执行时间。
+ * 轮询间隔从 initialPollInterval 开始，工作流有进展（步骤数变化）时缩短一半，没有进展时加倍，最长为 maxPollInterval。
+ * 超过 timeout 时尝试停止任务并以 {@link TimeoutException} 异常完成。
+ * <pre>
+ * try (WorkflowRunTracker tracker = new WorkflowRunTracker(client)) {
+ *     WorkflowRunStatusResponse run = tracker.run(request, TimeUnit.HOURS.toMillis(1)).get();
+ * }
+ * </pre>
+ */
+@Slf4j
+public class WorkflowRunTracker implements Closeable {
+    private static final Set<String> TERMINAL_STATUSES = new HashSet<>(Arrays.asList("succeeded", "failed", "stopped", "partial-succeeded"));
+    private static final ThreadFactory THREAD_FACTORY = new DaemonThreadFactory("dify-workflow-tracker");
+
+    private final DifyWorkflowClient client;
+    private final long streamIdleTimeout;
+    private final long initialPollInterval;
+    private final long maxPollInterval;
+    private final ScheduledExecutorService scheduler;
+    private final Set<Run> active = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 构造函数，流空闲 30 秒后改为轮询，轮询间隔 1 到 15 秒，使用 2 个轮询线程
+     *
+     * @param client 工作流客户端
+     */
+    public WorkflowRunTracker(DifyWorkflowClient client) {
+        this(client, 30000, 1000, 15000, 2);
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param client              工作流客户端
+     * @param streamIdleTimeout   多久没有收到事件时改为轮询（毫秒）
+     * @param initialPollInterval 首次轮询间隔（毫秒）
+     * @param maxPollInterval     最长轮询间隔（毫秒）
+     * @param threads             轮询线程数
+     */
+    public WorkflowRunTracker(DifyWorkflowClient client, long streamIdleTimeout, long initialPollInterval, long maxPollInterval, int threads) {
+        this.client = client;
+        this.streamIdleTimeout = Math.max(1, streamIdleTimeout);
+        this.initialPollInterval = Math.max(1, initialPollInterval);
+        this.maxPollInterval = Math.max(this.initialPollInterval, maxPollInterval);
+        this.scheduler = Executors.newScheduledThreadPool(Math.max(1, threads), THREAD_FACTORY);
+    }
+
+    /**
+     * 执行工作流并跟踪结果
+     *
+     * @param request 工作流请求，响应模式会被设置为流式
+     * @param timeout 最长等待时间（毫秒）
+     * @return 工作流结束时完成的 future
+     */
+    public CompletableFuture<WorkflowRunStatusResponse> run(WorkflowRunRequest request, long timeout) {
+        return run(request, new WorkflowStreamCallback() {
+        }, timeout);
+    }
+
+    /**
+     * 执行工作流并跟踪结果，流式事件同时转发给 callback
+     * 改为轮询后不再转发之后到达的事件
+     *
+     * @param request  工作流请求，响应模式会被设置为流式
+     * @param callback 流式事件回调
+     * @param timeout  最长等待时间（毫秒）
+     * @return 工作流结束时完成的 future
+     */
+    public CompletableFuture<WorkflowRunStatusResponse> run(WorkflowRunRequest request, WorkflowStreamCallback callback, long timeout) {
+        Run run = new Run(request.getUser(), callback, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout), timeout);
+        request.setResponseMode(ResponseMode.STREAMING);
+        try {
+            client.runWorkflowStream(request, run);
+        } catch (IOException e) {
+            run.future.completeExceptionally(e);
+            return run.future;
+        }
+        run.watch(Math.min(streamIdleTimeout, timeout));
+        return run.future;
+    }
+
+    /**
+     * 停止所有跟踪，未结束的 future 以异常完成，不会停止服务端的任务
+     */
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+        for (Run run : active) {
+            run.future.completeExceptionally(new CancellationException("工作流执行跟踪已关闭"));
+        }
+    }
+
+    /**
+     * 单次执行的跟踪状态，同时作为流式回调
+     */
+    private final class Run implements WorkflowStreamCallback {
+        private final String user;
+        private final WorkflowStreamCallback delegate;
+        private final long deadline;
+        private final long timeout;
+        private final CompletableFuture<WorkflowRunStatusResponse> future = new CompletableFuture<>();
+        private final AtomicBoolean polling = new AtomicBoolean();
+        private final AtomicReference<ScheduledFuture<?>> scheduled = new AtomicReference<>();
+        private volatile Call call;
+        private volatile String workflowRunId;
+        private volatile String taskId;
+        private volatile long lastEventNanos = System.nanoTime();
+        private long pollInterval;
+        private Integer lastSteps;
+
+        Run(String user, WorkflowStreamCallback delegate, long deadline, long timeout) {
+            this.user = user;
+            this.delegate = delegate;
+            this.deadline = deadline;
+            this.timeout = timeout;
+            this.pollInterval = initialPollInterval;
+            active.add(this);
+            future.whenComplete((status, error) -> {
+                active.remove(this);
+                ScheduledFuture<?> pending = scheduled.get();
+                if (pending != null) {
+                    pending.cancel(false);
+                }
+                // 超时或关闭跟踪时流可能仍在读取，正常结束时流已读到 workflow_finished
+                if (error != null) {
+                    cancelStream();
+                }
+            });
+        }
+
+        @Override
+        public void onOpen(Call call) {
+            this.call = call;
+            // 连接建立前已改为轮询或已结束
+            if (polling.get() || future.isDone()) {
+                cancelStream();
+                return;
+            }
+            delegate.onOpen(call);
+        }
+
+        @Override
+        public void onWorkflowStarted(WorkflowStartedEvent event) {
+            workflowRunId = event.getWorkflowRunId() != null ? event.getWorkflowRunId()
+                    : event.getData() != null ? event.getData().getId() : null;
+            taskId = event.getTaskId();
+            if (streaming()) {
+                delegate.onWorkflowStarted(event);
+            }
+        }
+
+        @Override
+        public void onNodeStarted(NodeStartedEvent event) {
+            if (streaming()) {
+                delegate.onNodeStarted(event);
+            }
+        }
+
+        @Override
+        public void onNodeFinished(NodeFinishedEvent event) {
+            if (streaming()) {
+                delegate.onNodeFinished(event);
+            }
+        }
+
+        @Override
+        public void onWorkflowTextChunk(WorkflowTextChunkEvent event) {
+            if (streaming()) {
+                delegate.onWorkflowTextChunk(event);
+            }
+        }
+
+        @Override
+        public void onTtsMessage(TtsMessageEvent event) {
+            if (streaming()) {
+                delegate.onTtsMessage(event);
+            }
+        }
+
+        @Override
+        public void onTtsMessageEnd(TtsMessageEndEvent event) {
+            if (streaming()) {
+                delegate.onTtsMessageEnd(event);
+            }
+        }
+
+        @Override
+        public void onPing(PingEvent event) {
+            if (streaming()) {
+                delegate.onPing(event);
+            }
+        }
+
+        @Override
+        public void onWorkflowFinished(WorkflowFinishedEvent event) {
+            if (streaming()) {
+                delegate.onWorkflowFinished(event);
+            }
+            future.complete(WorkflowEventUtils.toRunStatus(event));
+        }
+
+        @Override
+        public void onError(ErrorEvent event) {
+            if (streaming()) {
+                delegate.onError(event);
+            }
+            fallback(DifyApiException.fromErrorEvent(event));
+        }
+
+        @Override
+        public void onException(Throwable throwable) {
+            if (streaming()) {
+                delegate.onException(throwable);
+            }
+            fallback(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            if (streaming()) {
+                delegate.onComplete();
+            }
+            fallback(new IOException("流式响应在 workflow_finished 之前结束"));
+        }
+
+        /**
+         * 记录事件时刻，返回是否仍处于流式模式
+         */
+        private boolean streaming() {
+            lastEventNanos = System.nanoTime();
+            return !polling.get();
+        }
+
+        /**
+         * 流式模式下定期检查是否空闲或超时
+         */
+        void watch(long delay) {
+            schedule(() -> {
+                if (future.isDone() || polling.get()) {
+                    return;
+                }
+                long now = System.nanoTime();
+                if (now - deadline >= 0) {
+                    timeout();
+                    return;
+                }
+                long idle = TimeUnit.NANOSECONDS.toMillis(now - lastEventNanos);
+                if (idle >= streamIdleTimeout && workflowRunId != null) {
+                    fallback(new IOException("流式响应 " + idle + "ms 没有收到事件"));
+                } else {
+                    // 还没有收到 workflow_started 时无法轮询，只能等待连接本身超时
+                    watch(Math.min(idle >= streamIdleTimeout ? streamIdleTimeout : streamIdleTimeout - idle, remaining()));
+                }
+            }, delay);
+        }
+
+        /**
+         * 改为轮询，还没有拿到 workflow_run_id 时无法轮询，以原因异常完成
+         */
+        void fallback(Throwable cause) {
+            if (future.isDone() || !polling.compareAndSet(false, true)) {
+                return;
+            }
+            if (workflowRunId == null) {
+                future.completeExceptionally(cause);
+                return;
+            }
+            log.debug("工作流流式响应中断，改为轮询: workflowRunId={}, cause={}", workflowRunId, cause.toString());
+            cancelStream();
+            schedule(this::poll, 0);
+        }
+
+        /**
+         * 关闭流式连接，不再占用连接和 Dispatcher 的并发数
+         */
+        private void cancelStream() {
+            Call current = call;
+            if (current != null) {
+                current.cancel();
+            }
+        }
+
+        private void poll() {
+            if (future.isDone()) {
+                return;
+            }
+            try {
+                WorkflowRunStatusResponse status = client.getWorkflowRun(workflowRunId);
+                if (status != null && TERMINAL_STATUSES.contains(status.getStatus())) {
+                    future.complete(status);
+                    return;
+                }
+                Integer steps = status != null ? status.getTotalSteps() : null;
+                pollInterval = !Objects.equals(steps, lastSteps)
+                        ? Math.max(initialPollInterval, pollInterval / 2)
+                        : Math.min(maxPollInterval, pollInterval * 2);
+                lastSteps = steps;
+            } catch (DifyApiException e) {
+                if (!RetryInterceptor.isTransientStatus(e.getStatusCode())) {
+                    future.completeExceptionally(e);
+                    return;
+                }
+                log.debug("查询工作流执行状态失败，稍后重试: workflowRunId={}, error={}", workflowRunId, e.getMessage());
+                pollInterval = Math.min(maxPollInterval, pollInterval * 2);
+            } catch (IOException e) {
+                log.debug("查询工作流执行状态失败，稍后重试: workflowRunId={}, error={}", workflowRunId, e.getMessage());
+                pollInterval = Math.min(maxPollInterval, pollInterval * 2);
+            } catch (RuntimeException e) {
+                future.completeExceptionally(e);
+                return;
+            }
+            long remaining = remaining();
+            if (remaining <= 0) {
+                timeout();
+            } else {
+                schedule(this::poll, Math.min(pollInterval, remaining));
+            }
+        }
+
+        private void timeout() {
+            if (taskId != null) {
+                try {
+                    client.stopWorkflow(taskId, user);
+                } catch (Exception e) {
+                    log.debug("停止超时的工作流失败: taskId={}, error={}", taskId, e.toString());
+                }
+            }
+            future.completeExceptionally(new TimeoutException("工作流执行超时: workflowRunId=" + workflowRunId + ", timeout=" + timeout + "ms"));
+        }
+
+        private long remaining() {
+            return TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+        }
+
+        private void schedule(Runnable task, long delay) {
+            try {
+                ScheduledFuture<?> next = scheduler.schedule(task, Math.max(0, delay), TimeUnit.MILLISECONDS);
+                scheduled.set(next);
+                if (future.isDone()) {
+                    next.cancel(false);
+                }
+            } catch (RejectedExecutionException e) {
+                future.completeExceptionally(new IllegalStateException("工作流执行跟踪已关闭"));
+            }
+        }
+    }
+}
@@ -10,6 +10,7 @@ import org.junit.jupiter.api.Test;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Arrays;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
@@ -326,6 +327,37 @@ public class DifyDatasetsClientTest {
         });
     }
 
+    /**
+     * 测试并发检索多个知识库
+     */
+    @Test
+    public void testRetrieveAcross() throws IOException, DifyApiException {
+        // 跳过测试如果没有测试知识库
+        if (testDatasetId == null) {
+            System.out.println("跳过测试，因为没有测试知识库");
+            return;
+        }
+
+        RetrievalModel retrievalModel = new RetrievalModel();
+        retrievalModel.setSearchMethod("hybrid_search");
+        retrievalModel.setRerankingEnable(false);
+        retrievalModel.setTopK(2);
+        retrievalModel.setScoreThresholdEnabled(false);
+
+        RetrieveRequest request = RetrieveRequest.builder()
+                .query("什么是人工智能")
+                .retrievalModel(retrievalModel)
+                .build();
+
+        // 同一知识库检索两次，结果应被去重
+        RetrieveResponse response = datasetsClient.retrieveAcross(Arrays.asList(testDatasetId, testDatasetId), request);
+
+        // 验证响应
+        assertNotNull(response);
+        assertNotNull(response.getRecords());
+        System.out.println("合并后检索结果数量: " + response.getRecords().size());
+    }
+
     /**
      * 测试自定义配置
      */
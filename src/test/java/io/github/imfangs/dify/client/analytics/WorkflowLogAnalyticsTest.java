@@ -0,0 +1,105 @@
+package io.github.imfangs.dify.client.analytics;
+
+import io.github.imfangs.dify.client.config.FakeDifyServer;
+import io.github.imfangs.dify.client.impl.DefaultDifyClient;
+import io.github.imfangs.dify.client.model.workflow.WorkflowLogsResponse;
+import io.github.imfangs.dify.client.util.JsonUtils;
+import okhttp3.HttpUrl;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WorkflowLogAnalyticsTest {
+    private static final int TOTAL = 1000;
+
+    @Test
+    void histogramPercentilesWithinOnePercent() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long v = 1; v <= 100000; v++) {
+            histogram.record(v);
+        }
+        assertEquals(100000, histogram.getTotalCount());
+        assertEquals(1, histogram.getMin());
+        assertEquals(100000, histogram.getMax());
+        assertEquals(50000.5, histogram.getMean(), 0.001);
+        assertEquals(50000, histogram.getValueAtPercentile(0.5), 500);
+        assertEquals(99000, histogram.getValueAtPercentile(0.99), 990);
+        assertEquals(100000, histogram.getValueAtPercentile(1.0));
+        assertEquals(0, new LatencyHistogram().getValueAtPercentile(0.5));
+    }
+
+    @Test
+    void aggregatesAllPagesByStatusAndEndUser() throws Exception {
+        AtomicInteger pages = new AtomicInteger();
+        WorkflowLogAnalytics analytics = new WorkflowLogAnalytics(3);
+        assertEquals(TOTAL, analytics.scan(client(pages), null, null, 100));
+        assertEquals(10, pages.get());
+
+        WorkflowLogReport report = analytics.report();
+        WorkflowLogSummary overall = report.getOverall();
+        assertEquals(TOTAL, overall.getCount());
+        assertEquals(100, overall.getFailed());
+        assertEquals(0.1, overall.getErrorRate(), 1e-9);
+        assertEquals(TOTAL * 10, overall.getTotalTokens());
+        assertEquals(500, overall.getLatencyP50(), 5);
+        assertEquals(990, overall.getLatencyP99(), 10);
+        assertEquals(1000, overall.getLatencyMax());
+
+        assertEquals(900, report.getByStatus().get("succeeded").getCount());
+        assertEquals(1.0, report.getByStatus().get("failed").getErrorRate(), 1e-9);
+        // user-0、user-1、user-2 单独统计，其余用户归入 _other
+        assertEquals(4, report.getByEndUser().size());
+        assertEquals(250, report.getByEndUser().get("user-0").getCount());
+        assertEquals(250, report.getByEndUser().get(WorkflowLogAnalytics.OTHER_END_USERS).getCount());
+
+        Map<?, ?> json = JsonUtils.getObjectMapper().readValue(report.toJson(), Map.class);
+        assertEquals(TOTAL, ((Map<?, ?>) json.get("overall")).get("count"));
+
+        String prometheus = report.toPrometheus();
+        assertTrue(prometheus.contains("# TYPE dify_workflow_runs_total counter\n"));
+        assertTrue(prometheus.contains("dify_workflow_runs_total{status=\"failed\"} 100\n"));
+        assertTrue(prometheus.contains("dify_workflow_run_duration_seconds_count{status=\"succeeded\"} 900\n"));
+        assertTrue(prometheus.contains("dify_workflow_end_user_failed_total{end_user=\"user-1\"} 50\n"));
+        assertTrue(prometheus.contains("dify_workflow_end_user_duration_seconds{end_user=\"_other\",quantile=\"0.99\"} "));
+    }
+
+    @Test
+    void durationCountExcludesRunsWithoutElapsedTime() {
+        WorkflowLogAnalytics analytics = new WorkflowLogAnalytics(10);
+        analytics.add(JsonUtils.fromJson("{\"workflow_run\":{\"status\":\"succeeded\",\"elapsed_time\":1.5}}", WorkflowLogsResponse.WorkflowLogItem.class));
+        analytics.add(JsonUtils.fromJson("{\"workflow_run\":{\"status\":\"succeeded\"}}", WorkflowLogsResponse.WorkflowLogItem.class));
+
+        WorkflowLogReport report = analytics.report();
+        assertEquals(2, report.getOverall().getCount());
+        assertEquals(1, report.getOverall().getLatencyCount());
+        String prometheus = report.toPrometheus();
+        assertTrue(prometheus.contains("dify_workflow_runs_total{status=\"succeeded\"} 2\n"));
+        assertTrue(prometheus.contains("dify_workflow_run_duration_seconds_sum{status=\"succeeded\"} 1.5"));
+        assertTrue(prometheus.contains("dify_workflow_run_duration_seconds_count{status=\"succeeded\"} 1\n"));
+    }
+
+    /**
+     * 模拟服务端，第 i 条记录耗时 (i+1)/1000 秒，每 10 条中有 1 条失败，终端用户按 i%4 分配
+     */
+    private static DefaultDifyClient client(AtomicInteger pages) {
+        return new FakeDifyServer().on("GET", "/workflows/logs", chain -> {
+            pages.incrementAndGet();
+            HttpUrl url = chain.request().url();
+            int page = Integer.parseInt(url.queryParameter("page"));
+            int limit = Integer.parseInt(url.queryParameter("limit"));
+            List<String> items = new ArrayList<>();
+            for (int i = (page - 1) * limit; i < Math.min(TOTAL, page * limit); i++) {
+                items.add(String.format("{\"id\":\"log-%d\",\"workflow_run\":{\"id\":\"run-%d\",\"status\":\"%s\",\"elapsed_time\":%.3f,"
+                                + "\"total_tokens\":10,\"total_steps\":3},\"created_by_end_user\":{\"id\":\"eu-%d\",\"session_id\":\"user-%d\"}}",
+                        i, i, i % 10 == 9 ? "failed" : "succeeded", (i + 1) / 1000.0, i % 4, i % 4));
+            }
+            return FakeDifyServer.json("{\"page\":" + page + ",\"limit\":" + limit + ",\"total\":" + TOTAL + ",\"has_more\":" + (page * limit < TOTAL)
+                    + ",\"data\":[" + String.join(",", items) + "]}");
+        }).client();
+    }
+}
@@ -0,0 +1,123 @@
+package io.github.imfangs.dify.client.annotation;
+
+import io.github.imfangs.dify.client.config.FakeDifyServer;
+import io.github.imfangs.dify.client.exception.DifyApiException;
+import io.github.imfangs.dify.client.impl.DefaultDifyClient;
+import io.github.imfangs.dify.client.model.chat.AnnotationReply;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AnnotationReplyTrackerTest {
+    @Test
+    void tracksManyJobsOnSharedThreads() throws Exception {
+        Map<String, AtomicInteger> polls = new ConcurrentHashMap<>();
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        try (AnnotationReplyTracker tracker = new AnnotationReplyTracker(client(polls, threads), 5, 40, 2)) {
+            List<CompletableFuture<AnnotationReply>> futures = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                futures.add(tracker.track("enable", "job-" + (i % 5), 5000));
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(10, TimeUnit.SECONDS);
+            for (CompletableFuture<AnnotationReply> future : futures) {
+                assertEquals("completed", future.get().getJobStatus());
+            }
+            assertTrue(threads.size() <= 2, "threads " + threads);
+        }
+    }
+
+    @Test
+    void submitsAndBacksOff() throws Exception {
+        Map<String, AtomicInteger> polls = new ConcurrentHashMap<>();
+        try (AnnotationReplyTracker tracker = new AnnotationReplyTracker(client(polls), 10, 1000, 1)) {
+            long start = System.nanoTime();
+            AnnotationReply reply = tracker.submit("enable", "openai", "text-embedding-3-small", 1, 5000).get(5, TimeUnit.SECONDS);
+            long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            assertEquals("job-4", reply.getJobId());
+            assertEquals("completed", reply.getJobStatus());
+            // 4 次等待后完成：10 + 20 + 40 + 80 毫秒
+            assertEquals(5, polls.get("job-4").get());
+            assertTrue(elapsed >= 150, "elapsed " + elapsed);
+        }
+    }
+
+    @Test
+    void failsOnErrorStatusAndTimeout() throws Exception {
+        Map<String, AtomicInteger> polls = new ConcurrentHashMap<>();
+        try (AnnotationReplyTracker tracker = new AnnotationReplyTracker(client(polls), 5, 20, 1)) {
+            ExecutionException error = assertThrows(ExecutionException.class, () -> tracker.track("enable", "job-error", 5000).get(5, TimeUnit.SECONDS));
+            assertTrue(error.getCause() instanceof DifyApiException);
+            assertEquals("embedding model not found", ((DifyApiException) error.getCause()).getErrorMessage());
+
+            ExecutionException timeout = assertThrows(ExecutionException.class, () -> tracker.track("enable", "job-stuck", 100).get(5, TimeUnit.SECONDS));
+            assertTrue(timeout.getCause() instanceof TimeoutException);
+
+            ExecutionException notFound = assertThrows(ExecutionException.class, () -> tracker.track("enable", "job-missing", 5000).get(5, TimeUnit.SECONDS));
+            assertEquals(404, ((DifyApiException) notFound.getCause()).getStatusCode());
+            assertEquals(1, polls.get("job-missing").get());
+        }
+    }
+
+    @Test
+    void cancellationStopsPolling() throws Exception {
+        Map<String, AtomicInteger> polls = new ConcurrentHashMap<>();
+        AnnotationReplyTracker tracker = new AnnotationReplyTracker(client(polls), 5, 5, 1);
+        CompletableFuture<AnnotationReply> future = tracker.track("enable", "job-stuck", 60000);
+        Thread.sleep(50);
+        future.cancel(true);
+        Thread.sleep(20);
+        int count = polls.get("job-stuck").get();
+        Thread.sleep(100);
+        assertEquals(count, polls.get("job-stuck").get());
+
+        CompletableFuture<AnnotationReply> pending = tracker.track("enable", "job-stuck", 60000);
+        tracker.close();
+        assertTrue(pending.isCompletedExceptionally());
+    }
+
+    /**
+     * 模拟服务端，job-N 在前 N 次查询时为 waiting，job-error 失败，job-stuck 一直处理中
+     */
+    private static DefaultDifyClient client(Map<String, AtomicInteger> polls) {
+        return client(polls, ConcurrentHashMap.newKeySet());
+    }
+
+    private static DefaultDifyClient client(Map<String, AtomicInteger> polls, Set<String> threads) {
+        return new FakeDifyServer()
+                .on("POST", "/apps/annotations-reply/*", chain -> {
+                    threads.add(Thread.currentThread().getName());
+                    return FakeDifyServer.json("{\"job_id\":\"job-4\",\"job_status\":\"waiting\"}");
+                })
+                .on("GET", "/apps/annotations-reply/*/status/*", chain -> {
+                    threads.add(Thread.currentThread().getName());
+                    List<String> path = chain.request().url().pathSegments();
+                    String jobId = path.get(path.size() - 1);
+                    int count = polls.computeIfAbsent(jobId, k -> new AtomicInteger()).incrementAndGet();
+                    switch (jobId) {
+                        case "job-error":
+                            return FakeDifyServer.json("{\"job_id\":\"job-error\",\"job_status\":\"error\",\"error_msg\":\"embedding model not found\"}");
+                        case "job-stuck":
+                            return FakeDifyServer.json("{\"job_id\":\"job-stuck\",\"job_status\":\"processing\"}");
+                        case "job-missing":
+                            return FakeDifyServer.error(404, "not_found", "job not found");
+                        default:
+                            int waits = Integer.parseInt(jobId.substring(4));
+                            String status = count > waits ? "completed" : "waiting";
+                            return FakeDifyServer.json("{\"job_id\":\"" + jobId + "\",\"job_status\":\"" + status + "\"}");
+                    }
+                })
+                .client();
+    }
+}
@@ -0,0 +1,162 @@
+package io.github.imfangs.dify.client.annotation;
+
+import io.github.imfangs.dify.client.config.FakeDifyServer;
+import io.github.imfangs.dify.client.impl.DefaultDifyClient;
+import io.github.imfangs.dify.client.model.chat.Annotation;
+import io.github.imfangs.dify.client.util.JsonUtils;
+import okhttp3.HttpUrl;
+import okhttp3.Request;
+import okio.Buffer;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AnnotationSyncTest {
+    @Test
+    void readsQuotedCsvAndJsonLines() {
+        String csv = "\uFEFFanswer,question\r\n"
+                + "\"多行\n答案，含逗号\",\"问题 \"\"一\"\"\"\r\n"
+                + "\n"
+                + "答案二,问题二\n";
+        List<Annotation> records = new ArrayList<>();
+        AnnotationReader.csv(new StringReader(csv)).forEachRemaining(records::add);
+        assertEquals(2, records.size());
+        assertEquals("问题 \"一\"", records.get(0).getQuestion());
+        assertEquals("多行\n答案，含逗号", records.get(0).getAnswer());
+        assertEquals("问题二", records.get(1).getQuestion());
+
+        List<Annotation> lines = new ArrayList<>();
+        AnnotationReader.jsonLines(new StringReader("{\"question\":\"q1\",\"answer\":\"a1\"}\n\n{\"question\":\"q2\",\"answer\":\"a2\"}\n"))
+                .forEachRemaining(lines::add);
+        assertEquals(Arrays.asList("q1", "q2"), Arrays.asList(lines.get(0).getQuestion(), lines.get(1).getQuestion()));
+    }
+
+    @Test
+    void appliesOnlyTheDelta() throws Exception {
+        FakeServer server = new FakeServer();
+        for (int i = 0; i < 250; i++) {
+            server.annotations.put(String.format("id-%03d", i), new String[]{"q" + i, "a" + i});
+        }
+        server.annotations.put("id-dup", new String[]{"q1", "old"});
+
+        // q0-q199 不变，q200-q209 答案变化，q210-q249 本地已删除，新增 n0-n4
+        StringBuilder csv = new StringBuilder("question,answer\n");
+        for (int i = 0; i < 210; i++) {
+            csv.append('q').append(i).append(',').append(i < 200 ? "a" + i : "changed" + i).append('\n');
+        }
+        for (int i = 0; i < 5; i++) {
+            csv.append('n').append(i).append(",new").append(i).append('\n');
+        }
+        csv.append("q0,again\n");
+
+        AnnotationSyncOptions options = AnnotationSyncOptions.builder().concurrency(4).pageSize(50).deleteMissing(true).build();
+        AnnotationSyncResult result = new AnnotationSync(server.client(), options).sync(AnnotationReader.csv(new StringReader(csv.toString())));
+
+        assertTrue(result.isSuccessful(), String.valueOf(result.getFailures()));
+        assertEquals(5, result.getCreated());
+        assertEquals(10, result.getUpdated());
+        assertEquals(41, result.getDeleted());
+        assertEquals(200, result.getUnchanged());
+        assertEquals(1, result.getDuplicates());
+        assertEquals(56, server.writes.size());
+        assertTrue(server.maxActive.get() <= 4);
+        assertEquals(215, server.annotations.size());
+        assertEquals("changed205", server.annotations.get("id-205")[1]);
+
+        server.writes.clear();
+        result = new AnnotationSync(server.client(), options).sync(AnnotationReader.csv(new StringReader(csv.toString())));
+        assertEquals(215, result.getUnchanged());
+        assertTrue(server.writes.isEmpty());
+    }
+
+    @Test
+    void reportsFailuresWithoutStopping() throws Exception {
+        FakeServer server = new FakeServer();
+        server.annotations.put("id-1", new String[]{"q1", "a1"});
+        List<Annotation> local = Arrays.asList(
+                Annotation.builder().question("fail").answer("x").build(),
+                Annotation.builder().question("q1").answer("a1-new").build());
+
+        AnnotationSyncResult result = new AnnotationSync(server.client(), new AnnotationSyncOptions()).sync(local.iterator());
+        assertEquals(1, result.getUpdated());
+        assertEquals(0, result.getCreated());
+        assertEquals(1, result.getFailures().size());
+        assertTrue(result.getFailures().get(0).startsWith("create fail"));
+
+        AnnotationSyncResult dryRun = new AnnotationSync(server.client(), AnnotationSyncOptions.builder().dryRun(true).deleteMissing(true).build())
+                .sync(new ArrayList<Annotation>().iterator());
+        assertEquals(1, dryRun.getDeleted());
+        assertEquals(1, server.annotations.size());
+    }
+
+    /**
+     * 模拟服务端，按 ID 排序分页返回标注
+     */
+    private static final class FakeServer {
+        private final Map<String, String[]> annotations = new ConcurrentSkipListMap<>();
+        private final List<String> writes = new CopyOnWriteArrayList<>();
+        private final AtomicInteger active = new AtomicInteger();
+        private final AtomicInteger maxActive = new AtomicInteger();
+        private final AtomicInteger ids = new AtomicInteger();
+
+        DefaultDifyClient client() {
+            return new FakeDifyServer()
+                    .on("GET", "/apps/annotations", chain -> list(chain.request()))
+                    .on("POST", "/apps/annotations", chain -> write(chain.request()))
+                    .on("*", "/apps/annotations/*", chain -> write(chain.request()))
+                    .client();
+        }
+
+        private FakeDifyServer.Reply write(Request request) throws IOException {
+            maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+            try {
+                writes.add(request.method());
+                List<String> path = request.url().pathSegments();
+                if ("DELETE".equals(request.method())) {
+                    annotations.remove(path.get(3));
+                    return FakeDifyServer.json("{\"result\":\"success\"}");
+                }
+                Buffer body = new Buffer();
+                request.body().writeTo(body);
+                Map<?, ?> json = JsonUtils.getObjectMapper().readValue(body.readUtf8(), Map.class);
+                String[] qa = {(String) json.get("question"), (String) json.get("answer")};
+                if ("fail".equals(qa[0])) {
+                    return FakeDifyServer.error(400, "invalid_param", "bad");
+                }
+                String id = path.size() > 3 ? path.get(3) : "id-new-" + ids.incrementAndGet();
+                annotations.put(id, qa);
+                return FakeDifyServer.json("{\"id\":\"" + id + "\"}");
+            } finally {
+                active.decrementAndGet();
+            }
+        }
+
+        private FakeDifyServer.Reply list(Request request) {
+            HttpUrl url = request.url();
+            int page = Integer.parseInt(url.queryParameter("page"));
+            int limit = Integer.parseInt(url.queryParameter("limit"));
+            List<String> items = new ArrayList<>();
+            int index = 0;
+            for (Map.Entry<String, String[]> entry : annotations.entrySet()) {
+                if (index >= (page - 1) * limit && index < page * limit) {
+                    items.add(JsonUtils.toJson(Annotation.builder().id(entry.getKey())
+                            .question(entry.getValue()[0]).answer(entry.getValue()[1]).build()));
+                }
+                index++;
+            }
+            boolean hasMore = page * limit < annotations.size();
+            return FakeDifyServer.json("{\"page\":" + page + ",\"limit\":" + limit + ",\"total\":" + annotations.size()
+                    + ",\"has_more\":" + hasMore + ",\"data\":[" + String.join(",", items) + "]}");
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package io.github.imfangs.dify.client.batch;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import io.github.imfangs.dify.client.config.FakeDifyServer;
+import io.github.imfangs.dify.client.impl.DefaultDifyClient;
+import io.github.imfangs.dify.client.model.DifyConfig;
+import io.github.imfangs.dify.client.model.workflow.WorkflowRunRequest;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import okio.Buffer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WorkflowBatchRunnerTest {
+    private static final Pattern ROW = Pattern.compile("\"row\":(\\d+)");
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void runsInOrderAndResumesFromCheckpoint() throws Exception {
+        Path checkpoint = dir.resolve("batch.checkpoint");
+        AtomicInteger requests = new AtomicInteger();
+        DefaultDifyClient client = client(requests, 7);
+
+        List<WorkflowBatchResult> results = new WorkflowBatchRunner(client, options(checkpoint, true)).run(inputs(20));
+        assertEquals(20, results.size());
+        for (int i = 0; i < results.size(); i++) {
+            WorkflowBatchResult result = results.get(i);
+            assertEquals(i, result.getIndex());
+            if (i == 7) {
+                assertFalse(result.isSuccessful());
+            } else {
+                assertEquals("run-" + i, result.getResponse().getWorkflowRunId());
+                assertEquals("out-" + i, result.getResponse().getData().getOutputs().get("text"));
+            }
+        }
+        assertEquals(20, requests.get());
+
+        List<WorkflowBatchProgress> progress = new ArrayList<>();
+        WorkflowBatchOptions resume = options(checkpoint, false);
+        resume.setProgressListener(progress::add);
+        List<WorkflowBatchResult> resumed = new ArrayList<>();
+        new WorkflowBatchRunner(client(requests, -1), resume).run(inputs(20), resumed::add);
+
+        assertEquals(21, requests.get());
+        assertEquals(20, resumed.size());
+        assertTrue(resumed.get(7).isSuccessful());
+        assertFalse(resumed.get(7).isResumed());
+        assertTrue(resumed.get(8).isResumed());
+        assertEquals("out-19", resumed.get(19).getResponse().getData().getOutputs().get("text"));
+
+        WorkflowBatchProgress last = progress.get(progress.size() - 1);
+        assertEquals(20, last.getCompleted());
+        assertEquals(19, last.getResumed());
+        assertEquals(0, last.getFailed());
+        assertEquals(10, last.getTotalTokens());
+    }
+
+    @Test
+    void timeoutCancelsStreamAndStopsWorkflow() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<String> stopped = new CompletableFuture<>();
+        HttpServer http = server(exchange -> {
+            // 发送 workflow_started 后不再响应
+            sendEvent(exchange, "{\"event\":\"workflow_started\",\"task_id\":\"task-0\",\"workflow_run_id\":\"run-0\"}");
+            await(release, 10000);
+        }, stopped);
+        try {
+            DefaultDifyClient client = new DefaultDifyClient("http://127.0.0.1:" + http.getAddress().getPort() + "/v1", "app-test");
+            WorkflowBatchOptions options = WorkflowBatchOptions.builder().concurrency(1).itemTimeout(300).build();
+
+            List<WorkflowBatchResult> results = new WorkflowBatchRunner(client, options).run(inputs(1));
+
+            assertFalse(results.get(0).isSuccessful());
+            assertTrue(results.get(0).getError().contains("超时"), results.get(0).getError());
+            assertEquals("task-0", stopped.get(5, TimeUnit.SECONDS));
+            // 连接已关闭，读取线程不会等到服务端响应结束
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+            while (client.getHttpClient().dispatcher().runningCallsCount() > 0 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(0, client.getHttpClient().dispatcher().runningCallsCount());
+        } finally {
+            release.countDown();
+            http.stop(0);
+        }
+    }
+
+    @Test
+    void timeoutStartsWhenStreamOpens() throws Exception {
+        HttpServer http = server(exchange -> {
+            exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+            exchange.sendResponseHeaders(200, 0);
+            await(new CountDownLatch(1), 400);
+            String data = "{\"id\":\"run-0\",\"status\":\"succeeded\",\"total_tokens\":10}";
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(("data: {\"event\":\"workflow_finished\",\"task_id\":\"task-0\",\"data\":" + data + "}\n\n").getBytes(StandardCharsets.UTF_8));
+            }
+        }, new CompletableFuture<>());
+        try {
+            // 每主机只允许一个请求，第二个输入在 Dispatcher 中排队 400ms，排队时间不计入超时
+            Dispatcher dispatcher = new Dispatcher();
+            dispatcher.setMaxRequestsPerHost(1);
+            DifyConfig config = DifyConfig.builder().baseUrl("http://127.0.0.1:" + http.getAddress().getPort() + "/v1").apiKey("app-test").build();
+            DefaultDifyClient client = new DefaultDifyClient(config, new OkHttpClient.Builder().dispatcher(dispatcher).build());
+            WorkflowBatchOptions options = WorkflowBatchOptions.builder().concurrency(2).itemTimeout(700).build();
+
+            List<WorkflowBatchResult> results = new WorkflowBatchRunner(client, options).run(inputs(2));
+
+            assertTrue(results.get(0).isSuccessful(), results.get(0).getError());
+            assertTrue(results.get(1).isSuccessful(), results.get(1).getError());
+        } finally {
+            http.stop(0);
+        }
+    }
+
+    private static HttpServer server(HttpHandler run, CompletableFuture<String> stopped) throws IOException {
+        HttpServer http = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        http.setExecutor(Executors.newCachedThreadPool());
+        http.createContext("/v1/workflows/run", run);
+        http.createContext("/v1/workflows/tasks/", exchange -> {
+            String path = exchange.getRequestURI().getPath();
+            stopped.complete(path.substring("/v1/workflows/tasks/".length(), path.length() - "/stop".length()));
+            byte[] body = "{\"result\":\"success\"}".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        http.start();
+        return http;
+    }
+
+    private static void sendEvent(HttpExchange exchange, String event) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+        exchange.sendResponseHeaders(200, 0);
+        exchange.getResponseBody().write(("data: " + event + "\n\n").getBytes(StandardCharsets.UTF_8));
+        exchange.getResponseBody().flush();
+    }
+
+    private static void await(CountDownLatch latch, long millis) {
+        try {
+            latch.await(millis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static WorkflowBatchOptions options(Path checkpoint, boolean streaming) {
+        return WorkflowBatchOptions.builder()
+                .concurrency(4)
+                .streaming(streaming)
+                .itemTimeout(5000)
+                .checkpointFile(checkpoint)
+                .build();
+    }
+
+    private static Iterator<WorkflowRunRequest> inputs(int count) {
+        List<WorkflowRunRequest> requests = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            requests.add(WorkflowRunRequest.builder().user("batch").inputs(Collections.singletonMap("row", i)).build());
+        }
+        return requests.iterator();
+    }
+
+    /**
+     * 模拟工作流接口，随机延迟使结果乱序完成，failingRow 返回 500
+     */
+    private static DefaultDifyClient client(AtomicInteger requests, int failingRow) {
+        return new FakeDifyServer().on("POST", "/workflows/run", chain -> {
+            requests.incrementAndGet();
+            Buffer body = new Buffer();
+            chain.request().body().writeTo(body);
+            String json = body.readUtf8();
+            Matcher matcher = ROW.matcher(json);
+            assertTrue(matcher.find());
+            int row = Integer.parseInt(matcher.group(1));
+            Thread.sleep(ThreadLocalRandom.current().nextInt(20));
+
+            if (row == failingRow) {
+                return FakeDifyServer.error(500, "internal_server_error", "boom");
+            }
+            String data = "{\"id\":\"run-" + row + "\",\"status\":\"succeeded\",\"outputs\":{\"text\":\"out-" + row + "\"},\"total_tokens\":10}";
+            if (json.contains("\"response_mode\":\"streaming\"")) {
+                return FakeDifyServer.events(
+                        "{\"event\":\"workflow_started\",\"task_id\":\"task-" + row + "\",\"workflow_run_id\":\"run-" + row + "\",\"data\":{\"id\":\"run-" + row + "\"}}",
+                        "{\"event\":\"workflow_finished\",\"task_id\":\"task-" + row + "\",\"workflow_run_id\":\"run-" + row + "\",\"data\":" + data + "}");
+            }
+            return FakeDifyServer.json("{\"workflow_run_id\":\"run-" + row + "\",\"task_id\":\"task-" + row + "\",\"data\":" + data + "}");
+        }).client();
+    }
+}
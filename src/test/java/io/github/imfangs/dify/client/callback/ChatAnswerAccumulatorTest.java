@@ -0,0 +1,85 @@
+package io.github.imfangs.dify.client.callback;
+
+import io.github.imfangs.dify.client.config.FakeDifyServer;
+import io.github.imfangs.dify.client.enums.ResponseMode;
+import io.github.imfangs.dify.client.exception.DifyApiException;
+import io.github.imfangs.dify.client.impl.DefaultDifyClient;
+import io.github.imfangs.dify.client.impl.StreamEventDispatcher;
+import io.github.imfangs.dify.client.model.chat.ChatMessage;
+import io.github.imfangs.dify.client.model.chat.ChatStreamResult;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChatAnswerAccumulatorTest {
+
+    @Test
+    void assemblesAnswerAndCompletesOnMessageEnd() throws Exception {
+        ChatAnswerAccumulator accumulator = new ChatAnswerAccumulator();
+        StreamEventDispatcher.dispatchChatEvent(accumulator, "{\"event\":\"message\",\"task_id\":\"t1\",\"id\":\"m1\",\"conversation_id\":\"c1\",\"answer\":\"你\"}", "message");
+        CharSequence snapshot = accumulator.getAnswer();
+        StreamEventDispatcher.dispatchChatEvent(accumulator, "{\"event\":\"message\",\"task_id\":\"t1\",\"id\":\"m1\",\"conversation_id\":\"c1\",\"answer\":\"好，Dify\"}", "message");
+        StreamEventDispatcher.dispatchChatEvent(accumulator, "{\"event\":\"agent_thought\",\"id\":\"a1\",\"position\":1,\"thought\":\"\"}", "agent_thought");
+        StreamEventDispatcher.dispatchChatEvent(accumulator, "{\"event\":\"agent_thought\",\"id\":\"a1\",\"position\":1,\"thought\":\"查询天气\"}", "agent_thought");
+        StreamEventDispatcher.dispatchChatEvent(accumulator, "{\"event\":\"message_file\",\"id\":\"f1\",\"type\":\"image\",\"belongs_to\":\"assistant\",\"url\":\"https://example.com/a.png\"}", "message_file");
+
+        assertEquals("你", snapshot.toString());
+        CharSequence answer = accumulator.getAnswer();
+        assertEquals(7, answer.length());
+        assertEquals("Dify", answer.subSequence(3, 7).toString());
+        assertFalse(accumulator.getResult().isDone());
+
+        StreamEventDispatcher.dispatchChatEvent(accumulator, "{\"event\":\"message_end\",\"task_id\":\"t1\",\"id\":\"m1\",\"conversation_id\":\"c1\",\"metadata\":{\"usage\":{\"total_tokens\":42}}}", "message_end");
+
+        ChatStreamResult result = accumulator.getResult().getNow(null);
+        assertNotNull(result);
+        assertEquals("你好，Dify", result.getAnswer());
+        assertEquals("m1", result.getMessageId());
+        assertEquals("c1", result.getConversationId());
+        assertEquals(Integer.valueOf(42), result.getMetadata().getUsage().getTotalTokens());
+        assertEquals(1, result.getAgentThoughts().size());
+        assertEquals("查询天气", result.getAgentThoughts().get(0).getThought());
+        assertEquals(1, result.getMessageFiles().size());
+        assertEquals("你好，Dify", result.toChatMessageResponse("chat").getAnswer());
+    }
+
+    @Test
+    void replaceKeepsEarlierSnapshots() {
+        ChatAnswerAccumulator accumulator = new ChatAnswerAccumulator();
+        StreamEventDispatcher.dispatchChatEvent(accumulator, "{\"event\":\"message\",\"answer\":\"敏感内容\"}", "message");
+        CharSequence before = accumulator.getAnswer();
+        StreamEventDispatcher.dispatchChatEvent(accumulator, "{\"event\":\"message_replace\",\"answer\":\"已替换\"}", "message_replace");
+        StreamEventDispatcher.dispatchChatEvent(accumulator, "{\"event\":\"message\",\"answer\":\"。\"}", "message");
+
+        assertEquals("敏感内容", before.toString());
+        assertEquals("已替换。", accumulator.getAnswer().toString());
+    }
+
+    @Test
+    void completesExceptionallyOnErrorEvent() {
+        ChatAnswerAccumulator accumulator = new ChatAnswerAccumulator();
+        StreamEventDispatcher.dispatchChatEvent(accumulator, "{\"event\":\"error\",\"status\":400,\"code\":\"invalid_param\",\"message\":\"bad\"}", "error");
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> accumulator.getResult().get());
+        DifyApiException cause = (DifyApiException) e.getCause();
+        assertEquals(400, cause.getStatusCode());
+        assertEquals("invalid_param", cause.getErrorCode());
+    }
+
+    @Test
+    void completesExceptionallyWhenStreamEndsWithoutMessageEnd() throws Exception {
+        DefaultDifyClient client = new FakeDifyServer().on("POST", "/chat-messages",
+                chain -> FakeDifyServer.events("{\"event\":\"message\",\"id\":\"m1\",\"answer\":\"你\"}")).client();
+
+        ChatAnswerAccumulator accumulator = new ChatAnswerAccumulator();
+        client.sendChatMessageStream(ChatMessage.builder().query("你好").user("test").responseMode(ResponseMode.STREAMING).build(), accumulator);
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> accumulator.getResult().get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IOException.class, e.getCause());
+        assertEquals("你", accumulator.getAnswer().toString());
+    }
+}
@@ -0,0 +1,309 @@
+package io.github.imfangs.dify.client.config;
+
+import io.github.imfangs.dify.client.impl.DefaultDifyClient;
+import io.github.imfangs.dify.client.model.DifyConfig;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.BufferedSource;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 测试用的 Dify 服务端
+ * 作为 OkHttp 拦截器按 "方法 + 路径" 路由请求并返回预设的响应，不发起任何网络连接。
+ * 路径相对于 {@link #BASE_URL}，{@code *} 匹配任意一个路径段，未匹配的请求返回 404。
+ * <pre>
+ * FakeDifyServer server = new FakeDifyServer()
+ *         .on("GET", "/parameters", "{\"file_upload\":{}}")
+ *         .on("DELETE", "/conversations/*", chain -&gt; FakeDifyServer.json("{\"result\":\"success\"}"));
+ * DefaultDifyClient client = server.client();
+ * </pre>
+ */
+public class FakeDifyServer implements Interceptor {
+    public static final String BASE_URL = "http://dify.invalid/v1";
+    public static final MediaType JSON = MediaType.get("application/json");
+    public static final MediaType EVENT_STREAM = MediaType.get("text/event-stream");
+
+    private final List<Route> routes = new CopyOnWriteArrayList<>();
+    private final List<Request> requests = new CopyOnWriteArrayList<>();
+    private volatile OkHttpClient httpClient;
+
+    /**
+     * 请求处理器
+     */
+    @FunctionalInterface
+    public interface Handler {
+        /**
+         * 处理请求
+         *
+         * @param chain 拦截器链，通过 chain.request() 获取请求，chain.call() 获取调用
+         * @return 响应
+         * @throws Exception 抛出的 IOException 原样传给客户端
+         */
+        Reply handle(Chain chain) throws Exception;
+    }
+
+    /**
+     * 注册路由，先注册的优先匹配
+     *
+     * @param method  请求方法，{@code *} 匹配任意方法
+     * @param path    相对 BASE_URL 的路径
+     * @param handler 处理器
+     * @return 当前实例
+     */
+    public FakeDifyServer on(String method, String path, Handler handler) {
+        routes.add(new Route(method, segments(path), handler));
+        return this;
+    }
+
+    /**
+     * 注册固定返回 200 JSON 的路由
+     *
+     * @param method 请求方法
+     * @param path   相对 BASE_URL 的路径
+     * @param json   响应体
+     * @return 当前实例
+     */
+    public FakeDifyServer on(String method, String path, String json) {
+        return on(method, path, chain -> json(json));
+    }
+
+    /**
+     * 获取收到的请求，按到达顺序排列
+     *
+     * @return 请求列表
+     */
+    public List<Request> requests() {
+        return new ArrayList<>(requests);
+    }
+
+    /**
+     * 获取收到的请求路径，如 /v1/parameters
+     *
+     * @return 路径列表
+     */
+    public List<String> paths() {
+        List<String> paths = new ArrayList<>();
+        for (Request request : requests) {
+            paths.add(request.url().encodedPath());
+        }
+        return paths;
+    }
+
+    /**
+     * 获取收到的请求数量
+     *
+     * @return 请求数量
+     */
+    public int requestCount() {
+        return requests.size();
+    }
+
+    /**
+     * 获取以该服务端为终点的 HttpClient，多次调用返回同一实例
+     *
+     * @return HttpClient
+     */
+    public OkHttpClient httpClient() {
+        if (httpClient == null) {
+            synchronized (this) {
+                if (httpClient == null) {
+                    httpClient = new OkHttpClient.Builder().addInterceptor(this).build();
+                }
+            }
+        }
+        return httpClient;
+    }
+
+    /**
+     * 获取指向该服务端的配置
+     *
+     * @return 已设置 baseUrl 和 apiKey 的配置构建器
+     */
+    public DifyConfig.DifyConfigBuilder config() {
+        return DifyConfig.builder().baseUrl(BASE_URL).apiKey("app-test");
+    }
+
+    /**
+     * 创建使用默认配置的客户端
+     *
+     * @return 客户端
+     */
+    public DefaultDifyClient client() {
+        return new DefaultDifyClient(config().build(), httpClient());
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        requests.add(request);
+        Reply reply = dispatch(chain);
+        Response.Builder response = new Response.Builder()
+                .request(request)
+                .protocol(Protocol.HTTP_1_1)
+                .code(reply.code)
+                .message("status " + reply.code)
+                .body(reply.body);
+        reply.headers.forEach(response::header);
+        return response.build();
+    }
+
+    private Reply dispatch(Chain chain) throws IOException {
+        Request request = chain.request();
+        List<String> path = request.url().pathSegments();
+        for (Route route : routes) {
+            if (route.matches(request.method(), path)) {
+                try {
+                    return route.handler.handle(chain);
+                } catch (IOException | RuntimeException e) {
+                    throw e;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("请求被中断");
+                } catch (Exception e) {
+                    throw new IOException(e);
+                }
+            }
+        }
+        return error(404, "not_found", "未注册的路由: " + request.method() + " " + request.url().encodedPath());
+    }
+
+    /**
+     * 200 JSON 响应
+     *
+     * @param body 响应体
+     * @return 响应
+     */
+    public static Reply json(String body) {
+        return json(200, body);
+    }
+
+    /**
+     * JSON 响应
+     *
+     * @param code 状态码
+     * @param body 响应体
+     * @return 响应
+     */
+    public static Reply json(int code, String body) {
+        return new Reply(code, ResponseBody.create(body, JSON));
+    }
+
+    /**
+     * 与 Dify 格式一致的错误响应
+     *
+     * @param code      状态码
+     * @param errorCode 错误代码
+     * @param message   错误消息
+     * @return 响应
+     */
+    public static Reply error(int code, String errorCode, String message) {
+        return json(code, "{\"code\":\"" + errorCode + "\",\"message\":\"" + message + "\",\"status\":" + code + "}");
+    }
+
+    /**
+     * 200 SSE 响应，每个事件以 data 行发送
+     *
+     * @param events 事件 JSON
+     * @return 响应
+     */
+    public static Reply events(String... events) {
+        StringBuilder body = new StringBuilder();
+        for (String event : events) {
+            body.append("data: ").append(event).append("\n\n");
+        }
+        return new Reply(200, ResponseBody.create(body.toString(), EVENT_STREAM));
+    }
+
+    /**
+     * 200 SSE 响应，响应体按需从数据源读取，用于模拟空闲或中途断开的连接
+     *
+     * @param source 数据源
+     * @return 响应
+     */
+    public static Reply stream(BufferedSource source) {
+        return new Reply(200, ResponseBody.create(source, EVENT_STREAM, -1));
+    }
+
+    /**
+     * 预设的响应
+     */
+    public static final class Reply {
+        private final int code;
+        private final ResponseBody body;
+        private final Map<String, String> headers = new LinkedHashMap<>();
+
+        /**
+         * 构造函数
+         *
+         * @param code 状态码
+         * @param body 响应体
+         */
+        public Reply(int code, ResponseBody body) {
+            this.code = code;
+            this.body = body;
+        }
+
+        /**
+         * 添加响应头
+         *
+         * @param name  名称
+         * @param value 值
+         * @return 当前实例
+         */
+        public Reply header(String name, String value) {
+            headers.put(name, value);
+            return this;
+        }
+    }
+
+    private static List<String> segments(String path) {
+        String full = BASE_URL.substring(BASE_URL.indexOf('/', "http://".length())) + path;
+        List<String> segments = new ArrayList<>(Arrays.asList(full.split("/")));
+        segments.removeAll(Collections.singleton(""));
+        return segments;
+    }
+
+    /**
+     * 路由
+     */
+    private static final class Route {
+        private final String method;
+        private final List<String> segments;
+        private final Handler handler;
+
+        Route(String method, List<String> segments, Handler handler) {
+            this.method = method;
+            this.segments = segments;
+            this.handler = handler;
+        }
+
+        boolean matches(String requestMethod, List<String> path) {
+            if (!"*".equals(method) && !method.equals(requestMethod)) {
+                return false;
+            }
+            if (segments.size() != path.size()) {
+                return false;
+            }
+            for (int i = 0; i < segments.size(); i++) {
+                if (!"*".equals(segments.get(i)) && !segments.get(i).equals(path.get(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package io.github.imfangs.dify.client.conversation;
+
+import io.github.imfangs.dify.client.config.FakeDifyServer;
+import io.github.imfangs.dify.client.impl.DefaultDifyClient;
+import okhttp3.HttpUrl;
+import okhttp3.Request;
+import okio.Buffer;
+import org.junit.jupiter.api.Test;
+
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConversationBulkOperationsTest {
+    @Test
+    void deletesConversationsOlderThanCutoff() throws Exception {
+        FakeServer server = new FakeServer(250);
+        DefaultDifyClient client = server.client();
+        ConversationBulkOperations bulk = new ConversationBulkOperations(client,
+                ConversationBulkOptions.builder().concurrency(4).build());
+
+        // c000-c219 早于截止时间，c007 删除失败
+        List<ConversationBulkResult> results = bulk.deleteAll(ConversationScanner.idsUpdatedBefore(client, "user", 1220), "user");
+
+        assertEquals(220, results.size());
+        assertEquals(1, results.stream().filter(r -> !r.isSuccessful()).count());
+        ConversationBulkResult failed = results.stream().filter(r -> !r.isSuccessful()).findFirst().get();
+        assertEquals("c007", failed.getConversationId());
+        assertEquals(500, failed.getStatusCode().intValue());
+        assertEquals(4, server.maxActive.get());
+        assertEquals(31, server.conversations.size());
+        assertTrue(server.conversations.containsKey("c007"));
+        assertTrue(server.conversations.containsKey("c220"));
+
+        // 重复删除时会话已不存在，视为成功
+        assertTrue(bulk.deleteAll(Arrays.asList("c013").iterator(), "user").get(0).isSuccessful());
+    }
+
+    @Test
+    void limitsRequestRate() throws Exception {
+        FakeServer server = new FakeServer(10);
+        ConversationBulkOperations bulk = new ConversationBulkOperations(server.client(),
+                ConversationBulkOptions.builder().concurrency(10).requestsPerSecond(50).build());
+        List<String> ids = new ArrayList<>(server.conversations.keySet());
+        ids.remove("c007");
+
+        long start = System.nanoTime();
+        List<ConversationBulkResult> results = bulk.renameAll(ids.iterator(), "user", id -> id.equals("c003") ? null : "renamed-" + id);
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals(9, results.size());
+        assertTrue(results.stream().allMatch(ConversationBulkResult::isSuccessful));
+        // 9 个请求间隔 20ms，至少 160ms
+        assertTrue(elapsedMillis >= 150, "elapsed " + elapsedMillis);
+        assertEquals("renamed-c001", server.names.get("c001"));
+        assertEquals("auto", server.names.get("c003"));
+    }
+
+    @Test
+    void scannerRaisesReadFailures() {
+        FakeServer server = new FakeServer(0);
+        server.failList = true;
+        Iterator<String> ids = ConversationScanner.idsUpdatedBefore(server.client(), "user", Long.MAX_VALUE);
+        ConversationBulkOperations bulk = new ConversationBulkOperations(server.client(), new ConversationBulkOptions());
+        assertThrows(UncheckedIOException.class, () -> bulk.deleteAll(ids, "user"));
+    }
+
+    /**
+     * 模拟服务端，会话 cNNN 的更新时间为 1000+NNN，按 last_id 分页时游标会话必须存在
+     */
+    private static final class FakeServer {
+        private final Map<String, Long> conversations = new ConcurrentSkipListMap<>();
+        private final Map<String, String> names = new ConcurrentHashMap<>();
+        private final AtomicInteger active = new AtomicInteger();
+        private final AtomicInteger maxActive = new AtomicInteger();
+        private volatile boolean failList;
+
+        FakeServer(int count) {
+            for (int i = 0; i < count; i++) {
+                conversations.put(String.format("c%03d", i), 1000L + i);
+            }
+        }
+
+        DefaultDifyClient client() {
+            return new FakeDifyServer()
+                    .on("GET", "/conversations", chain -> list(chain.request()))
+                    .on("DELETE", "/conversations/*", chain -> update(chain.request()))
+                    .on("POST", "/conversations/*/name", chain -> update(chain.request()))
+                    .client();
+        }
+
+        private FakeDifyServer.Reply update(Request request) throws Exception {
+            maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(5);
+                String id = request.url().pathSegments().get(2);
+                if ("c007".equals(id)) {
+                    return FakeDifyServer.error(500, "internal_server_error", "boom");
+                }
+                if (conversations.remove(id) == null && "DELETE".equals(request.method())) {
+                    return FakeDifyServer.error(404, "not_found", "Conversation Not Exists.");
+                }
+                if ("POST".equals(request.method())) {
+                    Buffer body = new Buffer();
+                    request.body().writeTo(body);
+                    String json = body.readUtf8();
+                    names.put(id, json.contains("\"auto_generate\":true") ? "auto" : json.replaceAll(".*\"name\":\"([^\"]+)\".*", "$1"));
+                    return FakeDifyServer.json("{\"id\":\"" + id + "\"}");
+                }
+                return FakeDifyServer.json("{\"result\":\"success\"}");
+            } finally {
+                active.decrementAndGet();
+            }
+        }
+
+        private FakeDifyServer.Reply list(Request request) {
+            if (failList) {
+                return FakeDifyServer.error(500, "internal_server_error", "boom");
+            }
+            HttpUrl url = request.url();
+            assertEquals("updated_at", url.queryParameter("sort_by"));
+            String lastId = url.queryParameter("last_id");
+            if (lastId != null && !conversations.containsKey(lastId)) {
+                return FakeDifyServer.error(404, "not_found", "Last Conversation Not Exists.");
+            }
+            int limit = Integer.parseInt(url.queryParameter("limit"));
+            List<String> page = new ArrayList<>();
+            boolean hasMore = false;
+            for (String id : conversations.keySet()) {
+                if (lastId != null && id.compareTo(lastId) <= 0) {
+                    continue;
+                }
+                if (page.size() == limit) {
+                    hasMore = true;
+                    break;
+                }
+                page.add(String.format("{\"id\":\"%s\",\"name\":\"%s\",\"updated_at\":%d}", id, id, conversations.get(id)));
+            }
+            return FakeDifyServer.json("{\"limit\":" + limit + ",\"has_more\":" + hasMore + ",\"data\":[" + String.join(",", page) + "]}");
+        }
+    }
+}
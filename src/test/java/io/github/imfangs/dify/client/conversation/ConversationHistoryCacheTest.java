@@ -0,0 +1,126 @@
+package io.github.imfangs.dify.client.conversation;
+
+import io.github.imfangs.dify.client.config.FakeDifyServer;
+import io.github.imfangs.dify.client.impl.DefaultDifyClient;
+import io.github.imfangs.dify.client.model.chat.ChatMessage;
+import io.github.imfangs.dify.client.model.chat.ChatStreamResult;
+import io.github.imfangs.dify.client.model.chat.MessageListResponse;
+import okhttp3.HttpUrl;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConversationHistoryCacheTest {
+    private static final int TOTAL = 50;
+
+    @Test
+    void servesRepeatedReadsFromMemory() throws Exception {
+        List<String> requests = new CopyOnWriteArrayList<>();
+        try (ConversationHistoryCache history = new ConversationHistoryCache(client(requests), 10, 20, 5)) {
+            List<MessageListResponse.Message> latest = history.getLatest("c1", "user", 10);
+            assertEquals(10, latest.size());
+            assertEquals("m40", latest.get(0).getId());
+            assertEquals("m49", latest.get(9).getId());
+
+            assertEquals(latest, history.getLatest("c1", "user", 10));
+            assertEquals("m40", history.getBefore("c1", "user", "m45", 5).get(0).getId());
+            assertEquals(1, requests.size());
+
+            history.invalidate("c1", "user");
+            history.getLatest("c1", "user", 10);
+            assertEquals(2, requests.size());
+        }
+    }
+
+    @Test
+    void prefetchesPreviousPageNearTheTop() throws Exception {
+        List<String> requests = new CopyOnWriteArrayList<>();
+        try (ConversationHistoryCache history = new ConversationHistoryCache(client(requests), 10, 20, 5)) {
+            history.getLatest("c1", "user", 10);
+            // 已缓存 m30-m49，窗口 m30-m33 之前没有缓存的消息，后台预取上一页
+            List<MessageListResponse.Message> window = history.getBefore("c1", "user", "m34", 4);
+            assertEquals("m30", window.get(0).getId());
+            waitFor(requests, 2);
+            assertEquals("m30", requests.get(1));
+
+            List<MessageListResponse.Message> older = history.getBefore("c1", "user", "m30", 10);
+            assertEquals("m20", older.get(0).getId());
+            assertEquals("m29", older.get(9).getId());
+            assertEquals(2, requests.size());
+        }
+    }
+
+    @Test
+    void fetchesOlderPagesSynchronouslyUntilTheBeginning() throws Exception {
+        List<String> requests = new CopyOnWriteArrayList<>();
+        try (ConversationHistoryCache history = new ConversationHistoryCache(client(requests), 10, 20, 0)) {
+            history.getLatest("c1", "user", 5);
+            List<MessageListResponse.Message> older = history.getBefore("c1", "user", "m30", 30);
+            assertEquals(30, older.size());
+            assertEquals("m00", older.get(0).getId());
+            assertTrue(history.getBefore("c1", "user", "m00", 10).isEmpty());
+            assertEquals(3, requests.size());
+        }
+    }
+
+    @Test
+    void appendsCompletedStreams() throws Exception {
+        List<String> requests = new CopyOnWriteArrayList<>();
+        try (ConversationHistoryCache history = new ConversationHistoryCache(client(requests), 10, 20, 5)) {
+            history.append("user", ChatMessage.builder().query("你好").user("user").build(),
+                    ChatStreamResult.builder().conversationId("new").messageId("n1").answer("你好！").build());
+            List<MessageListResponse.Message> created = history.getLatest("new", "user", 10);
+            assertEquals(1, created.size());
+            assertEquals("你好", created.get(0).getQuery());
+            assertEquals("你好！", created.get(0).getAnswer());
+
+            // 未缓存的已有会话忽略
+            history.append("user", ChatMessage.builder().query("q").conversationId("c2").user("user").build(),
+                    ChatStreamResult.builder().conversationId("c2").messageId("x").answer("a").build());
+            history.getLatest("c1", "user", 1);
+            ChatMessage followUp = ChatMessage.builder().query("继续").conversationId("c1").user("user").build();
+            ChatStreamResult result = ChatStreamResult.builder().conversationId("c1").messageId("m50").answer("好的").build();
+            history.append("user", followUp, result);
+            history.append("user", followUp, result);
+
+            List<MessageListResponse.Message> latest = history.getLatest("c1", "user", 2);
+            assertEquals("m49", latest.get(0).getId());
+            assertEquals("m50", latest.get(1).getId());
+            assertEquals(1, requests.size());
+        }
+    }
+
+    private static void waitFor(List<String> requests, int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (requests.size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        // 等待预取结果写入缓存
+        Thread.sleep(100);
+    }
+
+    /**
+     * 模拟服务端，会话 c1 有 m00-m49 共 50 条消息，请求记录 first_id
+     */
+    private static DefaultDifyClient client(List<String> requests) {
+        return new FakeDifyServer().on("GET", "/messages", chain -> {
+            HttpUrl url = chain.request().url();
+            String firstId = url.queryParameter("first_id");
+            int limit = Integer.parseInt(url.queryParameter("limit"));
+            requests.add(firstId != null ? firstId : "");
+            int end = firstId != null ? Integer.parseInt(firstId.substring(1)) : TOTAL;
+            int start = Math.max(0, end - limit);
+            StringBuilder data = new StringBuilder();
+            for (int i = start; i < end; i++) {
+                if (data.length() > 0) {
+                    data.append(',');
+                }
+                data.append(String.format("{\"id\":\"m%02d\",\"conversation_id\":\"c1\",\"query\":\"q%d\",\"answer\":\"a%d\"}", i, i, i));
+            }
+            return FakeDifyServer.json("{\"limit\":" + limit + ",\"has_more\":" + (start > 0) + ",\"data\":[" + data + "]}");
+        }).client();
+    }
+}
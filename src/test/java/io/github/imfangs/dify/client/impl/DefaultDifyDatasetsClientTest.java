@@ -0,0 +1,136 @@
+package io.github.imfangs.dify.client.impl;
+
+import io.github.imfangs.dify.client.config.FakeDifyServer;
+import io.github.imfangs.dify.client.model.datasets.RetrieveRequest;
+import io.github.imfangs.dify.client.model.datasets.RetrieveResponse;
+import okhttp3.Interceptor;
+import org.junit.jupiter.api.Test;
+
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DefaultDifyDatasetsClientTest {
+    @Test
+    void mergeRecords() {
+        RetrieveResponse first = response(record("a", 0.9), record("b", 0.5), record(null, 0.7));
+        RetrieveResponse second = response(record("a", 0.95), record("c", 0.6), record("d", 0.1));
+
+        List<RetrieveResponse.Record> merged = DefaultDifyDatasetsClient.mergeRecords(Arrays.asList(first, second, null), 3);
+
+        assertEquals(3, merged.size());
+        assertEquals(0.95, merged.get(0).getScore());
+        assertEquals("a", merged.get(0).getSegment().getIndexNodeHash());
+        assertEquals(0.7, merged.get(1).getScore());
+        assertEquals("c", merged.get(2).getSegment().getIndexNodeHash());
+    }
+
+    @Test
+    void mergeRecordsWithoutLimit() {
+        RetrieveResponse first = response(record("a", 0.2), record("b", 0.4));
+        RetrieveResponse second = response(record("b", 0.3), record("c", null));
+
+        List<RetrieveResponse.Record> merged = DefaultDifyDatasetsClient.mergeRecords(Arrays.asList(first, second), Integer.MAX_VALUE);
+
+        assertEquals(3, merged.size());
+        assertEquals("b", merged.get(0).getSegment().getIndexNodeHash());
+        assertEquals("a", merged.get(1).getSegment().getIndexNodeHash());
+        assertEquals("c", merged.get(2).getSegment().getIndexNodeHash());
+    }
+
+    @Test
+    void retrieveAcrossRunsConcurrently() throws Exception {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        DefaultDifyDatasetsClient client = client(16, chain -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(300);
+            } finally {
+                running.decrementAndGet();
+            }
+            return retrieved(datasetOf(chain));
+        });
+        List<String> datasetIds = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            datasetIds.add("ds" + i);
+        }
+
+        RetrieveResponse merged = client.retrieveAcross(datasetIds, RetrieveRequest.builder().query("q").build(), 0);
+
+        assertEquals(12, merged.getRecords().size());
+        // OkHttp 默认每主机只允许 5 个并发，设置 maxRequestsPerHost 后全部同时执行
+        assertEquals(12, maxRunning.get());
+    }
+
+    @Test
+    void retrieveAcrossKeepsCompletedResultsAfterDeadline() throws Exception {
+        DefaultDifyDatasetsClient client = client(chain -> {
+            String datasetId = datasetOf(chain);
+            if (datasetId.equals("slow")) {
+                Thread.sleep(3000);
+            }
+            if (datasetId.equals("broken")) {
+                return FakeDifyServer.error(500, "internal_error", "boom");
+            }
+            return retrieved(datasetId);
+        });
+
+        long start = System.nanoTime();
+        RetrieveResponse merged = client.retrieveAcross(Arrays.asList("slow", "a", "broken", "b"),
+                RetrieveRequest.builder().query("q").build(), 500);
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        // 第一个知识库超时不影响其后已返回的结果
+        assertEquals(2, merged.getRecords().size());
+        assertTrue(elapsed < 2000, "elapsed " + elapsed);
+    }
+
+    @Test
+    void retrieveAcrossFailsWhenNothingReturned() {
+        DefaultDifyDatasetsClient client = client(chain -> {
+            Thread.sleep(3000);
+            return retrieved(datasetOf(chain));
+        });
+
+        assertThrows(InterruptedIOException.class, () -> client.retrieveAcross(Arrays.asList("a", "b"),
+                RetrieveRequest.builder().query("q").build(), 200));
+    }
+
+    private static DefaultDifyDatasetsClient client(FakeDifyServer.Handler retrieve) {
+        return client(0, retrieve);
+    }
+
+    private static DefaultDifyDatasetsClient client(int maxRequestsPerHost, FakeDifyServer.Handler retrieve) {
+        FakeDifyServer server = new FakeDifyServer().on("POST", "/datasets/*/retrieve", retrieve);
+        return new DefaultDifyDatasetsClient(server.config().apiKey("dataset-test")
+                .maxRequestsPerHost(maxRequestsPerHost).build(), server.httpClient());
+    }
+
+    private static String datasetOf(Interceptor.Chain chain) {
+        return chain.request().url().pathSegments().get(2);
+    }
+
+    private static FakeDifyServer.Reply retrieved(String datasetId) {
+        return FakeDifyServer.json("{\"query\":{\"content\":\"q\"},\"records\":[{\"segment\":{\"index_node_hash\":\"" + datasetId
+                + "\"},\"score\":0.5}]}");
+    }
+
+    private static RetrieveResponse response(RetrieveResponse.Record... records) {
+        return RetrieveResponse.builder().records(Arrays.asList(records)).build();
+    }
+
+    private static RetrieveResponse.Record record(String indexNodeHash, Double score) {
+        return RetrieveResponse.Record.builder()
+                .segment(RetrieveResponse.SegmentInfo.builder().indexNodeHash(indexNodeHash).build())
+                .score(score)
+                .build();
+    }
+}
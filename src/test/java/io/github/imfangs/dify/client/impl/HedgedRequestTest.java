@@ -0,0 +1,98 @@
+package io.github.imfangs.dify.client.impl;
+
+import io.github.imfangs.dify.client.config.FakeDifyServer;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HedgedRequestTest {
+    private final AtomicInteger hits = new AtomicInteger();
+    private final AtomicBoolean slowPrimary = new AtomicBoolean();
+    private final AtomicBoolean loserCancelled = new AtomicBoolean();
+    private final CountDownLatch releaseBlockers = new CountDownLatch(1);
+
+    @Test
+    void hedgeWinsAndCancelsSlowPrimary() throws Exception {
+        DefaultDifyClient client = client();
+        warmUp(client);
+
+        // 占满 OkHttp 默认的每主机 5 个并发，对冲请求仍不应排队
+        for (int i = 0; i < 6; i++) {
+            client.httpClient.newCall(new Request.Builder().url(FakeDifyServer.BASE_URL + "/blocker").build()).enqueue(new Callback() {
+                @Override
+                public void onFailure(Call call, IOException e) {
+                }
+
+                @Override
+                public void onResponse(Call call, Response response) {
+                    response.close();
+                }
+            });
+        }
+
+        try {
+            slowPrimary.set(true);
+            long start = System.nanoTime();
+            assertNotNull(client.getAppParameters());
+            long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            assertTrue(elapsed < 1500, "elapsed " + elapsed);
+            assertEquals(2, hits.get());
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+            while (!loserCancelled.get() && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertTrue(loserCancelled.get());
+        } finally {
+            releaseBlockers.countDown();
+        }
+    }
+
+    private DefaultDifyClient client() {
+        FakeDifyServer server = new FakeDifyServer()
+                .on("GET", "/blocker", chain -> {
+                    releaseBlockers.await(10, TimeUnit.SECONDS);
+                    return FakeDifyServer.json("{}");
+                })
+                .on("GET", "/parameters", this::parameters);
+        return new DefaultDifyClient(server.config()
+                .hedgingEnabled(true)
+                .hedgingPercentile(0.95)
+                .hedgingBudgetRatio(1.0)
+                .maxRequestsPerHost(64)
+                .build(), server.httpClient());
+    }
+
+    private void warmUp(DefaultDifyClient client) throws Exception {
+        for (int i = 0; i < 20; i++) {
+            client.getAppParameters();
+        }
+        hits.set(0);
+    }
+
+    private FakeDifyServer.Reply parameters(Interceptor.Chain chain) throws Exception {
+        hits.incrementAndGet();
+        if (slowPrimary.compareAndSet(true, false)) {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (System.nanoTime() < deadline) {
+                if (chain.call().isCanceled()) {
+                    loserCancelled.set(true);
+                    throw new IOException("Canceled");
+                }
+                Thread.sleep(10);
+            }
+        }
+        return FakeDifyServer.json("{}");
+    }
+}
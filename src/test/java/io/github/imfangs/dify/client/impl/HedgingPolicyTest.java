@@ -0,0 +1,34 @@
+package io.github.imfangs.dify.client.impl;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HedgingPolicyTest {
+
+    @Test
+    void delayFollowsPercentile() {
+        HedgingPolicy policy = new HedgingPolicy(0.95, 0.05);
+        assertEquals(-1, policy.onRequest("GET /messages"));
+
+        for (int i = 1; i <= 100; i++) {
+            policy.record("GET /messages", i);
+        }
+        assertEquals(95, policy.onRequest("GET /messages"));
+        assertEquals(-1, policy.onRequest("GET /conversations"));
+    }
+
+    @Test
+    void budgetCapsHedges() {
+        HedgingPolicy policy = new HedgingPolicy(0.95, 0.05);
+        for (int i = 0; i < 19; i++) {
+            policy.onRequest("GET /parameters");
+        }
+        assertFalse(policy.tryHedge());
+
+        policy.onRequest("GET /parameters");
+        policy.onRequest("GET /parameters");
+        assertTrue(policy.tryHedge());
+        assertFalse(policy.tryHedge());
+    }
+}
@@ -0,0 +1,101 @@
+package io.github.imfangs.dify.client.impl;
+
+import io.github.imfangs.dify.client.config.FakeDifyServer;
+import io.github.imfangs.dify.client.exception.DifyApiException;
+import io.github.imfangs.dify.client.model.chat.AppInfoResponse;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestCoalescingTest {
+    private final CountDownLatch release = new CountDownLatch(1);
+    private volatile int status = 200;
+
+    private final FakeDifyServer server = new FakeDifyServer().on("GET", "/info", chain -> {
+        release.await(5, TimeUnit.SECONDS);
+        return status == 200 ? FakeDifyServer.json("{\"name\":\"" + chain.request().header("Authorization") + "\"}")
+                : FakeDifyServer.error(status, "internal_error", "boom");
+    });
+
+    @Test
+    void concurrentIdenticalGetsShareOneRequest() throws Exception {
+        DefaultDifyClient client = client("app-test");
+
+        CompletableFuture<AppInfoResponse> first = CompletableFuture.supplyAsync(() -> appInfo(client));
+        awaitHits(1);
+        CompletableFuture<AppInfoResponse> second = CompletableFuture.supplyAsync(() -> appInfo(client));
+        Thread.sleep(100);
+        release.countDown();
+
+        assertEquals("Bearer app-test", first.get(5, TimeUnit.SECONDS).getName());
+        assertEquals("Bearer app-test", second.get(5, TimeUnit.SECONDS).getName());
+        assertNotSame(first.get(), second.get());
+        assertEquals(1, server.requestCount());
+    }
+
+    @Test
+    void differentApiKeysAreNotMerged() throws Exception {
+        DefaultDifyClient first = client("app-first");
+        DefaultDifyClient second = client("app-second");
+
+        CompletableFuture<AppInfoResponse> a = CompletableFuture.supplyAsync(() -> appInfo(first));
+        CompletableFuture<AppInfoResponse> b = CompletableFuture.supplyAsync(() -> appInfo(second));
+        awaitHits(2);
+        release.countDown();
+
+        assertEquals("Bearer app-first", a.get(5, TimeUnit.SECONDS).getName());
+        assertEquals("Bearer app-second", b.get(5, TimeUnit.SECONDS).getName());
+        assertEquals(2, server.requestCount());
+    }
+
+    @Test
+    void failurePropagatesToAllWaitersAndIsNotCached() throws Exception {
+        DefaultDifyClient client = client("app-test");
+        status = 500;
+
+        CompletableFuture<AppInfoResponse> first = CompletableFuture.supplyAsync(() -> appInfo(client));
+        awaitHits(1);
+        CompletableFuture<AppInfoResponse> second = CompletableFuture.supplyAsync(() -> appInfo(client));
+        Thread.sleep(100);
+        release.countDown();
+
+        for (CompletableFuture<AppInfoResponse> future : new CompletableFuture[]{first, second}) {
+            ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(DifyApiException.class, e.getCause().getCause());
+            assertEquals(500, ((DifyApiException) e.getCause().getCause()).getStatusCode());
+        }
+        assertEquals(1, server.requestCount());
+
+        // 失败的请求已移除，下一次调用重新发出请求
+        status = 200;
+        assertEquals("Bearer app-test", client.getAppInfo().getName());
+        assertEquals(2, server.requestCount());
+    }
+
+    private DefaultDifyClient client(String apiKey) {
+        return new DefaultDifyClient(server.config()
+                .apiKey(apiKey)
+                .requestCoalescing(true)
+                .build(), server.httpClient());
+    }
+
+    private void awaitHits(int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (server.requestCount() < expected && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+
+    private static AppInfoResponse appInfo(DefaultDifyClient client) {
+        try {
+            return client.getAppInfo();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
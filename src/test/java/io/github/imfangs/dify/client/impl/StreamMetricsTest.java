@@ -0,0 +1,71 @@
+package io.github.imfangs.dify.client.impl;
+
+import io.github.imfangs.dify.client.callback.ChatStreamCallback;
+import io.github.imfangs.dify.client.config.FakeDifyServer;
+import io.github.imfangs.dify.client.enums.ResponseMode;
+import io.github.imfangs.dify.client.event.MessageEndEvent;
+import io.github.imfangs.dify.client.metrics.DifyMetricsRecorder;
+import io.github.imfangs.dify.client.model.chat.ChatMessage;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StreamMetricsTest {
+    @Test
+    void usesCompletionTokensFromMessageEnd() throws Exception {
+        assertEquals(42, stream("{\"event\":\"message_end\",\"id\":\"m1\",\"metadata\":{\"usage\":{\"completion_tokens\":42}}}"));
+    }
+
+    @Test
+    void fallsBackToChunkCountWithoutUsage() throws Exception {
+        assertEquals(3, stream("{\"event\":\"message_end\",\"id\":\"m1\"}"));
+    }
+
+    private static int stream(String messageEnd) throws Exception {
+        AtomicInteger firstTokens = new AtomicInteger();
+        AtomicInteger gaps = new AtomicInteger();
+        CompletableFuture<Integer> tokens = new CompletableFuture<>();
+        DifyMetricsRecorder recorder = new DifyMetricsRecorder() {
+            @Override
+            public void recordTimeToFirstToken(String endpoint, long nanos) {
+                firstTokens.incrementAndGet();
+            }
+
+            @Override
+            public void recordInterTokenGap(String endpoint, long nanos) {
+                gaps.incrementAndGet();
+            }
+
+            @Override
+            public void recordStreamCompleted(String endpoint, long durationNanos, long generationNanos, int count) {
+                assertEquals("/v1/chat-messages", endpoint);
+                tokens.complete(count);
+            }
+        };
+        FakeDifyServer server = new FakeDifyServer().on("POST", "/chat-messages", chain -> FakeDifyServer.events(
+                "{\"event\":\"message\",\"id\":\"m1\",\"answer\":\"你\"}",
+                "{\"event\":\"message\",\"id\":\"m1\",\"answer\":\"好\"}",
+                "{\"event\":\"message\",\"id\":\"m1\",\"answer\":\"。\"}",
+                messageEnd));
+        DefaultDifyClient client = new DefaultDifyClient(server.config().metricsRecorder(recorder).build(), server.httpClient());
+
+        CompletableFuture<MessageEndEvent> end = new CompletableFuture<>();
+        client.sendChatMessageStream(ChatMessage.builder().query("hi").user("test").responseMode(ResponseMode.STREAMING).build(),
+                new ChatStreamCallback() {
+                    @Override
+                    public void onMessageEnd(MessageEndEvent event) {
+                        end.complete(event);
+                    }
+                });
+
+        assertEquals("m1", end.get(5, TimeUnit.SECONDS).getMessageId());
+        int count = tokens.get(5, TimeUnit.SECONDS);
+        assertEquals(1, firstTokens.get());
+        assertEquals(2, gaps.get());
+        return count;
+    }
+}
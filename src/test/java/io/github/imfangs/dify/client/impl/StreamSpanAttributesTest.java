@@ -0,0 +1,60 @@
+package io.github.imfangs.dify.client.impl;
+
+import io.github.imfangs.dify.client.tracing.DifySpan;
+import io.github.imfangs.dify.client.tracing.SpanAttributes;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StreamSpanAttributesTest {
+
+    @Test
+    void collectsChatIdentifiersFromFirstEvent() {
+        Map<String, String> collected = collect(
+                "{\"event\":\"message\",\"task_id\":\"t1\",\"id\":\"m1\",\"conversation_id\":\"c1\",\"answer\":\"你\"}",
+                "{\"event\":\"message\",\"task_id\":\"t2\",\"id\":\"m2\",\"conversation_id\":\"c2\",\"answer\":\"好\"}");
+        assertEquals("t1", collected.get(SpanAttributes.TASK_ID));
+        assertEquals("m1", collected.get(SpanAttributes.MESSAGE_ID));
+        assertEquals("c1", collected.get(SpanAttributes.CONVERSATION_ID));
+        assertFalse(collected.containsKey(SpanAttributes.WORKFLOW_RUN_ID));
+    }
+
+    @Test
+    void collectsWorkflowIdentifiersAndIgnoresNodeIds() {
+        Map<String, String> collected = collect(
+                "not json",
+                "{\"event\":\"workflow_started\",\"task_id\":\"t1\",\"workflow_run_id\":\"r1\",\"data\":{\"id\":\"r1\"}}",
+                "{\"event\":\"node_started\",\"task_id\":\"t1\",\"workflow_run_id\":\"r1\",\"data\":{\"id\":\"n1\"}}");
+        assertEquals("t1", collected.get(SpanAttributes.TASK_ID));
+        assertEquals("r1", collected.get(SpanAttributes.WORKFLOW_RUN_ID));
+        assertFalse(collected.containsKey(SpanAttributes.MESSAGE_ID));
+    }
+
+    private static Map<String, String> collect(String... events) {
+        SpanAttributes attributes = new SpanAttributes();
+        StreamSpanAttributes collector = new StreamSpanAttributes(attributes);
+        for (String event : events) {
+            collector.onEvent(event);
+        }
+        Map<String, String> collected = new HashMap<>();
+        attributes.applyTo(new DifySpan() {
+            @Override
+            public void inject(BiConsumer<String, String> headerSetter) {
+            }
+
+            @Override
+            public void setAttribute(String key, String value) {
+                collected.put(key, value);
+            }
+
+            @Override
+            public void end() {
+            }
+        });
+        return collected;
+    }
+}
@@ -0,0 +1,49 @@
+package io.github.imfangs.dify.client.interceptor;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    @Test
+    void rejectsWhenLimitReached() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("test", 2, 10);
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+        limiter.release();
+        assertTrue(limiter.tryAcquire());
+        assertEquals(2, limiter.getInFlight());
+    }
+
+    @Test
+    void growsWhenSaturatedWithStableRtt() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("test", 4, 50);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(limiter.tryAcquire());
+        }
+        for (int i = 0; i < 50; i++) {
+            limiter.onSample(10_000_000L);
+        }
+        assertTrue(limiter.getLimit() > 4);
+    }
+
+    @Test
+    void shrinksOnRisingRttAndDrops() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("test", 40, 50);
+        limiter.onSample(10_000_000L);
+        for (int i = 0; i < 50; i++) {
+            limiter.onSample(200_000_000L);
+        }
+        int afterLatency = limiter.getLimit();
+        assertTrue(afterLatency < 40);
+
+        limiter.onDropped();
+        assertTrue(limiter.getLimit() < afterLatency);
+        for (int i = 0; i < 100; i++) {
+            limiter.onDropped();
+        }
+        assertEquals(1, limiter.getLimit());
+    }
+}
@@ -0,0 +1,89 @@
+package io.github.imfangs.dify.client.interceptor;
+
+import io.github.imfangs.dify.client.exception.DifyCircuitOpenException;
+import io.github.imfangs.dify.client.exception.DifyConcurrencyLimitException;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CircuitBreakerTest {
+
+    @Test
+    void opensOnFailureRateAndRecoversThroughHalfOpen() {
+        CircuitBreaker breaker = new CircuitBreaker("chat", 0.5, 1.0, 1000, 0);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(breaker.tryAcquire());
+            breaker.onResult(1_000_000L, false);
+        }
+        for (int i = 0; i < 5; i++) {
+            assertTrue(breaker.tryAcquire());
+            breaker.onResult(1_000_000L, true);
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        // 熔断时间为0，下一次请求即进入半开状态
+        for (int i = 0; i < 3; i++) {
+            assertTrue(breaker.tryAcquire());
+        }
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+        for (int i = 0; i < 3; i++) {
+            breaker.onResult(1_000_000L, false);
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void opensOnSlowCallsAndStaysOpen() {
+        CircuitBreaker breaker = new CircuitBreaker("workflow", 0.5, 0.8, 10, 60_000);
+        for (int i = 0; i < 10; i++) {
+            assertTrue(breaker.tryAcquire());
+            breaker.onResult(20_000_000L, false);
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+        assertTrue(breaker.getRemainingOpenMillis() > 0);
+    }
+
+    @Test
+    void groupsByPath() {
+        assertEquals("chat", CircuitBreakerInterceptor.groupOf("/v1/chat-messages"));
+        assertEquals("completion", CircuitBreakerInterceptor.groupOf("/v1/completion-messages"));
+        assertEquals("workflow", CircuitBreakerInterceptor.groupOf("/v1/workflows/run"));
+        assertEquals("datasets", CircuitBreakerInterceptor.groupOf("/v1/datasets/abc/retrieve"));
+        assertEquals("files", CircuitBreakerInterceptor.groupOf("/v1/files/upload"));
+        assertEquals("app", CircuitBreakerInterceptor.groupOf("/v1/parameters"));
+    }
+
+    @Test
+    void ignoresLocalConcurrencyLimitRejections() {
+        CircuitBreakerInterceptor breakers = new CircuitBreakerInterceptor(0.5, 1.0, 10_000, 60_000);
+        OkHttpClient rejecting = new OkHttpClient.Builder()
+                .addInterceptor(breakers)
+                .addInterceptor(chain -> {
+                    throw new DifyConcurrencyLimitException("blocking", 1);
+                })
+                .build();
+        Request request = new Request.Builder().url("http://dify.invalid/v1/chat-messages").build();
+        for (int i = 0; i < 20; i++) {
+            assertThrows(DifyConcurrencyLimitException.class, () -> rejecting.newCall(request).execute());
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, breakers.getCircuitBreaker("chat").getState());
+
+        OkHttpClient failing = new OkHttpClient.Builder()
+                .addInterceptor(breakers)
+                .addInterceptor(chain -> {
+                    throw new IOException("connection reset");
+                })
+                .build();
+        for (int i = 0; i < 20; i++) {
+            assertThrows(IOException.class, () -> failing.newCall(request).execute());
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breakers.getCircuitBreaker("chat").getState());
+        assertThrows(DifyCircuitOpenException.class, () -> failing.newCall(request).execute());
+    }
+}
@@ -0,0 +1,74 @@
+package io.github.imfangs.dify.client.interceptor;
+
+import io.github.imfangs.dify.client.exception.DifyConcurrencyLimitException;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrencyLimitInterceptorTest {
+    private static final MediaType JSON = MediaType.get("application/json");
+
+    private final ConcurrencyLimitInterceptor interceptor = new ConcurrencyLimitInterceptor(1, 10);
+    private final OkHttpClient httpClient = new OkHttpClient.Builder()
+            .addInterceptor(interceptor)
+            .addInterceptor(chain -> new Response.Builder().request(chain.request()).protocol(Protocol.HTTP_1_1).code(200).message("OK")
+                    .body(ResponseBody.create("data: {}\n\n", JSON)).build())
+            .build();
+
+    @Test
+    void selectsStreamingLimiterByAcceptHeader() throws IOException {
+        Request request = new Request.Builder().url("http://dify.invalid/v1/datasets/ds/retrieve")
+                .header("Accept", "text/event-stream").build();
+        try (Response response = httpClient.newCall(request).execute()) {
+            assertEquals(1, interceptor.getStreamingLimiter().getInFlight());
+            assertEquals(0, interceptor.getDatasetsLimiter().getInFlight());
+            assertEquals(0, interceptor.getBlockingLimiter().getInFlight());
+        }
+    }
+
+    @Test
+    void selectsDatasetsLimiterByPath() throws IOException {
+        try (Response response = httpClient.newCall(get("http://dify.invalid/v1/datasets/ds/documents")).execute()) {
+            assertEquals(1, interceptor.getDatasetsLimiter().getInFlight());
+            assertEquals(0, interceptor.getBlockingLimiter().getInFlight());
+        }
+    }
+
+    @Test
+    void selectsBlockingLimiterOtherwise() throws IOException {
+        try (Response response = httpClient.newCall(get("http://dify.invalid/v1/parameters")).execute()) {
+            assertEquals(1, interceptor.getBlockingLimiter().getInFlight());
+            assertEquals(0, interceptor.getStreamingLimiter().getInFlight());
+        }
+        assertEquals(0, interceptor.getBlockingLimiter().getInFlight());
+    }
+
+    @Test
+    void holdsPermitUntilStreamingBodyIsClosed() throws IOException {
+        Request request = new Request.Builder().url("http://dify.invalid/v1/chat-messages")
+                .header("Accept", "text/event-stream").build();
+        Response response = httpClient.newCall(request).execute();
+        assertEquals("data: {}", response.body().source().readUtf8Line());
+        assertEquals(1, interceptor.getStreamingLimiter().getInFlight());
+        assertThrows(DifyConcurrencyLimitException.class, () -> httpClient.newCall(request).execute());
+
+        response.close();
+        assertEquals(0, interceptor.getStreamingLimiter().getInFlight());
+        // 重复关闭不会多释放许可
+        response.close();
+        assertEquals(0, interceptor.getStreamingLimiter().getInFlight());
+        httpClient.newCall(request).execute().close();
+    }
+
+    private static Request get(String url) {
+        return new Request.Builder().url(url).build();
+    }
+}
@@ -0,0 +1,75 @@
+package io.github.imfangs.dify.client.interceptor;
+
+import io.github.imfangs.dify.client.metrics.DifyMetricsRecorder;
+import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricsInterceptorTest {
+    private static final MediaType JSON = MediaType.get("application/json");
+
+    @Test
+    void endpointOf() {
+        assertEquals("/v1/chat-messages", MetricsInterceptor.endpointOf(HttpUrl.get("https://api.dify.ai/v1/chat-messages")));
+        assertEquals("/v1/messages", MetricsInterceptor.endpointOf(HttpUrl.get("https://api.dify.ai/v1/messages?conversation_id=abc&limit=20")));
+        assertEquals("/v1/datasets/{id}/documents/{id}/indexing-status",
+                MetricsInterceptor.endpointOf(HttpUrl.get("https://api.dify.ai/v1/datasets/0b4c5e1e-6a53-4b8f-9f6a-2d1c9e7a3b10/documents/20240501123000123456/indexing-status")));
+    }
+
+    @Test
+    void recordsRequestWhenBodyIsClosed() throws IOException {
+        List<String> recorded = new CopyOnWriteArrayList<>();
+        OkHttpClient client = client(recorded, chain -> new Response.Builder().request(chain.request()).protocol(Protocol.HTTP_1_1)
+                .code(200).message("OK").body(ResponseBody.create("{\"answer\":\"ok\"}", JSON)).build());
+
+        Request request = new Request.Builder().url("http://dify.invalid/v1/chat-messages")
+                .post(RequestBody.create("{\"query\":\"hi\"}", JSON)).build();
+        Response response = client.newCall(request).execute();
+        assertTrue(recorded.isEmpty());
+        assertEquals("{\"answer\":\"ok\"}", response.body().string());
+        response.close();
+
+        assertEquals(1, recorded.size());
+        assertEquals("POST /v1/chat-messages 200 14 15", recorded.get(0));
+    }
+
+    @Test
+    void recordsFailureWithZeroStatus() {
+        List<String> recorded = new CopyOnWriteArrayList<>();
+        OkHttpClient client = client(recorded, chain -> {
+            throw new IOException("connection reset");
+        });
+
+        assertThrows(IOException.class, () -> client.newCall(new Request.Builder()
+                .url("http://dify.invalid/v1/datasets/0b4c5e1e-6a53-4b8f-9f6a-2d1c9e7a3b10/documents").build()).execute());
+        assertEquals(1, recorded.size());
+        assertEquals("GET /v1/datasets/{id}/documents 0 0 0", recorded.get(0));
+    }
+
+    private static OkHttpClient client(List<String> recorded, Interceptor server) {
+        DifyMetricsRecorder recorder = new DifyMetricsRecorder() {
+            @Override
+            public void recordRequest(String method, String endpoint, int statusCode, long durationNanos, long requestBytes, long responseBytes) {
+                assertTrue(durationNanos > 0);
+                recorded.add(method + " " + endpoint + " " + statusCode + " " + requestBytes + " " + responseBytes);
+            }
+        };
+        return new OkHttpClient.Builder()
+                .addInterceptor(new MetricsInterceptor(recorder))
+                .addInterceptor(server)
+                .build();
+    }
+}
@@ -0,0 +1,180 @@
+package io.github.imfangs.dify.client.interceptor;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Headers;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Date;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RetryInterceptorTest {
+    private static final MediaType JSON = MediaType.get("application/json");
+
+    private final AtomicInteger hits = new AtomicInteger();
+    private final Queue<Integer> statuses = new ConcurrentLinkedQueue<>();
+
+    @Test
+    void retriesUnavailableThenSucceeds() throws IOException {
+        statuses.add(503);
+        statuses.add(200);
+        try (Response response = client(3, 0.1).newCall(get()).execute()) {
+            assertEquals(200, response.code());
+            assertEquals("ok", response.body().string());
+        }
+        assertEquals(2, hits.get());
+    }
+
+    @Test
+    void doesNotRetryPostUnlessIdempotent() throws IOException {
+        OkHttpClient client = client(3, 0.1);
+        Request post = new Request.Builder().url("http://dify.invalid/v1/chat-messages")
+                .post(RequestBody.create("{}", JSON)).build();
+
+        statuses.add(503);
+        try (Response response = client.newCall(post).execute()) {
+            assertEquals(503, response.code());
+        }
+        assertEquals(1, hits.get());
+
+        statuses.add(503);
+        statuses.add(200);
+        try (Response response = client.newCall(RetryInterceptor.idempotent(post)).execute()) {
+            assertEquals(200, response.code());
+        }
+        assertEquals(3, hits.get());
+    }
+
+    @Test
+    void stopsRetryingWhenBudgetIsExhausted() throws IOException {
+        // 比例为 0 时只有初始的 10 个令牌
+        OkHttpClient client = client(100, 0);
+        try (Response response = client.newCall(get()).execute()) {
+            assertEquals(503, response.code());
+        }
+        assertEquals(11, hits.get());
+
+        try (Response response = client.newCall(get()).execute()) {
+            assertEquals(503, response.code());
+        }
+        assertEquals(12, hits.get());
+    }
+
+    @Test
+    void cancelEndsBackoffWait() throws Exception {
+        statuses.add(503);
+        OkHttpClient client = new OkHttpClient.Builder()
+                .addInterceptor(new RetryInterceptor(3, 5000, 10000, 0.1))
+                .addInterceptor(this::serve)
+                .build();
+        Call call = client.newCall(get());
+        CompletableFuture<Long> failedAt = new CompletableFuture<>();
+        call.enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                failedAt.complete(System.nanoTime());
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) {
+                response.close();
+                failedAt.completeExceptionally(new AssertionError("unexpected response " + response.code()));
+            }
+        });
+        while (hits.get() == 0) {
+            Thread.sleep(5);
+        }
+        long cancelledAt = System.nanoTime();
+        call.cancel();
+
+        long waited = TimeUnit.NANOSECONDS.toMillis(failedAt.get(5, TimeUnit.SECONDS) - cancelledAt);
+        assertTrue(waited < 1000, "waited " + waited);
+        assertEquals(1, hits.get());
+    }
+
+    @Test
+    void doesNotWaitPastCallTimeout() throws IOException {
+        statuses.add(503);
+        statuses.add(200);
+        OkHttpClient client = new OkHttpClient.Builder()
+                .callTimeout(500, TimeUnit.MILLISECONDS)
+                .addInterceptor(new RetryInterceptor(3, 1000, 10000, 0.1))
+                .addInterceptor(this::serve)
+                .build();
+        try (Response response = client.newCall(get()).execute()) {
+            assertEquals(503, response.code());
+        }
+        assertEquals(1, hits.get());
+    }
+
+    @Test
+    void transientStatus() {
+        assertTrue(RetryInterceptor.isTransientStatus(429));
+        assertTrue(RetryInterceptor.isTransientStatus(500));
+        assertTrue(RetryInterceptor.isTransientStatus(503));
+        assertFalse(RetryInterceptor.isTransientStatus(400));
+        assertFalse(RetryInterceptor.isTransientStatus(404));
+    }
+
+    @Test
+    void parseRetryAfter() {
+        assertEquals(-1, RetryInterceptor.parseRetryAfter(Headers.of()));
+        assertEquals(3000, RetryInterceptor.parseRetryAfter(Headers.of("Retry-After", "3")));
+        assertEquals(-1, RetryInterceptor.parseRetryAfter(Headers.of("Retry-After", "soon")));
+
+        Headers dateHeaders = new Headers.Builder().set("Retry-After", new Date(System.currentTimeMillis() + 60_000)).build();
+        long millis = RetryInterceptor.parseRetryAfter(dateHeaders);
+        assertTrue(millis > 50_000 && millis <= 60_000);
+    }
+
+    @Test
+    void retryBudgetLimitsRetries() {
+        RetryBudget budget = new RetryBudget(0.1);
+        int retries = 0;
+        while (budget.tryRetry()) {
+            retries++;
+        }
+        assertEquals(10, retries);
+
+        for (int i = 0; i < 20; i++) {
+            budget.onRequest();
+        }
+        assertTrue(budget.tryRetry());
+        assertTrue(budget.tryRetry());
+        assertFalse(budget.tryRetry());
+    }
+
+    private OkHttpClient client(int maxRetries, double budgetRatio) {
+        return new OkHttpClient.Builder()
+                .addInterceptor(new RetryInterceptor(maxRetries, 1, 5, budgetRatio))
+                .addInterceptor(this::serve)
+                .build();
+    }
+
+    private Response serve(Interceptor.Chain chain) {
+        hits.incrementAndGet();
+        Integer status = statuses.poll();
+        int code = status != null ? status : 503;
+        return new Response.Builder().request(chain.request()).protocol(Protocol.HTTP_1_1).code(code).message("")
+                .body(ResponseBody.create(code == 200 ? "ok" : "unavailable", JSON)).build();
+    }
+
+    private static Request get() {
+        return new Request.Builder().url("http://dify.invalid/v1/parameters").build();
+    }
+}
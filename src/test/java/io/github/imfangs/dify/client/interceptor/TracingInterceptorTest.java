@@ -0,0 +1,132 @@
+package io.github.imfangs.dify.client.interceptor;
+
+import com.sun.net.httpserver.HttpServer;
+import io.github.imfangs.dify.client.callback.ChatStreamCallback;
+import io.github.imfangs.dify.client.enums.ResponseMode;
+import io.github.imfangs.dify.client.event.MessageEndEvent;
+import io.github.imfangs.dify.client.impl.DefaultDifyClient;
+import io.github.imfangs.dify.client.model.DifyConfig;
+import io.github.imfangs.dify.client.model.chat.ChatMessage;
+import io.github.imfangs.dify.client.tracing.DifyTracer;
+import io.github.imfangs.dify.client.tracing.OpenTelemetryDifyTracer;
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.api.trace.TraceFlags;
+import io.opentelemetry.api.trace.TraceState;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.Scope;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TracingInterceptorTest {
+    private static final String TRACE_ID = "4bf92f3577b34da6a3ce929d0e0e4736";
+    private static final String PARENT_SPAN_ID = "00f067aa0ba902b7";
+    private static final MediaType EVENT_STREAM = MediaType.get("text/event-stream");
+
+    private final DifyTracer tracer = new OpenTelemetryDifyTracer(OpenTelemetry.noop());
+    private final CompletableFuture<String> traceparent = new CompletableFuture<>();
+    private final Interceptor server = chain -> {
+        String header = chain.request().header("traceparent");
+        traceparent.complete(header != null ? header : "");
+        return new Response.Builder().request(chain.request()).protocol(Protocol.HTTP_1_1).code(200).message("OK")
+                .body(ResponseBody.create("data: {\"event\":\"message_end\",\"id\":\"m1\"}\n\n", EVENT_STREAM)).build();
+    };
+
+    @Test
+    void enqueuedCallKeepsCallerContextAsParent() throws Exception {
+        OkHttpClient client = new OkHttpClient.Builder().addInterceptor(new TracingInterceptor(tracer)).addInterceptor(server).build();
+        Request request;
+        try (Scope ignored = parentContext().makeCurrent()) {
+            request = TracingInterceptor.withParentContext(new Request.Builder().url("http://dify.invalid/v1/parameters").build(), tracer);
+        }
+        client.newCall(request).enqueue(closing());
+
+        assertEquals("00-" + TRACE_ID + "-" + PARENT_SPAN_ID + "-01", traceparent.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void enqueuedCallWithoutCapturedContextHasNoParent() throws Exception {
+        OkHttpClient client = new OkHttpClient.Builder().addInterceptor(new TracingInterceptor(tracer)).addInterceptor(server).build();
+        try (Scope ignored = parentContext().makeCurrent()) {
+            client.newCall(new Request.Builder().url("http://dify.invalid/v1/parameters").build()).enqueue(closing());
+        }
+
+        // Dispatcher 线程上没有调用方的上下文
+        assertEquals("", traceparent.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void streamingCallIsLinkedToCallerSpan() throws Exception {
+        // 客户端安装的拦截器位于自定义拦截器之后，这里用本地 HTTP 服务接收请求
+        HttpServer http = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        http.createContext("/v1/chat-messages", exchange -> {
+            String header = exchange.getRequestHeaders().getFirst("traceparent");
+            traceparent.complete(header != null ? header : "");
+            byte[] body = "data: {\"event\":\"message_end\",\"id\":\"m1\"}\n\n".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        http.start();
+        try {
+            DefaultDifyClient client = new DefaultDifyClient(DifyConfig.builder()
+                    .baseUrl("http://127.0.0.1:" + http.getAddress().getPort() + "/v1")
+                    .apiKey("app-test")
+                    .tracer(tracer)
+                    .build());
+            CompletableFuture<MessageEndEvent> end = new CompletableFuture<>();
+            try (Scope ignored = parentContext().makeCurrent()) {
+                client.sendChatMessageStream(ChatMessage.builder().query("hi").user("test").responseMode(ResponseMode.STREAMING).build(),
+                        new ChatStreamCallback() {
+                            @Override
+                            public void onMessageEnd(MessageEndEvent event) {
+                                end.complete(event);
+                            }
+                        });
+            }
+
+            end.get(5, TimeUnit.SECONDS);
+            assertTrue(traceparent.get().startsWith("00-" + TRACE_ID + "-"), traceparent.get());
+        } finally {
+            http.stop(0);
+        }
+    }
+
+    private static Context parentContext() {
+        SpanContext parent = SpanContext.create(TRACE_ID, PARENT_SPAN_ID, TraceFlags.getSampled(), TraceState.getDefault());
+        return Context.root().with(Span.wrap(parent));
+    }
+
+    private static Callback closing() {
+        return new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) {
+                response.close();
+            }
+        };
+    }
+}
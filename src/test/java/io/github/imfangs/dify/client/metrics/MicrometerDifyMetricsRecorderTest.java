@@ -0,0 +1,49 @@
+package io.github.imfangs.dify.client.metrics;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MicrometerDifyMetricsRecorderTest {
+
+    @Test
+    void recordsRequestsWithClientTag() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        MicrometerDifyMetricsRecorder recorder = new MicrometerDifyMetricsRecorder(registry, "chat");
+
+        recorder.recordRequest("POST", "/v1/chat-messages", 200, TimeUnit.MILLISECONDS.toNanos(120), 10, 20);
+        recorder.recordRequest("POST", "/v1/chat-messages", 0, TimeUnit.MILLISECONDS.toNanos(5), 10, 0);
+        recorder.recordStreamCompleted("/v1/chat-messages", TimeUnit.SECONDS.toNanos(2), TimeUnit.SECONDS.toNanos(1), 50);
+
+        Timer ok = registry.get("dify.client.requests").tags("client", "chat", "status", "200").timer();
+        assertEquals(1, ok.count());
+        assertEquals(120, ok.totalTime(TimeUnit.MILLISECONDS), 0.1);
+        assertEquals(1, registry.get("dify.client.requests").tags("status", "IO_ERROR").timer().count());
+        assertEquals(20, registry.get("dify.client.request.size").tag("client", "chat").summary().totalAmount());
+        assertEquals(50, registry.get("dify.client.stream.tokens_per_second").tag("client", "chat").summary().totalAmount(), 0.001);
+    }
+
+    @Test
+    void bindsEachClientUnderItsOwnTag() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        Dispatcher first = new Dispatcher();
+        first.setMaxRequests(1);
+        OkHttpClient firstClient = new OkHttpClient.Builder().dispatcher(first).build();
+        OkHttpClient secondClient = new OkHttpClient();
+
+        new MicrometerDifyMetricsRecorder(registry, "first").bindHttpClient(firstClient);
+        new MicrometerDifyMetricsRecorder(registry, "second").bindHttpClient(secondClient);
+        // 同名客户端重复绑定时保留首次注册的 Gauge
+        new MicrometerDifyMetricsRecorder(registry, "first").bindHttpClient(secondClient);
+
+        assertEquals(2, registry.find("dify.client.dispatcher.calls").tag("state", "running").gauges().size());
+        assertNotNull(registry.get("dify.client.connections").tags("client", "first", "state", "idle").gauge());
+        assertNotNull(registry.get("dify.client.connections").tags("client", "second", "state", "idle").gauge());
+    }
+}
@@ -0,0 +1,35 @@
+package io.github.imfangs.dify.client.profiler;
+
+import io.github.imfangs.dify.client.callback.ChatAnswerAccumulator;
+import io.github.imfangs.dify.client.impl.StreamEventDispatcher;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProfilingChatflowStreamCallbackTest {
+
+    @Test
+    void forwardsCompleteWhenStreamEndsWithoutFinish() {
+        List<WorkflowTimeline> timelines = new ArrayList<>();
+        ChatAnswerAccumulator accumulator = new ChatAnswerAccumulator();
+        ProfilingChatflowStreamCallback callback = new ProfilingChatflowStreamCallback(accumulator, timelines::add);
+
+        StreamEventDispatcher.dispatchChatFlowEvent(callback, "{\"event\":\"workflow_started\",\"task_id\":\"t1\",\"workflow_run_id\":\"r1\",\"data\":{\"id\":\"r1\"}}", "workflow_started");
+        StreamEventDispatcher.dispatchChatFlowEvent(callback, "{\"event\":\"message\",\"id\":\"m1\",\"answer\":\"你好\"}", "message");
+        callback.onComplete();
+
+        assertEquals("你好", accumulator.getAnswer().toString());
+        assertTrue(accumulator.getResult().isCompletedExceptionally());
+        assertThrows(ExecutionException.class, () -> accumulator.getResult().get());
+
+        assertEquals(1, timelines.size());
+        WorkflowTimeline timeline = timelines.get(0);
+        assertEquals("failed", timeline.getStatus());
+        assertEquals("r1", timeline.getWorkflowRunId());
+        assertEquals(1, timeline.getChunkCount());
+    }
+}
@@ -0,0 +1,127 @@
+package io.github.imfangs.dify.client.profiler;
+
+import io.github.imfangs.dify.client.callback.WorkflowStreamCallback;
+import io.github.imfangs.dify.client.event.WorkflowTextChunkEvent;
+import io.github.imfangs.dify.client.impl.StreamEventDispatcher;
+import okhttp3.Call;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProfilingWorkflowStreamCallbackTest {
+
+    @Test
+    void buildsTimelineAndSpansFromStreamEvents() {
+        AtomicInteger chunks = new AtomicInteger();
+        List<WorkflowTimeline> timelines = new ArrayList<>();
+        ProfilingWorkflowStreamCallback callback = new ProfilingWorkflowStreamCallback(new WorkflowStreamCallback() {
+            @Override
+            public void onWorkflowTextChunk(WorkflowTextChunkEvent event) {
+                chunks.incrementAndGet();
+            }
+        }, timelines::add);
+
+        StreamEventDispatcher.dispatchWorkflowEvent(callback, "{\"event\":\"workflow_started\",\"task_id\":\"t1\",\"workflow_run_id\":\"r1\",\"data\":{\"id\":\"r1\"}}");
+        StreamEventDispatcher.dispatchWorkflowEvent(callback, "{\"event\":\"node_started\",\"workflow_run_id\":\"r1\",\"data\":{\"id\":\"n1\",\"node_id\":\"start\",\"node_type\":\"start\",\"title\":\"开始\",\"index\":1}}");
+        StreamEventDispatcher.dispatchWorkflowEvent(callback, "{\"event\":\"node_finished\",\"workflow_run_id\":\"r1\",\"data\":{\"id\":\"n1\",\"node_id\":\"start\",\"status\":\"succeeded\",\"elapsed_time\":0.0}}");
+        StreamEventDispatcher.dispatchWorkflowEvent(callback, "{\"event\":\"node_started\",\"workflow_run_id\":\"r1\",\"data\":{\"id\":\"n2\",\"node_id\":\"llm\",\"node_type\":\"llm\",\"title\":\"LLM\",\"index\":2}}");
+        StreamEventDispatcher.dispatchWorkflowEvent(callback, "{\"event\":\"text_chunk\",\"workflow_run_id\":\"r1\",\"data\":{\"text\":\"你\"}}");
+        StreamEventDispatcher.dispatchWorkflowEvent(callback, "{\"event\":\"text_chunk\",\"workflow_run_id\":\"r1\",\"data\":{\"text\":\"好\"}}");
+        StreamEventDispatcher.dispatchWorkflowEvent(callback, "{\"event\":\"node_finished\",\"workflow_run_id\":\"r1\",\"data\":{\"id\":\"n2\",\"node_id\":\"llm\",\"status\":\"succeeded\",\"elapsed_time\":0.0,\"total_tokens\":12}}");
+        assertTrue(timelines.isEmpty());
+        StreamEventDispatcher.dispatchWorkflowEvent(callback, "{\"event\":\"workflow_finished\",\"workflow_run_id\":\"r1\",\"data\":{\"id\":\"r1\",\"status\":\"succeeded\",\"elapsed_time\":0.0}}");
+
+        assertEquals(2, chunks.get());
+        assertEquals(1, timelines.size());
+        WorkflowTimeline timeline = timelines.get(0);
+        assertEquals("r1", timeline.getWorkflowRunId());
+        assertEquals("t1", timeline.getTaskId());
+        assertEquals("succeeded", timeline.getStatus());
+        assertEquals(2, timeline.getChunkCount());
+        assertTrue(timeline.getOverheadNanos() >= 0);
+
+        assertEquals(2, timeline.getNodes().size());
+        WorkflowTimeline.NodeTiming llm = timeline.getNodes().get(1);
+        assertEquals("llm", llm.getNodeType());
+        assertEquals(2, llm.getChunkCount());
+        assertEquals(12, llm.getTotalTokens());
+        assertTrue(llm.getObservedNanos() >= 0);
+        assertEquals(0, timeline.getNodes().get(0).getChunkCount());
+
+        List<WorkflowTimeline.TimelineSegment> segments = timeline.toSegments();
+        assertEquals(3, segments.size());
+        assertNull(segments.get(0).getParentIndex());
+        assertEquals(2, segments.get(2).getIndex());
+        assertEquals(0, segments.get(2).getParentIndex());
+        assertEquals("dify.node LLM", segments.get(2).getName());
+        assertTrue(segments.get(2).getEndEpochNanos() >= segments.get(2).getStartEpochNanos());
+    }
+
+    @Test
+    void reportsPartialTimelineOnceOnException() {
+        List<WorkflowTimeline> timelines = new ArrayList<>();
+        ProfilingWorkflowStreamCallback callback = new ProfilingWorkflowStreamCallback(new WorkflowStreamCallback() {
+        }, timelines::add);
+
+        StreamEventDispatcher.dispatchWorkflowEvent(callback, "{\"event\":\"node_started\",\"workflow_run_id\":\"r1\",\"data\":{\"id\":\"n1\",\"node_id\":\"llm\"}}");
+        callback.onException(new IOException("断开"));
+        callback.onException(new IOException("断开"));
+
+        assertEquals(1, timelines.size());
+        assertNull(timelines.get(0).getStatus());
+        assertEquals(-1, timelines.get(0).getNodes().get(0).getObservedNanos());
+        assertEquals(2, timelines.get(0).toSegments().size());
+    }
+
+    @Test
+    void forwardsOpenAndCompleteAndFailsUnfinishedRun() {
+        List<WorkflowTimeline> timelines = new ArrayList<>();
+        List<Call> opened = new ArrayList<>();
+        AtomicInteger completed = new AtomicInteger();
+        ProfilingWorkflowStreamCallback callback = new ProfilingWorkflowStreamCallback(new WorkflowStreamCallback() {
+            @Override
+            public void onOpen(Call call) {
+                opened.add(call);
+            }
+
+            @Override
+            public void onComplete() {
+                completed.incrementAndGet();
+            }
+        }, timelines::add);
+        Call call = new OkHttpClient().newCall(new Request.Builder().url("http://dify.invalid/v1/workflows/run").build());
+
+        callback.onOpen(call);
+        StreamEventDispatcher.dispatchWorkflowEvent(callback, "{\"event\":\"workflow_started\",\"task_id\":\"t1\",\"workflow_run_id\":\"r1\",\"data\":{\"id\":\"r1\"}}");
+        callback.onComplete();
+
+        assertEquals(Collections.singletonList(call), opened);
+        assertEquals(1, completed.get());
+        assertEquals(1, timelines.size());
+        assertEquals("failed", timelines.get(0).getStatus());
+        assertNotNull(timelines.get(0).getError());
+        assertTrue(timelines.get(0).getObservedNanos() >= 0);
+    }
+
+    @Test
+    void completeAfterFinishKeepsStatus() {
+        List<WorkflowTimeline> timelines = new ArrayList<>();
+        ProfilingWorkflowStreamCallback callback = new ProfilingWorkflowStreamCallback(new WorkflowStreamCallback() {
+        }, timelines::add);
+
+        StreamEventDispatcher.dispatchWorkflowEvent(callback, "{\"event\":\"workflow_finished\",\"workflow_run_id\":\"r1\",\"data\":{\"id\":\"r1\",\"status\":\"succeeded\"}}");
+        callback.onComplete();
+
+        assertEquals(1, timelines.size());
+        assertEquals("succeeded", timelines.get(0).getStatus());
+        assertNull(timelines.get(0).getError());
+    }
+}
@@ -0,0 +1,164 @@
+package io.github.imfangs.dify.client.profiler;
+
+import io.github.imfangs.dify.client.tracing.DifySpan;
+import io.github.imfangs.dify.client.tracing.DifyTracer;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WorkflowTimelineTest {
+
+    @Test
+    void exportsOneChildSpanPerNodeWithTimelineTimestamps() {
+        WorkflowTimeline timeline = new WorkflowTimeline();
+        timeline.setWorkflowRunId("r1");
+        timeline.setStatus("failed");
+        timeline.setError("LLM 超时");
+        timeline.setStartEpochMillis(1_000);
+        timeline.setFinishedOffsetNanos(900);
+        timeline.setServerElapsedNanos(500_000);
+        timeline.getNodes().add(node("start", 100, 200, "succeeded"));
+        timeline.getNodes().add(node("llm", 300, 800, "failed"));
+
+        RecordingTracer tracer = new RecordingTracer();
+        timeline.export(tracer);
+
+        assertEquals(3, tracer.spans.size());
+        RecordingSpan root = tracer.spans.get(0);
+        assertEquals("dify.workflow", root.name);
+        assertEquals("current", root.parent);
+        assertEquals(1_000_000_000L, root.start);
+        assertEquals(1_000_000_900L, root.end);
+        assertEquals("r1", root.attributes.get("dify.workflow_run_id"));
+        assertEquals(0.5, root.attributes.get("dify.server_elapsed_ms"));
+        assertEquals(0L, root.attributes.get("dify.chunk_count"));
+        assertEquals("LLM 超时", root.error);
+
+        RecordingSpan start = tracer.spans.get(1);
+        assertEquals("dify.node start", start.name);
+        assertSame(root, start.parent);
+        assertEquals(1_000_000_100L, start.start);
+        assertEquals(1_000_000_200L, start.end);
+        assertNull(start.error);
+
+        RecordingSpan llm = tracer.spans.get(2);
+        assertSame(root, llm.parent);
+        assertEquals(1_000_000_300L, llm.start);
+        assertEquals(1_000_000_800L, llm.end);
+        assertTrue(llm.failed);
+
+        // 子 span 先于工作流 span 结束
+        assertEquals(Arrays.asList(llm, start, root), tracer.ended);
+    }
+
+    @Test
+    void skipsExportWhenTracerDoesNotSupportTimestamps() {
+        WorkflowTimeline timeline = new WorkflowTimeline();
+        timeline.getNodes().add(node("start", 0, 10, "succeeded"));
+        List<String> started = new ArrayList<>();
+
+        timeline.export((method, endpoint) -> {
+            started.add(endpoint);
+            return null;
+        });
+
+        assertTrue(started.isEmpty());
+    }
+
+    private static WorkflowTimeline.NodeTiming node(String nodeId, long start, long end, String status) {
+        WorkflowTimeline.NodeTiming node = new WorkflowTimeline.NodeTiming();
+        node.setNodeId(nodeId);
+        node.setStartOffsetNanos(start);
+        node.setEndOffsetNanos(end);
+        node.setStatus(status);
+        return node;
+    }
+
+    private static class RecordingTracer implements DifyTracer {
+        final List<RecordingSpan> spans = new ArrayList<>();
+        final List<RecordingSpan> ended = new ArrayList<>();
+
+        @Override
+        public DifySpan startSpan(String method, String endpoint) {
+            throw new AssertionError("不应创建请求 span");
+        }
+
+        @Override
+        public Object captureContext() {
+            return "current";
+        }
+
+        @Override
+        public DifySpan startTimelineSpan(String name, Object parent, long startEpochNanos) {
+            RecordingSpan span = new RecordingSpan(this, name, parent, startEpochNanos);
+            spans.add(span);
+            return span;
+        }
+    }
+
+    private static class RecordingSpan implements DifySpan {
+        final RecordingTracer tracer;
+        final String name;
+        final Object parent;
+        final long start;
+        final Map<String, Object> attributes = new HashMap<>();
+        long end = -1;
+        boolean failed;
+        String error;
+
+        RecordingSpan(RecordingTracer tracer, String name, Object parent, long start) {
+            this.tracer = tracer;
+            this.name = name;
+            this.parent = parent;
+            this.start = start;
+        }
+
+        @Override
+        public void inject(BiConsumer<String, String> setter) {
+        }
+
+        @Override
+        public void setAttribute(String key, String value) {
+            attributes.put(key, value);
+        }
+
+        @Override
+        public void setAttribute(String key, long value) {
+            attributes.put(key, value);
+        }
+
+        @Override
+        public void setAttribute(String key, double value) {
+            attributes.put(key, value);
+        }
+
+        @Override
+        public void setError(String description) {
+            failed = true;
+            error = description;
+        }
+
+        @Override
+        public Object context() {
+            return this;
+        }
+
+        @Override
+        public void end() {
+            throw new AssertionError("应使用时间线的结束时间");
+        }
+
+        @Override
+        public void end(long endEpochNanos) {
+            end = endEpochNanos;
+            tracer.ended.add(this);
+        }
+    }
+}
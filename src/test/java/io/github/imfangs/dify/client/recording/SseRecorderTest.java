@@ -0,0 +1,164 @@
+package io.github.imfangs.dify.client.recording;
+
+import io.github.imfangs.dify.client.callback.ChatStreamCallback;
+import io.github.imfangs.dify.client.config.FakeDifyServer;
+import io.github.imfangs.dify.client.enums.ResponseMode;
+import io.github.imfangs.dify.client.event.MessageEndEvent;
+import io.github.imfangs.dify.client.event.MessageEvent;
+import io.github.imfangs.dify.client.impl.DefaultDifyClient;
+import io.github.imfangs.dify.client.model.DifyConfig;
+import io.github.imfangs.dify.client.model.chat.ChatMessage;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okio.Buffer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SseRecorderTest {
+    private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void writesAndReadsStreams() throws Exception {
+        Path file = dir.resolve("streams.sse");
+        try (SseRecorder recorder = new SseRecorder(file)) {
+            int first = recorder.startStream("/chat-messages");
+            int second = recorder.startStream("/workflows/run");
+            recorder.frame(first, 10, "data: {\"event\":\"message\",\"answer\":\"你\"}");
+            recorder.frame(second, 20, "event: ping");
+            recorder.frame(first, 30, "");
+            recorder.endStream(first, 40);
+        }
+        // 追加写入的流 ID 重新从 1 开始
+        try (SseRecorder recorder = new SseRecorder(file)) {
+            int third = recorder.startStream("/chat-messages");
+            recorder.frame(third, 5, "data: {}");
+            recorder.endStream(third, 6);
+        }
+
+        List<SseRecording.RecordedStream> streams = SseRecording.read(file);
+        assertEquals(3, streams.size());
+        SseRecording.RecordedStream first = streams.get(0);
+        assertEquals("/chat-messages", first.getPath());
+        assertEquals(40, first.getEndOffsetNanos());
+        assertEquals(Arrays.asList(new SseRecording.Frame(10, "data: {\"event\":\"message\",\"answer\":\"你\"}"),
+                new SseRecording.Frame(30, "")), first.getFrames());
+        assertEquals(-1, streams.get(1).getEndOffsetNanos());
+        assertEquals(1, streams.get(1).getFrames().size());
+        assertEquals(Collections.singletonList(new SseRecording.Frame(5, "data: {}")), streams.get(2).getFrames());
+    }
+
+    @Test
+    void replaysRecordingThroughClientAndRecordsItAgain() throws Exception {
+        SseRecording.RecordedStream recorded = new SseRecording.RecordedStream("/chat-messages", 0, Arrays.asList(
+                new SseRecording.Frame(1_000_000, "data: {\"event\":\"message\",\"answer\":\"你\"}"),
+                new SseRecording.Frame(1_000_000, ""),
+                new SseRecording.Frame(2_000_000, "data: {\"event\":\"message\",\"answer\":\"好\"}"),
+                new SseRecording.Frame(2_000_000, ""),
+                new SseRecording.Frame(3_000_000, "data: {\"event\":\"message_end\",\"id\":\"m1\"}"),
+                new SseRecording.Frame(3_000_000, "")), 3_000_000);
+        OkHttpClient httpClient = new OkHttpClient.Builder()
+                .addInterceptor(new SseReplayInterceptor(Collections.singletonList(recorded), 1))
+                .build();
+
+        Path file = dir.resolve("replay.sse");
+        StringBuilder answer = new StringBuilder();
+        CountDownLatch done = new CountDownLatch(1);
+        try (SseRecorder recorder = new SseRecorder(file)) {
+            DifyConfig config = DifyConfig.builder().baseUrl(FakeDifyServer.BASE_URL).apiKey("app-test").streamRecorder(recorder).build();
+            new DefaultDifyClient(config, httpClient).sendChatMessageStream(ChatMessage.builder()
+                    .query("你好")
+                    .user("test")
+                    .responseMode(ResponseMode.STREAMING)
+                    .build(), new ChatStreamCallback() {
+                @Override
+                public void onMessage(MessageEvent event) {
+                    answer.append(event.getAnswer());
+                }
+
+                @Override
+                public void onMessageEnd(MessageEndEvent event) {
+                    done.countDown();
+                }
+            });
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            // 等待读取线程结束，确保结束记录已入队
+            while (httpClient.dispatcher().runningCallsCount() > 0) {
+                Thread.sleep(10);
+            }
+        }
+
+        assertEquals("你好", answer.toString());
+        List<SseRecording.RecordedStream> streams = SseRecording.read(file);
+        assertEquals(1, streams.size());
+        SseRecording.RecordedStream replayed = streams.get(0);
+        assertEquals("/chat-messages", replayed.getPath());
+        assertTrue(replayed.getEndOffsetNanos() >= 3_000_000);
+        assertEquals(6, replayed.getFrames().size());
+        for (int i = 0; i < 6; i++) {
+            assertEquals(recorded.getFrames().get(i).getLine(), replayed.getFrames().get(i).getLine());
+            assertTrue(replayed.getFrames().get(i).getOffsetNanos() >= recorded.getFrames().get(i).getOffsetNanos());
+        }
+    }
+
+    @Test
+    void replaysOnlyStreamingRequests() throws Exception {
+        SseRecording.RecordedStream recorded = new SseRecording.RecordedStream("/chat-messages", 0, Collections.singletonList(
+                new SseRecording.Frame(0, "data: {\"event\":\"message_end\",\"id\":\"m1\"}")), 0);
+        FakeDifyServer server = new FakeDifyServer().on("POST", "/chat-messages", "{\"answer\":\"blocking\"}");
+        OkHttpClient httpClient = new OkHttpClient.Builder()
+                .addInterceptor(new SseReplayInterceptor(Collections.singletonList(recorded), 0))
+                .addInterceptor(server)
+                .build();
+
+        String blocking = "{\"query\":\"你好\",\"response_mode\":\"blocking\"}";
+        try (Response response = httpClient.newCall(post(blocking).build()).execute()) {
+            assertEquals("{\"answer\":\"blocking\"}", response.body().string());
+        }
+        assertEquals(1, server.requestCount());
+
+        String streaming = "{\"query\":\"你好\",\"response_mode\": \"streaming\"}";
+        try (Response response = httpClient.newCall(post(streaming).build()).execute()) {
+            assertTrue(response.body().string().startsWith("data: {\"event\":\"message_end\""));
+        }
+        try (Response response = httpClient.newCall(post("{}").header("Accept", "text/event-stream").build()).execute()) {
+            assertEquals("text/event-stream", response.header("Content-Type"));
+        }
+        assertEquals(1, server.requestCount());
+    }
+
+    @Test
+    void replaySourceRespectsByteCount() throws Exception {
+        String line = "data: {\"event\":\"message\",\"answer\":\"一段较长的回答\"}";
+        SseReplayInterceptor.ReplaySource source = new SseReplayInterceptor.ReplaySource(Arrays.asList(
+                new SseRecording.Frame(0, line), new SseRecording.Frame(0, "")), 0);
+
+        Buffer received = new Buffer();
+        Buffer chunk = new Buffer();
+        long read;
+        while ((read = source.read(chunk, 4)) != -1) {
+            assertTrue(read > 0 && read <= 4);
+            assertEquals(read, chunk.size());
+            received.writeAll(chunk);
+        }
+        assertEquals(line + "\n\n", received.readUtf8());
+    }
+
+    private static Request.Builder post(String json) {
+        return new Request.Builder().url(FakeDifyServer.BASE_URL + "/chat-messages").post(RequestBody.create(json, JSON));
+    }
+}
@@ -0,0 +1,64 @@
+package io.github.imfangs.dify.client.upload;
+
+import io.github.imfangs.dify.client.config.FakeDifyServer;
+import io.github.imfangs.dify.client.impl.DifyBaseClientImpl;
+import io.github.imfangs.dify.client.model.file.FileUploadRequest;
+import io.github.imfangs.dify.client.model.file.FileUploadResponse;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileUploadCacheTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void persistsEntriesAndDropsExpiredOnes() throws Exception {
+        Path store = dir.resolve("uploads.cache");
+        FileUploadCache cache = new FileUploadCache(60000, 2, store);
+        cache.put("a", FileUploadResponse.builder().id("file-a").build());
+        cache.put("b", FileUploadResponse.builder().id("file-b").build());
+        cache.put("c", FileUploadResponse.builder().id("file-c").build());
+        assertNull(cache.get("a"));
+        assertEquals(2, cache.size());
+
+        FileUploadCache reloaded = new FileUploadCache(60000, 2, store);
+        assertEquals("file-b", reloaded.get("b").getId());
+        assertEquals("file-c", reloaded.get("c").getId());
+
+        FileUploadCache expired = new FileUploadCache(0, 10);
+        expired.put("a", FileUploadResponse.builder().id("file-a").build());
+        assertNull(expired.get("a"));
+    }
+
+    @Test
+    void skipsUploadForIdenticalContent() throws Exception {
+        AtomicInteger uploads = new AtomicInteger();
+        FakeDifyServer server = new FakeDifyServer().on("POST", "/files/upload",
+                chain -> FakeDifyServer.json(201, "{\"id\":\"file-" + uploads.incrementAndGet() + "\",\"name\":\"a.png\"}"));
+        DifyBaseClientImpl client = new DifyBaseClientImpl(server.config()
+                .uploadCache(new FileUploadCache(FileUploadCache.DEFAULT_TTL, 100))
+                .build(), server.httpClient());
+
+        byte[] content = "same image bytes".getBytes(StandardCharsets.UTF_8);
+        File file = Files.write(dir.resolve("a.png"), content).toFile();
+        assertEquals("file-1", client.uploadFile(file, "user-1").getId());
+        assertEquals("file-1", client.uploadFile(file, "user-1").getId());
+        FileUploadRequest request = FileUploadRequest.builder().user("user-1").build();
+        assertEquals("file-1", client.uploadFile(request, new ByteArrayInputStream(content), "copy.PNG").getId());
+        assertEquals(1, uploads.get());
+
+        assertEquals("file-2", client.uploadFile(file, "user-2").getId());
+        assertEquals("file-3", client.uploadFile(request, new ByteArrayInputStream(content), "a.jpg").getId());
+        assertEquals(3, uploads.get());
+    }
+}
@@ -0,0 +1,140 @@
+package io.github.imfangs.dify.client.upload;
+
+import io.github.imfangs.dify.client.enums.FileTransferMethod;
+import io.github.imfangs.dify.client.enums.FileType;
+import io.github.imfangs.dify.client.exception.DifyApiException;
+import io.github.imfangs.dify.client.DifyClient;
+import io.github.imfangs.dify.client.callback.WorkflowStreamCallback;
+import io.github.imfangs.dify.client.config.FakeDifyServer;
+import io.github.imfangs.dify.client.impl.DefaultDifyClient;
+import io.github.imfangs.dify.client.impl.DifyBaseClientImpl;
+import io.github.imfangs.dify.client.model.chat.AppParametersResponse;
+import io.github.imfangs.dify.client.model.file.FileInfo;
+import io.github.imfangs.dify.client.model.file.FileUploadRequest;
+import io.github.imfangs.dify.client.model.workflow.WorkflowRunRequest;
+import okio.Buffer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileUploadValidatorTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void checksTypeSizeAndCount() throws Exception {
+        FileUploadValidator validator = new FileUploadValidator(AppParametersResponse.FileUpload.builder()
+                .allowedFileTypes(Arrays.asList("image", "custom"))
+                .allowedFileExtensions(Arrays.asList(".PDF", "md"))
+                .numberLimits(3)
+                .image(AppParametersResponse.FileUpload.Image.builder().enabled(true).numberLimits(2).build())
+                .fileUploadConfig(AppParametersResponse.FileUpload.FileUploadConfig.builder()
+                        .fileSizeLimit(15).imageFileSizeLimit(1).batchCountLimit(5).build())
+                .build());
+
+        validator.validateFile("a.png", 1024 * 1024);
+        validator.validateFile("a.pdf", 10 * 1024 * 1024);
+        validator.validateFile("notes.MD", -1);
+        assertEquals(413, assertThrows(DifyApiException.class, () -> validator.validateFile("a.png", 1024 * 1024 + 1)).getStatusCode());
+        assertEquals("unsupported_file_type", assertThrows(DifyApiException.class, () -> validator.validateFile("a.docx", 1)).getErrorCode());
+        assertThrows(DifyApiException.class, () -> validator.validateFile("README", 1));
+
+        validator.validateBatch(5);
+        assertThrows(DifyApiException.class, () -> validator.validateBatch(6));
+
+        List<FileInfo> files = new ArrayList<>(Arrays.asList(image(), image(), document()));
+        validator.validateMessageFiles(files);
+        files.add(document());
+        assertThrows(DifyApiException.class, () -> validator.validateMessageFiles(files));
+        assertThrows(DifyApiException.class, () -> validator.validateMessageFiles(Arrays.asList(image(), image(), image())));
+
+        FileUploadValidator documents = FileUploadValidator.forDocuments(15);
+        documents.validateFile("a.pdf", 1);
+        assertThrows(DifyApiException.class, () -> documents.validateFile("a.png", 1));
+        for (String name : Arrays.asList("a.htm", "a.mdx", "a.vtt", "a.properties", "a.doc")) {
+            documents.validateFile(name, 1);
+        }
+        assertThrows(DifyApiException.class, () -> documents.validateFile("a.vtt", 16 * 1024 * 1024));
+    }
+
+    @Test
+    void rejectsBeforeUploadUsingCachedParameters() throws Exception {
+        FakeDifyServer server = new FakeDifyServer()
+                .on("GET", "/parameters", "{\"file_upload\":{\"allowed_file_types\":[\"document\"],\"fileUploadConfig\":{\"file_size_limit\":1}}}")
+                .on("POST", "/files/upload", "{\"id\":\"file-1\"}");
+        DifyBaseClientImpl client = new DifyBaseClientImpl(server.config().fileUploadValidation(true).build(), server.httpClient());
+
+        File image = Files.write(dir.resolve("a.png"), new byte[16]).toFile();
+        File large = Files.write(dir.resolve("large.pdf"), new byte[1024 * 1024 + 1]).toFile();
+        File small = Files.write(dir.resolve("small.pdf"), new byte[16]).toFile();
+        assertThrows(DifyApiException.class, () -> client.uploadFile(image, "user"));
+        assertThrows(DifyApiException.class, () -> client.uploadFile(large, "user"));
+        assertEquals("file-1", client.uploadFile(small, "user").getId());
+
+        assertEquals(Arrays.asList("/v1/parameters", "/v1/files/upload"), server.paths());
+    }
+
+    @Test
+    void checksStreamSizeWhileUploading() throws Exception {
+        FakeDifyServer server = new FakeDifyServer()
+                .on("GET", "/parameters", "{\"file_upload\":{\"allowed_file_types\":[\"document\"],\"fileUploadConfig\":{\"file_size_limit\":1}}}")
+                .on("POST", "/files/upload", chain -> {
+                    // 像服务端一样读取请求体
+                    chain.request().body().writeTo(new Buffer());
+                    return FakeDifyServer.json("{\"id\":\"file-1\"}");
+                });
+        DifyBaseClientImpl client = new DifyBaseClientImpl(server.config().fileUploadValidation(true).build(), server.httpClient());
+        FileUploadRequest request = FileUploadRequest.builder().user("user").build();
+
+        DifyApiException e = assertThrows(DifyApiException.class,
+                () -> client.uploadFile(request, new ByteArrayInputStream(new byte[1024 * 1024 + 1]), "large.pdf"));
+        assertEquals(413, e.getStatusCode());
+        assertEquals("file-1", client.uploadFile(request, new ByteArrayInputStream(new byte[1024 * 1024]), "small.pdf").getId());
+        assertEquals(1024 * 1024, FileUploadValidator.forDocuments(1).maxFileSize("a.pdf"));
+        assertEquals(-1, FileUploadValidator.forDocuments(0).maxFileSize("a.pdf"));
+    }
+
+    @Test
+    void checksWorkflowFilesAndBatchCount() throws Exception {
+        FakeDifyServer server = new FakeDifyServer()
+                .on("GET", "/parameters", "{\"file_upload\":{\"number_limits\":2,\"image\":{\"enabled\":true,\"number_limits\":1},"
+                        + "\"fileUploadConfig\":{\"batch_count_limit\":2}}}")
+                .on("POST", "/workflows/run", "{\"workflow_run_id\":\"r1\"}");
+        DifyClient client = new DefaultDifyClient(server.config().fileUploadValidation(true).build(), server.httpClient());
+
+        DifyApiException e = assertThrows(DifyApiException.class, () -> client.runWorkflow(WorkflowRunRequest.builder()
+                .user("user").files(Arrays.asList(image(), image())).build()));
+        assertEquals("too_many_files", e.getErrorCode());
+        assertThrows(DifyApiException.class, () -> client.runWorkflowStream(WorkflowRunRequest.builder()
+                .user("user").files(Arrays.asList(image(), document(), document())).build(), new WorkflowStreamCallback() {
+        }));
+        assertEquals("r1", client.runWorkflow(WorkflowRunRequest.builder()
+                .user("user").files(Arrays.asList(image(), document())).build()).getWorkflowRunId());
+
+        List<File> files = new ArrayList<>();
+        for (String name : Arrays.asList("a.pdf", "b.pdf", "c.pdf")) {
+            files.add(Files.write(dir.resolve(name), new byte[1]).toFile());
+        }
+        assertThrows(DifyApiException.class, () -> new MultiFileUploader(client, 2).upload(files, "user"));
+
+        assertEquals(Arrays.asList("/v1/parameters", "/v1/workflows/run"), server.paths());
+    }
+
+    private static FileInfo image() {
+        return FileInfo.builder().type(FileType.IMAGE).transferMethod(FileTransferMethod.LOCAL_FILE).uploadFileId("f").build();
+    }
+
+    private static FileInfo document() {
+        return FileInfo.builder().type(FileType.DOCUMENT).transferMethod(FileTransferMethod.LOCAL_FILE).uploadFileId("f").build();
+    }
+}
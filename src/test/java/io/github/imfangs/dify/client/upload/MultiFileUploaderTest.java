@@ -0,0 +1,141 @@
+package io.github.imfangs.dify.client.upload;
+
+import io.github.imfangs.dify.client.config.FakeDifyServer;
+import io.github.imfangs.dify.client.enums.FileTransferMethod;
+import io.github.imfangs.dify.client.enums.FileType;
+import io.github.imfangs.dify.client.exception.DifyApiException;
+import io.github.imfangs.dify.client.impl.DifyBaseClientImpl;
+import io.github.imfangs.dify.client.model.chat.ChatMessage;
+import io.github.imfangs.dify.client.model.file.FileInfo;
+import io.github.imfangs.dify.client.model.workflow.WorkflowRunRequest;
+import okio.Buffer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MultiFileUploaderTest {
+    private static final Pattern FILE_NAME = Pattern.compile("filename=\"([^\"]+)\"");
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void uploadsConcurrentlyAndAttachesInOrder() throws Exception {
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger maxActive = new AtomicInteger();
+        DifyBaseClientImpl client = client(active, maxActive);
+        List<File> files = new ArrayList<>();
+        for (String name : Arrays.asList("a.png", "b.pdf", "c.mp3", "d.bin", "e.jpg", "f.txt")) {
+            files.add(Files.write(dir.resolve(name), name.getBytes()).toFile());
+        }
+
+        ChatMessage message = ChatMessage.builder().query("看看这些文件").user("user")
+                .files(new ArrayList<>(Arrays.asList(FileInfo.builder().type(FileType.IMAGE)
+                        .transferMethod(FileTransferMethod.REMOTE_URL).url("https://example.com/x.png").build())))
+                .build();
+        new MultiFileUploader(client, 3).attach(message, files);
+
+        assertEquals(3, maxActive.get());
+        List<FileInfo> attached = message.getFiles();
+        assertEquals(7, attached.size());
+        assertEquals(FileTransferMethod.REMOTE_URL, attached.get(0).getTransferMethod());
+        assertEquals("id-a.png", attached.get(1).getUploadFileId());
+        assertEquals(FileType.IMAGE, attached.get(1).getType());
+        assertEquals(FileType.DOCUMENT, attached.get(2).getType());
+        assertEquals(FileType.AUDIO, attached.get(3).getType());
+        assertEquals(FileType.CUSTOM, attached.get(4).getType());
+        assertEquals("id-f.txt", attached.get(6).getUploadFileId());
+        assertEquals(FileTransferMethod.LOCAL_FILE, attached.get(6).getTransferMethod());
+    }
+
+    @Test
+    void propagatesUploadFailure() throws Exception {
+        DifyBaseClientImpl client = client(new AtomicInteger(), new AtomicInteger());
+        File ok = Files.write(dir.resolve("ok.png"), new byte[1]).toFile();
+        File bad = Files.write(dir.resolve("fail.png"), new byte[1]).toFile();
+
+        DifyApiException e = assertThrows(DifyApiException.class,
+                () -> new MultiFileUploader(client, 2).upload(Arrays.asList(ok, bad), "user"));
+        assertEquals(413, e.getStatusCode());
+    }
+
+    @Test
+    void failsOnFirstCompletedFailureAndCancelsTheRest() throws Exception {
+        AtomicInteger active = new AtomicInteger();
+        DifyBaseClientImpl client = client(active, new AtomicInteger());
+        File slow = Files.write(dir.resolve("slow.png"), new byte[1]).toFile();
+        File bad = Files.write(dir.resolve("fail.png"), new byte[1]).toFile();
+
+        long start = System.nanoTime();
+        assertThrows(DifyApiException.class, () -> new MultiFileUploader(client, 2).upload(Arrays.asList(slow, bad), "user"));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 2000);
+        // 慢上传被中断
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+        while (active.get() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, active.get());
+    }
+
+    @Test
+    void checksFileCountBeforeUploadingAnything() throws Exception {
+        FakeDifyServer server = new FakeDifyServer()
+                .on("GET", "/parameters", "{\"file_upload\":{\"number_limits\":3,\"image\":{\"enabled\":true,\"number_limits\":1},"
+                        + "\"fileUploadConfig\":{\"batch_count_limit\":5}}}")
+                .on("POST", "/files/upload", "{\"id\":\"file-1\"}");
+        DifyBaseClientImpl client = new DifyBaseClientImpl(server.config().fileUploadValidation(true).build(), server.httpClient());
+        MultiFileUploader uploader = new MultiFileUploader(client, 2);
+        List<File> files = new ArrayList<>();
+        for (String name : Arrays.asList("a.pdf", "b.pdf", "c.pdf", "d.pdf", "e.pdf", "f.pdf")) {
+            files.add(Files.write(dir.resolve(name), new byte[1]).toFile());
+        }
+
+        DifyApiException batch = assertThrows(DifyApiException.class, () -> uploader.upload(files, "user"));
+        assertEquals("too_many_files", batch.getErrorCode());
+        ChatMessage message = ChatMessage.builder().query("q").user("user")
+                .files(new ArrayList<>(Arrays.asList(FileInfo.builder().type(FileType.IMAGE)
+                        .transferMethod(FileTransferMethod.REMOTE_URL).url("https://example.com/x.png").build())))
+                .build();
+        assertThrows(DifyApiException.class, () -> uploader.attach(message, files.subList(0, 3)));
+        File image = Files.write(dir.resolve("b.png"), new byte[1]).toFile();
+        assertThrows(DifyApiException.class, () -> uploader.attach(WorkflowRunRequest.builder().user("user")
+                .files(message.getFiles()).build(), Collections.singletonList(image)));
+
+        assertEquals(1, message.getFiles().size());
+        assertEquals(Collections.singletonList("/v1/parameters"), server.paths());
+    }
+
+    private static DifyBaseClientImpl client(AtomicInteger active, AtomicInteger maxActive) {
+        FakeDifyServer server = new FakeDifyServer().on("POST", "/files/upload", chain -> {
+            maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+            try {
+                Buffer body = new Buffer();
+                chain.request().body().writeTo(body);
+                Matcher matcher = FILE_NAME.matcher(body.readUtf8());
+                assertTrue(matcher.find());
+                String name = matcher.group(1);
+                Thread.sleep(name.startsWith("slow") ? 5000 : 100);
+                if (name.startsWith("fail")) {
+                    return FakeDifyServer.error(413, "file_too_large", "too large");
+                }
+                return FakeDifyServer.json(201, "{\"id\":\"id-" + name + "\",\"name\":\"" + name + "\"}");
+            } finally {
+                active.decrementAndGet();
+            }
+        });
+        return new DifyBaseClientImpl(server.config().build(), server.httpClient());
+    }
+}
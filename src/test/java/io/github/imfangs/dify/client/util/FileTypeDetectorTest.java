@@ -0,0 +1,87 @@
+package io.github.imfangs.dify.client.util;
+
+import io.github.imfangs.dify.client.enums.FileType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileTypeDetectorTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void detectsByMagicNumberBeforeExtension() {
+        assertDetected(FileType.IMAGE, "image/png", bytes(0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A), "upload.bin");
+        assertDetected(FileType.IMAGE, "image/jpeg", bytes(0xFF, 0xD8, 0xFF, 0xE0), null);
+        assertDetected(FileType.DOCUMENT, "application/pdf", "%PDF-1.7".getBytes(StandardCharsets.US_ASCII), "report");
+        assertDetected(FileType.IMAGE, "image/webp", "RIFF\0\0\0\0WEBPVP8 ".getBytes(StandardCharsets.US_ASCII), "a");
+        assertDetected(FileType.AUDIO, "audio/wav", "RIFF\0\0\0\0WAVEfmt ".getBytes(StandardCharsets.US_ASCII), "a");
+        assertDetected(FileType.AUDIO, "audio/mp4", "\0\0\0 ftypM4A \0\0\0\0".getBytes(StandardCharsets.US_ASCII), "a");
+        assertDetected(FileType.VIDEO, "video/mp4", "\0\0\0 ftypisom\0\0\0\0".getBytes(StandardCharsets.US_ASCII), "a");
+        assertDetected(FileType.AUDIO, "audio/mpeg", "ID3\u0004\0\0".getBytes(StandardCharsets.US_ASCII), "a");
+        assertDetected(FileType.AUDIO, "video/webm", bytes(0x1A, 0x45, 0xDF, 0xA3), "voice.webm");
+        assertDetected(FileType.VIDEO, "video/webm", bytes(0x1A, 0x45, 0xDF, 0xA3), "clip");
+    }
+
+    @Test
+    void usesExtensionForContainersAndText() {
+        byte[] zip = bytes('P', 'K', 0x03, 0x04, 0x14, 0x00);
+        assertDetected(FileType.DOCUMENT, "application/vnd.openxmlformats-officedocument.wordprocessingml.document", zip, "a.DOCX");
+        assertDetected(FileType.CUSTOM, "application/zip", zip, "a.zip");
+        assertDetected(FileType.DOCUMENT, "text/markdown", "# title".getBytes(StandardCharsets.UTF_8), "README.md");
+        assertDetected(FileType.CUSTOM, "application/octet-stream", new byte[]{1, 2, 3}, "model.cad");
+    }
+
+    @Test
+    void rejectsWeakAudioAndUnknownFtypMatches() {
+        assertDetected(FileType.AUDIO, "audio/mpeg", bytes(0xFF, 0xFB, 0x90, 0x64), "a");
+        // 保留的码率、采样率或版本不是 MP3 帧
+        assertDetected(FileType.CUSTOM, "application/octet-stream", bytes(0xFF, 0xFB, 0xF0, 0x64), "a");
+        assertDetected(FileType.CUSTOM, "application/octet-stream", bytes(0xFF, 0xFB, 0x9C, 0x64), "a");
+        assertDetected(FileType.CUSTOM, "application/octet-stream", bytes(0xFF, 0xEB, 0x90, 0x64), "a");
+        // UTF-16LE 文本的 BOM 与帧同步相同，按文档扩展名判断
+        byte[] utf16 = bytes(0xFF, 0xFE, 'h', 0, 'i', 0);
+        assertDetected(FileType.DOCUMENT, "text/plain", utf16, "notes.txt");
+        assertDetected(FileType.DOCUMENT, "text/csv", utf16, "table.csv");
+
+        assertDetected(FileType.VIDEO, "video/mp4", "\0\0\0 ftypmp42\0\0\0\0".getBytes(StandardCharsets.US_ASCII), "a");
+        assertDetected(FileType.VIDEO, "video/quicktime", "\0\0\0 ftypqt  \0\0\0\0".getBytes(StandardCharsets.US_ASCII), "a");
+        // HEIC、AVIF 也使用 ftyp，按扩展名判断
+        assertDetected(FileType.CUSTOM, "application/octet-stream", "\0\0\0 ftypheic\0\0\0\0".getBytes(StandardCharsets.US_ASCII), "photo.heic");
+        assertDetected(FileType.CUSTOM, "application/octet-stream", "\0\0\0 ftypmif1\0\0\0\0".getBytes(StandardCharsets.US_ASCII), "photo.heif");
+        assertDetected(FileType.IMAGE, "image/png", "\0\0\0 ftypavif\0\0\0\0".getBytes(StandardCharsets.US_ASCII), "photo.png");
+    }
+
+    @Test
+    void detectsFromPathAndResetsStream() throws Exception {
+        Path png = Files.write(dir.resolve("image"), bytes(0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A, 0, 0));
+        assertEquals("image/png", FileTypeDetector.detect(png).getMediaType().toString());
+
+        InputStream input = new BufferedInputStream(new ByteArrayInputStream("%PDF-1.4 body".getBytes(StandardCharsets.US_ASCII)));
+        assertEquals(FileType.DOCUMENT, FileTypeDetector.detect(input, "a").getFileType());
+        assertEquals('%', input.read());
+    }
+
+    private static void assertDetected(FileType fileType, String mediaType, byte[] header, String fileName) {
+        FileTypeDetector.Result result = FileTypeDetector.detect(header, header.length, fileName);
+        assertEquals(fileType, result.getFileType());
+        assertEquals(mediaType, result.getMediaType().toString());
+    }
+
+    private static byte[] bytes(int... values) {
+        byte[] bytes = new byte[values.length];
+        for (int i = 0; i < values.length; i++) {
+            bytes[i] = (byte) values[i];
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,181 @@
+package io.github.imfangs.dify.client.workflow;
+
+import io.github.imfangs.dify.client.callback.WorkflowStreamCallback;
+import io.github.imfangs.dify.client.config.FakeDifyServer;
+import io.github.imfangs.dify.client.event.WorkflowStartedEvent;
+import io.github.imfangs.dify.client.exception.DifyApiException;
+import io.github.imfangs.dify.client.impl.DefaultDifyClient;
+import io.github.imfangs.dify.client.model.workflow.WorkflowRunRequest;
+import io.github.imfangs.dify.client.model.workflow.WorkflowRunStatusResponse;
+import okhttp3.Call;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.ForwardingSource;
+import okio.Okio;
+import okio.Pipe;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WorkflowRunTrackerTest {
+    private static final String STARTED = "{\"event\":\"workflow_started\",\"task_id\":\"task-1\",\"workflow_run_id\":\"run-1\",\"data\":{\"id\":\"run-1\"}}";
+    private static final String FINISHED = "{\"event\":\"workflow_finished\",\"task_id\":\"task-1\",\"workflow_run_id\":\"run-1\","
+            + "\"data\":{\"id\":\"run-1\",\"status\":\"succeeded\",\"outputs\":{\"text\":\"streamed\"},\"total_steps\":3}}";
+
+    @Test
+    void completesFromStream() throws Exception {
+        FakeServer server = new FakeServer(Stream.COMPLETE);
+        List<String> events = new CopyOnWriteArrayList<>();
+        try (WorkflowRunTracker tracker = new WorkflowRunTracker(server.client(), 1000, 10, 100, 1)) {
+            WorkflowRunStatusResponse run = tracker.run(request(), new WorkflowStreamCallback() {
+                @Override
+                public void onWorkflowStarted(WorkflowStartedEvent event) {
+                    events.add(event.getTaskId());
+                }
+            }, 5000).get(5, TimeUnit.SECONDS);
+
+            assertEquals("succeeded", run.getStatus());
+            assertEquals("streamed", ((Map<?, ?>) run.getOutputs()).get("text"));
+            assertEquals(Collections.singletonList("task-1"), events);
+            assertEquals(0, server.polls.get());
+        }
+    }
+
+    @Test
+    void pollsWhenStreamGoesIdle() throws Exception {
+        FakeServer server = new FakeServer(Stream.IDLE);
+        AtomicReference<Call> call = new AtomicReference<>();
+        try (WorkflowRunTracker tracker = new WorkflowRunTracker(server.client(), 100, 10, 100, 1)) {
+            WorkflowRunStatusResponse run = tracker.run(request(), new WorkflowStreamCallback() {
+                @Override
+                public void onOpen(Call opened) {
+                    call.set(opened);
+                }
+            }, 5000).get(5, TimeUnit.SECONDS);
+
+            assertEquals("succeeded", run.getStatus());
+            assertEquals("polled", ((Map<?, ?>) run.getOutputs()).get("text"));
+            assertEquals(3, server.polls.get());
+            // 改为轮询时关闭了空闲的流式连接
+            assertTrue(call.get().isCanceled());
+        } finally {
+            server.idle.sink().close();
+        }
+    }
+
+    @Test
+    void pollsWhenStreamEndsWithoutFinish() throws Exception {
+        FakeServer server = new FakeServer(Stream.TRUNCATED);
+        try (WorkflowRunTracker tracker = new WorkflowRunTracker(server.client(), 60000, 10, 100, 1)) {
+            WorkflowRunStatusResponse run = tracker.run(request(), 5000).get(5, TimeUnit.SECONDS);
+
+            assertEquals("polled", ((Map<?, ?>) run.getOutputs()).get("text"));
+            assertEquals(3, server.polls.get());
+        }
+    }
+
+    @Test
+    void pollsWhenStreamFails() throws Exception {
+        FakeServer server = new FakeServer(Stream.BROKEN);
+        try (WorkflowRunTracker tracker = new WorkflowRunTracker(server.client(), 60000, 10, 100, 1)) {
+            long start = System.nanoTime();
+            WorkflowRunStatusResponse run = tracker.run(request(), 5000).get(5, TimeUnit.SECONDS);
+
+            assertEquals("polled", ((Map<?, ?>) run.getOutputs()).get("text"));
+            assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 5000);
+        }
+    }
+
+    @Test
+    void failsWithoutRunIdAndTimesOut() throws Exception {
+        FakeServer server = new FakeServer(Stream.REJECTED);
+        try (WorkflowRunTracker tracker = new WorkflowRunTracker(server.client(), 100, 10, 100, 1)) {
+            ExecutionException rejected = assertThrows(ExecutionException.class, () -> tracker.run(request(), 5000).get(5, TimeUnit.SECONDS));
+            assertEquals(400, ((DifyApiException) rejected.getCause()).getStatusCode());
+
+            server.stream = Stream.TRUNCATED;
+            server.stuck = true;
+            ExecutionException timeout = assertThrows(ExecutionException.class, () -> tracker.run(request(), 300).get(5, TimeUnit.SECONDS));
+            assertTrue(timeout.getCause() instanceof TimeoutException);
+            assertEquals(1, server.stops.get());
+        }
+    }
+
+    private static WorkflowRunRequest request() {
+        return WorkflowRunRequest.builder().inputs(Collections.emptyMap()).user("user").build();
+    }
+
+    private enum Stream {
+        COMPLETE, TRUNCATED, IDLE, BROKEN, REJECTED
+    }
+
+    /**
+     * 模拟服务端，轮询时前两次返回 running，第三次返回 succeeded
+     */
+    private static final class FakeServer {
+        private final AtomicInteger polls = new AtomicInteger();
+        private final AtomicInteger stops = new AtomicInteger();
+        private final Pipe idle = new Pipe(8192);
+        private volatile Stream stream;
+        private volatile boolean stuck;
+
+        FakeServer(Stream stream) {
+            this.stream = stream;
+        }
+
+        DefaultDifyClient client() {
+            return new FakeDifyServer()
+                    .on("POST", "/workflows/tasks/*/stop", chain -> {
+                        stops.incrementAndGet();
+                        return FakeDifyServer.json("{\"result\":\"success\"}");
+                    })
+                    .on("GET", "/workflows/run/*", chain -> {
+                        int count = polls.incrementAndGet();
+                        String status = !stuck && count >= 3 ? "succeeded" : "running";
+                        return FakeDifyServer.json("{\"id\":\"run-1\",\"status\":\"" + status + "\",\"total_steps\":" + count
+                                + ",\"outputs\":{\"text\":\"polled\"}}");
+                    })
+                    .on("POST", "/workflows/run", chain -> run())
+                    .client();
+        }
+
+        private FakeDifyServer.Reply run() throws IOException {
+            switch (stream) {
+                case COMPLETE:
+                    return FakeDifyServer.events(STARTED, FINISHED);
+                case TRUNCATED:
+                    return FakeDifyServer.events(STARTED);
+                case IDLE:
+                    // 发送 workflow_started 后保持连接但不再发送事件
+                    BufferedSink sink = Okio.buffer(idle.sink());
+                    sink.writeUtf8("data: " + STARTED + "\n\n").flush();
+                    return FakeDifyServer.stream(Okio.buffer(idle.source()));
+                case BROKEN:
+                    Buffer events = new Buffer().writeUtf8("data: " + STARTED + "\n\n");
+                    return FakeDifyServer.stream(Okio.buffer(new ForwardingSource(events) {
+                        @Override
+                        public long read(Buffer sink, long byteCount) throws IOException {
+                            long read = super.read(sink, byteCount);
+                            if (read == -1) {
+                                throw new IOException("connection reset");
+                            }
+                            return read;
+                        }
+                    }));
+                default:
+                    return FakeDifyServer.error(400, "invalid_param", "bad input");
+            }
+        }
+    }
+}